@@ -52,10 +52,10 @@ export function useGymManagement(userId) {
       }
     } else {
       try {
-        const response = await updateGym(selectedGym.id, { name: editedName });
+        const response = await updateGym(selectedGym.id, { name: editedName }, selectedGym.version);
         const updatedGym = response.data;
         setSelectedGym(updatedGym);
-        setGyms((prevGyms) => prevGyms.map(g => g.id === updatedGym.id ? { ...g, name: updatedGym.name } : g));
+        setGyms((prevGyms) => prevGyms.map(g => g.id === updatedGym.id ? updatedGym : g));
         setIsEditing(false);
         alert('Gym name was successfully updated');
       } catch (error) {
@@ -69,6 +69,11 @@ export function useGymManagement(userId) {
       alert('Your session has expired. Please log in again.');
       return;
     }
+    if (error?.response?.status === 412) {
+      alert('This gym was changed somewhere else. Reload the page to see the latest version.');
+      setIsEditing(false);
+      return;
+    }
     const errorMsg = error.response?.data?.errors?.[0] || error.response?.data?.message || `Failed to ${operation} gym`;
     let msg = `There was an error trying to ${operation} the gym: ${errorMsg}`;
     alert(msg);
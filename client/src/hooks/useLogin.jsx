@@ -13,6 +13,7 @@ const useLogin = () => {
         try {
             const res = await loginRequest(name, password);
             localStorage.setItem('token', res.data.token);
+            localStorage.setItem('refreshToken', res.data.refreshToken);
             localStorage.setItem('name', res.data.name);
             navigate('/');
         } catch (err) {
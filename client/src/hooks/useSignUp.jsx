@@ -1,19 +1,41 @@
-import { useState } from "react";
+import { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
-import { signUpRequest } from "../requests/SignUpRequests";
+import { checkNameAvailabilityRequest, signUpRequest } from "../requests/SignUpRequests";
 
-const useSignUp = () => {
+const useSignUp = (candidateName = "") => {
     const [name, setName] = useState("");
     const [password, setPassword] = useState("");
     const [confirmPassword, setConfirmPassword] = useState("");
     const [error, setError] = useState("");
+    const [nameAvailable, setNameAvailable] = useState(true);
     const navigate = useNavigate();
 
+    useEffect(() => {
+        if (!candidateName) {
+            setNameAvailable(true);
+            return;
+        }
+        let cancelled = false;
+        const timeout = setTimeout(async () => {
+            try {
+                const available = await checkNameAvailabilityRequest(candidateName);
+                if (!cancelled) setNameAvailable(available);
+            } catch {
+                if (!cancelled) setNameAvailable(true);
+            }
+        }, 250);
+        return () => {
+            cancelled = true;
+            clearTimeout(timeout);
+        };
+    }, [candidateName]);
+
     const handleSignUp = async (name, password) => {
         setError("");
         try {
             const res = await signUpRequest(name, password);
             localStorage.setItem("token", res.data.token);
+            localStorage.setItem("refreshToken", res.data.refreshToken);
             localStorage.setItem("name", res.data.name);
             navigate("/");
         } catch (err) {
@@ -31,6 +53,7 @@ const useSignUp = () => {
         setConfirmPassword,
         error,
         setError,
+        nameAvailable,
         handleSignUp,
     };
 }
@@ -4,7 +4,13 @@ import { deleteExercise } from '../requests/ExerciseRequests';
 import { useWorkoutsByGymId } from './useWorkoutsByGymId';
 
 export const useWorkoutManagement = (gymId) => {
-  const { workouts, loading: workoutsLoading, error: workoutsError, refresh: refreshWorkouts } = useWorkoutsByGymId(gymId);
+  const {
+    workouts,
+    loading: workoutsLoading,
+    error: workoutsError,
+    refresh: refreshWorkouts,
+    setWorkouts
+  } = useWorkoutsByGymId(gymId);
   const [openWorkout, setOpenWorkout] = useState(null);
   const [isEditingWorkout, setIsEditingWorkout] = useState(false);
   const [isCreatingWorkout, setIsCreatingWorkout] = useState(false);
@@ -17,6 +23,12 @@ export const useWorkoutManagement = (gymId) => {
       alert('Your session has expired. Please log in again.');
       return;
     }
+    if (error?.response?.status === 412) {
+      alert('This workout was changed somewhere else. The latest version has been loaded.');
+      handleCloseWorkout();
+      refreshWorkouts();
+      return;
+    }
     const errorMsg = error.response?.data?.errors?.[0] || error.response?.data?.message || `Failed to ${operation}`;
     alert(errorMsg);
   };
@@ -68,13 +80,21 @@ export const useWorkoutManagement = (gymId) => {
         savedWorkout = await updateWorkout(editedWorkout.id, {
           name: editedWorkout.name,
           exerciseList: editedWorkout.exerciseList
-        });
+        }, editedWorkout.version);
       }
+      // The response is the stored workout, so the list is patched in place
+      // instead of being fetched again.
+      const saved = savedWorkout.data;
+      setWorkouts(prevWorkouts => {
+        const list = prevWorkouts || [];
+        return list.some(w => w.id === saved.id)
+          ? list.map(w => w.id === saved.id ? saved : w)
+          : [...list, saved];
+      });
       setIsEditingWorkout(false);
       setIsCreatingWorkout(false);
-      setOpenWorkout(savedWorkout.data);
-      setEditedWorkout(savedWorkout.data);
-      refreshWorkouts();
+      setOpenWorkout(saved);
+      setEditedWorkout(saved);
     } catch (error) {
       handleError(error, 'save workout');
     }
@@ -30,5 +30,5 @@ export const useWorkoutsByGymId = (gymId) => {
     setRefreshTrigger(prev => prev + 1);
   }, []);
 
-  return { workouts, loading, error, refresh };
+  return { workouts, loading, error, refresh, setWorkouts };
 };
\ No newline at end of file
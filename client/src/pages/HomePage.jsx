@@ -9,6 +9,7 @@ import { useEffect, useState } from 'react';
 import { getUserIdFromToken } from '../utils/decoder';
 import { useNavigate } from 'react-router-dom';
 import LogoutButton from '../components/LogoutButton';
+import { logoutRequest } from '../requests/LoginRequests';
 
 export default function HomePage() {
   const [name, setName] = useState('User');
@@ -24,8 +25,14 @@ export default function HomePage() {
     setUserId(id);
   }, []);
 
-  const handleLogout = () => {
+  const handleLogout = async () => {
+    try {
+      await logoutRequest();
+    } catch (error) {
+      console.error('Failed to revoke the session token:', error);
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('name');
     navigate('/login');
   };
@@ -47,7 +47,7 @@ export default function LoginPage() {
     const [isCreatingAccount, setIsCreatingAccount] = useState(false);
     const [errors, setErrors] = useState({ name: '', password: '', confirmPassword: '', passwordMismatch: '' });
     const { name, setName, password, setPassword, error: loginError, setError: setLoginError, handleLogin } = useLogin();
-    const { confirmPassword, setConfirmPassword, error: signUpError, setError: setSignUpError, handleSignUp } = useSignUp();
+    const { confirmPassword, setConfirmPassword, error: signUpError, setError: setSignUpError, nameAvailable, handleSignUp } = useSignUp(isCreatingAccount ? name : "");
     const [openSnackbar, setOpenSnackbar] = useState(false);
 
     const handleLoginClick = async () => {
@@ -110,7 +110,8 @@ export default function LoginPage() {
                         fullWidth
                         value={name}
                         onChange={e => setName(e.target.value)}
-                        error={!!errors.name} helperText={errors.name || " "} />
+                        error={!!errors.name || (isCreatingAccount && !nameAvailable)}
+                        helperText={errors.name || (isCreatingAccount && !nameAvailable ? 'Name is already taken' : " ")} />
 
                     <CustomTextField
                         label="Password"
@@ -4,8 +4,12 @@ export const getGymsByUserId = (userId) => {
   return axiosInstance.get(`/users/${userId}/gyms`);
 };
 
-export const updateGym = (gymId, gymData) => {
-  return axiosInstance.patch(`/gyms/${gymId}`, gymData);
+// The version is the one the gym was loaded with: the server answers 412
+// instead of overwriting a newer change.
+export const updateGym = (gymId, gymData, version) => {
+  return axiosInstance.patch(`/gyms/${gymId}`, gymData, {
+    headers: version === undefined ? {} : { 'If-Match': `"${version}"` },
+  });
 };
 
 export const createGym = (userId, gymData) => {
@@ -5,4 +5,10 @@ export const loginRequest = (name, password) => {
         name,
         password,
     });
-};
\ No newline at end of file
+};
+
+export const logoutRequest = () => {
+    return axiosInstance.post(`/logout`, {
+        refreshToken: localStorage.getItem('refreshToken'),
+    });
+};
@@ -12,3 +12,8 @@ export const signUpRequest = async (name, password) => {
         throw error;
     }
 }
+
+export const checkNameAvailabilityRequest = async (name) => {
+    const res = await axiosInstance.get(`/users/availability`, { params: { name } });
+    return res.data.available;
+}
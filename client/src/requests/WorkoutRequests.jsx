@@ -8,8 +8,12 @@ export const deleteWorkout = (workoutId) => {
   return axiosInstance.delete(`/workouts/${workoutId}`);
 };
 
-export const updateWorkout = (workoutId, workoutData) => {
-  return axiosInstance.patch(`/workouts/${workoutId}`, workoutData);
+// The version is the one the workout was loaded with: the server answers 412
+// instead of overwriting a newer change.
+export const updateWorkout = (workoutId, workoutData, version) => {
+  return axiosInstance.patch(`/workouts/${workoutId}`, workoutData, {
+    headers: version === undefined ? {} : { 'If-Match': `"${version}"` },
+  });
 };
 
 export const createWorkout = (gymId, workoutData) => {
@@ -4,23 +4,74 @@ const baseURL = '/api/v1';
 
 const axiosInstance = axios.create({ baseURL });
 
+let refreshPromise = null;
+
+// Token of this client's last write: sent back so the server reads from the
+// primary database until the replicas have caught up with it.
+const CONSISTENCY_TOKEN = 'X-Consistency-Token';
+let consistencyToken = null;
+
+const clearSession = () => {
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('name');
+};
+
+// Access tokens are short-lived: concurrent 401s share one refresh, since a
+// refresh token can only be used once.
+const refreshSession = () => {
+  if (!refreshPromise) {
+    refreshPromise = axios
+      .post(`${baseURL}/refresh`, { refreshToken: localStorage.getItem('refreshToken') })
+      .then((res) => {
+        localStorage.setItem('token', res.data.token);
+        localStorage.setItem('refreshToken', res.data.refreshToken);
+        localStorage.setItem('name', res.data.name);
+        return res.data.token;
+      })
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+};
+
 axiosInstance.interceptors.request.use(
   (config) => {
     const token = localStorage.getItem('token');  
     if (token) {
       config.headers['Authorization'] = `Bearer ${token}`;
     }
+    if (consistencyToken) {
+      config.headers[CONSISTENCY_TOKEN] = consistencyToken;
+    }
     return config;
   },
   (error) => Promise.reject(error)
 );
 
 axiosInstance.interceptors.response.use(
-  (response) => response,
-  (error) => {
+  (response) => {
+    const written = response.headers[CONSISTENCY_TOKEN.toLowerCase()];
+    if (written) {
+      consistencyToken = written;
+    }
+    return response;
+  },
+  async (error) => {
+    const original = error.config;
+    if (error.response?.status === 401 && original && !original._retried && localStorage.getItem('refreshToken')) {
+      original._retried = true;
+      try {
+        const token = await refreshSession();
+        original.headers['Authorization'] = `Bearer ${token}`;
+        return axiosInstance(original);
+      } catch {
+        // fall through to the login redirect below
+      }
+    }
     if (error.response?.status === 401) {
-      localStorage.removeItem('token');
-      localStorage.removeItem('name');
+      clearSession();
       
       window.location.href = '/login';
     }
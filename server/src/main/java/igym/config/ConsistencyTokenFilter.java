@@ -0,0 +1,113 @@
+package igym.config;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Hands out and honours read-your-writes tokens while reads are served by
+ * replicas.
+ *
+ * <p>
+ * Every request that commits a write through the
+ * {@link ReplicaRoutingDataSource} gets the commit time, in epoch milliseconds,
+ * in the {@value #HEADER} response header. A client that sends the token back
+ * has its reads pinned to the primary until the token is older than the
+ * configured replication lag, after which any replica is assumed to have the
+ * write. Tokens from the future beyond that bound are ignored, so a forged
+ * token cannot pin a client for good. The filter runs ahead of Spring Security,
+ * whose authentication lookups are reads as well.
+ * </p>
+ */
+public class ConsistencyTokenFilter extends OncePerRequestFilter implements Ordered {
+
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final ThreadLocal<RequestState> CURRENT = new ThreadLocal<>();
+
+    private final long maxLagMillis;
+    private final LongSupplier clock;
+
+    private static final class RequestState {
+        private final HttpServletResponse response;
+        private final LongSupplier clock;
+        private boolean pinned;
+
+        private RequestState(HttpServletResponse response, LongSupplier clock, boolean pinned) {
+            this.response = response;
+            this.clock = clock;
+            this.pinned = pinned;
+        }
+    }
+
+    public ConsistencyTokenFilter(long maxLagMillis) {
+        this(maxLagMillis, System::currentTimeMillis);
+    }
+
+    ConsistencyTokenFilter(long maxLagMillis, LongSupplier clock) {
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        CURRENT.set(new RequestState(response, clock, isRecent(request.getHeader(HEADER))));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Tells whether the current request must read from the primary, either
+     * because its token is still within the replication lag or because it has
+     * already written.
+     */
+    static boolean isPinnedToPrimary() {
+        RequestState state = CURRENT.get();
+        return state != null && state.pinned;
+    }
+
+    /**
+     * Records a write committed on the primary: pins the rest of the request to
+     * the primary and stamps the response with a fresh token, unless the
+     * response has already gone out.
+     */
+    static void writeCommitted() {
+        RequestState state = CURRENT.get();
+        if (state == null) {
+            return;
+        }
+        state.pinned = true;
+        if (!state.response.isCommitted()) {
+            state.response.setHeader(HEADER, Long.toString(state.clock.getAsLong()));
+        }
+    }
+
+    private boolean isRecent(String token) {
+        if (token == null || token.isBlank()) {
+            return false;
+        }
+        try {
+            long age = clock.getAsLong() - Long.parseLong(token.trim());
+            return age < maxLagMillis && age > -maxLagMillis;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
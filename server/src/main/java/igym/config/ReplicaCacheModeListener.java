@@ -0,0 +1,48 @@
+package igym.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Sets how each read-only transaction uses the Hibernate query cache while
+ * reads are served by replicas, following the same rule as the
+ * {@link ReplicaRoutingDataSource}.
+ *
+ * <p>
+ * A transaction routed to a replica may read the cache but never fills it
+ * ({@link CacheMode#GET}): what it reads may lag the primary, and a result
+ * cached after a write was invalidated would look newer than the write. A
+ * transaction of a request pinned to the primary by a
+ * {@link ConsistencyTokenFilter} token never reads the cache, which may predate
+ * a write made through another instance, and refreshes it with what it reads
+ * ({@link CacheMode#PUT}). Read-write transactions run on the primary and use
+ * the cache normally.
+ * </p>
+ */
+public class ReplicaCacheModeListener implements TransactionExecutionListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ReplicaCacheModeListener(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        if (beginFailure != null || !transaction.isReadOnly()) {
+            return;
+        }
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (entityManager != null) {
+            entityManager.unwrap(Session.class)
+                    .setCacheMode(ConsistencyTokenFilter.isPinnedToPrimary() ? CacheMode.PUT : CacheMode.GET);
+        }
+    }
+}
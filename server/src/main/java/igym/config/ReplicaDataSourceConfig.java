@@ -0,0 +1,82 @@
+package igym.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Splits reads from writes when read replicas are configured through
+ * {@code datasource.replicas.urls}, a comma separated list of JDBC URLs.
+ *
+ * <p>
+ * The primary is the pool Spring Boot would otherwise create from
+ * {@code spring.datasource.*}; it alone is migrated by Flyway, the replicas
+ * receive the schema through replication. Each replica pool copies the
+ * primary's settings, credentials included, with its own URL. JPA gets the
+ * {@link ReplicaRoutingDataSource} behind a lazy connection proxy. Without
+ * replicas none of this is created and everything runs on the primary. It is
+ * not created either when shards are configured ({@link ShardDataSourceConfig}).
+ * The {@link ReplicaCacheModeListener} keeps the query cache in line with the
+ * routing.
+ * </p>
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank() && '${datasource.shards.urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+            @Value("${datasource.replicas.urls}") String urls) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : Arrays.stream(urls.split(",")).map(String::trim).filter(u -> !u.isEmpty()).toList()) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(url);
+            config.setPoolName("replica-" + replicas.size());
+            config.setReadOnly(true);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ConsistencyTokenFilter consistencyTokenFilter(
+            @Value("${datasource.replicas.max-lag-ms:2000}") long maxLagMillis) {
+        return new ConsistencyTokenFilter(maxLagMillis);
+    }
+
+    @Bean
+    public ReplicaCacheModeListener replicaCacheModeListener(EntityManagerFactory entityManagerFactory) {
+        return new ReplicaCacheModeListener(entityManagerFactory);
+    }
+}
@@ -0,0 +1,13 @@
+package igym.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables Spring's scheduled tasks, used for periodic maintenance such as
+ * purging expired token revocations.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
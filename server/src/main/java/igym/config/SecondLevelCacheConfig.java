@@ -0,0 +1,106 @@
+package igym.config;
+
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+
+/**
+ * Hibernate query cache, held in Caffeine through JCache, for the queries
+ * marked cacheable: the gym listing of a user.
+ *
+ * <p>
+ * The cache lives in each instance. Hibernate drops a cached result as soon as
+ * one of the tables it read is written through this instance, bulk updates
+ * included; the update timestamps region that tracks those writes is never
+ * evicted, as losing an entry would let stale results through. A write made
+ * through another instance goes unseen until the result expires, which is
+ * {@code second-level-cache.queries.ttl-ms} after it was cached; the default
+ * of one second is kept below the replication lag the read replicas are
+ * allowed ({@code datasource.replicas.max-lag-ms}), so a cached result is never
+ * older than a replica read could be. The results region is bounded by
+ * {@code second-level-cache.queries.max-size}.
+ * </p>
+ *
+ * <p>
+ * Entities are not cached: users, gyms and workouts carry the version checked
+ * against {@code If-Match}, and a version cached by one instance while another
+ * renames the resource would turn valid updates into 412 responses. With read
+ * replicas, the {@link ReplicaCacheModeListener} keeps replica reads from
+ * filling the cache and read-your-writes reads from using it.
+ * </p>
+ *
+ * <p>
+ * Hits, misses, puts and evictions of each region are published as the
+ * {@code cache.*} meters. Set {@code second-level-cache.enabled=false} to run
+ * without any of this: the application properties keep the caches off unless
+ * this configuration turns them on.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "second-level-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    static final String QUERY_RESULTS = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    static final String UPDATE_TIMESTAMPS = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    static final List<String> REGIONS = List.of(QUERY_RESULTS, UPDATE_TIMESTAMPS);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(
+            @Value("${second-level-cache.queries.max-size:10000}") long queriesMaxSize,
+            @Value("${second-level-cache.queries.ttl-ms:1000}") long queriesTtlMillis) {
+        CacheManager cacheManager = new CaffeineCachingProvider()
+                .getCacheManager(URI.create("igym-second-level-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(QUERY_RESULTS, region(OptionalLong.of(queriesMaxSize), queriesTtlMillis));
+        cacheManager.createCache(UPDATE_TIMESTAMPS, region(OptionalLong.empty(), 0));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> REGIONS.forEach(region -> JCacheMetrics.monitor(registry,
+                secondLevelCacheManager.getCache(region), Tags.of("cacheManager", "hibernate")));
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(OptionalLong maximumSize, long ttlMillis) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        configuration.setMaximumSize(maximumSize);
+        if (ttlMillis > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        }
+        return configuration;
+    }
+}
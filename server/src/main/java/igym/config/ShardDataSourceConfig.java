@@ -0,0 +1,85 @@
+package igym.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Spreads users over several databases when more shards are configured
+ * through {@code datasource.shards.urls}, a comma separated list of JDBC URLs.
+ *
+ * <p>
+ * Shard 0 is the pool Spring Boot would otherwise create from
+ * {@code spring.datasource.*}; the listed URLs are shards 1 to N. Each of
+ * their pools copies the settings of shard 0, credentials included, with its
+ * own URL. Flyway migrates shard 0 and then every other shard with the same
+ * configuration. JPA gets the {@link ShardRoutingDataSource} behind a lazy
+ * connection proxy. Without extra shards none of this is created and the
+ * {@link ShardRouter} runs everything on the one database. Shards and read
+ * replicas ({@link ReplicaDataSourceConfig}) cannot be combined.
+ * </p>
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.shards.urls:}'.isBlank()")
+public class ShardDataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource firstShardDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource firstShardDataSource,
+            @Value("${datasource.shards.urls}") String urls, ShardRouter shardRouter) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(firstShardDataSource);
+        for (String url : urls(urls)) {
+            HikariConfig config = new HikariConfig();
+            firstShardDataSource.copyStateTo(config);
+            config.setJdbcUrl(url);
+            config.setPoolName("shard-" + shards.size());
+            shards.add(new HikariDataSource(config));
+        }
+        return new ShardRoutingDataSource(shards, shardRouter);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            flyway.migrate();
+            List<DataSource> shards = shardRoutingDataSource.shards();
+            for (DataSource shard : shards.subList(1, shards.size())) {
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shard).load().migrate();
+            }
+        };
+    }
+
+    static List<String> urls(String urls) {
+        return Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+}
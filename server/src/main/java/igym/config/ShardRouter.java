@@ -0,0 +1,240 @@
+package igym.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import igym.security.AuthenticatedUser;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Places users on shards and runs work on the shard its data lives on.
+ *
+ * <p>
+ * A user and everything they own (gyms, workouts, exercises, sessions,
+ * refresh tokens, API keys) live on shard
+ * {@code floorMod(leastSignificantBits(userId), count)}; the low bits of a
+ * UUIDv7 are random, so users spread evenly. Data that belongs to no user,
+ * the revoked token ids, lives on shard 0, the database configured in
+ * {@code spring.datasource.*}.
+ * </p>
+ *
+ * <p>
+ * The shard of the current thread is the one pinned with {@link #call}, or
+ * else the shard of the user authenticated for the request, or else shard 0.
+ * The {@link ShardRoutingDataSource} asks for it when a transaction runs its
+ * first statement, so work may be pinned inside a transactional method as long
+ * as it has not touched the database yet. {@link #onAllShards} runs work on
+ * every shard in parallel, each in its own transaction. With a single shard
+ * everything runs inline on the calling thread.
+ * </p>
+ */
+@Component
+public class ShardRouter {
+
+    /**
+     * The shard of data that belongs to no user.
+     */
+    public static final int GLOBAL_SHARD = 0;
+
+    private static final ThreadLocal<Integer> PINNED = new ThreadLocal<>();
+
+    private final int count;
+    private final Supplier<PlatformTransactionManager> transactionManager;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardRouter(@Value("${datasource.shards.urls:}") String urls,
+            ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this(1 + ShardDataSourceConfig.urls(urls).size(), transactionManager::getObject);
+    }
+
+    ShardRouter(int count, Supplier<PlatformTransactionManager> transactionManager) {
+        this.count = count;
+        this.transactionManager = transactionManager;
+        if (count > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(count * 2, runnable -> {
+                Thread thread = new Thread(runnable, "shard-fan-out-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Creates a router for a single database, on which all work runs inline.
+     *
+     * @return the router
+     */
+    public static ShardRouter single() {
+        return new ShardRouter(1, () -> null);
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the shard a user and their data live on.
+     *
+     * @param userId the UUID of the user
+     * @return the shard index
+     */
+    public int shardOf(UUID userId) {
+        return count == 1 ? 0 : (int) Math.floorMod(userId.getLeastSignificantBits(), (long) count);
+    }
+
+    /**
+     * Returns the shard the current thread's transactions run on.
+     *
+     * @return the pinned shard, the shard of the authenticated user, or 0
+     */
+    public int currentShard() {
+        Integer pinned = PINNED.get();
+        if (pinned != null) {
+            return pinned;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return shardOf(user.userId());
+        }
+        return GLOBAL_SHARD;
+    }
+
+    /**
+     * Runs work pinned to a shard.
+     *
+     * @param shard the shard index
+     * @param work  the work to run
+     * @return the result of the work
+     */
+    public <T> T call(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= count) {
+            throw new IllegalArgumentException("No shard " + shard + " among " + count);
+        }
+        Integer previous = PINNED.get();
+        PINNED.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs work pinned to the shard of a user.
+     *
+     * @param userId the UUID of the user
+     * @param work   the work to run
+     * @return the result of the work
+     */
+    public <T> T forUser(UUID userId, Supplier<T> work) {
+        return call(shardOf(userId), work);
+    }
+
+    /**
+     * Runs work on every shard in parallel, each run in its own transaction,
+     * and waits for all of them. With a single shard the work runs inline, in
+     * the transaction of the caller if there is one.
+     *
+     * @param readOnly whether the transactions are read-only
+     * @param work     the work to run on each shard
+     * @return the results, in shard order
+     */
+    public <T> List<T> onAllShards(boolean readOnly, Supplier<T> work) {
+        if (count == 1) {
+            return Collections.singletonList(work.get());
+        }
+        TransactionTemplate template = new TransactionTemplate(transactionManager.get());
+        template.setReadOnly(readOnly);
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> call(target, () -> template.execute(status -> work.get()))));
+        }
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * Appends the shard of a user to an opaque token, so the token can be
+     * looked up on that shard alone. Tokens are left as they are with a single
+     * shard.
+     *
+     * @param token  the token handed to the client
+     * @param userId the UUID of the user the token was issued to
+     * @return the token carrying its shard
+     */
+    public String tag(String token, UUID userId) {
+        return count == 1 ? token : token + "." + shardOf(userId);
+    }
+
+    /**
+     * Reads the shard a token was tagged with by {@link #tag}.
+     *
+     * @param token the token sent by the client
+     * @return the shard index, or 0 if the token carries none
+     */
+    public int shardOfToken(String token) {
+        int dot = token.lastIndexOf('.');
+        if (count == 1 || dot < 0) {
+            return 0;
+        }
+        try {
+            int shard = Integer.parseInt(token.substring(dot + 1));
+            return shard >= 0 && shard < count ? shard : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
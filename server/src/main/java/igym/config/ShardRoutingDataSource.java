@@ -0,0 +1,67 @@
+package igym.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Sends each transaction to the shard its thread is on, as told by the
+ * {@link ShardRouter}.
+ *
+ * <p>
+ * The decision is taken when the transaction asks for its connection, so this
+ * data source must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the JPA transaction manager opens its connection as the transaction begins,
+ * before a service had the chance to pin a shard. A transaction stays on the
+ * shard of its first statement.
+ * </p>
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards;
+    private final ShardRouter router;
+
+    public ShardRoutingDataSource(List<DataSource> shards, ShardRouter router) {
+        if (shards.size() != router.count()) {
+            throw new IllegalArgumentException(
+                    "The router expects " + router.count() + " shards, got " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+        this.router = router;
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.currentShard();
+    }
+
+    List<DataSource> shards() {
+        return shards;
+    }
+
+    /**
+     * Closes the pools of the shards other than shard 0; that one belongs to
+     * the application context.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards.subList(1, shards.size())) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package igym.controllers;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import igym.dtos.ApiKeyDTO;
+import igym.dtos.CreateApiKeyDTO;
+import igym.dtos.CreatedApiKeyDTO;
+import igym.exceptions.ApiKeyNotFoundException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.exceptions.UserNotFoundException;
+import igym.security.OwnershipGuard;
+import igym.services.ApiKeyService;
+import jakarta.validation.Valid;
+
+/**
+ * REST controller for managing the API keys of users.
+ * These endpoints require a JWT: a request authenticated with an API key
+ * cannot manage keys.
+ */
+@RestController
+@RequestMapping(value = "/api/v1", produces = "application/json")
+@Validated
+public class ApiKeyController {
+
+    private final ApiKeyService service;
+    private final OwnershipGuard ownershipGuard;
+
+    public ApiKeyController(ApiKeyService service, OwnershipGuard ownershipGuard) {
+        this.service = service;
+        this.ownershipGuard = ownershipGuard;
+    }
+
+    /**
+     * Issues a new API key for a user.
+     *
+     * @param userId the UUID of the user
+     * @param dto    the DTO containing the name of the key
+     * @return the created key, including the key itself, and HTTP 201 Created
+     *         status
+     * @throws UserNotFoundException         if the user does not exist or is inactive
+     * @throws ResourceAccessDeniedException if the userId is not the authenticated user
+     */
+    @PostMapping("/users/{userId}/api-keys")
+    public ResponseEntity<CreatedApiKeyDTO> createApiKey(@PathVariable UUID userId,
+            @RequestBody @Valid CreateApiKeyDTO dto) {
+        ownershipGuard.checkUser(userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.createApiKey(userId, dto.name()));
+    }
+
+    /**
+     * Retrieves the active API keys of a user, without the keys themselves.
+     *
+     * @param userId the UUID of the user
+     * @return a list of keys (as DTO) with HTTP 200 OK status
+     * @throws ResourceAccessDeniedException if the userId is not the authenticated user
+     */
+    @GetMapping("/users/{userId}/api-keys")
+    public ResponseEntity<List<ApiKeyDTO>> getApiKeys(@PathVariable UUID userId) {
+        ownershipGuard.checkUser(userId);
+        List<ApiKeyDTO> keys = service.findApiKeysByUserId(userId).stream().map(ApiKeyDTO::new).toList();
+        return ResponseEntity.ok(keys);
+    }
+
+    /**
+     * Revokes an API key.
+     *
+     * @param userId the UUID of the owner of the key
+     * @param id     the UUID of the key
+     * @return HTTP 204 No Content status if the key was revoked
+     * @throws ApiKeyNotFoundException       if the user has no active key with the ID
+     * @throws ResourceAccessDeniedException if the userId is not the authenticated user
+     */
+    @DeleteMapping("/users/{userId}/api-keys/{id}")
+    public ResponseEntity<Void> revokeApiKey(@PathVariable UUID userId, @PathVariable UUID id) {
+        ownershipGuard.checkUser(userId);
+        service.revokeApiKey(userId, id);
+        return ResponseEntity.noContent().build();
+    }
+}
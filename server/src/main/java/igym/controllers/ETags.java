@@ -0,0 +1,45 @@
+package igym.controllers;
+
+/**
+ * Translates between entity versions and the HTTP entity tags of the
+ * resources. A version is served as the strong tag {@code "<version>"}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the entity tag of a version.
+     *
+     * @param version the version of the resource
+     * @return the quoted version
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Reads the version an {@code If-Match} header asks for. Only a single
+     * strong tag names a version; weak tags, lists of tags and tags not issued
+     * by this API match no version, so the update fails its precondition.
+     *
+     * @param ifMatch the header value, or null if the header is absent
+     * @return null when there is no precondition (no header, or {@code *}),
+     *         otherwise the expected version, -1 when the tag names none
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package igym.controllers;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -12,13 +13,17 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import igym.dtos.GymDTO;
 import igym.entities.*;
 import igym.exceptions.GymNotFoundException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.ResourceAccessDeniedException;
 import igym.exceptions.UserNotFoundException;
+import igym.security.OwnershipGuard;
 import igym.services.GymService;
 import jakarta.validation.Valid;
 
@@ -32,9 +37,11 @@ import jakarta.validation.Valid;
 public class GymController {
 
     private final GymService service;
+    private final OwnershipGuard ownershipGuard;
 
-    public GymController(GymService service) {
+    public GymController(GymService service, OwnershipGuard ownershipGuard) {
         this.service = service;
+        this.ownershipGuard = ownershipGuard;
     }
 
     /**
@@ -45,28 +52,37 @@ public class GymController {
      * @return the created gym (as DTO) and HTTP 201 Created status
      * @throws DuplicateGymException if a gym with the same name already exists
      * @throws UserNotFoundException if the provided userId does not match any user
+     * @throws ResourceAccessDeniedException if the userId is not the authenticated user
      */
     // When authentication process is set, change the signature of this method
     @PostMapping(value = "/gyms/{userId}")
     public ResponseEntity<GymDTO> createGym(@RequestBody @Valid Gym gym, @PathVariable UUID userId) {
+        ownershipGuard.checkUser(userId);
         Gym createdGym = service.createGym(gym, userId);
         return ResponseEntity.status(HttpStatus.CREATED).body(new GymDTO(createdGym));
     }
 
     /**
-     * Updates the name of an existing gym.
+     * Updates the name of an existing gym. With an {@code If-Match} header the
+     * update only happens if the gym is still at that version.
      *
-     * @param id  the UUID of the gym to update
-     * @param gym the gym entity containing the new name
-     * @return the updated gym (as DTO) with HTTP 200 OK status
+     * @param id      the UUID of the gym to update
+     * @param gym     the gym entity containing the new name
+     * @param ifMatch the ETag of the version the client last saw, if any
+     * @return the updated gym (as DTO) and its new ETag with HTTP 200 OK status
      * @throws GymNotFoundException  if no gym is found with the provided ID
      * @throws DuplicateGymException if a gym with the same new name already exists
+     * @throws ResourceAccessDeniedException if the gym belongs to another user
+     * @throws PreconditionFailedException if the gym is no longer at the
+     *                                     If-Match version
      */
     @PatchMapping(value = "/gyms/{id}")
-    public ResponseEntity<GymDTO> updateGym(@PathVariable("id") UUID id, @RequestBody @Valid Gym gym) {
+    public ResponseEntity<GymDTO> updateGym(@PathVariable("id") UUID id, @RequestBody @Valid Gym gym,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ownershipGuard.checkGym(id);
         String name = gym.getName();
-        Gym updatedGym = service.updateGym(id, name);
-        return ResponseEntity.ok(new GymDTO(updatedGym));
+        Gym updatedGym = service.updateGym(id, name, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedGym.getVersion())).body(new GymDTO(updatedGym));
     }
 
     /**
@@ -76,8 +92,7 @@ public class GymController {
      */
     @GetMapping(value = "/gyms")
     public ResponseEntity<List<GymDTO>> findAllGyms() {
-        List<GymDTO> gyms = service.findAll().stream().map(GymDTO::new).toList();
-        return ResponseEntity.ok(gyms);
+        return ResponseEntity.ok(service.findAll());
     }
 
     /**
@@ -87,11 +102,12 @@ public class GymController {
      * @return a list of active gyms belonging to the user
      * @throws UserNotFoundException if the user does not exist or is inactive
      * @throws GymNotFoundException  if the user has no active gyms
+     * @throws ResourceAccessDeniedException if the userId is not the authenticated user
      */
     @GetMapping(value = "/users/{userId}/gyms")
     public ResponseEntity<List<GymDTO>> getGymsByUserId(@PathVariable UUID userId) {
-        List<GymDTO> gyms = service.findGymsByUserId(userId).stream().map(GymDTO::new).toList();
-        return ResponseEntity.ok(gyms);
+        ownershipGuard.checkUser(userId);
+        return ResponseEntity.ok(service.findGymsByUserId(userId));
     }
 
     /**
@@ -100,9 +116,11 @@ public class GymController {
      * @param id the UUID of the gym to delete
      * @return HTTP 204 No Content status if deletion is successful
      * @throws GymNotFoundException if no gym is found with the provided ID
+     * @throws ResourceAccessDeniedException if the gym belongs to another user
      */
     @DeleteMapping(value = "/gyms/{id}")
     public ResponseEntity<Void> deleteGym(@PathVariable("id") UUID id) {
+        ownershipGuard.checkGym(id);
         service.deleteGym(id);
         return ResponseEntity.noContent().build();
     }
@@ -5,15 +5,27 @@ import org.springframework.web.bind.annotation.RestController;
 import igym.dtos.UserDTO;
 import igym.dtos.LoginRequestDTO;
 import igym.dtos.LoginResponseDTO;
+import igym.dtos.RefreshTokenRequestDTO;
+import igym.dtos.SessionDTO;
+import igym.dtos.UsernameAvailabilityDTO;
 import igym.entities.User;
 import igym.exceptions.DuplicateUserException;
+import igym.exceptions.InvalidCredentialsException;
+import igym.exceptions.LoginThrottledException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.ResourceAccessDeniedException;
 import igym.exceptions.UserNotFoundException;
+import igym.security.LoginGuard;
+import igym.security.OwnershipGuard;
+import igym.services.SessionService;
 import igym.services.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -23,6 +35,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PostMapping;
 
 import igym.dtos.UpdateUserNameDTO;
@@ -37,9 +51,16 @@ import igym.dtos.UpdateUserNameDTO;
 public class UserController {
 
     private final UserService service;
+    private final LoginGuard loginGuard;
+    private final OwnershipGuard ownershipGuard;
+    private final SessionService sessionService;
 
-    public UserController(UserService service) {
+    public UserController(UserService service, LoginGuard loginGuard, OwnershipGuard ownershipGuard,
+            SessionService sessionService) {
         this.service = service;
+        this.loginGuard = loginGuard;
+        this.ownershipGuard = ownershipGuard;
+        this.sessionService = sessionService;
     }
 
     /**
@@ -49,8 +70,34 @@ public class UserController {
      */
     @GetMapping("/users")
     public ResponseEntity<List<UserDTO>> findAll() {
-        List<UserDTO> list = service.findAll().stream().map(UserDTO::new).toList();
-        return ResponseEntity.ok().body(list);
+        return ResponseEntity.ok().body(service.findAll());
+    }
+
+    /**
+     * Checks whether a username is free. Cheap enough to be called on every
+     * keystroke of the sign-up form: names that were never taken are answered
+     * from memory.
+     *
+     * @param name the username to check
+     * @return the availability of the name with HTTP 200 OK status
+     */
+    @GetMapping("/users/availability")
+    public ResponseEntity<UsernameAvailabilityDTO> checkAvailability(@RequestParam String name) {
+        return ResponseEntity.ok(new UsernameAvailabilityDTO(name, service.isNameAvailable(name)));
+    }
+
+    /**
+     * Retrieves the open sessions of a user, with the device each was opened
+     * from and when it was last seen.
+     *
+     * @param id the UUID of the user
+     * @return a list of sessions (as DTO) with HTTP 200 OK status
+     * @throws ResourceAccessDeniedException if the ID is not the authenticated user
+     */
+    @GetMapping("/users/{id}/sessions")
+    public ResponseEntity<List<SessionDTO>> getSessions(@PathVariable UUID id) {
+        ownershipGuard.checkUser(id);
+        return ResponseEntity.ok(sessionService.findSessionsByUserId(id));
     }
 
     /**
@@ -59,9 +106,11 @@ public class UserController {
      * @param id the UUID of the user to delete
      * @return HTTP 204 No Content status if deletion is successful
      * @throws UserNotFoundException if no user is found with the provided ID
+     * @throws ResourceAccessDeniedException if the ID is not the authenticated user
      */
     @DeleteMapping("/users/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable UUID id) {
+        ownershipGuard.checkUser(id);
         service.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
@@ -80,32 +129,91 @@ public class UserController {
     }
 
     /**
-     * Updates the name of an existing user.
+     * Updates the name of an existing user. With an {@code If-Match} header the
+     * update only happens if the user is still at that version.
      *
-     * @param id   the UUID of the user to update
-     * @param dto the DTO containing the new name
-     * @return the updated user (as DTO) with HTTP 200 OK status
+     * @param id      the UUID of the user to update
+     * @param dto     the DTO containing the new name
+     * @param ifMatch the ETag of the version the client last saw, if any
+     * @return the updated user (as DTO) and its new ETag with HTTP 200 OK status
      * @throws UserNotFoundException  if no user is found with the provided ID
      * @throws DuplicateUserException if a user with the same new name already exists
      * @throws InvalidNameException if the provided name is invalid
+     * @throws ResourceAccessDeniedException if the ID is not the authenticated user
+     * @throws PreconditionFailedException if the user is no longer at the
+     *                                     If-Match version
      */
     @PatchMapping(value = "/users/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable("id") UUID id, @RequestBody @Valid UpdateUserNameDTO dto) {
-        User updatedUser = service.updateUser(id, dto.name());
-        return ResponseEntity.ok(new UserDTO(updatedUser));
+    public ResponseEntity<UserDTO> updateUser(@PathVariable("id") UUID id, @RequestBody @Valid UpdateUserNameDTO dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ownershipGuard.checkUser(id);
+        User updatedUser = service.updateUser(id, dto.name(), ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedUser.getVersion())).body(new UserDTO(updatedUser));
     }
 
     /**
      * Authenticates a user and generates a JWT token upon successful login.
+     * The attempt first passes the {@link LoginGuard}, so throttled attempts
+     * cost neither a database query nor a password hash.
      *
-     * @param request the login request containing username and password
+     * @param request     the login request containing username and password
+     * @param httpRequest the HTTP request, used for the client address and
+     *                    device; behind a proxy the address is taken from
+     *                    {@code X-Forwarded-For} (see
+     *                    {@code server.forward-headers-strategy})
      * @return a LoginResponseDTO containing the JWT token and username
      * @throws InvalidCredentialsException if the credentials are invalid
      * @throws UserNotFoundException if the user is not found or is inactive
+     * @throws LoginThrottledException if the client or the username is throttled
      */
     @PostMapping("/login")
-    public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO request) {
-        LoginResponseDTO response = service.authenticate(request.name(), request.password());
-        return ResponseEntity.ok(response);
+    public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO request,
+            HttpServletRequest httpRequest) {
+        loginGuard.checkAttempt(request.name(), httpRequest.getRemoteAddr());
+        try {
+            LoginResponseDTO response = service.authenticate(request.name(), request.password(),
+                    httpRequest.getHeader(HttpHeaders.USER_AGENT));
+            loginGuard.recordSuccess(request.name());
+            return ResponseEntity.ok(response);
+        } catch (UserNotFoundException e) {
+            loginGuard.recordUnknownUser(request.name());
+            throw e;
+        } catch (InvalidCredentialsException e) {
+            loginGuard.recordFailure(request.name());
+            throw e;
+        }
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented refresh token cannot be used again.
+     *
+     * @param request the request containing the refresh token
+     * @return a LoginResponseDTO containing the new tokens and username
+     * @throws InvalidCredentialsException if the refresh token is not valid
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@RequestBody @Valid RefreshTokenRequestDTO request) {
+        return ResponseEntity.ok(service.refresh(request.refreshToken()));
+    }
+
+    /**
+     * Logs out the current session by revoking the bearer token of the request
+     * until it expires, together with the refresh token of the session when the
+     * body contains it.
+     *
+     * @param authorization the Authorization header of the request
+     * @param request       the request containing the refresh token, optional
+     * @return HTTP 204 No Content status if the token was revoked
+     * @throws InvalidCredentialsException if the request has no bearer token
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody(required = false) RefreshTokenRequestDTO request) {
+        if (!authorization.startsWith("Bearer ")) {
+            throw new InvalidCredentialsException("A bearer token is required to log out");
+        }
+        service.logout(authorization.substring(7), request == null ? null : request.refreshToken());
+        return ResponseEntity.noContent().build();
     }
 }
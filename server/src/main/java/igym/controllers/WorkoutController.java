@@ -3,13 +3,17 @@ package igym.controllers;
 import igym.dtos.WorkoutDTO;
 import igym.entities.Workout;
 import igym.exceptions.GymNotFoundException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.ResourceAccessDeniedException;
 import igym.exceptions.WorkoutNotFoundException;
+import igym.security.OwnershipGuard;
 import igym.services.WorkoutService;
 import jakarta.validation.Valid;
 
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,9 +27,11 @@ import org.springframework.web.bind.annotation.*;
 public class WorkoutController {
 
     private final WorkoutService workoutService;
+    private final OwnershipGuard ownershipGuard;
 
-    public WorkoutController(WorkoutService workoutService) {
+    public WorkoutController(WorkoutService workoutService, OwnershipGuard ownershipGuard) {
         this.workoutService = workoutService;
+        this.ownershipGuard = ownershipGuard;
     }
 
     /**
@@ -35,11 +41,13 @@ public class WorkoutController {
      * @param workout the workout entity to be created
      * @return the created workout (as DTO) with HTTP 201 Created status
      * @throws GymNotFoundException if no gym is found with the provided ID
+     * @throws ResourceAccessDeniedException if the gym belongs to another user
      */
     @PostMapping(value = "/gyms/{gymId}/workouts")
     public ResponseEntity<WorkoutDTO> createWorkout(
             @PathVariable UUID gymId,
             @RequestBody @Valid Workout workout) {
+        ownershipGuard.checkGym(gymId);
         Workout createdWorkout = workoutService.createWorkout(workout, gymId);
         return ResponseEntity.status(HttpStatus.CREATED).body(new WorkoutDTO(createdWorkout));
     }
@@ -50,11 +58,12 @@ public class WorkoutController {
      * @param gymId the ID of the gym
      * @return a list of workouts (as DTO) and HTTP 200 status
      * @throws GymNotFoundException if no gym is found with the provided ID
+     * @throws ResourceAccessDeniedException if the gym belongs to another user
      */
     @GetMapping(value = "/gyms/{gymId}/workouts")
     public ResponseEntity<List<WorkoutDTO>> getWorkoutsByGymId(@PathVariable UUID gymId) {
-        List<WorkoutDTO> workouts = workoutService.getWorkoutsByGymId(gymId).stream().map(WorkoutDTO::new).toList();
-        return ResponseEntity.ok(workouts);
+        ownershipGuard.checkGym(gymId);
+        return ResponseEntity.ok(workoutService.getWorkoutsByGymId(gymId));
     }
 
     /**
@@ -68,9 +77,11 @@ public class WorkoutController {
      * @param workoutId the UUID of the workout to delete
      * @return {@link ResponseEntity#noContent()} if the deletion was successful
      * @throws WorkoutNotFoundException if no workout is found with the given ID
+     * @throws ResourceAccessDeniedException if the workout belongs to another user
      */
     @DeleteMapping("/workouts/{id}")
     public ResponseEntity<Void> deleteWorkout(@PathVariable("id") UUID workoutId) {
+        ownershipGuard.checkWorkout(workoutId);
         workoutService.deleteWorkout(workoutId);
         return ResponseEntity.noContent().build();
     }
@@ -87,25 +98,35 @@ public class WorkoutController {
      * @param exerciseId the UUID of the exercise to delete
      * @return {@link ResponseEntity#noContent()} if the deletion was successful
      * @throws ExerciseNotFoundException if no exercise is found with the given ID
+     * @throws ResourceAccessDeniedException if the exercise belongs to another user
      */
     @DeleteMapping("/exercises/{id}")
     public ResponseEntity<Void> deleteExercise(@PathVariable("id") UUID exerciseId) {
+        ownershipGuard.checkExercise(exerciseId);
         workoutService.deleteExercise(exerciseId);
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * Retrieves a updated workout by its ID.
+     * Updates a workout and its exercises. With an {@code If-Match} header the
+     * update only happens if the workout is still at that version.
      * 
-     * @param workoutId the ID of the workout to retrieve
+     * @param workoutId the ID of the workout to update
+     * @param workout   the new name and exercises of the workout
+     * @param ifMatch   the ETag of the version the client last saw, if any
      * @throws WorkoutNotFoundException if no workout is found with the given ID
-     * @return the workout with the specified ID (as DTO) and HTTP 200 status
+     * @throws ResourceAccessDeniedException if the workout belongs to another user
+     * @throws PreconditionFailedException if the workout is no longer at the
+     *                                     If-Match version
+     * @return the updated workout (as DTO) and its new ETag with HTTP 200 status
      */
     @PatchMapping(value = "/workouts/{id}")
     public ResponseEntity<WorkoutDTO> updateWorkout(@PathVariable("id") UUID workoutId,
-            @RequestBody @Valid Workout workout) {
-        Workout updatedWorkout = workoutService.updateWorkout(workoutId, workout);
-        return ResponseEntity.ok(new WorkoutDTO(updatedWorkout));
+            @RequestBody @Valid Workout workout,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ownershipGuard.checkWorkout(workoutId);
+        Workout updatedWorkout = workoutService.updateWorkout(workoutId, workout, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedWorkout.getVersion())).body(new WorkoutDTO(updatedWorkout));
     }
 
 }
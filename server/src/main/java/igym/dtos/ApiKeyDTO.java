@@ -0,0 +1,26 @@
+package igym.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import igym.entities.ApiKey;
+
+/**
+ * A Data Transfer Object (DTO) for exposing API key information in API
+ * responses. It never contains the key itself.
+ *
+ * @param id         the unique identifier of the key
+ * @param name       the name the user gave the key
+ * @param prefix     the first characters of the key
+ * @param created_at the timestamp of the creation of the key
+ */
+public record ApiKeyDTO(
+    UUID id,
+    String name,
+    String prefix,
+    Instant created_at
+) {
+    public ApiKeyDTO(ApiKey apiKey) {
+        this(apiKey.getId(), apiKey.getName(), apiKey.getPrefix(), apiKey.getCreated_at());
+    }
+}
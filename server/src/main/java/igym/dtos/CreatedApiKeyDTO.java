@@ -0,0 +1,26 @@
+package igym.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import igym.entities.ApiKey;
+
+/**
+ * A Data Transfer Object (DTO) returned once, when an API key is created. It
+ * is the only response that contains the key itself.
+ *
+ * @param id         the unique identifier of the key
+ * @param name       the name the user gave the key
+ * @param key        the key, to be sent in the {@code X-API-Key} header
+ * @param created_at the timestamp of the creation of the key
+ */
+public record CreatedApiKeyDTO(
+    UUID id,
+    String name,
+    String key,
+    Instant created_at
+) {
+    public CreatedApiKeyDTO(ApiKey apiKey, String key) {
+        this(apiKey.getId(), apiKey.getName(), key, apiKey.getCreated_at());
+    }
+}
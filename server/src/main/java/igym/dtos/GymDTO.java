@@ -17,6 +17,7 @@ import java.util.UUID;
  * @param name       the name of the gym
  * @param status     the status (active/inactive) of the gym
  * @param updated_at the timestamp of the last update
+ * @param version    the version of the gym, sent back as its ETag
  * @param user_id    the unique identifier of the user who owns this gym
  */
 public record GymDTO(
@@ -24,9 +25,11 @@ public record GymDTO(
     String name,
     Status status,
     Instant updated_at,
+    long version,
     UUID user_id
 ) {
         public GymDTO(Gym gym) {
-        this(gym.getId(), gym.getName(), gym.getStatus(), gym.getUpdated_at(), gym.getUser().getId());
+        this(gym.getId(), gym.getName(), gym.getStatus(), gym.getUpdated_at(), gym.getVersion(),
+                gym.getUser().getId());
     }
 }
\ No newline at end of file
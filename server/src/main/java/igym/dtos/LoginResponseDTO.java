@@ -1,3 +1,3 @@
 package igym.dtos;
 
-public record LoginResponseDTO(String token, String name) {}
+public record LoginResponseDTO(String token, String name, String refreshToken) {}
@@ -0,0 +1,8 @@
+package igym.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenRequestDTO(
+    @NotBlank(message = "Refresh token cannot be blank")
+    String refreshToken
+) {}
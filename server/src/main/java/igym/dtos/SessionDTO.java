@@ -0,0 +1,19 @@
+package igym.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A Data Transfer Object (DTO) for exposing the open sessions of a user.
+ *
+ * @param id           the unique identifier of the session
+ * @param device       the user agent the session was opened from
+ * @param created_at   the timestamp of the login
+ * @param last_seen_at the timestamp of the last authenticated request
+ */
+public record SessionDTO(
+    UUID id,
+    String device,
+    Instant created_at,
+    Instant last_seen_at
+) {}
@@ -15,14 +15,16 @@ import java.util.UUID;
  * @param name       the name of the user
  * @param status     the current status (active/inactive) of the user
  * @param updated_at the timestamp of the last update
+ * @param version    the version of the user, sent back as its ETag
  */
 public record UserDTO(
     UUID id,
     String name,
     Status status,
-    Instant updated_at
+    Instant updated_at,
+    long version
 ) {
     public UserDTO(User user) {
-        this(user.getId(), user.getName(), user.getStatus(), user.getUpdated_at());
+        this(user.getId(), user.getName(), user.getStatus(), user.getUpdated_at(), user.getVersion());
     }
 }
\ No newline at end of file
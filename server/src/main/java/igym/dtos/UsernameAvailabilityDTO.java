@@ -0,0 +1,9 @@
+package igym.dtos;
+
+/**
+ * Response of the username availability check.
+ *
+ * @param name      the username that was checked
+ * @param available true if no active user has the name
+ */
+public record UsernameAvailabilityDTO(String name, boolean available) {}
@@ -19,15 +19,17 @@ import java.util.stream.Collectors;
  * @param name         the name of the workout
  * @param status       the current status (active/inactive) of the workout
  * @param updated_at   the timestamp of the last update
+ * @param version      the version of the workout, sent back as its ETag
  * @param gym_id       the unique identifier of the gym associated with this
  *                     workout
- * @param exerciseList the list of exercises in this workout
+ * @param exerciseList the list of active exercises in this workout
  */
 public record WorkoutDTO(
         UUID id,
         String name,
         Status status,
         Instant updated_at,
+        long version,
         UUID gym_id,
         List<ExerciseDTO> exerciseList) {
     public WorkoutDTO(Workout workout) {
@@ -36,9 +38,29 @@ public record WorkoutDTO(
                 workout.getName(),
                 workout.getStatus(),
                 workout.getUpdated_at(),
+                workout.getVersion(),
                 workout.getGym().getId(),
                 workout.getExerciseList().stream()
+                        .filter(exercise -> exercise.getStatus() == Status.active)
                         .map(ExerciseDTO::new)
                         .collect(Collectors.toList()));
     }
+
+    /**
+     * Creates a workout without exercises. Used by repository projections,
+     * which attach the exercises afterwards with {@link #withExerciseList}.
+     */
+    public WorkoutDTO(UUID id, String name, Status status, Instant updated_at, long version, UUID gym_id) {
+        this(id, name, status, updated_at, version, gym_id, List.of());
+    }
+
+    /**
+     * Returns a copy of this workout with the given exercises.
+     *
+     * @param exercises the exercises of the workout
+     * @return the workout with its exercises
+     */
+    public WorkoutDTO withExerciseList(List<ExerciseDTO> exercises) {
+        return new WorkoutDTO(id, name, status, updated_at, version, gym_id, exercises);
+    }
 }
\ No newline at end of file
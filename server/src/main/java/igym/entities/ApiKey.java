@@ -0,0 +1,92 @@
+package igym.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import igym.entities.enums.Status;
+import jakarta.persistence.*;
+import lombok.ToString;
+
+/**
+ * Represents an API key that a user issued for a machine client.
+ *
+ * <p>
+ * Only the SHA-256 digest of the key is stored. The key itself is shown once,
+ * when it is created, together with a short prefix that is kept to help the
+ * user tell their keys apart. A revoked key is kept with the status
+ * {@code inactive}.
+ * </p>
+ */
+@ToString
+@Table(name = "api_keys")
+@Entity
+public class ApiKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 50)
+    private String name;
+
+    @Column(nullable = false, unique = true, length = 64)
+    @ToString.Exclude
+    private String keyDigest;
+
+    @Column(nullable = false, length = 12)
+    private String prefix;
+
+    @Column(nullable = false)
+    private Status status = Status.active;
+
+    @Column(nullable = false)
+    private Instant created_at;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    private User user;
+
+    protected ApiKey() {
+    }
+
+    public ApiKey(String name, String keyDigest, String prefix, User user) {
+        this.name = name;
+        this.keyDigest = keyDigest;
+        this.prefix = prefix;
+        this.user = user;
+        this.created_at = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKeyDigest() {
+        return keyDigest;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Instant getCreated_at() {
+        return created_at;
+    }
+
+    public User getUser() {
+        return user;
+    }
+}
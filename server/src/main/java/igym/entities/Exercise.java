@@ -7,6 +7,7 @@ import lombok.*;
 import java.time.Instant;
 import java.util.UUID;
 
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
@@ -27,19 +28,36 @@ import igym.entities.enums.Status;
  * Lombok is used to generate getters and setters for convenience. The
  * {@code id} field uses
  * {@code @Setter(AccessLevel.NONE)} to prevent manual assignment, as it is
- * automatically generated by the database.
+ * a time-ordered UUIDv7 generated on persist. Generating it before the
+ * INSERT, rather than reading it back from the database, lets the exercises
+ * of a workout be written as one JDBC batch.
+ * </p>
+ *
+ * <p>
+ * The workout is loaded lazily; exposing an exercise only needs its id, which
+ * comes from the foreign key. Updates only write the changed columns, so an
+ * edit to one field of a workout costs one narrow UPDATE.
+ * </p>
+ *
+ * <p>
+ * The build enhances the entity's bytecode, so it tracks its own changes and
+ * its note is loaded on first access rather than with the row. Workouts
+ * loaded for an update fetch the notes of their exercises along with them.
+ * The note column has been a {@code varchar(255)} since the baseline schema;
+ * {@code @Size} only rejects longer notes before they reach it.
  * </p>
  */
 
 @Entity
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
-@ToString(exclude = "workout")
+@ToString(exclude = { "workout", "note" })
 public class Exercise {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @Setter(AccessLevel.NONE)
     private UUID id;
 
@@ -57,16 +75,18 @@ public class Exercise {
     @Min(value = 1, message = "Sets must be at least 1")
     private int numSets;
 
+    @Basic(fetch = FetchType.LAZY)
+    @Column(length = 255)
+    @Size(max = 255, message = "Note must be at most 255 characters")
     private String note;
 
     @UpdateTimestamp
     private Instant updated_at;
 
-    @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Status status = Status.active;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "workout_id", nullable = false)
     @JsonBackReference
     private Workout workout;
@@ -27,6 +27,16 @@ import lombok.ToString;
  * Field validations ensure that the gym's name is non-blank and within a
  * specified length.
  * </p>
+ *
+ * <p>
+ * The owner is loaded lazily. Gym listings do not load this entity at all:
+ * they are projected straight into {@link igym.dtos.GymDTO}s.
+ * </p>
+ *
+ * <p>
+ * The {@code version} column is the optimistic lock of renames and is served
+ * as the ETag of the gym.
+ * </p>
  */
 
 @ToString()
@@ -35,7 +45,7 @@ import lombok.ToString;
 public class Gym {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     private UUID id;
 
     @Column(nullable = false, length = 50)
@@ -43,14 +53,16 @@ public class Gym {
     @Size(min = 3, max = 50, message = "Name must be between 3 and 50 characters")
     private String name;
 
-    @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Status status = Status.active;
 
     @UpdateTimestamp
     private Instant updated_at;
 
-    @ManyToOne
+    @Version
+    private long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
     @ToString.Exclude
@@ -100,6 +112,10 @@ public class Gym {
         return updated_at;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public List<Workout> getWorkouts() {
         return workouts;
     }
@@ -0,0 +1,90 @@
+package igym.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+import lombok.ToString;
+
+/**
+ * Records a refresh token issued to a user, identified by the SHA-256 digest
+ * of the token.
+ *
+ * <p>
+ * Every refresh rotates the token: the presented token is marked as rotated
+ * and a new one is issued in the same family. All tokens descending from one
+ * login share the family id, so presenting a rotated token again, which means
+ * it was stolen or replayed, revokes the whole family. Entries are kept until
+ * they expire so that reuse can be detected.
+ * </p>
+ */
+@ToString
+@Table(name = "refresh_tokens")
+@Entity
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    @ToString.Exclude
+    private String tokenDigest;
+
+    @Column(nullable = false)
+    private UUID familyId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    private User user;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private Instant rotatedAt;
+
+    private Instant revokedAt;
+
+    protected RefreshToken() {
+    }
+
+    public RefreshToken(String tokenDigest, UUID familyId, User user, Instant expiresAt) {
+        this.tokenDigest = tokenDigest;
+        this.familyId = familyId;
+        this.user = user;
+        this.expiresAt = expiresAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTokenDigest() {
+        return tokenDigest;
+    }
+
+    public UUID getFamilyId() {
+        return familyId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Instant getRotatedAt() {
+        return rotatedAt;
+    }
+
+    public void setRotatedAt(Instant rotatedAt) {
+        this.rotatedAt = rotatedAt;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+}
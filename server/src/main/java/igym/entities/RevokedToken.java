@@ -0,0 +1,45 @@
+package igym.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Records a JWT that was revoked before its expiry, identified by its
+ * {@code jti} claim.
+ *
+ * <p>
+ * The entry is only needed until {@code expiresAt}: after that the token is
+ * rejected for being expired, and the entry is purged.
+ * </p>
+ */
+@Table(name = "revoked_tokens")
+@Entity
+public class RevokedToken {
+
+    @Id
+    @Column(length = 36)
+    private String tokenId;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    protected RevokedToken() {
+    }
+
+    public RevokedToken(String tokenId, Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
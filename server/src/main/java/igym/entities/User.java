@@ -28,6 +28,11 @@ import lombok.ToString;
  * Field validations ensure that the user's name is non-blank and within a
  * specified length.
  * </p>
+ *
+ * <p>
+ * The {@code version} column is the optimistic lock of renames and is served
+ * as the ETag of the user.
+ * </p>
  */
 
 @ToString(exclude = "gyms")
@@ -36,7 +41,7 @@ import lombok.ToString;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     private UUID id;
 
     @Column(nullable = false, length = 50)
@@ -49,7 +54,6 @@ public class User {
     private String password;
 
     @Column(nullable = false)
-    @Enumerated(EnumType.STRING)
     private Status status = Status.active;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -59,6 +63,9 @@ public class User {
     @UpdateTimestamp
     private Instant updated_at;
 
+    @Version
+    private long version;
+
     public User() {
     }
 
@@ -106,4 +113,8 @@ public class User {
         return updated_at;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package igym.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+import lombok.ToString;
+
+/**
+ * Represents a login session of a user on a device.
+ *
+ * <p>
+ * A session starts on login and ends on logout, when its refresh tokens are
+ * revoked, or when the user is deactivated. Its id is the family id of the
+ * refresh tokens issued in it, and is carried in the {@code sid} claim of its
+ * access tokens. {@code lastSeenAt} is written in batches by the
+ * {@link igym.security.SessionActivityTracker}, so it may lag a few seconds
+ * behind.
+ * </p>
+ */
+@ToString
+@Table(name = "user_sessions")
+@Entity
+public class UserSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    private User user;
+
+    @Column(length = 255)
+    private String device;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant lastSeenAt;
+
+    private Instant endedAt;
+
+    protected UserSession() {
+    }
+
+    public UserSession(User user, String device) {
+        this.user = user;
+        this.device = device;
+        this.createdAt = Instant.now();
+        this.lastSeenAt = createdAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public Instant getEndedAt() {
+        return endedAt;
+    }
+}
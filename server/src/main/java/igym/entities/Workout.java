@@ -9,6 +9,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
@@ -30,12 +31,31 @@ import igym.entities.enums.Status;
  * <p>
  * Lombok is used to generate getters and setters. The {@code id} field uses
  * {@code @Setter(AccessLevel.NONE)}
- * to prevent manual assignment, as it is automatically generated by the
- * database.
+ * to prevent manual assignment, as it is a time-ordered UUIDv7 generated on
+ * persist, before the INSERT.
+ * </p>
+ *
+ * <p>
+ * The gym is loaded lazily. The {@code Workout.withExercises} entity graph is
+ * the fetch plan of updates, which merge the incoming exercises into the
+ * stored list; it includes their lazy notes, which the merge compares. Updates
+ * only write the changed columns. The workout listing does not load this
+ * entity at all: it is projected straight into {@link igym.dtos.WorkoutDTO}s.
+ * </p>
+ *
+ * <p>
+ * The {@code version} column is the optimistic lock of updates and is served
+ * as the ETag of the workout. Changes to the exercises, deleting one included,
+ * count as changes to the workout, so they move {@code updated_at} and
+ * {@code version} too.
  * </p>
  */
 
 @Entity
+@DynamicUpdate
+@NamedEntityGraph(name = "Workout.withExercises",
+        attributeNodes = @NamedAttributeNode(value = "exerciseList", subgraph = "exercise"),
+        subgraphs = @NamedSubgraph(name = "exercise", attributeNodes = @NamedAttributeNode("note")))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,7 +63,7 @@ import igym.entities.enums.Status;
 public class Workout {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @Setter(AccessLevel.NONE)
     private UUID id;
 
@@ -52,7 +72,6 @@ public class Workout {
     @Size(min = 1, max = 50, message = "Name must be between 3 and 50 characters")
     private String name;
 
-    @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Status status = Status.active;
 
@@ -62,11 +81,15 @@ public class Workout {
     @JsonManagedReference
     private List<Exercise> exerciseList;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "gym_id", nullable = false)
     @JsonBackReference
     private Gym gym;
 
     @UpdateTimestamp
     private Instant updated_at;
+
+    @Version
+    @Setter(AccessLevel.NONE)
+    private long version;
 }
@@ -9,8 +9,39 @@ import igym.entities.*;
  *   <li>{@code active} - The entity is currently active and available for use.</li>
  *   <li>{@code inactive} - The entity is logically deleted or disabled, but still exists in the database.</li>
  * </ul>
+ *
+ * <p>
+ * Each value is stored as its {@code code}, a {@code smallint}, through the
+ * {@link StatusConverter}. Codes are persisted and must never be reused.
+ * </p>
  */
 public enum Status {
-    active,
-    inactive
+    active((short) 1),
+    inactive((short) 0);
+
+    private final short code;
+
+    Status(short code) {
+        this.code = code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the status stored under a code.
+     *
+     * @param code the stored code
+     * @return the status with that code
+     * @throws IllegalArgumentException if no status has the code
+     */
+    public static Status fromCode(short code) {
+        for (Status status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown status code " + code);
+    }
 }
@@ -0,0 +1,23 @@
+package igym.entities.enums;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link Status} as its two-byte code instead of its name, which keeps
+ * the status column, and every index that includes it, narrow. Applied to
+ * every {@code Status} attribute.
+ */
+@Converter(autoApply = true)
+public class StatusConverter implements AttributeConverter<Status, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Status status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public Status convertToEntityAttribute(Short code) {
+        return code == null ? null : Status.fromCode(code);
+    }
+}
@@ -0,0 +1,11 @@
+package igym.exceptions;
+
+/**
+ * Thrown when an API key with the specified ID does not exist, belongs to
+ * another user or was revoked.
+ */
+public class ApiKeyNotFoundException extends RuntimeException {
+    public ApiKeyNotFoundException(String message) {
+        super(message);
+    }
+}
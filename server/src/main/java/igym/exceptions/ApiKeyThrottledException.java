@@ -0,0 +1,19 @@
+package igym.exceptions;
+
+/**
+ * Thrown when a client sends more unknown API keys than its address is
+ * allowed, before the key is looked up.
+ */
+public class ApiKeyThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ApiKeyThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
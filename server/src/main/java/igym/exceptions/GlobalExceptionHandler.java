@@ -3,10 +3,15 @@ package igym.exceptions;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -40,6 +45,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    private static final String GYM_NAME_CONSTRAINT = "gyms_user_id_name_active_key";
+    private static final String USER_NAME_CONSTRAINT = "users_name_active_key";
 
     private Map<String, Object> buildResponseBody(HttpStatus status, String message) {
         Map<String, Object> body = new HashMap<>();
@@ -96,6 +103,67 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    /**
+     * Handles writes rejected by a database constraint. A clash with the unique
+     * index on active gym names or active user names is answered as a
+     * {@link DuplicateGymException} or {@link DuplicateUserException}; any other
+     * violation is an internal error.
+     *
+     * @param ex the thrown {@link DataIntegrityViolationException}
+     * @return a {@link ResponseEntity} with status 409 Conflict for duplicate
+     *         names, or 500 Internal Server Error otherwise
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        String constraint = violatedConstraint(ex);
+        if (constraint.contains(GYM_NAME_CONSTRAINT)) {
+            return handleDuplicateGymException(
+                    new DuplicateGymException("A gym with this name already exists for this user"));
+        }
+        if (constraint.contains(USER_NAME_CONSTRAINT)) {
+            return handleDuplicateUserException(new DuplicateUserException("A user with this name already exists"));
+        }
+        return handleGlobalException(ex);
+    }
+
+    private String violatedConstraint(DataIntegrityViolationException ex) {
+        String constraint = ex.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName()
+                : null;
+        if (constraint == null) {
+            constraint = ex.getMostSpecificCause().getMessage();
+        }
+        return constraint == null ? "" : constraint.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Handles updates whose If-Match version is no longer current.
+     *
+     * @param ex the thrown {@link PreconditionFailedException}
+     * @return a {@link ResponseEntity} with status 412 Precondition Failed and
+     *         error details
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlePreconditionFailedException(PreconditionFailedException ex) {
+        logger.error(ex.getMessage());
+        Map<String, Object> body = buildResponseBody(HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(body);
+    }
+
+    /**
+     * Handles updates that lost the race against a concurrent update of the
+     * same row, detected by its version column when the change was written.
+     *
+     * @param ex the thrown {@link OptimisticLockingFailureException}
+     * @return a {@link ResponseEntity} with status 412 Precondition Failed and
+     *         error details
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return handlePreconditionFailedException(
+                new PreconditionFailedException("The resource was modified by another request"));
+    }
+
     /**
      * Handles requests for gyms that do not exist in the system or are inactive.
      *
@@ -109,6 +177,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    /**
+     * Handles requests for API keys that do not exist, belong to another user or
+     * were revoked.
+     *
+     * @param ex the thrown {@link ApiKeyNotFoundException}
+     * @return a {@link ResponseEntity} with status 404 Not Found and error details
+     */
+    @ExceptionHandler(ApiKeyNotFoundException.class)
+    public ResponseEntity<Object> handleApiKeyNotFoundException(ApiKeyNotFoundException ex) {
+        logger.error(ex.getMessage());
+        Map<String, Object> body = buildResponseBody(HttpStatus.NOT_FOUND, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
     /**
      * Handles requests for users that do not exist in the system or are inative.
      *
@@ -178,6 +260,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(body);
     }
 
+    /**
+     * Handles requests rejected because the password-hashing executor is saturated.
+     *
+     * @param ex the thrown {@link PasswordHashingBusyException}
+     * @return a {@link ResponseEntity} with status 503 Service Unavailable, a
+     *         {@code Retry-After} header and error details
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Object> handlePasswordHashingBusyException(PasswordHashingBusyException ex) {
+        logger.warn(ex.getMessage());
+        Map<String, Object> body = buildResponseBody(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * Handles requests for resources owned by another user.
+     *
+     * @param ex the thrown {@link ResourceAccessDeniedException}
+     * @return a {@link ResponseEntity} with status 403 Forbidden and error details
+     */
+    @ExceptionHandler(ResourceAccessDeniedException.class)
+    public ResponseEntity<Object> handleResourceAccessDeniedException(ResourceAccessDeniedException ex) {
+        logger.warn(ex.getMessage());
+        Map<String, Object> body = buildResponseBody(HttpStatus.FORBIDDEN, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(body);
+    }
+
+    /**
+     * Handles login attempts rejected by the login guard.
+     *
+     * @param ex the thrown {@link LoginThrottledException}
+     * @return a {@link ResponseEntity} with status 429 Too Many Requests, a
+     *         {@code Retry-After} header and error details
+     */
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<Object> handleLoginThrottledException(LoginThrottledException ex) {
+        logger.warn(ex.getMessage());
+        Map<String, Object> body = buildResponseBody(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
     @ExceptionHandler(InvalidNameException.class)
     public ResponseEntity<Object> handleInvalidNameException(InvalidNameException ex) {
         logger.error(ex.getMessage());
@@ -0,0 +1,19 @@
+package igym.exceptions;
+
+/**
+ * Thrown when a login attempt is rejected by the login guard before the
+ * credentials are checked.
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package igym.exceptions;
+
+/**
+ * Thrown when an update carries an If-Match version that is no longer the
+ * current version of the resource.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
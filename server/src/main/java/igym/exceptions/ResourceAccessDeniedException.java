@@ -0,0 +1,11 @@
+package igym.exceptions;
+
+/**
+ * Thrown when the authenticated user tries to access a resource owned by
+ * another user.
+ */
+public class ResourceAccessDeniedException extends RuntimeException {
+    public ResourceAccessDeniedException(String message) {
+        super(message);
+    }
+}
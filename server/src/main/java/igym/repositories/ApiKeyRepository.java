@@ -0,0 +1,34 @@
+package igym.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import igym.entities.ApiKey;
+import igym.entities.enums.Status;
+
+/**
+ * Repository interface for managing {@link ApiKey} entities.
+ */
+public interface ApiKeyRepository extends JpaRepository<ApiKey, UUID> {
+
+    /**
+     * Finds the key with the given digest, together with its owner, if both
+     * have the given status.
+     *
+     * @param keyDigest the hex SHA-256 digest of the key
+     * @param status    the status of the key and of its owner
+     * @return the key with its owner loaded, or empty if none matches
+     */
+    @Query("SELECT k FROM ApiKey k JOIN FETCH k.user u "
+            + "WHERE k.keyDigest = :keyDigest AND k.status = :status AND u.status = :status")
+    Optional<ApiKey> findByDigestWithUser(@Param("keyDigest") String keyDigest, @Param("status") Status status);
+
+    List<ApiKey> findByUserIdAndStatus(UUID userId, Status status);
+
+    Optional<ApiKey> findByIdAndUserIdAndStatus(UUID id, UUID userId, Status status);
+}
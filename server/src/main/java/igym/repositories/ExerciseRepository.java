@@ -1,9 +1,16 @@
 package igym.repositories;
 
+import igym.dtos.ExerciseDTO;
 import igym.entities.Exercise;
 import igym.entities.enums.Status;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,6 +18,12 @@ import java.util.UUID;
  * Repository interface for managing Exercise entities.
  * This interface extends JpaRepository to provide CRUD operations and custom
  * query methods.
+ *
+ * <p>
+ * Exercises have no version of their own: they are versioned through their
+ * workout. The bulk inactivations below always run in the same transaction as
+ * the one of the workouts, which moves their versions.
+ * </p>
  */
 public interface ExerciseRepository extends JpaRepository<Exercise, UUID> {
     /**
@@ -22,4 +35,68 @@ public interface ExerciseRepository extends JpaRepository<Exercise, UUID> {
      *         found
      */
     Optional<Exercise> findByIdAndStatus(UUID id, Status status);
+
+    /**
+     * Retrieves the exercises of several workouts with one query, projected
+     * straight into {@link ExerciseDTO}s without loading any entity.
+     *
+     * @param workoutIds the UUIDs of the workouts whose exercises are fetched
+     * @param status     the status to filter by (usually {@code Status.active})
+     * @return the exercises of the given workouts with the given status
+     */
+    @Query("SELECT new igym.dtos.ExerciseDTO(e.id, e.name, e.weight, e.numReps, e.numSets, e.note, e.status, "
+            + "e.workout.id, e.updated_at) FROM Exercise e WHERE e.workout.id IN :workoutIds AND e.status = :status")
+    List<ExerciseDTO> findDTOsByWorkoutIdInAndStatus(@Param("workoutIds") Collection<UUID> workoutIds,
+            @Param("status") Status status);
+
+    /**
+     * Inactivates the active exercises of a workout with one bulk update.
+     *
+     * @param workoutId the UUID of the workout
+     * @param now       the instant recorded as the update time
+     * @return the number of inactivated exercises
+     */
+    @Modifying
+    @Query("UPDATE Exercise e SET e.status = igym.entities.enums.Status.inactive, e.updated_at = :now "
+            + "WHERE e.workout.id = :workoutId AND e.status = igym.entities.enums.Status.active")
+    int inactivateByWorkoutId(@Param("workoutId") UUID workoutId, @Param("now") Instant now);
+
+    /**
+     * Inactivates the active exercises of the active workouts of a gym with one
+     * bulk update. Must run before the workouts are inactivated.
+     *
+     * @param gymId the UUID of the gym
+     * @param now   the instant recorded as the update time
+     * @return the number of inactivated exercises
+     */
+    @Modifying
+    @Query("UPDATE Exercise e SET e.status = igym.entities.enums.Status.inactive, e.updated_at = :now "
+            + "WHERE e.status = igym.entities.enums.Status.active AND e.workout.id IN "
+            + "(SELECT w.id FROM Workout w WHERE w.gym.id = :gymId AND w.status = igym.entities.enums.Status.active)")
+    int inactivateByGymId(@Param("gymId") UUID gymId, @Param("now") Instant now);
+
+    /**
+     * Inactivates the active exercises of the active workouts of the active
+     * gyms of a user with one bulk update. Must run before the workouts and
+     * gyms are inactivated.
+     *
+     * @param userId the UUID of the user
+     * @param now    the instant recorded as the update time
+     * @return the number of inactivated exercises
+     */
+    @Modifying
+    @Query("UPDATE Exercise e SET e.status = igym.entities.enums.Status.inactive, e.updated_at = :now "
+            + "WHERE e.status = igym.entities.enums.Status.active AND e.workout.id IN "
+            + "(SELECT w.id FROM Workout w WHERE w.status = igym.entities.enums.Status.active AND w.gym.id IN "
+            + "(SELECT g.id FROM Gym g WHERE g.user.id = :userId AND g.status = igym.entities.enums.Status.active))")
+    int inactivateByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
+
+    /**
+     * Finds the id of the workout an exercise belongs to, whatever its status.
+     *
+     * @param id the UUID of the exercise
+     * @return the UUID of the workout, or empty if the exercise does not exist
+     */
+    @Query("SELECT e.workout.id FROM Exercise e WHERE e.id = :id")
+    Optional<UUID> findWorkoutIdById(@Param("id") UUID id);
 }
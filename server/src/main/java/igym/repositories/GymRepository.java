@@ -1,12 +1,21 @@
 package igym.repositories;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import igym.dtos.GymDTO;
 import igym.entities.Gym;
 import igym.entities.enums.Status;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository interface for managing {@link Gym} entities.
@@ -23,21 +32,75 @@ public interface GymRepository extends JpaRepository<Gym, UUID> {
     boolean existsByName(String name);
 
     /**
-     * Checks if a gym with the specified name exists for a particular user with a particular status.
+     * Checks if a gym with the specified ID exists with the specified status.
      *
-     * @param name   the name of the gym
-     * @param userId the ID of the user
-     * @return true if a gym with the given name exists for the user, false
-     *         otherwise
+     * @param id     the UUID of the gym
+     * @param status the status of the gym
+     * @return true if such a gym exists, false otherwise
      */
-    boolean existsByNameAndUserIdAndStatus(String name, UUID userId, Status status);
+    boolean existsByIdAndStatus(UUID id, Status status);
 
     /**
-     * Finds all gyms by its status
-     * @param status
+     * Finds all gyms by their status, projected straight into {@link GymDTO}s.
+     * The owner's id is read from the foreign key and no entity is loaded.
+     *
+     * @param status the status of the gyms
      * @return a list of gyms with the given status
      */
-    List<Gym> findByStatus(Status status);
+    @Query("SELECT new igym.dtos.GymDTO(g.id, g.name, g.status, g.updated_at, g.version, g.user.id) "
+            + "FROM Gym g WHERE g.status = :status")
+    List<GymDTO> findDTOsByStatus(@Param("status") Status status);
+
+    /**
+     * Finds the gyms of a user by their status, projected straight into
+     * {@link GymDTO}s. The result is kept in the query cache until the gyms
+     * table is next written through this instance, or for at most
+     * {@code second-level-cache.queries.ttl-ms}.
+     *
+     * @param userId the UUID of the owner
+     * @param status the status of the gyms
+     * @return a list of the user's gyms with the given status
+     */
+    @Query("SELECT new igym.dtos.GymDTO(g.id, g.name, g.status, g.updated_at, g.version, g.user.id) "
+            + "FROM Gym g WHERE g.user.id = :userId AND g.status = :status")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<GymDTO> findDTOsByUserIdAndStatus(@Param("userId") UUID userId, @Param("status") Status status);
+
+    /**
+     * Inactivates a gym if it is active. The version moves too, so an update
+     * that read the gym before the delete fails its version check instead of
+     * writing the gym back as active.
+     *
+     * @param id  the UUID of the gym
+     * @param now the instant recorded as the update time
+     * @return 1 if the gym was inactivated, 0 if it does not exist or is already
+     *         inactive
+     */
+    @Modifying
+    @Query("UPDATE Gym g SET g.status = igym.entities.enums.Status.inactive, g.updated_at = :now, "
+            + "g.version = g.version + 1 "
+            + "WHERE g.id = :id AND g.status = igym.entities.enums.Status.active")
+    int inactivate(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Inactivates the active gyms of a user with one bulk update.
+     *
+     * @param userId the UUID of the owner
+     * @param now    the instant recorded as the update time
+     * @return the number of inactivated gyms
+     */
+    @Modifying
+    @Query("UPDATE Gym g SET g.status = igym.entities.enums.Status.inactive, g.updated_at = :now, "
+            + "g.version = g.version + 1 "
+            + "WHERE g.user.id = :userId AND g.status = igym.entities.enums.Status.active")
+    int inactivateByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
 
-    List<Gym> findByUserIdAndStatus(UUID userId, Status status);
+    /**
+     * Finds the id of the user who owns a gym, whatever its status.
+     *
+     * @param id the UUID of the gym
+     * @return the UUID of the owner, or empty if the gym does not exist
+     */
+    @Query("SELECT g.user.id FROM Gym g WHERE g.id = :id")
+    Optional<UUID> findOwnerIdById(@Param("id") UUID id);
 }
\ No newline at end of file
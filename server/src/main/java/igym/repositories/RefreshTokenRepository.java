@@ -0,0 +1,66 @@
+package igym.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.RefreshToken;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository interface for managing {@link RefreshToken} entities.
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    /**
+     * Finds a refresh token with its user and locks it, so two concurrent
+     * refreshes with the same token cannot both rotate it.
+     *
+     * @param tokenDigest the hex SHA-256 digest of the token
+     * @return the token with its user loaded, or empty if it was never issued
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t JOIN FETCH t.user WHERE t.tokenDigest = :tokenDigest")
+    Optional<RefreshToken> findByDigestForUpdate(@Param("tokenDigest") String tokenDigest);
+
+    /**
+     * Revokes every token of a family that is not revoked yet.
+     *
+     * @param familyId the family of the tokens
+     * @param now      the current instant
+     * @return the number of revoked tokens
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("now") Instant now);
+
+    /**
+     * Revokes every token of a user that is not revoked yet.
+     *
+     * @param userId the UUID of the user
+     * @param now    the current instant
+     * @return the number of revoked tokens
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.user.id = :userId AND t.revokedAt IS NULL")
+    int revokeByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
+
+    /**
+     * Deletes the tokens that have expired. Joins the transaction of the shard
+     * it runs on, or runs in its own when there is none.
+     *
+     * @param now the current instant
+     * @return the number of deleted tokens
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
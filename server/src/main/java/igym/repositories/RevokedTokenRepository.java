@@ -0,0 +1,35 @@
+package igym.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import igym.entities.RevokedToken;
+
+/**
+ * Repository interface for managing {@link RevokedToken} entities.
+ */
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Finds the revocations of tokens that have not expired yet.
+     *
+     * @param now the current instant
+     * @return the revocations still in effect
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Deletes the revocations of tokens that have expired.
+     *
+     * @param now the current instant
+     * @return the number of deleted revocations
+     */
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
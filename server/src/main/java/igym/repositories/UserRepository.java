@@ -5,7 +5,10 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
+import igym.dtos.UserDTO;
 import igym.entities.User;
 import igym.entities.enums.Status;
 
@@ -31,11 +34,23 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     public boolean existsByNameAndStatus(String name, Status status);
 
     /**
-     * Finds all users by their status.
-     * @param status
+     * Checks if a user with the specified ID exists with the specified status.
+     *
+     * @param id     the UUID of the user
+     * @param status the status of the user
+     * @return true if such a user exists, false otherwise
+     */
+    boolean existsByIdAndStatus(UUID id, Status status);
+
+    /**
+     * Finds all users by their status, projected straight into
+     * {@link UserDTO}s without loading any entity.
+     *
+     * @param status the status of the users
      * @return a list of users with the given status
      */
-    List<User> findByStatus(Status status);
+    @Query("SELECT new igym.dtos.UserDTO(u.id, u.name, u.status, u.updated_at, u.version) FROM User u WHERE u.status = :status")
+    List<UserDTO> findDTOsByStatus(@Param("status") Status status);
 
     /**
      * Finds a user by their name and status.
@@ -45,4 +60,13 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      * @return the user with the given name and status, or null if not found
      */
     Optional<User> findByNameAndStatus(String name, Status status);
+
+    /**
+     * Finds the names of all users with the specified status.
+     *
+     * @param status the status of the users
+     * @return the names of the users with the given status
+     */
+    @Query("SELECT u.name FROM User u WHERE u.status = :status")
+    List<String> findNamesByStatus(@Param("status") Status status);
 }
@@ -0,0 +1,52 @@
+package igym.repositories;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import igym.entities.UserSession;
+
+/**
+ * Repository interface for managing {@link UserSession} entities.
+ */
+public interface UserSessionRepository extends JpaRepository<UserSession, UUID> {
+
+    /**
+     * Finds the sessions of a user that have not ended and were seen after the
+     * given instant, most recently seen first.
+     *
+     * @param userId the UUID of the user
+     * @param since  sessions last seen before this instant are left out
+     * @return the open sessions of the user
+     */
+    @Query("SELECT s FROM UserSession s WHERE s.user.id = :userId AND s.endedAt IS NULL "
+            + "AND s.lastSeenAt > :since ORDER BY s.lastSeenAt DESC")
+    List<UserSession> findOpenByUserId(@Param("userId") UUID userId, @Param("since") Instant since);
+
+    /**
+     * Ends a session if it has not ended yet.
+     *
+     * @param id  the UUID of the session
+     * @param now the current instant
+     * @return the number of ended sessions
+     */
+    @Modifying
+    @Query("UPDATE UserSession s SET s.endedAt = :now WHERE s.id = :id AND s.endedAt IS NULL")
+    int end(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Ends every open session of a user.
+     *
+     * @param userId the UUID of the user
+     * @param now    the current instant
+     * @return the number of ended sessions
+     */
+    @Modifying
+    @Query("UPDATE UserSession s SET s.endedAt = :now WHERE s.user.id = :userId AND s.endedAt IS NULL")
+    int endByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
+}
@@ -1,13 +1,18 @@
 package igym.repositories;
 
 import igym.entities.enums.Status;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import igym.entities.Gym;
+import igym.dtos.WorkoutDTO;
 import igym.entities.Workout;
 
 /**
@@ -16,11 +21,78 @@ import igym.entities.Workout;
  */
 public interface WorkoutRepository extends JpaRepository<Workout, UUID> {
     /**
-     * Finds all workouts associated with a given gym.
+     * Finds the workouts of a gym by their status, projected straight into
+     * {@link WorkoutDTO}s with an empty exercise list. The exercises are
+     * fetched separately with
+     * {@link ExerciseRepository#findDTOsByWorkoutIdInAndStatus}.
      *
-     * @param gym the gym entity
+     * @param gymId  the UUID of the gym
+     * @param status the status of the workouts
      * @return a list of workouts belonging to the specified gym
      */
-    List<Workout> findByGymAndStatus(Gym gym, Status status);
+    @Query("SELECT new igym.dtos.WorkoutDTO(w.id, w.name, w.status, w.updated_at, w.version, w.gym.id) "
+            + "FROM Workout w WHERE w.gym.id = :gymId AND w.status = :status")
+    List<WorkoutDTO> findDTOsByGymIdAndStatus(@Param("gymId") UUID gymId, @Param("status") Status status);
+
+    /**
+     * Finds a workout by its id and status, together with its exercises.
+     *
+     * @param id     the UUID of the workout
+     * @param status the status of the workout
+     * @return the workout, or empty if none matches
+     */
+    @EntityGraph("Workout.withExercises")
     Optional<Workout> findByIdAndStatus(UUID id, Status status);
+
+    /**
+     * Inactivates a workout if it is active. The version moves too, as for
+     * {@link GymRepository#inactivate}.
+     *
+     * @param id  the UUID of the workout
+     * @param now the instant recorded as the update time
+     * @return 1 if the workout was inactivated, 0 if it does not exist or is
+     *         already inactive
+     */
+    @Modifying
+    @Query("UPDATE Workout w SET w.status = igym.entities.enums.Status.inactive, w.updated_at = :now, "
+            + "w.version = w.version + 1 "
+            + "WHERE w.id = :id AND w.status = igym.entities.enums.Status.active")
+    int inactivate(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Inactivates the active workouts of a gym with one bulk update.
+     *
+     * @param gymId the UUID of the gym
+     * @param now   the instant recorded as the update time
+     * @return the number of inactivated workouts
+     */
+    @Modifying
+    @Query("UPDATE Workout w SET w.status = igym.entities.enums.Status.inactive, w.updated_at = :now, "
+            + "w.version = w.version + 1 "
+            + "WHERE w.gym.id = :gymId AND w.status = igym.entities.enums.Status.active")
+    int inactivateByGymId(@Param("gymId") UUID gymId, @Param("now") Instant now);
+
+    /**
+     * Inactivates the active workouts of the active gyms of a user with one
+     * bulk update. Must run before the gyms are inactivated.
+     *
+     * @param userId the UUID of the user
+     * @param now    the instant recorded as the update time
+     * @return the number of inactivated workouts
+     */
+    @Modifying
+    @Query("UPDATE Workout w SET w.status = igym.entities.enums.Status.inactive, w.updated_at = :now, "
+            + "w.version = w.version + 1 "
+            + "WHERE w.status = igym.entities.enums.Status.active AND w.gym.id IN "
+            + "(SELECT g.id FROM Gym g WHERE g.user.id = :userId AND g.status = igym.entities.enums.Status.active)")
+    int inactivateByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
+
+    /**
+     * Finds the id of the gym a workout belongs to, whatever its status.
+     *
+     * @param id the UUID of the workout
+     * @return the UUID of the gym, or empty if the workout does not exist
+     */
+    @Query("SELECT w.gym.id FROM Workout w WHERE w.id = :id")
+    Optional<UUID> findGymIdById(@Param("id") UUID id);
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package igym.security;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import igym.exceptions.ApiKeyThrottledException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Filter class for API key authentication of machine clients.
+ *
+ * <p>
+ * This filter:
+ * - Reads the key from the {@value ApiKeyRegistry#HEADER} header
+ * - Resolves it through the {@link ApiKeyRegistry}, without a database query
+ *   once the key is cached
+ * - Answers 429 Too Many Requests when the key is over its quota, or when the
+ *   client address sends too many unknown keys
+ * - Sets up Spring Security context with an {@link AuthenticatedUser} principal
+ *   and the {@value #AUTHORITY} authority
+ * </p>
+ *
+ * <p>
+ * It runs before the {@link JwtAuthenticationFilter}; requests without the
+ * header are passed on untouched.
+ * </p>
+ */
+@Component
+public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
+
+    /**
+     * The authority granted to requests authenticated with an API key.
+     */
+    public static final String AUTHORITY = "API_KEY";
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyAuthenticationFilter.class);
+
+    private final ApiKeyRegistry registry;
+
+    public ApiKeyAuthenticationFilter(ApiKeyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(ApiKeyRegistry.HEADER);
+        if (key == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            ApiKeyRegistry.Entry entry = registry.authenticate(key, request.getRemoteAddr());
+            if (entry == null) {
+                logger.warn("Rejected unknown API key");
+            } else {
+                long waitMs = registry.tryAcquire(entry);
+                if (waitMs > 0) {
+                    logger.debug("API key {} is over its quota for {} ms", entry.keyId(), waitMs);
+                    reject(response, (waitMs + 999) / 1000, "Too Many Requests: API key quota exceeded");
+                    return;
+                }
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        entry.user(), null, List.of(new SimpleGrantedAuthority(AUTHORITY)));
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
+        } catch (ApiKeyThrottledException e) {
+            logger.warn("Throttled unknown API keys from {}", request.getRemoteAddr());
+            reject(response, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.error("Cannot set API key authentication: {}", e.getMessage());
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterSeconds, String error)
+            throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\": \"" + error + "\"}");
+    }
+}
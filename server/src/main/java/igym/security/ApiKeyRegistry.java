@@ -0,0 +1,227 @@
+package igym.security;
+
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import igym.config.ShardRouter;
+import igym.entities.ApiKey;
+import igym.entities.enums.Status;
+import igym.exceptions.ApiKeyThrottledException;
+import igym.repositories.ApiKeyRepository;
+import igym.utils.Hashing;
+
+/**
+ * Resolves API keys to their owners and enforces the request quota of each key.
+ *
+ * <p>
+ * Keys are random, so they are stored and looked up by their SHA-256 digest
+ * instead of a slow password hash. Resolved digests are kept in a bounded
+ * in-memory cache, so a warm key costs one SHA-256 and a map lookup. The cache
+ * only ever sees digests. A miss looks the digest up on every shard in
+ * parallel.
+ * </p>
+ *
+ * <p>
+ * Unknown digests go to a separate, smaller negative cache, so a client
+ * retrying a bad key does not reach the database on every request, and a
+ * stream of random keys cannot evict the valid ones. Every request with a key
+ * that is not cached as valid takes a token from a bucket keyed by the client
+ * address, before the lookup, so unknown keys are rate-limited the way known
+ * keys are by their quota.
+ * </p>
+ *
+ * <p>
+ * Entries expire after {@code api-keys.cache.ttl-seconds}, which bounds how
+ * long a key revoked on another instance keeps working here. Each key has a
+ * token bucket (see {@link StripedTokenBuckets}) limiting its request rate.
+ * </p>
+ */
+@Component
+public class ApiKeyRegistry {
+
+    /**
+     * The header machine clients send their API key in.
+     */
+    public static final String HEADER = "X-API-Key";
+
+    private final ApiKeyRepository repository;
+    private final ShardRouter shards;
+    private final StripedTokenBuckets quotas;
+    private final StripedTokenBuckets unknownKeyBuckets;
+    private final int maxSize;
+    private final long ttlMs;
+    private final int unknownMaxSize;
+    private final long unknownTtlMs;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> unknown = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ApiKeyRegistry(ApiKeyRepository repository, ShardRouter shards,
+            @Value("${api-keys.cache.max-size:10000}") int maxSize,
+            @Value("${api-keys.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${api-keys.quota.stripes:4096}") int stripes,
+            @Value("${api-keys.quota.burst:100}") int burst,
+            @Value("${api-keys.quota.per-minute:600}") int perMinute,
+            @Value("${api-keys.unknown.max-size:1000}") int unknownMaxSize,
+            @Value("${api-keys.unknown.ttl-seconds:60}") long unknownTtlSeconds,
+            @Value("${api-keys.unknown.ip.burst:10}") int unknownIpBurst,
+            @Value("${api-keys.unknown.ip.per-minute:30}") int unknownIpPerMinute) {
+        this(repository, shards, new StripedTokenBuckets(stripes, burst, perMinute),
+                new StripedTokenBuckets(stripes, unknownIpBurst, unknownIpPerMinute), maxSize, ttlSeconds * 1000,
+                unknownMaxSize, unknownTtlSeconds * 1000, System::currentTimeMillis);
+    }
+
+    ApiKeyRegistry(ApiKeyRepository repository, ShardRouter shards, StripedTokenBuckets quotas,
+            StripedTokenBuckets unknownKeyBuckets, int maxSize, long ttlMs, int unknownMaxSize, long unknownTtlMs,
+            LongSupplier clock) {
+        this.repository = repository;
+        this.shards = shards;
+        this.quotas = quotas;
+        this.unknownKeyBuckets = unknownKeyBuckets;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.unknownMaxSize = unknownMaxSize;
+        this.unknownTtlMs = unknownTtlMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Resolves an API key to the key id and its owner.
+     *
+     * @param key      the key sent by the client
+     * @param clientIp the address the request comes from
+     * @return the resolved key, or null if the key is unknown, revoked or its
+     *         owner is inactive
+     * @throws ApiKeyThrottledException if the key is not cached as valid and
+     *                                  the address has sent too many such keys
+     */
+    public Entry authenticate(String key, String clientIp) {
+        String hex = HexFormat.of().formatHex(Hashing.sha256(key));
+        long now = clock.getAsLong();
+
+        Entry entry = entries.get(hex);
+        if (entry != null && now - entry.loadedAtMs() <= ttlMs) {
+            return entry;
+        }
+        long waitMs = unknownKeyBuckets.tryAcquire(clientIp, now);
+        if (waitMs > 0) {
+            throw new ApiKeyThrottledException("Too Many Requests: too many unknown API keys", (waitMs + 999) / 1000);
+        }
+        if (isKnownUnknown(hex, now)) {
+            return null;
+        }
+
+        entry = load(hex, now);
+        if (entry == null) {
+            entries.remove(hex);
+            recordUnknown(hex, now);
+            return null;
+        }
+        entries.put(hex, entry);
+        evictIfFull(entries, maxSize);
+        return entry;
+    }
+
+    /**
+     * Takes one request from the quota of a key.
+     *
+     * @param entry the resolved key
+     * @return 0 if the request is within the quota, otherwise the milliseconds
+     *         until the key may send the next request
+     */
+    public long tryAcquire(Entry entry) {
+        return quotas.tryAcquire(entry.keyId().toString(), clock.getAsLong());
+    }
+
+    /**
+     * Drops a key from the cache. Used when the key is revoked.
+     *
+     * @param keyDigest the hex digest of the key
+     */
+    public void forget(String keyDigest) {
+        entries.remove(keyDigest);
+        unknown.remove(keyDigest);
+    }
+
+    /**
+     * Drops every key of a user from the cache. Used when the user is renamed
+     * or deactivated.
+     *
+     * @param userId the UUID of the user
+     */
+    public void forgetUser(UUID userId) {
+        entries.values().removeIf(entry -> userId.equals(entry.user().userId()));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int unknownSize() {
+        return unknown.size();
+    }
+
+    private Entry load(String hex, long now) {
+        return shards.onAllShards(true, () -> repository.findByDigestWithUser(hex, Status.active))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst()
+                .map(apiKey -> new Entry(apiKey.getId(), principalOf(apiKey), now))
+                .orElse(null);
+    }
+
+    private boolean isKnownUnknown(String hex, long now) {
+        Long expiresAt = unknown.get(hex);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= now) {
+            unknown.remove(hex, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private void recordUnknown(String hex, long now) {
+        if (unknownTtlMs <= 0) {
+            return;
+        }
+        if (unknown.size() >= unknownMaxSize) {
+            unknown.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+        unknown.put(hex, now + unknownTtlMs);
+        evictIfFull(unknown, unknownMaxSize);
+    }
+
+    private static AuthenticatedUser principalOf(ApiKey apiKey) {
+        return new AuthenticatedUser(apiKey.getUser().getId(), apiKey.getUser().getName());
+    }
+
+    private static void evictIfFull(Map<String, ?> entries, int maxSize) {
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * An API key resolved to its owner.
+     *
+     * @param keyId      the UUID of the key
+     * @param user       the owner of the key
+     * @param loadedAtMs when the entry was loaded from the database
+     */
+    public record Entry(UUID keyId, AuthenticatedUser user, long loadedAtMs) {
+    }
+}
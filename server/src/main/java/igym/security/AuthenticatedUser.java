@@ -0,0 +1,24 @@
+package igym.security;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Principal placed in the security context for authenticated requests.
+ *
+ * <p>
+ * It is built straight from the verified token claims, so no database access is
+ * needed to create it. {@link #getName()} returns the user id, which is the
+ * value carried in the token subject.
+ * </p>
+ *
+ * @param userId   the unique identifier of the authenticated user
+ * @param username the username carried in the token
+ */
+public record AuthenticatedUser(UUID userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+}
@@ -2,6 +2,7 @@ package igym.security;
 
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,11 +12,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import igym.config.ShardRouter;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
 
 /**
  * Filter class for JWT-based authentication.
@@ -24,10 +29,23 @@ import java.io.IOException;
  * <p>
  * This filter:
  * - Extracts JWT tokens from the Authorization header
- * - Validates tokens using JwtUtil
+ * - Validates tokens using JwtUtil, parsing each token once per request
+ * - Rejects tokens revoked through the {@link TokenRevocationRegistry}
  * - Sets up Spring Security context for authenticated users
+ * - Records the session of the token as seen in the {@link SessionActivityTracker}
  * - Handles authentication errors gracefully
  * </p>
+ *
+ * <p>
+ * In stateless mode (the default, {@code jwt.stateless=true}) the principal is an
+ * {@link AuthenticatedUser} built from the verified claims, and deactivations and
+ * renames are enforced through the in-memory {@link SecurityEpochCache} and the
+ * short lifetime of access tokens, so no database access happens on the request
+ * path. With {@code jwt.stateless=false} the user
+ * is loaded through the {@link UserDetailsService} on every request, on the
+ * shard of the token subject. The
+ * principal is an {@link AuthenticatedUser} in both modes.
+ * </p>
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -35,10 +53,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final SecurityEpochCache securityEpochCache;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final SessionActivityTracker activityTracker;
+    private final ShardRouter shards;
+    private final boolean stateless;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService,
+            SecurityEpochCache securityEpochCache, TokenRevocationRegistry revocationRegistry,
+            SessionActivityTracker activityTracker, ShardRouter shards,
+            @Value("${jwt.stateless:true}") boolean stateless) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.securityEpochCache = securityEpochCache;
+        this.revocationRegistry = revocationRegistry;
+        this.activityTracker = activityTracker;
+        this.shards = shards;
+        this.stateless = stateless;
     }
 
     /**
@@ -57,21 +88,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String header = request.getHeader("Authorization");
-            String token = null;
-            String userId = null;
-
-            if (header != null && header.startsWith("Bearer ")) {
-                token = header.substring(7);
-                userId = jwtUtil.getUserIdFromToken(token).toString();
-            }
 
-            if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userId);
-                if (jwtUtil.validateToken(token)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+            if (header != null && header.startsWith("Bearer ")
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
+                Claims claims = jwtUtil.extractAllClaims(header.substring(7));
+                UsernamePasswordAuthenticationToken authToken = null;
+                if (isRevoked(claims)) {
+                    logger.warn("Rejected revoked token {}", claims.getId());
+                } else {
+                    authToken = stateless ? authenticateFromClaims(claims) : authenticateFromUserDetails(claims);
+                }
+                if (authToken != null) {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    touchSession(claims);
                 }
             }
         } catch (Exception e) {
@@ -80,4 +110,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             chain.doFilter(request, response);
         }
     }
-}
\ No newline at end of file
+
+    private void touchSession(Claims claims) {
+        String sessionId = claims.get("sid", String.class);
+        if (sessionId != null) {
+            activityTracker.touch(UUID.fromString(sessionId), UUID.fromString(claims.getSubject()));
+        }
+    }
+
+    private boolean isRevoked(Claims claims) {
+        return claims.getId() != null && revocationRegistry.isRevoked(claims.getId());
+    }
+
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(Claims claims) {
+        UUID userId = UUID.fromString(claims.getSubject());
+
+        if (!securityEpochCache.isCurrent(userId, claims.getIssuedAt())) {
+            logger.warn("Rejected token of user {} issued before its current security epoch", userId);
+            return null;
+        }
+
+        AuthenticatedUser principal = new AuthenticatedUser(userId, claims.get("username", String.class));
+        return new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
+    }
+
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(Claims claims) {
+        // No principal is set yet to route by, so the user is looked up on the shard of the subject.
+        UUID userId = UUID.fromString(claims.getSubject());
+        UserDetails userDetails = shards.forUser(userId,
+                () -> userDetailsService.loadUserByUsername(claims.getSubject()));
+        AuthenticatedUser principal = new AuthenticatedUser(userId, userDetails.getUsername());
+        return new UsernamePasswordAuthenticationToken(principal, null, userDetails.getAuthorities());
+    }
+}
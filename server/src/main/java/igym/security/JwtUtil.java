@@ -1,6 +1,7 @@
 package igym.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -21,49 +22,69 @@ import java.util.UUID;
  * - Validating token authenticity and expiration
  * - Extracting user information from tokens
  * </p>
+ *
+ * <p>
+ * The signing key and the parser are built once, and verified claims are kept
+ * in a {@link VerifiedClaimsCache} until the token expires, so a repeated token
+ * is not verified again.
+ * </p>
  */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final long jwtExpirationInSec;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final VerifiedClaimsCache claimsCache;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpirationInSec;
+    public JwtUtil(@Value("${jwt.secret}") String jwtSecret, @Value("${jwt.expiration}") long jwtExpirationInSec,
+            VerifiedClaimsCache claimsCache) {
+        this.jwtExpirationInSec = jwtExpirationInSec;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.claimsCache = claimsCache;
+    }
 
     /**
      * Generates a new JWT token for an authenticated user.
      *
      * @param userId the UUID of the authenticated user
      * @param username the username of the authenticated user
+     * @param sessionId the UUID of the login session, carried in the
+     *                  {@code sid} claim, or null
      * @return a signed JWT token containing user information
      */
-    public String generateToken(UUID userId, String username) {
+    public String generateToken(UUID userId, String username, UUID sessionId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInSec * 1000);
 
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userId.toString())
                 .claim("username", username)
+                .claim("sid", sessionId == null ? null : sessionId.toString())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     /**
      * Extracts all claims from a JWT token.
+     * The signature is only verified the first time a token is seen; later calls
+     * are served from the claims cache until the token expires.
      *
      * @param token the JWT token to parse
-     * @return the claims contained in the token
-     * @throws Exception if the token is invalid or malformed
+     * @return the claims contained in the token, to be treated as read-only
+     * @throws Exception if the token is invalid, malformed or expired
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = claimsCache.get(token);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            claimsCache.put(token, claims);
+        }
+        return claims;
     }
 
     /**
@@ -100,13 +121,4 @@ public class JwtUtil {
     public UUID getUserIdFromToken(String token) {
         return UUID.fromString(extractAllClaims(token).getSubject());
     }
-
-    /**
-     * Creates a signing key for JWT token generation and validation.
-     *
-     * @return a Key object suitable for HMAC-SHA256 signing
-     */
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,217 @@
+package igym.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import igym.exceptions.LoginThrottledException;
+import igym.exceptions.UserNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Throttles login attempts before they reach the database or BCrypt.
+ *
+ * <p>
+ * Every attempt takes a token from a bucket keyed by the client IP and one
+ * keyed by the username (see {@link StripedTokenBuckets}). Usernames that
+ * recently failed to resolve are kept in a short negative cache and rejected
+ * right away, and usernames with consecutive wrong passwords are blocked for an
+ * exponentially growing time. Attempts are counted in the
+ * {@code igym.login.attempts} metric, tagged with the outcome
+ * {@code allowed}, {@code throttled} or {@code failed}.
+ * </p>
+ */
+@Component
+public class LoginGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginGuard.class);
+
+    private final StripedTokenBuckets ipBuckets;
+    private final StripedTokenBuckets userBuckets;
+    private final long unknownUserTtlMs;
+    private final int backoffThreshold;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Long> unknownUsers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Failures> failures = new ConcurrentHashMap<>();
+    private final Counter allowed;
+    private final Counter throttled;
+    private final Counter failed;
+
+    @Autowired
+    public LoginGuard(MeterRegistry meterRegistry,
+            @Value("${login.guard.stripes:4096}") int stripes,
+            @Value("${login.guard.ip.burst:20}") int ipBurst,
+            @Value("${login.guard.ip.per-minute:60}") int ipPerMinute,
+            @Value("${login.guard.user.burst:5}") int userBurst,
+            @Value("${login.guard.user.per-minute:10}") int userPerMinute,
+            @Value("${login.guard.unknown-user-ttl-seconds:60}") long unknownUserTtlSeconds,
+            @Value("${login.guard.backoff.threshold:3}") int backoffThreshold,
+            @Value("${login.guard.backoff.base-ms:1000}") long backoffBaseMs,
+            @Value("${login.guard.backoff.max-ms:300000}") long backoffMaxMs,
+            @Value("${login.guard.max-entries:10000}") int maxEntries) {
+        this(meterRegistry, new StripedTokenBuckets(stripes, ipBurst, ipPerMinute),
+                new StripedTokenBuckets(stripes, userBurst, userPerMinute), unknownUserTtlSeconds * 1000,
+                backoffThreshold, backoffBaseMs, backoffMaxMs, maxEntries, System::currentTimeMillis);
+    }
+
+    LoginGuard(MeterRegistry meterRegistry, StripedTokenBuckets ipBuckets, StripedTokenBuckets userBuckets,
+            long unknownUserTtlMs, int backoffThreshold, long backoffBaseMs, long backoffMaxMs, int maxEntries,
+            LongSupplier clock) {
+        this.ipBuckets = ipBuckets;
+        this.userBuckets = userBuckets;
+        this.unknownUserTtlMs = unknownUserTtlMs;
+        this.backoffThreshold = backoffThreshold;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.allowed = attemptCounter(meterRegistry, "allowed");
+        this.throttled = attemptCounter(meterRegistry, "throttled");
+        this.failed = attemptCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Admits or rejects a login attempt. Must be called before the user is
+     * looked up.
+     *
+     * @param username the username of the attempt
+     * @param clientIp the address the attempt comes from
+     * @throws LoginThrottledException if the IP or the username is over its
+     *                                 limit, or the username is backing off
+     * @throws UserNotFoundException   if the username recently failed to
+     *                                 resolve to an active user
+     */
+    public void checkAttempt(String username, String clientIp) {
+        long now = clock.getAsLong();
+        String name = username == null ? "" : username;
+
+        long waitMs = ipBuckets.tryAcquire(clientIp, now);
+        if (waitMs == 0 && isKnownUnknown(name, now)) {
+            throttled.increment();
+            throw new UserNotFoundException("User not found");
+        }
+        if (waitMs == 0) {
+            waitMs = blockedFor(name, now);
+        }
+        if (waitMs == 0) {
+            waitMs = userBuckets.tryAcquire(name, now);
+        }
+        if (waitMs > 0) {
+            throttled.increment();
+            logger.debug("Throttled login attempt for user {} from {} for {} ms", name, clientIp, waitMs);
+            throw new LoginThrottledException("Too many login attempts, try again later", (waitMs + 999) / 1000);
+        }
+        allowed.increment();
+    }
+
+    /**
+     * Clears the failure history of a username after a successful login.
+     *
+     * @param username the username that logged in
+     */
+    public void recordSuccess(String username) {
+        failures.remove(username == null ? "" : username);
+    }
+
+    /**
+     * Records a wrong password. From the configured threshold on, every
+     * consecutive failure doubles the time the username is blocked.
+     *
+     * @param username the username of the failed attempt
+     */
+    public void recordFailure(String username) {
+        failed.increment();
+        long now = clock.getAsLong();
+        evictIfFull(failures, entry -> now - entry.lastFailureMs() > backoffMaxMs);
+        failures.compute(username == null ? "" : username, (key, previous) -> {
+            int count = previous == null || now - previous.lastFailureMs() > backoffMaxMs ? 1 : previous.count() + 1;
+            long blockedUntilMs = count >= backoffThreshold ? now + backoffDelay(count) : 0L;
+            return new Failures(count, now, blockedUntilMs);
+        });
+    }
+
+    /**
+     * Records a username that did not resolve to an active user, so further
+     * attempts with it are rejected without a database query for a while.
+     *
+     * @param username the unknown username
+     */
+    public void recordUnknownUser(String username) {
+        failed.increment();
+        if (unknownUserTtlMs <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        evictIfFull(unknownUsers, expiresAt -> expiresAt <= now);
+        unknownUsers.put(username == null ? "" : username, now + unknownUserTtlMs);
+    }
+
+    /**
+     * Removes a username from the negative cache. Used when a user with that
+     * name is created or renamed.
+     *
+     * @param username the username that now exists
+     */
+    public void forgetUnknownUser(String username) {
+        if (username != null) {
+            unknownUsers.remove(username);
+        }
+    }
+
+    private boolean isKnownUnknown(String username, long now) {
+        Long expiresAt = unknownUsers.get(username);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= now) {
+            unknownUsers.remove(username, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private long blockedFor(String username, long now) {
+        Failures entry = failures.get(username);
+        return entry == null ? 0L : Math.max(0L, entry.blockedUntilMs() - now);
+    }
+
+    private long backoffDelay(int count) {
+        int exponent = Math.min(count - backoffThreshold, 30);
+        return Math.min(backoffMaxMs, backoffBaseMs << exponent);
+    }
+
+    private <V> void evictIfFull(Map<String, V> entries, Predicate<V> stale) {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        entries.values().removeIf(stale);
+
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static Counter attemptCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("igym.login.attempts")
+                .description("Login attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Failures(int count, long lastFailureMs, long blockedUntilMs) {
+    }
+}
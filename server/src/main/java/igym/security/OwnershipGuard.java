@@ -0,0 +1,97 @@
+package igym.security;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import igym.exceptions.ExerciseNotFoundException;
+import igym.exceptions.GymNotFoundException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.exceptions.WorkoutNotFoundException;
+
+/**
+ * Checks that the authenticated user owns the resource a request targets.
+ *
+ * <p>
+ * The current user id is the token subject, read from the security context,
+ * and owners are resolved through the {@link OwnershipIndex}, so a check on a
+ * warm index adds no query. The check fails closed: a resource whose owner
+ * cannot be resolved is reported as not found here, before the request reaches
+ * the service.
+ * </p>
+ */
+@Component
+public class OwnershipGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnershipGuard.class);
+
+    private final OwnershipIndex ownershipIndex;
+
+    public OwnershipGuard(OwnershipIndex ownershipIndex) {
+        this.ownershipIndex = ownershipIndex;
+    }
+
+    /**
+     * @param userId the UUID of the user the request acts on behalf of
+     * @throws ResourceAccessDeniedException if it is not the current user
+     */
+    public void checkUser(UUID userId) {
+        check("user", userId, userId, ResourceAccessDeniedException::new);
+    }
+
+    /**
+     * @param gymId the UUID of the gym the request targets
+     * @throws ResourceAccessDeniedException if the gym belongs to another user
+     * @throws GymNotFoundException          if the gym does not exist
+     */
+    public void checkGym(UUID gymId) {
+        check("gym", gymId, ownershipIndex.ownerOfGym(gymId), GymNotFoundException::new);
+    }
+
+    /**
+     * @param workoutId the UUID of the workout the request targets
+     * @throws ResourceAccessDeniedException if the workout belongs to another
+     *                                       user
+     * @throws WorkoutNotFoundException      if the workout does not exist
+     */
+    public void checkWorkout(UUID workoutId) {
+        check("workout", workoutId, ownershipIndex.ownerOfWorkout(workoutId), WorkoutNotFoundException::new);
+    }
+
+    /**
+     * @param exerciseId the UUID of the exercise the request targets
+     * @throws ResourceAccessDeniedException if the exercise belongs to another
+     *                                       user
+     * @throws ExerciseNotFoundException     if the exercise does not exist
+     */
+    public void checkExercise(UUID exerciseId) {
+        check("exercise", exerciseId, ownershipIndex.ownerOfExercise(exerciseId), ExerciseNotFoundException::new);
+    }
+
+    private void check(String resource, UUID resourceId, UUID ownerId,
+            Function<String, ? extends RuntimeException> notFound) {
+        if (ownerId == null) {
+            logger.warn("Owner of {} {} not found", resource, resourceId);
+            throw notFound.apply(Character.toUpperCase(resource.charAt(0)) + resource.substring(1) + " with id "
+                    + resourceId + " not found");
+        }
+        UUID currentUserId = currentUserId();
+        if (!ownerId.equals(currentUserId)) {
+            logger.warn("User {} denied access to {} {}", currentUserId, resource, resourceId);
+            throw new ResourceAccessDeniedException("You do not have access to this " + resource);
+        }
+    }
+
+    private static UUID currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return null;
+        }
+        return user.userId();
+    }
+}
@@ -0,0 +1,161 @@
+package igym.security;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import igym.repositories.ExerciseRepository;
+import igym.repositories.GymRepository;
+import igym.repositories.WorkoutRepository;
+
+/**
+ * In-memory index of who owns what: gym to user, workout to gym and exercise
+ * to workout.
+ *
+ * <p>
+ * Ownership never changes once a resource is created, so entries never go
+ * stale. The index is filled lazily with a single-column query on a miss, and
+ * {@code GymService} and {@code WorkoutService} register resources as they
+ * create them and forget them as they delete them. On a warm index, resolving
+ * the owner of an exercise is three map lookups and no query.
+ * </p>
+ */
+@Component
+public class OwnershipIndex {
+
+    private final GymRepository gymRepository;
+    private final WorkoutRepository workoutRepository;
+    private final ExerciseRepository exerciseRepository;
+    private final int maxSize;
+    private final ConcurrentHashMap<UUID, UUID> gymOwners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, UUID> workoutGyms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, UUID> exerciseWorkouts = new ConcurrentHashMap<>();
+
+    public OwnershipIndex(GymRepository gymRepository, WorkoutRepository workoutRepository,
+            ExerciseRepository exerciseRepository, @Value("${ownership.index.max-size:100000}") int maxSize) {
+        this.gymRepository = gymRepository;
+        this.workoutRepository = workoutRepository;
+        this.exerciseRepository = exerciseRepository;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Finds the owner of a gym.
+     *
+     * @param gymId the UUID of the gym
+     * @return the UUID of the owning user, or null if the gym does not exist
+     */
+    public UUID ownerOfGym(UUID gymId) {
+        return lookup(gymOwners, gymId, id -> gymRepository.findOwnerIdById(id).orElse(null));
+    }
+
+    /**
+     * Finds the owner of a workout through its gym.
+     *
+     * @param workoutId the UUID of the workout
+     * @return the UUID of the owning user, or null if the workout does not exist
+     */
+    public UUID ownerOfWorkout(UUID workoutId) {
+        UUID gymId = lookup(workoutGyms, workoutId, id -> workoutRepository.findGymIdById(id).orElse(null));
+        return gymId == null ? null : ownerOfGym(gymId);
+    }
+
+    /**
+     * Finds the owner of an exercise through its workout.
+     *
+     * @param exerciseId the UUID of the exercise
+     * @return the UUID of the owning user, or null if the exercise does not exist
+     */
+    public UUID ownerOfExercise(UUID exerciseId) {
+        UUID workoutId = lookup(exerciseWorkouts, exerciseId,
+                id -> exerciseRepository.findWorkoutIdById(id).orElse(null));
+        return workoutId == null ? null : ownerOfWorkout(workoutId);
+    }
+
+    public void registerGym(UUID gymId, UUID userId) {
+        put(gymOwners, gymId, userId);
+    }
+
+    public void registerWorkout(UUID workoutId, UUID gymId) {
+        put(workoutGyms, workoutId, gymId);
+    }
+
+    public void registerExercise(UUID exerciseId, UUID workoutId) {
+        put(exerciseWorkouts, exerciseId, workoutId);
+    }
+
+    /**
+     * Forgets a gym together with its workouts and their exercises.
+     */
+    public void forgetGym(UUID gymId) {
+        gymOwners.remove(gymId);
+        forgetChildren(workoutGyms, Set.of(gymId), exerciseWorkouts);
+    }
+
+    /**
+     * Forgets a workout together with its exercises.
+     */
+    public void forgetWorkout(UUID workoutId) {
+        workoutGyms.remove(workoutId);
+        exerciseWorkouts.values().removeIf(workoutId::equals);
+    }
+
+    /**
+     * Forgets every gym of a user together with their workouts and exercises.
+     */
+    public void forgetUser(UUID userId) {
+        Set<UUID> gymIds = removeChildren(gymOwners, Set.of(userId));
+        forgetChildren(workoutGyms, gymIds, exerciseWorkouts);
+    }
+
+    public void forgetExercise(UUID exerciseId) {
+        exerciseWorkouts.remove(exerciseId);
+    }
+
+    private void forgetChildren(Map<UUID, UUID> index, Set<UUID> parents, Map<UUID, UUID> grandchildren) {
+        Set<UUID> children = removeChildren(index, parents);
+        if (!children.isEmpty()) {
+            removeChildren(grandchildren, children);
+        }
+    }
+
+    private Set<UUID> removeChildren(Map<UUID, UUID> index, Set<UUID> parents) {
+        Set<UUID> removed = new HashSet<>();
+        index.entrySet().removeIf(entry -> {
+            if (parents.contains(entry.getValue())) {
+                removed.add(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+        return removed;
+    }
+
+    private UUID lookup(Map<UUID, UUID> index, UUID key, Function<UUID, UUID> loader) {
+        UUID value = index.get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            put(index, key, value);
+        }
+        return value;
+    }
+
+    private void put(Map<UUID, UUID> index, UUID key, UUID value) {
+        if (key == null || value == null) {
+            return;
+        }
+        Iterator<UUID> keys = index.keySet().iterator();
+        while (index.size() >= maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+        index.put(key, value);
+    }
+}
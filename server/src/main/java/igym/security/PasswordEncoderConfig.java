@@ -1,5 +1,8 @@
 package igym.security;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -14,10 +17,33 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * before being stored in the database, and provides the necessary encoder
  * for password verification during authentication.
  * </p>
+ *
+ * <p>
+ * When {@code password.bcrypt.target-ms} is positive, the BCrypt cost is
+ * calibrated at startup to the highest cost whose hashing time stays within
+ * that target on the current hardware, never going below
+ * {@code password.bcrypt.min-strength} nor above
+ * {@code password.bcrypt.max-strength}. Otherwise
+ * {@code password.bcrypt.strength} is used as is.
+ * </p>
  */
 @Configuration
 public class PasswordEncoderConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    @Value("${password.bcrypt.strength:10}")
+    private int strength;
+
+    @Value("${password.bcrypt.target-ms:0}")
+    private long targetMs;
+
+    @Value("${password.bcrypt.min-strength:10}")
+    private int minStrength;
+
+    @Value("${password.bcrypt.max-strength:16}")
+    private int maxStrength;
+
     /**
      * Creates a BCrypt password encoder bean.
      *
@@ -25,6 +51,35 @@ public class PasswordEncoderConfig {
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int cost = targetMs > 0 ? calibrate(targetMs, minStrength, maxStrength) : strength;
+        return new BCryptPasswordEncoder(cost);
+    }
+
+    /**
+     * Finds the highest BCrypt cost whose hashing time stays within the target.
+     * Each cost increment doubles the hashing time, so a single measurement at
+     * the minimum cost is enough to extrapolate.
+     *
+     * @param targetMs    the target hashing time in milliseconds
+     * @param minStrength the lowest acceptable cost
+     * @param maxStrength the highest acceptable cost
+     * @return the calibrated cost
+     */
+    static int calibrate(long targetMs, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration-warmup");
+
+        long start = System.nanoTime();
+        probe.encode("calibration-probe");
+        double elapsedMs = Math.max((System.nanoTime() - start) / 1_000_000.0, 0.001);
+
+        int cost = minStrength;
+        while (cost < maxStrength && elapsedMs * 2 <= targetMs) {
+            elapsedMs *= 2;
+            cost++;
+        }
+        logger.info("Calibrated bcrypt cost to {} (~{} ms per hash, target {} ms)", cost, Math.round(elapsedMs),
+                targetMs);
+        return cost;
     }
 }
@@ -0,0 +1,154 @@
+package igym.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import igym.exceptions.PasswordHashingBusyException;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs password hashing and verification on a dedicated, bounded executor.
+ *
+ * <p>
+ * BCrypt is deliberately slow, so running it on request threads lets a burst of
+ * logins occupy every worker thread. This service confines it to a fixed number
+ * of threads with a bounded queue. When the queue is full, work is rejected
+ * right away with a {@link PasswordHashingBusyException}, which is answered with
+ * 503 Service Unavailable and a {@code Retry-After} header.
+ * </p>
+ *
+ * <p>
+ * Callers wait for the result for at most {@code password.hashing.timeout-ms},
+ * one second by default: about ten hashes at the calibrated cost, so a request
+ * stuck behind a long queue is answered with 503 instead of holding its thread.
+ * </p>
+ *
+ * <p>
+ * It also reports when a stored hash uses a lower cost than the one currently
+ * configured, so callers can rehash the password after a successful login.
+ * Instances on different hardware may calibrate different costs; a hash with a
+ * higher cost is kept, so they do not rehash each other's passwords back and
+ * forth.
+ * </p>
+ */
+@Component
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+    private final int currentCost;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue-capacity:32}") int queueCapacity,
+            @Value("${password.hashing.timeout-ms:1000}") long timeoutMs,
+            @Value("${password.hashing.retry-after-seconds:1}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.currentCost = costOf(passwordEncoder.encode("cost-probe"));
+        logger.info("Password hashing executor started with {} threads, queue capacity {} and bcrypt cost {}",
+                poolSize, queueCapacity, currentCost);
+    }
+
+    /**
+     * Hashes a raw password.
+     *
+     * @param rawPassword the password to hash
+     * @return the encoded password
+     * @throws PasswordHashingBusyException if the executor cannot accept the work
+     */
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Verifies a raw password against a stored hash.
+     *
+     * @param rawPassword     the password to verify
+     * @param encodedPassword the stored hash
+     * @return true if the password matches the hash
+     * @throws PasswordHashingBusyException if the executor cannot accept the work
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Checks whether a stored hash was produced with a lower cost than the
+     * currently configured one, or is not a BCrypt hash.
+     *
+     * @param encodedPassword the stored hash
+     * @return true if the password should be hashed again
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return costOf(encodedPassword) < currentCost;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing rejected: {} tasks queued", executor.getQueue().size());
+            throw new PasswordHashingBusyException("Too many concurrent authentication requests, try again later",
+                    retryAfterSeconds);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingBusyException("Password hashing timed out, try again later", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int costOf(String encodedPassword) {
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword == null ? "" : encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
@@ -1,6 +1,13 @@
 package igym.security;
 
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,6 +18,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import igym.config.ConsistencyTokenFilter;
+
 import jakarta.servlet.http.HttpServletResponse;
 
 /**
@@ -22,6 +31,7 @@ import jakarta.servlet.http.HttpServletResponse;
  * - CSRF protection settings
  * - Request authorization rules
  * - JWT authentication filter integration
+ * - API key authentication filter integration for machine clients
  * - Exception handling for authentication failures
  * </p>
  */
@@ -30,9 +40,12 @@ import jakarta.servlet.http.HttpServletResponse;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+            ApiKeyAuthenticationFilter apiKeyAuthenticationFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.apiKeyAuthenticationFilter = apiKeyAuthenticationFilter;
     }
 
     /**
@@ -50,18 +63,42 @@ public class SecurityConfig {
                 .cors(cors -> {})
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.POST, "/api/v1/login").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/v1/refresh").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/v1/users").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/v1/users/availability").permitAll()
+                        .requestMatchers("/api/v1/users/*/api-keys/**").access(SecurityConfig::authenticatedWithoutApiKey)
+                        .requestMatchers(HttpMethod.DELETE, "/api/v1/users/*").access(SecurityConfig::authenticatedWithoutApiKey)
+                        .requestMatchers(HttpMethod.PATCH, "/api/v1/users/*").access(SecurityConfig::authenticatedWithoutApiKey)
                         .anyRequest().authenticated())
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(apiKeyAuthenticationFilter, JwtAuthenticationFilter.class)
                 .exceptionHandling(ex -> ex
                         .authenticationEntryPoint((request, response, authException) -> {
                             response.setContentType("application/json");
                             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                             response.getWriter().write("{\"error\": \"Unauthorized: " + authException.getMessage() + "\"}");
+                        })
+                        .accessDeniedHandler((request, response, accessDeniedException) -> {
+                            response.setContentType("application/json");
+                            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                            response.getWriter().write("{\"error\": \"Forbidden: " + accessDeniedException.getMessage() + "\"}");
                         }));
         return http.build();
     }
 
+    /**
+     * Grants requests authenticated by any means but an API key, so a leaked key
+     * cannot be used to issue more keys, nor to rename or deactivate its owner.
+     */
+    private static AuthorizationDecision authenticatedWithoutApiKey(Supplier<Authentication> authentication,
+            RequestAuthorizationContext context) {
+        Authentication auth = authentication.get();
+        boolean granted = auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)
+                && auth.getAuthorities().stream()
+                        .noneMatch(a -> ApiKeyAuthenticationFilter.AUTHORITY.equals(a.getAuthority()));
+        return new AuthorizationDecision(granted);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -71,6 +108,8 @@ public class SecurityConfig {
         configuration.addAllowedOrigin("http://igym.site");
         configuration.addAllowedMethod("*");
         configuration.addAllowedHeader("*");
+        configuration.addExposedHeader(HttpHeaders.ETAG);
+        configuration.addExposedHeader(ConsistencyTokenFilter.HEADER);
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,119 @@
+package igym.security;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory record of per-user security epochs.
+ *
+ * <p>
+ * The epoch of a user is the second from which issued access tokens are
+ * accepted. Tokens issued before it are rejected, which is how renames and
+ * deactivations take effect right away on this instance. A deactivated user
+ * has the epoch {@link Long#MAX_VALUE}, so none of their tokens is accepted.
+ * </p>
+ *
+ * <p>
+ * The cache never touches the database. A user without an entry has no
+ * recorded change and all their tokens are accepted. An entry is only kept for
+ * the lifetime of an access token ({@code jwt.expiration}): after that, every
+ * token it could reject has expired. Changes made on other instances reach
+ * this one when the refresh of the access token fails, so within one access
+ * token lifetime.
+ * </p>
+ *
+ * <p>
+ * When the cache is over {@code jwt.epoch-cache.max-size}, expired entries go
+ * first and then advanced epochs, whose loss only lets a renamed user's older
+ * tokens through again. Revocations are never evicted before they expire: the
+ * cache may outgrow its bound by the users deactivated within one access token
+ * lifetime rather than accept their tokens again.
+ * </p>
+ */
+@Component
+public class SecurityEpochCache {
+
+    static final long REVOKED = Long.MAX_VALUE;
+
+    private final int maxSize;
+    private final long tokenLifetimeInSec;
+    private final ConcurrentHashMap<UUID, Epoch> epochs = new ConcurrentHashMap<>();
+
+    public SecurityEpochCache(@Value("${jwt.epoch-cache.max-size:10000}") int maxSize,
+            @Value("${jwt.expiration}") long tokenLifetimeInSec) {
+        this.maxSize = maxSize;
+        this.tokenLifetimeInSec = tokenLifetimeInSec;
+    }
+
+    /**
+     * Checks whether a token issued at the given instant is still accepted for
+     * the user.
+     *
+     * @param userId   the UUID of the user the token was issued to
+     * @param issuedAt the issue date of the token
+     * @return true if the token was issued at or after the user's current epoch
+     */
+    public boolean isCurrent(UUID userId, Date issuedAt) {
+        if (issuedAt == null) {
+            return false;
+        }
+        Epoch epoch = epochs.get(userId);
+        if (epoch == null) {
+            return true;
+        }
+        if (epoch.expiresAtSecond() < Instant.now().getEpochSecond()) {
+            epochs.remove(userId, epoch);
+            return true;
+        }
+        return epoch.second() != REVOKED && issuedAt.toInstant().getEpochSecond() >= epoch.second();
+    }
+
+    /**
+     * Moves the epoch of a user to the current second, rejecting every token
+     * issued before now. Used when security-relevant user data changes.
+     *
+     * @param userId the UUID of the user
+     */
+    public void advance(UUID userId) {
+        long now = Instant.now().getEpochSecond();
+        epochs.merge(userId, new Epoch(now, now + tokenLifetimeInSec),
+                (previous, next) -> previous.second() == REVOKED ? previous : next);
+        evictIfFull();
+    }
+
+    /**
+     * Rejects every token of a user, past and future. Used when the user is
+     * deactivated.
+     *
+     * @param userId the UUID of the user
+     */
+    public void revoke(UUID userId) {
+        long now = Instant.now().getEpochSecond();
+        epochs.put(userId, new Epoch(REVOKED, now + tokenLifetimeInSec));
+        evictIfFull();
+    }
+
+    private void evictIfFull() {
+        if (epochs.size() <= maxSize) {
+            return;
+        }
+        long now = Instant.now().getEpochSecond();
+        epochs.values().removeIf(epoch -> epoch.expiresAtSecond() < now);
+
+        Iterator<Epoch> entries = epochs.values().iterator();
+        while (epochs.size() > maxSize && entries.hasNext()) {
+            if (entries.next().second() != REVOKED) {
+                entries.remove();
+            }
+        }
+    }
+
+    private record Epoch(long second, long expiresAtSecond) {
+    }
+}
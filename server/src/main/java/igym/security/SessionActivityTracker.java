@@ -0,0 +1,111 @@
+package igym.security;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import igym.config.ShardRouter;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Coalesces the "last seen" time of sessions in memory and writes it in
+ * batches.
+ *
+ * <p>
+ * {@link #touch(UUID, UUID)} is called on every authenticated request and only
+ * overwrites an entry in a concurrent map, so reads stay reads. Every few
+ * seconds ({@code sessions.last-seen.flush-ms}) the pending entries are drained
+ * and written with one batched {@code UPDATE} per shard, however many requests
+ * each session made in between. A failed batch puts its entries back for the
+ * next flush.
+ * </p>
+ */
+@Component
+public class SessionActivityTracker {
+
+    static final String UPDATE_SQL = "UPDATE user_sessions SET last_seen_at = ? WHERE id = ? AND last_seen_at < ?";
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionActivityTracker.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+    private final ConcurrentHashMap<UUID, Seen> pending = new ConcurrentHashMap<>();
+
+    public SessionActivityTracker(JdbcTemplate jdbcTemplate, ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    /**
+     * Records that a session was seen now.
+     *
+     * @param sessionId the UUID of the session
+     * @param userId    the UUID of the user of the session
+     */
+    public void touch(UUID sessionId, UUID userId) {
+        pending.put(sessionId, new Seen(Instant.now(), shards.shardOf(userId)));
+    }
+
+    /**
+     * Returns the time a session was last seen that has not been written yet.
+     *
+     * @param sessionId the UUID of the session
+     * @return the pending last-seen time, or null if nothing is pending
+     */
+    public Instant pendingLastSeen(UUID sessionId) {
+        Seen seen = pending.get(sessionId);
+        return seen == null ? null : seen.at();
+    }
+
+    /**
+     * Writes the pending last-seen times with one batched update per shard.
+     */
+    @Scheduled(initialDelayString = "${sessions.last-seen.flush-ms:5000}",
+            fixedDelayString = "${sessions.last-seen.flush-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        List<Map.Entry<UUID, Seen>> drained = new ArrayList<>(pending.size());
+        for (Map.Entry<UUID, Seen> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                drained.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        Map<Integer, List<Map.Entry<UUID, Seen>>> byShard = drained.stream()
+                .collect(Collectors.groupingBy(entry -> entry.getValue().shard(), TreeMap::new, Collectors.toList()));
+        byShard.forEach(this::write);
+    }
+
+    private void write(int shard, List<Map.Entry<UUID, Seen>> entries) {
+        List<Object[]> batch = entries.stream()
+                .map(entry -> {
+                    Timestamp seen = Timestamp.from(entry.getValue().at());
+                    return new Object[] { seen, entry.getKey(), seen };
+                })
+                .toList();
+        try {
+            shards.call(shard, () -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch));
+            logger.debug("Flushed last-seen times of {} sessions on shard {}", entries.size(), shard);
+        } catch (DataAccessException e) {
+            entries.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(),
+                    (current, failed) -> current.at().isAfter(failed.at()) ? current : failed));
+            logger.warn("Cannot flush last-seen times of {} sessions on shard {}: {}", entries.size(), shard,
+                    e.getMessage());
+        }
+    }
+
+    private record Seen(Instant at, int shard) {
+    }
+}
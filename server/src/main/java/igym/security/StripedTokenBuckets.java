@@ -0,0 +1,87 @@
+package igym.security;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import igym.utils.Hashing;
+
+/**
+ * A fixed number of token buckets shared by hashing keys onto stripes.
+ *
+ * <p>
+ * Each bucket is a single long holding its theoretical arrival time, which is
+ * the GCRA form of a token bucket: taking a token is one compare-and-set, with
+ * no locks and no allocation per key. Keys that land on the same stripe share a
+ * bucket, which can only make the limit stricter, and memory stays constant no
+ * matter how many distinct keys an attacker sends.
+ * </p>
+ *
+ * <p>
+ * Stripes are picked with SipHash under a key drawn at startup, so a client
+ * cannot compute which names or addresses share a stripe with another, and
+ * cannot exhaust a victim's bucket by sending colliding keys.
+ * </p>
+ */
+final class StripedTokenBuckets {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final AtomicLongArray arrivals;
+    private final int mask;
+    private final long intervalMs;
+    private final long toleranceMs;
+    private final long k0;
+    private final long k1;
+
+    /**
+     * @param stripes         the number of buckets, rounded up to a power of two
+     * @param burst           the number of tokens a full bucket holds
+     * @param refillPerMinute the number of tokens added back per minute
+     */
+    StripedTokenBuckets(int stripes, int burst, int refillPerMinute) {
+        this(stripes, burst, refillPerMinute, random.nextLong(), random.nextLong());
+    }
+
+    /**
+     * @param stripes         the number of buckets, rounded up to a power of two
+     * @param burst           the number of tokens a full bucket holds
+     * @param refillPerMinute the number of tokens added back per minute
+     * @param k0              the first half of the stripe hash's key
+     * @param k1              the second half of the stripe hash's key
+     */
+    StripedTokenBuckets(int stripes, int burst, int refillPerMinute, long k0, long k1) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.arrivals = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalMs = 60_000L / Math.max(1, refillPerMinute);
+        this.toleranceMs = Math.max(0, burst - 1) * intervalMs;
+        this.k0 = k0;
+        this.k1 = k1;
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     *
+     * @param key   the key whose bucket to use
+     * @param nowMs the current time in milliseconds
+     * @return 0 if a token was taken, otherwise the milliseconds until one is
+     *         available
+     */
+    long tryAcquire(String key, long nowMs) {
+        int stripe = key == null ? 0 : (int) Hashing.sipHash(k0, k1, key) & mask;
+        while (true) {
+            long arrival = arrivals.get(stripe);
+            long start = Math.max(arrival, nowMs);
+            long waitMs = start - nowMs - toleranceMs;
+            if (waitMs > 0) {
+                return waitMs;
+            }
+            if (arrivals.compareAndSet(stripe, arrival, start + intervalMs)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package igym.security;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import igym.config.ShardRouter;
+import igym.entities.RevokedToken;
+import igym.repositories.RevokedTokenRepository;
+import igym.utils.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+
+/**
+ * Registry of JWTs revoked before their expiry, keyed by their {@code jti}
+ * claim.
+ *
+ * <p>
+ * Revocations are persisted until the token expires and kept in memory behind
+ * a {@link BloomFilter}. Checking a token that was never revoked, which is
+ * almost every request, costs a few hashes; only filter hits look at the set of
+ * revoked ids.
+ * </p>
+ *
+ * <p>
+ * The in-memory state is rebuilt from the database periodically. This purges
+ * expired revocations, resizes the filter, and picks up revocations made by
+ * other instances. Revocations belong to no user, so they are kept on
+ * {@link ShardRouter#GLOBAL_SHARD}.
+ * </p>
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationRegistry.class);
+
+    private final RevokedTokenRepository repository;
+    private final ShardRouter shards;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private volatile Snapshot snapshot;
+
+    public TokenRevocationRegistry(RevokedTokenRepository repository, ShardRouter shards,
+            @Value("${jwt.revocation.expected-entries:10000}") int expectedEntries,
+            @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.shards = shards;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshot = new Snapshot(new BloomFilter(expectedEntries, falsePositiveRate), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Checks whether a token has been revoked.
+     *
+     * @param tokenId the {@code jti} claim of the token
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(String tokenId) {
+        Snapshot current = snapshot;
+        return current.filter().mightContain(tokenId) && current.entries().containsKey(tokenId);
+    }
+
+    /**
+     * Revokes a token until it expires.
+     *
+     * @param tokenId   the {@code jti} claim of the token
+     * @param expiresAt the expiry of the token
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        shards.call(ShardRouter.GLOBAL_SHARD, () -> repository.save(new RevokedToken(tokenId, expiresAt)));
+        synchronized (this) {
+            snapshot.add(tokenId, expiresAt);
+        }
+        logger.info("Token {} revoked until {}", tokenId, expiresAt);
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild(shards.call(ShardRouter.GLOBAL_SHARD, () -> repository.findByExpiresAtAfter(Instant.now())),
+                Instant.now());
+    }
+
+    /**
+     * Deletes expired revocations and rebuilds the in-memory state from the
+     * database.
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.refresh-ms:60000}",
+            fixedDelayString = "${jwt.revocation.refresh-ms:60000}")
+    @Transactional
+    public void refresh() {
+        Instant now = Instant.now();
+        int purged = shards.call(ShardRouter.GLOBAL_SHARD, () -> repository.deleteExpired(now));
+        rebuild(shards.call(ShardRouter.GLOBAL_SHARD, () -> repository.findByExpiresAtAfter(now)), now);
+        logger.debug("Purged {} expired token revocations", purged);
+    }
+
+    int size() {
+        return snapshot.entries().size();
+    }
+
+    private synchronized void rebuild(List<RevokedToken> persisted, Instant now) {
+        Map<String, Instant> entries = new ConcurrentHashMap<>();
+        persisted.forEach(token -> entries.put(token.getTokenId(), token.getExpiresAt()));
+        snapshot.entries().forEach((tokenId, expiresAt) -> {
+            if (expiresAt.isAfter(now)) {
+                entries.putIfAbsent(tokenId, expiresAt);
+            }
+        });
+
+        Snapshot rebuilt = new Snapshot(
+                new BloomFilter(Math.max(expectedEntries, entries.size() * 2), falsePositiveRate), entries);
+        entries.keySet().forEach(rebuilt.filter()::put);
+        snapshot = rebuilt;
+    }
+
+    private record Snapshot(BloomFilter filter, Map<String, Instant> entries) {
+
+        void add(String tokenId, Instant expiresAt) {
+            entries.put(tokenId, expiresAt);
+            filter.put(tokenId);
+        }
+    }
+}
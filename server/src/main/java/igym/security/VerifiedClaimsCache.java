@@ -0,0 +1,110 @@
+package igym.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Bounded cache of already verified JWT claims.
+ *
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the token, so raw tokens are never
+ * kept in memory, and are dropped once the token expires. A repeated bearer
+ * token then costs one digest and one map lookup instead of a full signature
+ * verification. A maximum size of zero disables the cache.
+ * </p>
+ *
+ * <p>
+ * The cached {@link Claims} instances are shared between requests and must be
+ * treated as read-only.
+ * </p>
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Claims> claimsByDigest = new ConcurrentHashMap<>();
+
+    public VerifiedClaimsCache(@Value("${jwt.claims-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached claims of a token, if it was verified before and has
+     * not expired yet.
+     *
+     * @param token the compact JWT
+     * @return the verified claims, or null if the token is not cached
+     */
+    public Claims get(String token) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        String digest = digest(token);
+        Claims claims = claimsByDigest.get(digest);
+        if (claims != null && isExpired(claims, new Date())) {
+            claimsByDigest.remove(digest, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    /**
+     * Stores the claims of a token that has just been verified.
+     *
+     * @param token  the compact JWT
+     * @param claims the verified claims of the token
+     */
+    public void put(String token, Claims claims) {
+        if (maxSize <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        if (claimsByDigest.size() >= maxSize) {
+            evict();
+        }
+        claimsByDigest.put(digest(token), claims);
+    }
+
+    int size() {
+        return claimsByDigest.size();
+    }
+
+    private void evict() {
+        Date now = new Date();
+        claimsByDigest.values().removeIf(claims -> isExpired(claims, now));
+
+        Iterator<Map.Entry<String, Claims>> entries = claimsByDigest.entrySet().iterator();
+        while (claimsByDigest.size() >= maxSize && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+
+    private static boolean isExpired(Claims claims, Date now) {
+        return !claims.getExpiration().after(now);
+    }
+
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
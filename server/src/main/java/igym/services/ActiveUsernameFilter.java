@@ -0,0 +1,147 @@
+package igym.services;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import igym.config.ShardRouter;
+import igym.entities.enums.Status;
+import igym.repositories.UserRepository;
+import igym.utils.CountingBloomFilter;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory {@link CountingBloomFilter} of the names of active users.
+ *
+ * <p>
+ * A negative answer lets the availability check skip the users table when a
+ * name is free. A positive answer may be a false positive and must be
+ * confirmed against the database. The filter is filled from every shard at
+ * startup and kept current by {@link UserService} on create, rename and
+ * delete. Until it is filled, every name is reported as possibly present.
+ * </p>
+ *
+ * <p>
+ * A counting filter must never remove a name it did not count, or it may hide
+ * other names. This instance cannot tell whether a name read at the last
+ * rebuild is still counted, nor whether one written elsewhere since was
+ * counted at all, so removals only apply to the names it added itself since
+ * the last rebuild. Other names stay as false positives until the next one.
+ * </p>
+ *
+ * <p>
+ * Users created, renamed or deleted through other instances only show up when
+ * the filter is rebuilt from the database, every
+ * {@code users.name-filter.refresh-ms}. A negative answer is therefore only
+ * definite for this instance's own writes, and must not be used to refuse a
+ * user: logins always look the name up. Names added during a rebuild are
+ * carried over into the rebuilt filter.
+ * </p>
+ */
+@Component
+public class ActiveUsernameFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUsernameFilter.class);
+
+    private final UserRepository userRepository;
+    private final ShardRouter shards;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final Set<String> addedSinceLoad = ConcurrentHashMap.newKeySet();
+    private volatile CountingBloomFilter filter;
+    private volatile boolean ready;
+
+    public ActiveUsernameFilter(UserRepository userRepository, ShardRouter shards,
+            @Value("${users.name-filter.expected-entries:100000}") int expectedEntries,
+            @Value("${users.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.shards = shards;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new CountingBloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void load() {
+        List<String> names = shards.onAllShards(true, () -> userRepository.findNamesByStatus(Status.active))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+        CountingBloomFilter rebuilt = new CountingBloomFilter(Math.max(expectedEntries, names.size() * 2),
+                falsePositiveRate);
+        names.forEach(rebuilt::add);
+        synchronized (this) {
+            // Counted twice if also read from the database: a false positive, dropped at the next rebuild.
+            addedSinceLoad.forEach(rebuilt::add);
+            addedSinceLoad.clear();
+            filter = rebuilt;
+            ready = true;
+        }
+        logger.info("Loaded {} active usernames into the name filter", names.size());
+    }
+
+    /**
+     * Rebuilds the filter from the database, picking up the users created,
+     * renamed and deleted through other instances.
+     */
+    @Scheduled(initialDelayString = "${users.name-filter.refresh-ms:60000}",
+            fixedDelayString = "${users.name-filter.refresh-ms:60000}")
+    public void refresh() {
+        load();
+    }
+
+    /**
+     * Checks whether an active user may have the given name.
+     *
+     * @param name the username to check
+     * @return false if no active user was known to have the name at the last
+     *         rebuild or since
+     */
+    public boolean mightExist(String name) {
+        return !ready || name == null || filter.mightContain(name);
+    }
+
+    /**
+     * Records a name that now belongs to an active user.
+     *
+     * @param name the username
+     */
+    public synchronized void add(String name) {
+        filter.add(name);
+        addedSinceLoad.add(name);
+    }
+
+    /**
+     * Records a name that no longer belongs to an active user. Inside a
+     * transaction the removal is applied after commit, so a rollback cannot
+     * leave an active name reported as absent.
+     *
+     * @param name the username
+     */
+    public void remove(String name) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeNow(name);
+                }
+            });
+        } else {
+            removeNow(name);
+        }
+    }
+
+    private synchronized void removeNow(String name) {
+        if (addedSinceLoad.remove(name)) {
+            filter.remove(name);
+        }
+    }
+}
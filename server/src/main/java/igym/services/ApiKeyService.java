@@ -0,0 +1,101 @@
+package igym.services;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import igym.dtos.CreatedApiKeyDTO;
+import igym.entities.ApiKey;
+import igym.entities.User;
+import igym.entities.enums.Status;
+import igym.exceptions.ApiKeyNotFoundException;
+import igym.exceptions.UserNotFoundException;
+import igym.repositories.ApiKeyRepository;
+import igym.repositories.UserRepository;
+import igym.security.ApiKeyRegistry;
+import igym.utils.Hashing;
+import jakarta.transaction.Transactional;
+
+/**
+ * Service class responsible for issuing, listing and revoking the API keys of
+ * users.
+ *
+ * <p>
+ * A key is {@value #KEY_PREFIX} followed by 32 random bytes in URL-safe
+ * Base64. Only its SHA-256 digest is persisted, so the key is returned once,
+ * on creation.
+ * </p>
+ */
+@Service
+public class ApiKeyService {
+
+    static final String KEY_PREFIX = "igym_";
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyService.class);
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final UserRepository userRepository;
+    private final ApiKeyRegistry apiKeyRegistry;
+
+    public ApiKeyService(ApiKeyRepository apiKeyRepository, UserRepository userRepository,
+            ApiKeyRegistry apiKeyRegistry) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.userRepository = userRepository;
+        this.apiKeyRegistry = apiKeyRegistry;
+    }
+
+    /**
+     * Issues a new API key for a user.
+     *
+     * @param userId the UUID of the user
+     * @param name   a name for the key
+     * @return the created key, including the key itself
+     * @throws UserNotFoundException if the user does not exist or is inactive
+     */
+    @Transactional
+    public CreatedApiKeyDTO createApiKey(UUID userId, String name) {
+        logger.info("Attempting to create an API key for user {}", userId);
+        User user = userRepository.findById(userId)
+                .filter(u -> u.getStatus() == Status.active)
+                .orElseThrow(() -> new UserNotFoundException("User with id " + userId + " not found"));
+
+        String key = KEY_PREFIX + Hashing.randomToken(32);
+
+        ApiKey saved = apiKeyRepository.save(
+                new ApiKey(name, Hashing.sha256Hex(key), key.substring(0, 12), user));
+        logger.info("API key {} created for user {}", saved.getId(), userId);
+        return new CreatedApiKeyDTO(saved, key);
+    }
+
+    /**
+     * Retrieves the active API keys of a user.
+     *
+     * @param userId the UUID of the user
+     * @return the active keys of the user
+     */
+    public List<ApiKey> findApiKeysByUserId(UUID userId) {
+        logger.info("Fetching API keys of user {}", userId);
+        return apiKeyRepository.findByUserIdAndStatus(userId, Status.active);
+    }
+
+    /**
+     * Revokes an API key. The key stops working right away on this instance.
+     *
+     * @param userId the UUID of the owner of the key
+     * @param id     the UUID of the key
+     * @throws ApiKeyNotFoundException if the user has no active key with the ID
+     */
+    @Transactional
+    public void revokeApiKey(UUID userId, UUID id) {
+        logger.info("Attempting to revoke API key {} of user {}", id, userId);
+        ApiKey apiKey = apiKeyRepository.findByIdAndUserIdAndStatus(id, userId, Status.active)
+                .orElseThrow(() -> new ApiKeyNotFoundException("API key with id " + id + " not found"));
+        apiKey.setStatus(Status.inactive);
+        apiKeyRepository.save(apiKey);
+        apiKeyRegistry.forget(apiKey.getKeyDigest());
+        logger.info("API key {} revoked", id);
+    }
+}
@@ -2,12 +2,17 @@ package igym.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import igym.config.ShardRouter;
+import igym.dtos.GymDTO;
 import igym.repositories.GymRepository;
 import igym.repositories.UserRepository;
-import jakarta.transaction.Transactional;
+import igym.security.OwnershipIndex;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,12 +37,16 @@ public class GymService {
     private final GymRepository gymRepository;
     private final WorkoutService workoutService;
     private final UserRepository userRepository;
+    private final OwnershipIndex ownershipIndex;
+    private final ShardRouter shards;
 
     public GymService(GymRepository gymRepository, WorkoutService workoutService,
-            UserRepository userRepository) {
+            UserRepository userRepository, OwnershipIndex ownershipIndex, ShardRouter shards) {
         this.gymRepository = gymRepository;
         this.workoutService = workoutService;
         this.userRepository = userRepository;
+        this.ownershipIndex = ownershipIndex;
+        this.shards = shards;
     }
 
     /**
@@ -46,9 +55,11 @@ public class GymService {
      * @param gym    the gym entity to be saved
      * @param userId the UUID of the user who owns the gym
      * @return the saved gym entity
-     * @throws UserNotFoundException if the user does not exist or is inactive
-     * @throws DuplicateGymException if a gym with the same name already exists for
-     *                               the user
+     * @throws UserNotFoundException           if the user does not exist or is
+     *                                         inactive
+     * @throws DataIntegrityViolationException if an active gym of the user
+     *                                         already has the name, answered as a
+     *                                         {@link DuplicateGymException}
      */
     @Transactional
     public Gym createGym(Gym gym, UUID userId) {
@@ -58,35 +69,42 @@ public class GymService {
         User user = findUserById(userId);
         gym.setUser(user);
 
-        if (gymRepository.existsByNameAndUserIdAndStatus(gym.getName(), userId, Status.active)) {
-            throw new DuplicateGymException("A gym with the name '" + gym.getName() + "' already exists for this user");
-        }
-
-        Gym savedGym = gymRepository.save(gym);
+        Gym savedGym = gymRepository.saveAndFlush(gym);
+        ownershipIndex.registerGym(savedGym.getId(), userId);
         logger.info("New gym created with id {}", savedGym.getId());
         logger.debug("New gym persisted: {}", savedGym);
         return savedGym;
     }
 
     /**
-     * Updates the name of an existing gym.
+     * Updates the name of an existing gym. A concurrent rename that commits
+     * between the read and the write makes the write fail on the version
+     * column.
      *
-     * @param id   the UUID of the gym to update
-     * @param name the new name for the gym
+     * @param id              the UUID of the gym to update
+     * @param name            the new name for the gym
+     * @param expectedVersion the version the client last saw, or null to update
+     *                        whatever the current version
      * @return the updated gym entity
-     * @throws DuplicateGymException if a gym with the same new name already exists
-     * @throws GymNotFoundException  if the gym does not exist or is inactive
+     * @throws DataIntegrityViolationException if another active gym of the user
+     *                                         already has the name, answered as a
+     *                                         {@link DuplicateGymException}
+     * @throws GymNotFoundException            if the gym does not exist or is
+     *                                         inactive
+     * @throws PreconditionFailedException     if the gym is no longer at the
+     *                                         expected version
      */
-    public Gym updateGym(UUID id, String name) {
+    @Transactional
+    public Gym updateGym(UUID id, String name, Long expectedVersion) {
         logger.info("Attempting to update Gym with id: {}", id);
         Gym gym = findById(id);
-
-        if (gymRepository.existsByNameAndUserIdAndStatus(name, gym.getUser().getId(), Status.active)) {
-            throw new DuplicateGymException("A gym with the name '" + name + "' already exists for this user");
+        if (expectedVersion != null && gym.getVersion() != expectedVersion) {
+            logger.warn("Gym with id {} is at version {}, not {}", id, gym.getVersion(), expectedVersion);
+            throw new PreconditionFailedException("Gym with id " + id + " has been modified");
         }
 
         gym.setName(name);
-        Gym savedGym = gymRepository.save(gym);
+        Gym savedGym = gymRepository.saveAndFlush(gym);
 
         logger.info("Gym with id {} updated sucessfully", id);
         logger.debug("Updated Gym persisted: {}", savedGym);
@@ -95,21 +113,27 @@ public class GymService {
     }
 
     /**
-     * Retrieves all gyms in the system.
+     * Retrieves all gyms in the system, projected straight into DTOs. The
+     * shards are queried in parallel and their results concatenated.
      *
-     * @return a list of all gyms
+     * @return a list of all gyms (as DTO)
      */
-    public List<Gym> findAll() {
+    @Transactional(readOnly = true)
+    public List<GymDTO> findAll() {
         logger.info("Fetching all gyms from the repository");
-        List<Gym> gyms = gymRepository.findByStatus(Status.active);
+        List<GymDTO> gyms = shards.onAllShards(true, () -> gymRepository.findDTOsByStatus(Status.active))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
         logger.info("Found {} gyms", gyms.size());
         logger.debug("Fetched gyms: {}", gyms);
         return gyms;
     }
 
     /**
-     * Performs a logical deletion (inactivation) of a gym by setting its status to
-     * {@code Status.inactive}.
+     * Performs a logical deletion (inactivation) of a gym, its workouts and their
+     * exercises by setting their status to {@code Status.inactive}, with one bulk
+     * update per table.
      *
      * @param id the UUID of the gym to inactivate
      * @throws GymNotFoundException if the gym does not exist or is already inactive
@@ -117,23 +141,31 @@ public class GymService {
     @Transactional
     public void deleteGym(UUID id) {
         logger.info("Attempting to inactivate gym with id {}", id);
-        Gym gym = findById(id);
+        Instant now = Instant.now();
+        if (gymRepository.inactivate(id, now) == 0) {
+            logger.warn("Gym with id {} not found or inactive", id);
+            throw new GymNotFoundException("Gym with id " + id + " not found");
+        }
 
-        deleteWorkouts(gym);
-        gym.setStatus(Status.inactive);
-        gymRepository.save(gym);
+        workoutService.deleteWorkoutsByGymId(id, now);
+        ownershipIndex.forgetGym(id);
         logger.info("Gym with id {} inactivated", id);
     }
 
-    private void deleteWorkouts(Gym gym) {
-        List<Workout> workouts = gym.getWorkouts();
-        if (workouts != null && !workouts.isEmpty()) {
-            workouts.forEach(w -> {
-                if (w.getStatus() == Status.active) {
-                    workoutService.deleteWorkout(w.getId());
-                }
-            });
-        }
+    /**
+     * Inactivates every active gym of a user together with their workouts and
+     * exercises. The workouts and exercises go first, since they are selected
+     * through their still active gyms.
+     *
+     * @param userId the UUID of the owner
+     * @param now    the instant recorded as the update time
+     */
+    @Transactional
+    public void deleteGymsByUserId(UUID userId, Instant now) {
+        workoutService.deleteWorkoutsByUserId(userId, now);
+        int gyms = gymRepository.inactivateByUserId(userId, now);
+        ownershipIndex.forgetUser(userId);
+        logger.info("{} gyms of user {} inactivated", gyms, userId);
     }
 
     /**
@@ -143,6 +175,7 @@ public class GymService {
      * @return the found gym entity
      * @throws GymNotFoundException if the gym does not exist or is inactive
      */
+    @Transactional(readOnly = true)
     public Gym findById(UUID id) {
         logger.info("Fetching gym with id: {}", id);
 
@@ -161,16 +194,20 @@ public class GymService {
      * Retrieves a gym by its {@link User} ID, ensuring it is active.
      *
      * @param userId the UUID of the owner {@link User}
-     * @return the found gym entity
+     * @return the gyms of the user (as DTO)
      * @throws UserNotFoundException if the User does not exist or is inactive
      */
-    public List<Gym> findGymsByUserId(UUID userId) {
+    @Transactional(readOnly = true)
+    public List<GymDTO> findGymsByUserId(UUID userId) {
         logger.info("Fetching gyms for user with id: {}", userId);
     
         // validating existence of user with id
-        findUserById(userId);
+        if (!userRepository.existsByIdAndStatus(userId, Status.active)) {
+            logger.warn("User with id {} not found or inactive", userId);
+            throw new UserNotFoundException("User with id " + userId + " not found");
+        }
     
-        List<Gym> gyms = gymRepository.findByUserIdAndStatus(userId, Status.active);
+        List<GymDTO> gyms = gymRepository.findDTOsByUserIdAndStatus(userId, Status.active);
     
         logger.info("Found {} active gyms for user {}", gyms.isEmpty() ? 0 : gyms.size(), userId);
         return gyms;
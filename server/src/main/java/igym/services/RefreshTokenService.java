@@ -0,0 +1,175 @@
+package igym.services;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import igym.config.ShardRouter;
+import igym.entities.RefreshToken;
+import igym.entities.User;
+import igym.entities.enums.Status;
+import igym.exceptions.InvalidCredentialsException;
+import igym.repositories.RefreshTokenRepository;
+import igym.utils.Hashing;
+import jakarta.transaction.Transactional;
+
+/**
+ * Service class responsible for issuing and rotating refresh tokens.
+ *
+ * <p>
+ * A refresh token is 32 random bytes in URL-safe Base64, stored as its SHA-256
+ * digest. With several shards it ends with the shard of its user (see
+ * {@link ShardRouter#tag}), so it is rotated there without a search. Each
+ * token can be used once: {@link #rotate(String)} marks it as rotated and
+ * issues a successor in the same family. Presenting a rotated or revoked token
+ * again revokes the whole family, so a stolen token stops working for both the
+ * thief and the legitimate client, who has to log in again.
+ * </p>
+ *
+ * <p>
+ * A family is the chain of tokens of one login session, and its id is the id
+ * of the session (see {@link SessionService}). Revoking a family ends the
+ * session.
+ * </p>
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository repository;
+    private final SessionService sessionService;
+    private final ShardRouter shards;
+    private final long expirationInSec;
+
+    public RefreshTokenService(RefreshTokenRepository repository, SessionService sessionService, ShardRouter shards,
+            @Value("${jwt.refresh.expiration:1209600}") long expirationInSec) {
+        this.repository = repository;
+        this.sessionService = sessionService;
+        this.shards = shards;
+        this.expirationInSec = expirationInSec;
+    }
+
+    /**
+     * Issues the first refresh token of a session. Used on login.
+     *
+     * @param user      the authenticated user
+     * @param sessionId the UUID of the session opened by the login
+     * @return the refresh token
+     */
+    @Transactional
+    public String issue(User user, UUID sessionId) {
+        return issueInFamily(user, sessionId);
+    }
+
+    /**
+     * Exchanges a refresh token for its successor.
+     *
+     * @param token the refresh token sent by the client
+     * @return the user the token was issued to, the successor token and the
+     *         session
+     * @throws InvalidCredentialsException if the token is unknown, expired,
+     *                                     revoked or was already used, or the
+     *                                     user is inactive
+     */
+    @Transactional(dontRollbackOn = InvalidCredentialsException.class)
+    public Rotation rotate(String token) {
+        Instant now = Instant.now();
+        RefreshToken current = repository.findByDigestForUpdate(Hashing.sha256Hex(token))
+                .orElseThrow(() -> new InvalidCredentialsException("Invalid refresh token"));
+
+        if (current.getRotatedAt() != null || current.getRevokedAt() != null) {
+            int revoked = repository.revokeFamily(current.getFamilyId(), now);
+            sessionService.end(current.getFamilyId());
+            logger.warn("Refresh token {} of user {} was reused; revoked {} tokens of its family",
+                    current.getId(), current.getUser().getId(), revoked);
+            throw new InvalidCredentialsException("Invalid refresh token");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new InvalidCredentialsException("Refresh token expired");
+        }
+        if (current.getUser().getStatus() != Status.active) {
+            repository.revokeFamily(current.getFamilyId(), now);
+            sessionService.end(current.getFamilyId());
+            throw new InvalidCredentialsException("Invalid refresh token");
+        }
+
+        current.setRotatedAt(now);
+        repository.save(current);
+        logger.debug("Refresh token {} rotated", current.getId());
+        return new Rotation(current.getUser(), issueInFamily(current.getUser(), current.getFamilyId()),
+                current.getFamilyId());
+    }
+
+    /**
+     * Revokes the family of a refresh token and ends its session. Used on
+     * logout; unknown tokens are ignored.
+     *
+     * @param token the refresh token sent by the client
+     */
+    @Transactional
+    public void revoke(String token) {
+        repository.findByDigestForUpdate(Hashing.sha256Hex(token))
+                .ifPresent(current -> revokeSession(current.getFamilyId()));
+    }
+
+    /**
+     * Revokes the refresh tokens of a session and ends it. Used on logout.
+     *
+     * @param sessionId the UUID of the session
+     */
+    @Transactional
+    public void revokeSession(UUID sessionId) {
+        repository.revokeFamily(sessionId, Instant.now());
+        sessionService.end(sessionId);
+    }
+
+    /**
+     * Revokes every refresh token of a user and ends their sessions. Used when
+     * the user is deactivated.
+     *
+     * @param userId the UUID of the user
+     */
+    @Transactional
+    public void revokeAll(UUID userId) {
+        int revoked = repository.revokeByUserId(userId, Instant.now());
+        sessionService.endAll(userId);
+        logger.info("Revoked {} refresh tokens of user {}", revoked, userId);
+    }
+
+    /**
+     * Deletes expired refresh tokens on every shard.
+     */
+    @Scheduled(initialDelayString = "${jwt.refresh.purge-ms:3600000}",
+            fixedDelayString = "${jwt.refresh.purge-ms:3600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int purged = shards.onAllShards(false, () -> repository.deleteExpired(now))
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        logger.debug("Purged {} expired refresh tokens", purged);
+    }
+
+    private String issueInFamily(User user, UUID familyId) {
+        String token = shards.tag(Hashing.randomToken(32), user.getId());
+        repository.save(new RefreshToken(Hashing.sha256Hex(token), familyId, user,
+                Instant.now().plusSeconds(expirationInSec)));
+        return token;
+    }
+
+    /**
+     * The result of a refresh.
+     *
+     * @param user         the user the token was issued to
+     * @param refreshToken the successor token
+     * @param sessionId    the UUID of the session of the token
+     */
+    public record Rotation(User user, String refreshToken, UUID sessionId) {
+    }
+}
@@ -0,0 +1,107 @@
+package igym.services;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import igym.dtos.SessionDTO;
+import igym.entities.User;
+import igym.entities.UserSession;
+import igym.repositories.UserSessionRepository;
+import igym.security.SessionActivityTracker;
+import jakarta.transaction.Transactional;
+
+/**
+ * Service class responsible for the login sessions of users.
+ *
+ * <p>
+ * Sessions are opened on login and ended on logout or deactivation. Their
+ * last-seen time is tracked by the {@link SessionActivityTracker}; listings
+ * merge the persisted time with the one still pending in memory.
+ * </p>
+ */
+@Service
+public class SessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionService.class);
+    private static final int MAX_DEVICE_LENGTH = 255;
+
+    private final UserSessionRepository repository;
+    private final SessionActivityTracker activityTracker;
+    private final long refreshExpirationInSec;
+
+    public SessionService(UserSessionRepository repository, SessionActivityTracker activityTracker,
+            @Value("${jwt.refresh.expiration:1209600}") long refreshExpirationInSec) {
+        this.repository = repository;
+        this.activityTracker = activityTracker;
+        this.refreshExpirationInSec = refreshExpirationInSec;
+    }
+
+    /**
+     * Opens a session for a user who just logged in.
+     *
+     * @param user   the authenticated user
+     * @param device the user agent of the client, or null
+     * @return the UUID of the new session
+     */
+    @Transactional
+    public UUID open(User user, String device) {
+        String trimmed = device != null && device.length() > MAX_DEVICE_LENGTH
+                ? device.substring(0, MAX_DEVICE_LENGTH)
+                : device;
+        UserSession session = repository.save(new UserSession(user, trimmed));
+        logger.info("Session {} opened for user {}", session.getId(), user.getId());
+        return session.getId();
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param sessionId the UUID of the session
+     */
+    @Transactional
+    public void end(UUID sessionId) {
+        repository.end(sessionId, Instant.now());
+        logger.info("Session {} ended", sessionId);
+    }
+
+    /**
+     * Ends every session of a user.
+     *
+     * @param userId the UUID of the user
+     */
+    @Transactional
+    public void endAll(UUID userId) {
+        int ended = repository.endByUserId(userId, Instant.now());
+        logger.info("Ended {} sessions of user {}", ended, userId);
+    }
+
+    /**
+     * Retrieves the open sessions of a user. Sessions idle for longer than a
+     * refresh token lives are left out, since they cannot be resumed.
+     *
+     * @param userId the UUID of the user
+     * @return the open sessions of the user, with their latest last-seen time
+     */
+    public List<SessionDTO> findSessionsByUserId(UUID userId) {
+        logger.info("Fetching sessions of user {}", userId);
+        Instant since = Instant.now().minusSeconds(refreshExpirationInSec);
+        return repository.findOpenByUserId(userId, since).stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    private SessionDTO toDTO(UserSession session) {
+        Instant lastSeen = session.getLastSeenAt();
+        Instant pending = activityTracker.pendingLastSeen(session.getId());
+        if (pending != null && pending.isAfter(lastSeen)) {
+            lastSeen = pending;
+        }
+        return new SessionDTO(session.getId(), session.getDevice(), session.getCreatedAt(), lastSeen);
+    }
+}
@@ -1,24 +1,35 @@
 package igym.services;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import igym.entities.Gym;
+import igym.config.ShardRouter;
 import igym.entities.User;
 import igym.entities.enums.Status;
 import igym.dtos.LoginResponseDTO;
+import igym.dtos.UserDTO;
 import igym.exceptions.UserNotFoundException;
 import igym.exceptions.DuplicateUserException;
 import igym.exceptions.InvalidCredentialsException;
 import igym.exceptions.InvalidPasswordException;
 import igym.exceptions.InvalidNameException;
+import igym.exceptions.PasswordHashingBusyException;
+import igym.exceptions.PreconditionFailedException;
 import igym.repositories.UserRepository;
+import igym.security.ApiKeyRegistry;
 import igym.security.JwtUtil;
-import jakarta.transaction.Transactional;
+import igym.security.LoginGuard;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -40,25 +51,49 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserRepository repository;
     private final GymService gymService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final SecurityEpochCache securityEpochCache;
+    private final LoginGuard loginGuard;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final ActiveUsernameFilter activeUsernameFilter;
+    private final ApiKeyRegistry apiKeyRegistry;
+    private final RefreshTokenService refreshTokenService;
+    private final SessionService sessionService;
+    private final ShardRouter shards;
 
-    public UserService(UserRepository repository, GymService gymService, PasswordEncoder passwordEncoder,
-            JwtUtil jwtUtil) {
+    public UserService(UserRepository repository, GymService gymService,
+            PasswordHashingService passwordHashingService, JwtUtil jwtUtil, SecurityEpochCache securityEpochCache,
+            LoginGuard loginGuard, TokenRevocationRegistry revocationRegistry,
+            ActiveUsernameFilter activeUsernameFilter, ApiKeyRegistry apiKeyRegistry,
+            RefreshTokenService refreshTokenService, SessionService sessionService, ShardRouter shards) {
         this.repository = repository;
         this.gymService = gymService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtUtil = jwtUtil;
+        this.securityEpochCache = securityEpochCache;
+        this.loginGuard = loginGuard;
+        this.revocationRegistry = revocationRegistry;
+        this.activeUsernameFilter = activeUsernameFilter;
+        this.apiKeyRegistry = apiKeyRegistry;
+        this.refreshTokenService = refreshTokenService;
+        this.sessionService = sessionService;
+        this.shards = shards;
     }
 
     /**
-     * Retrieves all users in the system.
+     * Retrieves all users in the system, projected straight into DTOs. The
+     * shards are queried in parallel and their results concatenated.
      *
-     * @return a list of all users
+     * @return a list of all users (as DTO)
      */
-    public List<User> findAll() {
+    @Transactional(readOnly = true)
+    public List<UserDTO> findAll() {
         logger.info("Fetching all users from the repository");
-        List<User> users = repository.findByStatus(Status.active);
+        List<UserDTO> users = shards.onAllShards(true, () -> repository.findDTOsByStatus(Status.active))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
         logger.info("Found {} users", users.size());
         logger.debug("Fetched users: {}", users);
         return users;
@@ -66,7 +101,8 @@ public class UserService {
 
     /**
      * Performs a logical deletion (inactivation) of a user and their associated
-     * gyms.
+     * gyms. Every token, refresh token and API key issued to the user stops
+     * being accepted.
      *
      * @param id the UUID of the user to inactivate
      * @throws UserNotFoundException if the user does not exist or is already
@@ -77,28 +113,27 @@ public class UserService {
         logger.info("Attempting to inactivate user with id {}", id);
         User user = findById(id);
         user.setStatus(Status.inactive);
-        deleteGyms(user);
+        gymService.deleteGymsByUserId(id, Instant.now());
         repository.save(user);
+        securityEpochCache.revoke(id);
+        activeUsernameFilter.remove(user.getName());
+        apiKeyRegistry.forgetUser(id);
+        refreshTokenService.revokeAll(id);
         logger.info("User with id {} inactivated", id);
     }
 
-    private void deleteGyms(User user) {
-        List<Gym> gyms = user.getGyms();
-        if (gyms != null && !gyms.isEmpty()) {
-            gyms.forEach(g -> {
-                if (g.getStatus() == Status.active) {
-                    gymService.deleteGym(g.getId());
-                }
-            });
-        }
-    }
-
     /**
-     * Creates a new user.
+     * Creates a new user. The user is stored on the shard its generated id
+     * maps to; with several shards the name is first looked up on every
+     * shard, as the unique index only covers one.
      *
      * @param user the user entity to be saved
      * @return the saved user entity
-     * @throws DuplicateUserException if a user with the same name already exists
+     * @throws DataIntegrityViolationException if an active user already has the
+     *                                         name, answered as a
+     *                                         {@link DuplicateUserException}
+     * @throws PasswordHashingBusyException     if the password-hashing executor
+     *                                         is saturated
      */
     @Transactional
     public User createUser(User user) {
@@ -108,12 +143,18 @@ public class UserService {
             throw new InvalidPasswordException("Password must be between 6 and 20 characters");
         }
 
-        if (repository.existsByNameAndStatus(user.getName(), Status.active)) {
-            throw new DuplicateUserException("An user with the name " + user.getName() + " already exists");
+        if (shards.count() > 1 && isNameTaken(user.getName())) {
+            throw new DuplicateUserException("A user with this name already exists");
         }
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         User savedUser = repository.save(user);
+        shards.forUser(savedUser.getId(), () -> {
+            repository.flush();
+            return savedUser;
+        });
+        activeUsernameFilter.add(savedUser.getName());
+        loginGuard.forgetUnknownUser(savedUser.getName());
 
         logger.info("New user created with id {}", savedUser.getId());
         logger.debug("New user persisted: {}", savedUser);
@@ -123,16 +164,23 @@ public class UserService {
 
     /**
      * Updates the name of an existing user.
+     * Tokens issued to the user before the rename stop being accepted.
      *
-     * @param id   the UUID of the user to update
-     * @param name the new name for the user
+     * @param id              the UUID of the user to update
+     * @param name            the new name for the user
+     * @param expectedVersion the version the client last saw, or null to update
+     *                        whatever the current version
      * @return the updated user entity
-     * @throws DuplicateUserException if a user with the same new name already
-     *                                exists
-     * @throws UserNotFoundException  if the user does not exist
-     * @throws InvalidNameException   if the provided name is invalid
+     * @throws DataIntegrityViolationException if another active user already has
+     *                                         the name, answered as a
+     *                                         {@link DuplicateUserException}
+     * @throws UserNotFoundException           if the user does not exist
+     * @throws InvalidNameException            if the provided name is invalid
+     * @throws PreconditionFailedException     if the user is no longer at the
+     *                                         expected version
      */
-    public User updateUser(UUID id, String name) {
+    @Transactional
+    public User updateUser(UUID id, String name, Long expectedVersion) {
         logger.info("Attempting to update User with id: {}", id);
 
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
@@ -146,13 +194,23 @@ public class UserService {
         }
 
         User user = findById(id);
+        if (expectedVersion != null && user.getVersion() != expectedVersion) {
+            logger.warn("User with id {} is at version {}, not {}", id, user.getVersion(), expectedVersion);
+            throw new PreconditionFailedException("User with id " + id + " has been modified");
+        }
 
-        if (repository.existsByNameAndStatus(name, Status.active)) {
-            throw new DuplicateUserException("A user with the name '" + name + "' already exists.");
+        if (shards.count() > 1 && !name.equals(user.getName()) && isNameTaken(name)) {
+            throw new DuplicateUserException("A user with this name already exists");
         }
+
+        String previousName = user.getName();
         user.setName(name);
-        User savedUser = repository.save(
-                user);
+        User savedUser = repository.saveAndFlush(user);
+        activeUsernameFilter.add(name);
+        activeUsernameFilter.remove(previousName);
+        securityEpochCache.advance(id);
+        apiKeyRegistry.forgetUser(id);
+        loginGuard.forgetUnknownUser(name);
         logger.info("User with id {} updated successfully", id);
         logger.debug("Updated User persisted: {}", savedUser);
         return savedUser;
@@ -165,6 +223,7 @@ public class UserService {
      * @return the found user entity
      * @throws UserNotFoundException if the user does not exist or is inactive
      */
+    @Transactional(readOnly = true)
     public User findById(UUID id) {
         logger.info("Fetching user with id: {}", id);
 
@@ -180,29 +239,129 @@ public class UserService {
     }
 
     /**
-     * Authenticates a user by validating their credentials and generates a JWT
-     * token.
+     * Authenticates a user by validating their credentials and generates a
+     * short-lived JWT access token and a refresh token for a new session. If the
+     * stored hash was produced with a lower bcrypt cost than the
+     * current one, the password is hashed again and saved. The user is looked
+     * up on every shard; the session is opened on theirs.
      *
      * @param name        the username to authenticate
      * @param rawPassword the raw password to validate
-     * @return a LoginResponseDTO containing the JWT token and username
+     * @param device      the user agent of the client, or null
+     * @return a LoginResponseDTO containing the tokens and username
      * @throws UserNotFoundException       if the user is not found or is inactive
      * @throws InvalidCredentialsException if the provided password is incorrect
+     * @throws PasswordHashingBusyException if the password-hashing executor is
+     *                                      saturated
      */
-    public LoginResponseDTO authenticate(String name, String rawPassword) {
+    public LoginResponseDTO authenticate(String name, String rawPassword, String device) {
         logger.info("Authenticating user with name: {}", name);
-        User user = repository.findByNameAndStatus(name, Status.active)
+        User user = shards.onAllShards(true, () -> repository.findByNameAndStatus(name, Status.active))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst()
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
-        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+        if (!passwordHashingService.matches(rawPassword, user.getPassword())) {
             logger.warn("Authentication failed for user with name: {}", name);
             throw new InvalidCredentialsException("Invalid credentials provided");
         }
 
-        logger.info("User with name {} authenticated successfully", name);
-        logger.debug("Authenticated user: {}", user);
-        String token = jwtUtil.generateToken(user.getId(), user.getName());
-        return new LoginResponseDTO(token, user.getName());
+        return shards.forUser(user.getId(), () -> {
+            rehashIfNeeded(user, rawPassword);
+
+            logger.info("User with name {} authenticated successfully", name);
+            logger.debug("Authenticated user: {}", user);
+            UUID sessionId = sessionService.open(user, device);
+            String token = jwtUtil.generateToken(user.getId(), user.getName(), sessionId);
+            return new LoginResponseDTO(token, user.getName(), refreshTokenService.issue(user, sessionId));
+        });
     }
 
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * This is the only point where an authenticated session touches the
+     * database, so a deactivated user loses access once their access token
+     * expires. The token is rotated on the shard it is tagged with.
+     *
+     * @param refreshToken the refresh token sent by the client
+     * @return a LoginResponseDTO containing the new tokens and username
+     * @throws InvalidCredentialsException if the refresh token is not valid
+     */
+    public LoginResponseDTO refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = shards.call(shards.shardOfToken(refreshToken),
+                () -> refreshTokenService.rotate(refreshToken));
+        User user = rotation.user();
+        String token = jwtUtil.generateToken(user.getId(), user.getName(), rotation.sessionId());
+        logger.info("Access token of user with id {} refreshed", user.getId());
+        return new LoginResponseDTO(token, user.getName(), rotation.refreshToken());
+    }
+
+    /**
+     * Checks whether a username is free, for the availability endpoint. Names
+     * the {@link ActiveUsernameFilter} reports as absent are answered without a
+     * database query; the others are looked up on every shard. The filter only
+     * knows the names written through this instance since its last rebuild, so
+     * the answer is advisory: writes check with {@link #isNameTaken} instead.
+     *
+     * @param name the username to check
+     * @return true if no active user has the name
+     */
+    public boolean isNameAvailable(String name) {
+        return !activeUsernameFilter.mightExist(name)
+                || !shards.onAllShards(true, () -> repository.existsByNameAndStatus(name, Status.active))
+                        .contains(true);
+    }
+
+    /**
+     * Looks a username up on every shard, for writes: the unique index only
+     * covers the shard it is on.
+     */
+    private boolean isNameTaken(String name) {
+        return shards.onAllShards(true, () -> repository.existsByNameAndStatus(name, Status.active)).contains(true);
+    }
+
+    /**
+     * Logs out the session of a token by revoking the token until it expires,
+     * and ends the session with its refresh tokens. The session is taken from
+     * the {@code sid} claim, or else from the refresh token if one is given.
+     * Tokens without a {@code jti} claim, issued before revocation existed,
+     * can only be revoked together with every other token of their user.
+     *
+     * @param token        the JWT to revoke
+     * @param refreshToken the refresh token of the session, or null
+     */
+    public void logout(String token, String refreshToken) {
+        Claims claims = jwtUtil.extractAllClaims(token);
+        String sessionId = claims.get("sid", String.class);
+        if (sessionId != null) {
+            refreshTokenService.revokeSession(UUID.fromString(sessionId));
+        } else if (refreshToken != null) {
+            shards.call(shards.shardOfToken(refreshToken), () -> {
+                refreshTokenService.revoke(refreshToken);
+                return null;
+            });
+        }
+        if (claims.getId() == null) {
+            UUID userId = UUID.fromString(claims.getSubject());
+            securityEpochCache.advance(userId);
+            logger.info("Revoked every token of user with id {} on logout", userId);
+            return;
+        }
+        revocationRegistry.revoke(claims.getId(), claims.getExpiration().toInstant());
+        logger.info("User with id {} logged out", claims.getSubject());
+    }
+
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHashingService.encode(rawPassword));
+            repository.save(user);
+            logger.info("Password hash of user with id {} upgraded to the current cost", user.getId());
+        } catch (PasswordHashingBusyException e) {
+            logger.warn("Skipping password rehash of user with id {}: {}", user.getId(), e.getMessage());
+        }
+    }
 }
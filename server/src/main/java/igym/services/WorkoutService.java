@@ -1,5 +1,7 @@
 package igym.services;
 
+import igym.dtos.ExerciseDTO;
+import igym.dtos.WorkoutDTO;
 import igym.entities.Exercise;
 import igym.entities.Gym;
 import igym.entities.Workout;
@@ -7,17 +9,23 @@ import igym.entities.enums.Status;
 import igym.exceptions.GymNotFoundException;
 import igym.exceptions.WorkoutNotFoundException;
 import igym.exceptions.ExerciseNotFoundException;
+import igym.exceptions.PreconditionFailedException;
 import igym.repositories.ExerciseRepository;
 import igym.repositories.GymRepository;
 import igym.repositories.WorkoutRepository;
-import jakarta.transaction.Transactional;
+import igym.security.OwnershipIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class responsible for managing workout operations,
@@ -38,12 +46,14 @@ public class WorkoutService {
     private final WorkoutRepository workoutRepository;
     private final GymRepository gymRepository;
     private final ExerciseRepository exerciseRepository;
+    private final OwnershipIndex ownershipIndex;
 
     public WorkoutService(WorkoutRepository workoutRepository, GymRepository gymRepository,
-            ExerciseRepository exerciseRepository) {
+            ExerciseRepository exerciseRepository, OwnershipIndex ownershipIndex) {
         this.exerciseRepository = exerciseRepository;
         this.workoutRepository = workoutRepository;
         this.gymRepository = gymRepository;
+        this.ownershipIndex = ownershipIndex;
     }
 
     /**
@@ -74,39 +84,58 @@ public class WorkoutService {
         }
 
         Workout savedWorkout = workoutRepository.save(workout);
+        ownershipIndex.registerWorkout(savedWorkout.getId(), gymId);
+        registerExercises(savedWorkout);
         logger.info("New workout created with id: {}", savedWorkout.getId());
         logger.debug("New workout persisted: {}", savedWorkout);
         return savedWorkout;
     }
 
     /**
-     * Retrieves all workouts associated with a specific gym.
+     * Retrieves all active workouts of a specific gym with their active
+     * exercises.
+     *
+     * <p>
+     * The workouts and the exercises of all of them are projected straight
+     * into DTOs with one query each and assembled here, so the number of
+     * statements does not grow with the number of workouts and no entity is
+     * loaded into the persistence context.
+     * </p>
      *
      * @param gymId the UUID of the gym
-     * @return a list of workouts belonging to the specified gym
+     * @return a list of workouts (as DTO) belonging to the specified gym
      * @throws GymNotFoundException if the gym with the provided ID does not exist
      *                              or is inactive
      */
-    public List<Workout> getWorkoutsByGymId(UUID gymId) {
+    @Transactional(readOnly = true)
+    public List<WorkoutDTO> getWorkoutsByGymId(UUID gymId) {
         logger.info("Fetching Workouts for Gym with ID {}", gymId);
-        Gym gym = findGymById(gymId);
-        List<Workout> workouts = workoutRepository.findByGymAndStatus(gym, Status.active);
-
-        workouts.forEach(workout -> {
-            if (workout.getExerciseList() != null) {
-                List<Exercise> activeExercises = workout.getExerciseList().stream()
-                        .filter(e -> e.getStatus() == Status.active)
-                        .toList();
-                workout.setExerciseList(activeExercises);
-            }
-        });
-        logger.info("Found {} active workouts for gym {}", workouts.size(), gymId);
-        return workouts;
+        if (!gymRepository.existsByIdAndStatus(gymId, Status.active)) {
+            logger.warn("Gym with id {} not found or inactive", gymId);
+            throw new GymNotFoundException("Gym with id " + gymId + " not found");
+        }
+        List<WorkoutDTO> workouts = workoutRepository.findDTOsByGymIdAndStatus(gymId, Status.active);
+        if (workouts.isEmpty()) {
+            logger.info("Found 0 active workouts for gym {}", gymId);
+            return List.of();
+        }
+
+        List<UUID> workoutIds = workouts.stream().map(WorkoutDTO::id).toList();
+        Map<UUID, List<ExerciseDTO>> exercisesByWorkout = exerciseRepository
+                .findDTOsByWorkoutIdInAndStatus(workoutIds, Status.active).stream()
+                .collect(Collectors.groupingBy(ExerciseDTO::workout_id));
+
+        List<WorkoutDTO> result = workouts.stream()
+                .map(workout -> workout.withExerciseList(exercisesByWorkout.getOrDefault(workout.id(), List.of())))
+                .toList();
+        logger.info("Found {} active workouts for gym {}", result.size(), gymId);
+        return result;
     }
 
     /**
      * Soft deletes a workout by marking its status and the statuses of its
-     * exercises as {@code Status.inactive}.
+     * exercises as {@code Status.inactive}, with one bulk update per table and
+     * without loading any entity.
      *
      * @param workoutId the UUID of the workout to soft delete
      * @throws WorkoutNotFoundException if the workout with the provided ID does not
@@ -115,29 +144,49 @@ public class WorkoutService {
     @Transactional
     public void deleteWorkout(UUID workoutId) {
         logger.info("Attempting to inactivate workout with id: {}", workoutId);
-        Workout workout = findByIdAndStatus(workoutId, Status.active);
-        workout.setStatus(Status.inactive);
+        Instant now = Instant.now();
+        if (workoutRepository.inactivate(workoutId, now) == 0) {
+            logger.warn("Workout with id {} and status {} not found", workoutId, Status.active);
+            throw new WorkoutNotFoundException("Workout with id " + workoutId + " not found");
+        }
 
-        deleteExercisesList(workout);
+        int exercises = exerciseRepository.inactivateByWorkoutId(workoutId, now);
+        ownershipIndex.forgetWorkout(workoutId);
+        logger.info("Workout with id {} and {} exercises inactivated", workoutId, exercises);
+    }
 
-        workoutRepository.save(workout);
-        logger.info("Workout with id {} inactivated", workoutId);
+    /**
+     * Soft deletes the active workouts of a gym and their exercises. Exercises
+     * go first, since they are selected through their still active workouts.
+     *
+     * @param gymId the UUID of the gym
+     * @param now   the instant recorded as the update time
+     */
+    @Transactional
+    public void deleteWorkoutsByGymId(UUID gymId, Instant now) {
+        int exercises = exerciseRepository.inactivateByGymId(gymId, now);
+        int workouts = workoutRepository.inactivateByGymId(gymId, now);
+        logger.info("{} workouts and {} exercises of gym {} inactivated", workouts, exercises, gymId);
     }
 
-    private void deleteExercisesList(Workout workout) {
-        List<Exercise> exercises = workout.getExerciseList();
-        if (exercises != null) {
-            exercises.forEach(e -> {
-                if (e.getStatus() == Status.active) {
-                    e.setStatus(Status.inactive);
-                    logger.info("Exercise {} inactivated", e.getId());
-                }
-            });
-        }
+    /**
+     * Soft deletes the active workouts of every active gym of a user and their
+     * exercises. Must run before the gyms themselves are inactivated.
+     *
+     * @param userId the UUID of the user
+     * @param now    the instant recorded as the update time
+     */
+    @Transactional
+    public void deleteWorkoutsByUserId(UUID userId, Instant now) {
+        int exercises = exerciseRepository.inactivateByUserId(userId, now);
+        int workouts = workoutRepository.inactivateByUserId(userId, now);
+        logger.info("{} workouts and {} exercises of user {} inactivated", workouts, exercises, userId);
     }
 
     /**
      * Soft deletes an exercise by marking its status as {@code Status.inactive}.
+     * As in {@link #updateWorkout}, the workout is touched, which moves its
+     * version.
      *
      * @param exerciseId the UUID of the exercise to soft delete
      * @throws WorkoutNotFoundException if the workout or exercise with the provided
@@ -151,6 +200,8 @@ public class WorkoutService {
                 .orElseThrow(() -> new ExerciseNotFoundException("Exercise with id " + exerciseId + " not found"));
 
         exercise.setStatus(Status.inactive);
+        exercise.getWorkout().setUpdated_at(Instant.now());
+        ownershipIndex.forgetExercise(exerciseId);
         logger.info("Exercise with id {} has been inactivated", exerciseId);
     }
 
@@ -162,6 +213,7 @@ public class WorkoutService {
      * @throws WorkoutNotFoundException if the workout with the provided ID does not
      *                                  exist or is inactive
      */
+    @Transactional(readOnly = true)
     public Workout findById(UUID id) {
         Workout workout = workoutRepository.findById(id)
                 .orElseThrow(() -> {
@@ -189,31 +241,105 @@ public class WorkoutService {
 
     /**
      * Updates workout details.
-     * This method updates the workout's name and the exercise list.
+     *
+     * <p>
+     * The incoming exercises are merged into the stored ones by id: an exercise
+     * carrying the id of an active exercise of the workout updates it in place,
+     * an exercise without an id is inserted, and active exercises missing from
+     * the request are soft deleted. Unchanged rows are not written and changed
+     * ones only get their changed columns. Any change also moves the
+     * workout's {@code updated_at} and {@code version}, so editing one rep
+     * count costs two UPDATEs, and the workout UPDATE fails if a concurrent
+     * update committed first.
+     * </p>
+     *
+     * @param workoutId       the UUID of the workout to update
+     * @param updatedWorkout  the new name and exercise list of the workout
+     * @param expectedVersion the version the client last saw, or null to update
+     *                        whatever the current version
+     * @return the updated workout, whose list still holds the removed exercises
+     *         as inactive
+     * @throws WorkoutNotFoundException  if the workout does not exist or is
+     *                                   inactive
+     * @throws ExerciseNotFoundException if an incoming exercise carries an id
+     *                                   that is not an active exercise of the
+     *                                   workout
+     * @throws PreconditionFailedException if the workout is no longer at the
+     *                                     expected version
      */
     @Transactional
-    public Workout updateWorkout(UUID workoutId, Workout updatedWorkout) {
+    public Workout updateWorkout(UUID workoutId, Workout updatedWorkout, Long expectedVersion) {
         logger.info("Attempting to update workout with id: {}", workoutId);
         logger.debug("Update request with values: {}", updatedWorkout);
         Workout existingWorkout = findByIdAndStatus(workoutId, Status.active);
+        if (expectedVersion != null && existingWorkout.getVersion() != expectedVersion) {
+            logger.warn("Workout with id {} is at version {}, not {}", workoutId, existingWorkout.getVersion(),
+                    expectedVersion);
+            throw new PreconditionFailedException("Workout with id " + workoutId + " has been modified");
+        }
         existingWorkout.setName(updatedWorkout.getName());
 
+        Map<UUID, Exercise> removed = existingWorkout.getExerciseList().stream()
+                .filter(exercise -> exercise.getStatus() == Status.active)
+                .collect(Collectors.toMap(Exercise::getId, Function.identity()));
         List<Exercise> updatedExercises = updatedWorkout.getExerciseList() != null
                 ? updatedWorkout.getExerciseList()
-                : new ArrayList<>();
+                : List.of();
 
-        updatedExercises.forEach(ex -> {
-            ex.setWorkout(existingWorkout);
-            ex.setStatus(Status.active);
+        boolean exercisesChanged = false;
+        for (Exercise incoming : updatedExercises) {
+            if (incoming.getId() == null) {
+                addExercise(existingWorkout, incoming);
+                exercisesChanged = true;
+                continue;
+            }
+            Exercise existing = removed.remove(incoming.getId());
+            if (existing == null) {
+                logger.warn("Exercise with id {} is not an active exercise of workout {}", incoming.getId(),
+                        workoutId);
+                throw new ExerciseNotFoundException("Exercise with id " + incoming.getId() + " not found");
+            }
+            exercisesChanged |= copyExercise(incoming, existing);
+        }
+
+        removed.values().forEach(exercise -> {
+            exercise.setStatus(Status.inactive);
+            ownershipIndex.forgetExercise(exercise.getId());
         });
+        if (exercisesChanged || !removed.isEmpty()) {
+            existingWorkout.setUpdated_at(Instant.now());
+        }
 
-        existingWorkout.setExerciseList(updatedExercises);
-        existingWorkout.setStatus(Status.active);
+        logger.info("Workout with id {} updated successfully, {} exercises removed", workoutId, removed.size());
+        logger.debug("Updated workout details: {}", existingWorkout);
+        return existingWorkout;
+    }
 
-        Workout savedWorkout = workoutRepository.save(existingWorkout);
-        logger.info("Workout with id {} updated successfully", savedWorkout.getId());
-        logger.debug("Updated workout details: {}", savedWorkout);
-        return savedWorkout;
+    private void addExercise(Workout workout, Exercise exercise) {
+        exercise.setWorkout(workout);
+        exercise.setStatus(Status.active);
+        workout.getExerciseList().add(exerciseRepository.save(exercise));
+        ownershipIndex.registerExercise(exercise.getId(), workout.getId());
+    }
+
+    private boolean copyExercise(Exercise source, Exercise target) {
+        boolean changed = !Objects.equals(source.getName(), target.getName())
+                || Double.compare(source.getWeight(), target.getWeight()) != 0
+                || source.getNumReps() != target.getNumReps()
+                || source.getNumSets() != target.getNumSets()
+                || !Objects.equals(source.getNote(), target.getNote());
+        target.setName(source.getName());
+        target.setWeight(source.getWeight());
+        target.setNumReps(source.getNumReps());
+        target.setNumSets(source.getNumSets());
+        target.setNote(source.getNote());
+        return changed;
+    }
+
+    private void registerExercises(Workout workout) {
+        if (workout.getExerciseList() != null) {
+            workout.getExerciseList().forEach(e -> ownershipIndex.registerExercise(e.getId(), workout.getId()));
+        }
     }
 
     private Workout findByIdAndStatus(UUID id, Status status) {
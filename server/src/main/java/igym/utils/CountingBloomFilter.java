@@ -0,0 +1,115 @@
+package igym.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe counting Bloom filter of strings, which unlike
+ * {@link BloomFilter} supports removals.
+ *
+ * <p>
+ * Each position holds an 8-bit counter instead of a bit, packed eight to a
+ * long and updated with compare-and-set. A counter that reaches 255 stays
+ * there, so removals can never make a present string look absent; at worst
+ * they leave a false positive behind. Removing a string that was never added
+ * can cause false negatives and must be avoided by the caller.
+ * </p>
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 8;
+    private static final long MAX_COUNT = 0xFF;
+
+    private final AtomicLongArray words;
+    private final long counterCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions the number of strings the filter is sized for
+     * @param falsePositiveRate  the target false-positive rate, between 0 and 1
+     */
+    public CountingBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double p = Math.min(Math.max(falsePositiveRate, Double.MIN_NORMAL), 0.5);
+        long counters = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+
+        this.words = new AtomicLongArray(words);
+        this.counterCount = (long) words * COUNTERS_PER_WORD;
+        this.hashCount = Math.max(1, (int) Math.round((double) counterCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds a string to the filter.
+     *
+     * @param value the string to add
+     */
+    public void add(String value) {
+        long hash = BloomFilter.hash64(value);
+        long h1 = BloomFilter.mix(hash);
+        long h2 = BloomFilter.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            update(Math.floorMod(h1 + i * h2, counterCount), 1);
+        }
+    }
+
+    /**
+     * Removes a string that was previously added.
+     *
+     * @param value the string to remove
+     */
+    public void remove(String value) {
+        long hash = BloomFilter.hash64(value);
+        long h1 = BloomFilter.mix(hash);
+        long h2 = BloomFilter.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            update(Math.floorMod(h1 + i * h2, counterCount), -1);
+        }
+    }
+
+    /**
+     * Checks whether a string may be in the filter.
+     *
+     * @param value the string to check
+     * @return false if the string is definitely not in the filter
+     */
+    public boolean mightContain(String value) {
+        long hash = BloomFilter.hash64(value);
+        long h1 = BloomFilter.mix(hash);
+        long h2 = BloomFilter.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long counter = Math.floorMod(h1 + i * h2, counterCount);
+            if (count(words.get(wordIndex(counter)), counter) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void update(long counter, int delta) {
+        int index = wordIndex(counter);
+        int shift = shift(counter);
+        while (true) {
+            long word = words.get(index);
+            long count = count(word, counter);
+            if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+                return;
+            }
+            long updated = (word & ~(MAX_COUNT << shift)) | ((count + delta) << shift);
+            if (words.compareAndSet(index, word, updated)) {
+                return;
+            }
+        }
+    }
+
+    private static int wordIndex(long counter) {
+        return (int) (counter / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long counter) {
+        return (int) (counter % COUNTERS_PER_WORD) * 8;
+    }
+
+    private static long count(long word, long counter) {
+        return (word >>> shift(counter)) & MAX_COUNT;
+    }
+}
@@ -0,0 +1,112 @@
+package igym.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Digests and random secrets for credentials that are random enough not to
+ * need a slow password hash, such as API keys and refresh tokens, and a keyed
+ * hash for tables whose keys come from clients.
+ */
+public final class Hashing {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private Hashing() {
+    }
+
+    /**
+     * Computes the SHA-256 digest of a string.
+     *
+     * @param value the string to digest, encoded as UTF-8
+     * @return the 32-byte digest
+     */
+    public static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 digest of a string as lowercase hex.
+     *
+     * @param value the string to digest, encoded as UTF-8
+     * @return the 64-character hex digest
+     */
+    public static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(sha256(value));
+    }
+
+    /**
+     * Generates a random secret.
+     *
+     * @param bytes the number of random bytes
+     * @return the bytes in URL-safe Base64 without padding
+     */
+    public static String randomToken(int bytes) {
+        byte[] secret = new byte[bytes];
+        random.nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    /**
+     * Computes the SipHash-2-4 of a string under a secret key. Unlike
+     * {@link String#hashCode()}, whose collisions anyone can compute, it does not
+     * let a client that does not know the key choose strings that land on the
+     * same slot as another.
+     *
+     * @param k0    the first half of the 128-bit key
+     * @param k1    the second half of the 128-bit key
+     * @param value the string to hash, read as its UTF-16 code units in
+     *              little-endian order so that no bytes are allocated
+     * @return the 64-bit hash
+     */
+    public static long sipHash(long k0, long k1, String value) {
+        long v0 = k0 ^ 0x736f6d6570736575L;
+        long v1 = k1 ^ 0x646f72616e646f6dL;
+        long v2 = k0 ^ 0x6c7967656e657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        int length = value.length();
+        int blocks = length / 4;
+        // One pass per 8-byte block, one for the tail and its length, and one
+        // for the finalization, which compresses nothing and runs four rounds.
+        for (int block = 0; block <= blocks + 1; block++) {
+            long message = 0;
+            int rounds = 2;
+            if (block < blocks) {
+                int offset = block * 4;
+                message = value.charAt(offset) | (long) value.charAt(offset + 1) << 16
+                        | (long) value.charAt(offset + 2) << 32 | (long) value.charAt(offset + 3) << 48;
+            } else if (block == blocks) {
+                message = (long) (length * 2) << 56;
+                for (int i = blocks * 4; i < length; i++) {
+                    message |= (long) value.charAt(i) << (16 * (i - blocks * 4));
+                }
+            } else {
+                v2 ^= 0xff;
+                rounds = 4;
+            }
+            v3 ^= message;
+            for (int round = 0; round < rounds; round++) {
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13) ^ v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16) ^ v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21) ^ v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17) ^ v2;
+                v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= message;
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+}
@@ -0,0 +1,45 @@
+-- Tables of API keys, refresh tokens, revoked access tokens and sessions.
+-- They are not part of the baseline: a database created by ddl-auto=update
+-- is baselined at version 1 without them, so they are created here, and
+-- left alone on databases that already have them.
+
+create table if not exists api_keys (
+    id uuid not null,
+    user_id uuid not null,
+    name varchar(50) not null,
+    prefix varchar(12) not null,
+    key_digest varchar(64) not null unique,
+    status varchar(255) not null check (status in ('active', 'inactive')),
+    created_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint api_keys_user_id_fk foreign key (user_id) references users
+);
+
+create table if not exists refresh_tokens (
+    id uuid not null,
+    user_id uuid not null,
+    family_id uuid not null,
+    token_digest varchar(64) not null unique,
+    expires_at timestamp(6) with time zone not null,
+    rotated_at timestamp(6) with time zone,
+    revoked_at timestamp(6) with time zone,
+    primary key (id),
+    constraint refresh_tokens_user_id_fk foreign key (user_id) references users
+);
+
+create table if not exists revoked_tokens (
+    token_id varchar(36) not null,
+    expires_at timestamp(6) with time zone not null,
+    primary key (token_id)
+);
+
+create table if not exists user_sessions (
+    id uuid not null,
+    user_id uuid not null,
+    device varchar(255),
+    created_at timestamp(6) with time zone not null,
+    last_seen_at timestamp(6) with time zone not null,
+    ended_at timestamp(6) with time zone,
+    primary key (id),
+    constraint user_sessions_user_id_fk foreign key (user_id) references users
+);
@@ -0,0 +1,45 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Databases that already have it are baselined at this version.
+
+create table users (
+    id uuid not null,
+    name varchar(50) not null,
+    password varchar(255) not null,
+    status varchar(255) not null check (status in ('active', 'inactive')),
+    updated_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+create table gyms (
+    id uuid not null,
+    user_id uuid not null,
+    name varchar(50) not null,
+    status varchar(255) not null check (status in ('active', 'inactive')),
+    updated_at timestamp(6) with time zone,
+    primary key (id),
+    constraint gyms_user_id_fk foreign key (user_id) references users
+);
+
+create table workout (
+    id uuid not null,
+    gym_id uuid not null,
+    name varchar(50) not null,
+    status varchar(255) not null check (status in ('active', 'inactive')),
+    updated_at timestamp(6) with time zone,
+    primary key (id),
+    constraint workout_gym_id_fk foreign key (gym_id) references gyms
+);
+
+create table exercise (
+    id uuid not null,
+    workout_id uuid not null,
+    name varchar(50) not null,
+    weight float(53) not null,
+    num_reps integer not null check (num_reps >= 1),
+    num_sets integer not null check (num_sets >= 1),
+    note varchar(255),
+    status varchar(255) not null check (status in ('active', 'inactive')),
+    updated_at timestamp(6) with time zone,
+    primary key (id),
+    constraint exercise_workout_id_fk foreign key (workout_id) references workout
+);
@@ -0,0 +1,6 @@
+-- Optimistic lock columns of the resources clients can rename or edit. The
+-- version is served as the ETag of the resource and checked against If-Match.
+
+alter table users add column version bigint default 0 not null;
+alter table gyms add column version bigint default 0 not null;
+alter table workout add column version bigint default 0 not null;
@@ -0,0 +1,13 @@
+-- H2 counterpart of the PostgreSQL hot path indexes. H2 has no partial
+-- indexes, so the filtered column becomes part of the key instead.
+
+create index gyms_user_id_name_active_idx on gyms (user_id, status, name);
+create index users_name_active_idx on users (name, status);
+create index workout_gym_id_active_idx on workout (gym_id, status);
+create index exercise_workout_id_active_idx on exercise (workout_id, status);
+create index api_keys_user_id_active_idx on api_keys (user_id, status);
+create index refresh_tokens_family_id_live_idx on refresh_tokens (family_id);
+create index refresh_tokens_user_id_live_idx on refresh_tokens (user_id);
+create index refresh_tokens_expires_at_idx on refresh_tokens (expires_at);
+create index user_sessions_user_id_open_idx on user_sessions (user_id, last_seen_at);
+create index revoked_tokens_expires_at_idx on revoked_tokens (expires_at);
@@ -0,0 +1,32 @@
+-- H2 counterpart of the unique active names. H2 has no partial indexes, so
+-- each table gets a generated column holding the name of active rows only;
+-- unique indexes allow any number of nulls, so soft-deleted rows never
+-- collide.
+
+-- Before this migration two requests could both pass the check for a free
+-- name, so a database may already hold duplicate active names. Of each set of
+-- duplicates, the least recently updated row keeps the name; the others get
+-- the first eight characters of their id appended, and their owners can rename
+-- them.
+
+update users set name = left(name, 41) || '-' || left(cast(id as varchar), 8)
+where id in (
+    select id from (
+        select id, row_number() over (partition by name order by updated_at nulls first, id) as duplicate
+        from users where status = 'active'
+    ) ranked where duplicate > 1
+);
+
+update gyms set name = left(name, 41) || '-' || left(cast(id as varchar), 8)
+where id in (
+    select id from (
+        select id, row_number() over (partition by user_id, name order by updated_at nulls first, id) as duplicate
+        from gyms where status = 'active'
+    ) ranked where duplicate > 1
+);
+
+alter table gyms add column active_name varchar(50) generated always as (case when status = 'active' then name end);
+create unique index gyms_user_id_name_active_key on gyms (user_id, active_name);
+
+alter table users add column active_name varchar(50) generated always as (case when status = 'active' then name end);
+create unique index users_name_active_key on users (active_name);
@@ -0,0 +1,56 @@
+-- H2 counterpart of the smallint status codes. H2 cannot convert a column
+-- with an expression, so each table gets a new column that replaces the old
+-- one; the indexes and generated names that use the status are rebuilt.
+
+drop index users_name_active_key;
+alter table users drop column active_name;
+drop index users_name_active_idx;
+alter table users add column status_code smallint;
+update users set status_code = case status when 'active' then 1 else 0 end;
+alter table users drop column status;
+alter table users alter column status_code rename to status;
+alter table users alter column status set not null;
+alter table users add constraint users_status_check check (status in (0, 1));
+alter table users add column active_name varchar(50) generated always as (case when status = 1 then name end);
+create unique index users_name_active_key on users (active_name);
+create index users_name_active_idx on users (name, status);
+
+drop index gyms_user_id_name_active_key;
+alter table gyms drop column active_name;
+drop index gyms_user_id_name_active_idx;
+alter table gyms add column status_code smallint;
+update gyms set status_code = case status when 'active' then 1 else 0 end;
+alter table gyms drop column status;
+alter table gyms alter column status_code rename to status;
+alter table gyms alter column status set not null;
+alter table gyms add constraint gyms_status_check check (status in (0, 1));
+alter table gyms add column active_name varchar(50) generated always as (case when status = 1 then name end);
+create unique index gyms_user_id_name_active_key on gyms (user_id, active_name);
+create index gyms_user_id_name_active_idx on gyms (user_id, status, name);
+
+drop index workout_gym_id_active_idx;
+alter table workout add column status_code smallint;
+update workout set status_code = case status when 'active' then 1 else 0 end;
+alter table workout drop column status;
+alter table workout alter column status_code rename to status;
+alter table workout alter column status set not null;
+alter table workout add constraint workout_status_check check (status in (0, 1));
+create index workout_gym_id_active_idx on workout (gym_id, status);
+
+drop index exercise_workout_id_active_idx;
+alter table exercise add column status_code smallint;
+update exercise set status_code = case status when 'active' then 1 else 0 end;
+alter table exercise drop column status;
+alter table exercise alter column status_code rename to status;
+alter table exercise alter column status set not null;
+alter table exercise add constraint exercise_status_check check (status in (0, 1));
+create index exercise_workout_id_active_idx on exercise (workout_id, status);
+
+drop index api_keys_user_id_active_idx;
+alter table api_keys add column status_code smallint;
+update api_keys set status_code = case status when 'active' then 1 else 0 end;
+alter table api_keys drop column status;
+alter table api_keys alter column status_code rename to status;
+alter table api_keys alter column status set not null;
+alter table api_keys add constraint api_keys_status_check check (status in (0, 1));
+create index api_keys_user_id_active_idx on api_keys (user_id, status);
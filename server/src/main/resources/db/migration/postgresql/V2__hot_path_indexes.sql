@@ -0,0 +1,29 @@
+-- Indexes for the queries the API runs on every request. Reads only ever
+-- look at active rows, so the indexes are partial and skip soft-deleted ones.
+
+-- Gyms of a user, and the duplicate-name check on gym creation.
+create index gyms_user_id_name_active_idx on gyms (user_id, name) where status = 'active';
+
+-- Login and the duplicate-name check on sign-up.
+create index users_name_active_idx on users (name) where status = 'active';
+
+-- Workouts of a gym, and the cascading soft delete of a gym.
+create index workout_gym_id_active_idx on workout (gym_id) where status = 'active';
+
+-- Exercises of a set of workouts, and the cascading soft delete of a workout.
+create index exercise_workout_id_active_idx on exercise (workout_id) where status = 'active';
+
+-- API keys of a user.
+create index api_keys_user_id_active_idx on api_keys (user_id) where status = 'active';
+
+-- Revocation of a refresh token family or of every token of a user, and the
+-- purge of expired tokens.
+create index refresh_tokens_family_id_live_idx on refresh_tokens (family_id) where revoked_at is null;
+create index refresh_tokens_user_id_live_idx on refresh_tokens (user_id) where revoked_at is null;
+create index refresh_tokens_expires_at_idx on refresh_tokens (expires_at);
+
+-- Open sessions of a user, most recently seen first.
+create index user_sessions_user_id_open_idx on user_sessions (user_id, last_seen_at) where ended_at is null;
+
+-- Loading and purging the revocation list.
+create index revoked_tokens_expires_at_idx on revoked_tokens (expires_at);
@@ -0,0 +1,32 @@
+-- Active names are unique: a user name across all users, a gym name within
+-- the gyms of its user. Soft-deleted rows keep their names and do not take
+-- part. The unique indexes replace the plain ones that served the same
+-- lookups.
+
+-- Before this migration two requests could both pass the check for a free
+-- name, so a database may already hold duplicate active names. Of each set of
+-- duplicates, the least recently updated row keeps the name; the others get
+-- the first eight characters of their id appended, and their owners can rename
+-- them.
+
+update users set name = left(name, 41) || '-' || left(cast(id as varchar), 8)
+where id in (
+    select id from (
+        select id, row_number() over (partition by name order by updated_at nulls first, id) as duplicate
+        from users where status = 'active'
+    ) ranked where duplicate > 1
+);
+
+update gyms set name = left(name, 41) || '-' || left(cast(id as varchar), 8)
+where id in (
+    select id from (
+        select id, row_number() over (partition by user_id, name order by updated_at nulls first, id) as duplicate
+        from gyms where status = 'active'
+    ) ranked where duplicate > 1
+);
+
+drop index gyms_user_id_name_active_idx;
+create unique index gyms_user_id_name_active_key on gyms (user_id, name) where status = 'active';
+
+drop index users_name_active_idx;
+create unique index users_name_active_key on users (name) where status = 'active';
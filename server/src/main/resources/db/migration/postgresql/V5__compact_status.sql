@@ -0,0 +1,36 @@
+-- Status is stored as a smallint code (1 active, 0 inactive) instead of its
+-- name, which narrows every row and every index that includes the column.
+-- The partial indexes filter on the status, so they are rebuilt around the
+-- new type.
+
+drop index gyms_user_id_name_active_key;
+drop index users_name_active_key;
+drop index workout_gym_id_active_idx;
+drop index exercise_workout_id_active_idx;
+drop index api_keys_user_id_active_idx;
+
+alter table users drop constraint if exists users_status_check;
+alter table users alter column status type smallint using case status when 'active' then 1 else 0 end;
+alter table users add constraint users_status_check check (status in (0, 1));
+
+alter table gyms drop constraint if exists gyms_status_check;
+alter table gyms alter column status type smallint using case status when 'active' then 1 else 0 end;
+alter table gyms add constraint gyms_status_check check (status in (0, 1));
+
+alter table workout drop constraint if exists workout_status_check;
+alter table workout alter column status type smallint using case status when 'active' then 1 else 0 end;
+alter table workout add constraint workout_status_check check (status in (0, 1));
+
+alter table exercise drop constraint if exists exercise_status_check;
+alter table exercise alter column status type smallint using case status when 'active' then 1 else 0 end;
+alter table exercise add constraint exercise_status_check check (status in (0, 1));
+
+alter table api_keys drop constraint if exists api_keys_status_check;
+alter table api_keys alter column status type smallint using case status when 'active' then 1 else 0 end;
+alter table api_keys add constraint api_keys_status_check check (status in (0, 1));
+
+create unique index gyms_user_id_name_active_key on gyms (user_id, name) where status = 1;
+create unique index users_name_active_key on users (name) where status = 1;
+create index workout_gym_id_active_idx on workout (gym_id) where status = 1;
+create index exercise_workout_id_active_idx on exercise (workout_id) where status = 1;
+create index api_keys_user_id_active_idx on api_keys (user_id) where status = 1;
@@ -0,0 +1,104 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import igym.config.ShardRouter;
+import igym.repositories.RevokedTokenRepository;
+import igym.security.JwtAuthenticationFilter;
+import igym.security.JwtUtil;
+import igym.security.SecurityEpochCache;
+import igym.security.SessionActivityTracker;
+import igym.security.TokenRevocationRegistry;
+import igym.security.VerifiedClaimsCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Measures the per-request cost of {@link JwtAuthenticationFilter} for a
+ * repeated bearer token.
+ *
+ * <p>
+ * The baseline replays what the filter used to do per request: two full
+ * verifications, each rebuilding the HMAC key and the parser. The other runs
+ * use the current filter with the verified-claims cache disabled and enabled.
+ * Run with {@code mvn test -Pbenchmark -Dtest=AuthFilterBenchmark}.
+ * </p>
+ */
+class AuthFilterBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKey123456789012345678901234567890123";
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    @DisplayName("Auth filter cost per request, before and after the claims cache")
+    void authFilterCostPerRequest() throws Exception {
+        UUID userId = UUID.randomUUID();
+        String token = new JwtUtil(SECRET, 3600, new VerifiedClaimsCache(0)).generateToken(userId, "bench", null);
+
+        double baseline = measure(() -> {
+            UUID.fromString(parseWithFreshKey(token).getSubject());
+            parseWithFreshKey(token).getExpiration();
+        });
+        double uncached = measure(filterRequest(token, new VerifiedClaimsCache(0)));
+        double cached = measure(filterRequest(token, new VerifiedClaimsCache(10_000)));
+
+        System.out.printf("%nAuth filter cost per request (%d iterations)%n", ITERATIONS);
+        System.out.printf("  before (two parses, key rebuilt per parse) : %8.2f us%n", baseline);
+        System.out.printf("  single parse, cache disabled               : %8.2f us%n", uncached);
+        System.out.printf("  single parse, verified-claims cache        : %8.2f us%n%n", cached);
+    }
+
+    private static Claims parseWithFreshKey(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static Operation filterRequest(String token, VerifiedClaimsCache claimsCache) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(new JwtUtil(SECRET, 3600, claimsCache),
+                mock(UserDetailsService.class), new SecurityEpochCache(100, 3600),
+                new TokenRevocationRegistry(mock(RevokedTokenRepository.class), ShardRouter.single(), 10_000, 0.01),
+                new SessionActivityTracker(mock(JdbcTemplate.class), ShardRouter.single()), ShardRouter.single(),
+                true);
+
+        return () -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/gyms");
+            request.addHeader("Authorization", "Bearer " + token);
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+            SecurityContextHolder.clearContext();
+        };
+    }
+
+    private static double measure(Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,127 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures the cost of flushing a large persistence context: one user with
+ * 200 gyms of 10 workouts of 10 exercises, all managed at once.
+ *
+ * <p>
+ * Without bytecode enhancement every flush compares each managed entity with
+ * its load-time snapshot, field by field; enhanced entities record their own
+ * changes as they happen, so a flush only asks each of them whether it has
+ * any. The build
+ * enhances the entities, so the run reports the enhanced cost. The figures
+ * from before are taken by building without enhancement:
+ * {@code mvn clean test -Pbenchmark -Dtest=FlushBenchmark -Dhibernate.enhance.phase=none},
+ * followed by a clean build to restore the enhanced classes. Run with
+ * {@code mvn test -Pbenchmark -Dtest=FlushBenchmark}.
+ * </p>
+ */
+@DataJpaTest(properties = { "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true" })
+@Transactional
+class FlushBenchmark {
+
+    private static final int GYMS = 200;
+    private static final int WORKOUTS = 10;
+    private static final int EXERCISES = 10;
+    private static final int FLUSHES = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Flush cost of a large persistence context, snapshot comparison versus self dirty tracking")
+    void flushCost() {
+        seed();
+        entityManager.clear();
+
+        entityManager.createQuery("SELECT u FROM User u", User.class).getResultList();
+        entityManager.createQuery("SELECT g FROM Gym g", Gym.class).getResultList();
+        entityManager.createQuery("SELECT w FROM Workout w", Workout.class).getResultList();
+        List<Exercise> exercises = entityManager.createQuery("SELECT e FROM Exercise e", Exercise.class)
+                .getResultList();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < FLUSHES; i++) {
+            entityManager.flush();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < FLUSHES; i++) {
+            entityManager.flush();
+        }
+        double clean = (System.nanoTime() - start) / 1e6 / FLUSHES;
+
+        statistics.clear();
+        start = System.nanoTime();
+        for (int i = 0; i < FLUSHES; i++) {
+            for (int e = i % 100; e < exercises.size(); e += 100) {
+                exercises.get(e).setNumReps(exercises.get(e).getNumReps() + 1);
+            }
+            entityManager.flush();
+        }
+        double dirty = (System.nanoTime() - start) / 1e6 / FLUSHES;
+        long updates = statistics.getEntityUpdateCount();
+
+        boolean enhanced = SelfDirtinessTracker.class.isAssignableFrom(Exercise.class);
+        System.out.printf("%nFlush of %,d managed entities, entities %s%n",
+                1 + GYMS + GYMS * WORKOUTS + exercises.size(), enhanced ? "enhanced" : "not enhanced (before)");
+        System.out.printf("  nothing changed     : %8.3f ms per flush%n", clean);
+        System.out.printf("  1%% of exercises     : %8.3f ms per flush, %6d updates%n", dirty, updates);
+
+        assertEquals(exercises.size() / 100 * FLUSHES, updates);
+    }
+
+    private void seed() {
+        User user = new User("Flush Clown");
+        user.setPassword("password");
+        entityManager.persist(user);
+        for (int g = 0; g < GYMS; g++) {
+            Gym gym = new Gym("Gym " + g);
+            gym.setUser(user);
+            entityManager.persist(gym);
+            for (int w = 0; w < WORKOUTS; w++) {
+                Workout workout = new Workout();
+                workout.setName("Workout " + w);
+                workout.setGym(gym);
+                List<Exercise> exercises = new ArrayList<>();
+                for (int e = 0; e < EXERCISES; e++) {
+                    Exercise exercise = new Exercise();
+                    exercise.setName("Exercise " + e);
+                    exercise.setNumReps(10);
+                    exercise.setNumSets(3);
+                    exercise.setNote("Note " + e);
+                    exercise.setWorkout(workout);
+                    exercises.add(exercise);
+                }
+                workout.setExerciseList(exercises);
+                entityManager.persist(workout);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            user = entityManager.getReference(User.class, user.getId());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package igym.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads how many bytes tables and their indexes take on disk.
+ *
+ * <p>
+ * On PostgreSQL the figures are {@code pg_table_size} and
+ * {@code pg_indexes_size}, after a {@code VACUUM FULL} so that dead tuples
+ * left by a migration do not count. On H2 the table figure is
+ * {@code DISK_SPACE_USED} after a checkpoint; H2 cannot size an index on its
+ * own, so the index figure is unknown there and only shows up in the size of
+ * the database file.
+ * </p>
+ */
+final class RelationSizes {
+
+    static final long UNKNOWN = -1;
+
+    record Size(String table, long tableBytes, long indexBytes) {
+    }
+
+    private RelationSizes() {
+    }
+
+    static List<Size> measure(Connection connection, List<String> tables) throws SQLException {
+        boolean postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                for (String table : tables) {
+                    statement.execute("VACUUM FULL " + table);
+                }
+            } else {
+                statement.execute("CHECKPOINT SYNC");
+            }
+        }
+
+        String sql = postgres
+                ? "SELECT pg_table_size(CAST(? AS regclass)), pg_indexes_size(CAST(? AS regclass))"
+                : "SELECT DISK_SPACE_USED(?)";
+        List<Size> sizes = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            for (String table : tables) {
+                for (int i = 1; i <= query.getParameterMetaData().getParameterCount(); i++) {
+                    query.setString(i, table);
+                }
+                try (ResultSet result = query.executeQuery()) {
+                    result.next();
+                    sizes.add(new Size(table, result.getLong(1), postgres ? result.getLong(2) : UNKNOWN));
+                }
+            }
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,120 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.config.SecondLevelCacheConfig;
+import igym.config.ShardRouter;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.repositories.GymRepository;
+import igym.repositories.UserRepository;
+import igym.security.OwnershipIndex;
+import igym.services.GymService;
+import igym.services.WorkoutService;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures the reads of a user's gym listing,
+ * {@link GymService#findGymsByUserId}, without and with the query cache.
+ *
+ * <p>
+ * 200 users of 3 gyms each are read {@value #ROUNDS} times over, each service
+ * call in its own transaction as in a request. The baseline runs without
+ * {@link SecondLevelCacheConfig}, as the service did before: every call goes
+ * to the database. The cached run keeps the default time to live of one
+ * second, so a listing is read again from the database once it expires. Run with
+ * {@code mvn test -Pbenchmark -Dtest=SecondLevelCacheBenchmark*}.
+ * </p>
+ */
+class SecondLevelCacheBenchmark {
+
+    private static final int USERS = 200;
+    private static final int GYMS = 3;
+    private static final int ROUNDS = 5;
+
+    @Nested
+    @DataJpaTest(properties = { "spring.jpa.show-sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true" })
+    @Import({ GymService.class, WorkoutService.class, ShardRouter.class })
+    class Uncached extends Run {
+    }
+
+    @Nested
+    @DataJpaTest(properties = { "spring.jpa.show-sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true" })
+    @Import({ SecondLevelCacheConfig.class, GymService.class, WorkoutService.class, ShardRouter.class })
+    class Cached extends Run {
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    abstract static class Run {
+
+        @Autowired
+        private GymService gymService;
+        @Autowired
+        private UserRepository userRepository;
+        @Autowired
+        private GymRepository gymRepository;
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        @MockitoBean
+        private OwnershipIndex ownershipIndex;
+
+        @Test
+        @DisplayName("Gym listings, every call to the database versus through the query cache")
+        void gymReadCost() {
+            List<UUID> users = new ArrayList<>();
+            for (int u = 0; u < USERS; u++) {
+                User user = new User("Bench Clown " + u);
+                user.setPassword("password");
+                users.add(userRepository.save(user).getId());
+                for (int g = 0; g < GYMS; g++) {
+                    gymService.createGym(new Gym("Gym " + g), user.getId());
+                }
+            }
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+            try {
+                read(users);
+                statistics.clear();
+                double perUser = read(users);
+                long statements = statistics.getPrepareStatementCount();
+
+                System.out.printf("%n%s: %d users of %d gyms, read %d times%n", getClass().getSimpleName(), USERS,
+                        GYMS, ROUNDS);
+                System.out.printf("  %8.3f ms per user read, %6d statements, %6d query cache hits%n", perUser,
+                        statements, statistics.getQueryCacheHitCount());
+            } finally {
+                gymRepository.deleteAllInBatch();
+                userRepository.deleteAllInBatch();
+            }
+        }
+
+        private double read(List<UUID> users) {
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (UUID userId : users) {
+                    assertEquals(GYMS, gymService.findGymsByUserId(userId).size());
+                }
+            }
+            return (System.nanoTime() - start) / 1e6 / (users.size() * ROUNDS);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import igym.utils.UuidV7;
+
+/**
+ * Reports the size of the tables with a status column, and of the whole
+ * database file, with the status stored as its name and as a smallint code.
+ *
+ * <p>
+ * A database is migrated up to V4, where the status is still a
+ * {@code varchar}, and seeded over JDBC with 1,000 users of 4 gyms of 5
+ * workouts of 10 exercises, a fifth of each soft-deleted. It is measured with
+ * {@link RelationSizes}, migrated to the latest version, which converts the
+ * stored statuses, checked and measured again. The database is a file-backed
+ * H2 one, compacted before each measurement, which cannot size indexes; set
+ * {@code IGYM_TEST_POSTGRES_URL} (plus {@code IGYM_TEST_POSTGRES_USERNAME} and
+ * {@code IGYM_TEST_POSTGRES_PASSWORD}) to an empty PostgreSQL database to size
+ * the indexes as well. Run with
+ * {@code mvn test -Pbenchmark -Dtest=StatusEncodingBenchmark}.
+ * </p>
+ */
+class StatusEncodingBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int GYMS = 4;
+    private static final int WORKOUTS = 5;
+    private static final int EXERCISES = 10;
+    private static final List<String> TABLES = List.of("users", "gyms", "workout", "exercise");
+
+    private static final String POSTGRES_URL = System.getenv("IGYM_TEST_POSTGRES_URL");
+
+    @TempDir
+    Path directory;
+
+    private String url;
+    private String username = "sa";
+    private String password = "";
+    private String vendor = "h2";
+
+    @Test
+    @DisplayName("Table and index size, status stored as its name versus as a smallint code")
+    void statusEncodingSize() throws Exception {
+        if (POSTGRES_URL != null && !POSTGRES_URL.isBlank()) {
+            url = POSTGRES_URL;
+            username = System.getenv().getOrDefault("IGYM_TEST_POSTGRES_USERNAME", "postgres");
+            password = System.getenv().getOrDefault("IGYM_TEST_POSTGRES_PASSWORD", "");
+            vendor = "postgresql";
+        } else {
+            url = "jdbc:h2:file:" + directory.resolve("igym") + ";DATABASE_TO_LOWER=TRUE";
+        }
+        migrate(MigrationVersion.fromVersion("4"));
+        seed();
+        Measurement before = measure();
+
+        migrate(MigrationVersion.LATEST);
+        assertEquals(USERS * GYMS * WORKOUTS * EXERCISES * 4 / 5, countActive());
+        Measurement after = measure();
+
+        System.out.printf("%nStatus encoding on %s, %,d exercises (bytes, before with varchar / smallint)%n",
+                vendor, USERS * GYMS * WORKOUTS * EXERCISES);
+        for (int i = 0; i < TABLES.size(); i++) {
+            RelationSizes.Size old = before.sizes().get(i);
+            RelationSizes.Size compact = after.sizes().get(i);
+            System.out.printf("  %-9s table %,12d / %,12d", old.table(), old.tableBytes(), compact.tableBytes());
+            if (old.indexBytes() != RelationSizes.UNKNOWN) {
+                System.out.printf(", indexes %,12d / %,12d", old.indexBytes(), compact.indexBytes());
+            }
+            System.out.println();
+        }
+        if (before.fileBytes() > 0) {
+            System.out.printf("  %-9s       %,12d / %,12d%n", "file", before.fileBytes(), after.fileBytes());
+        }
+    }
+
+    private record Measurement(List<RelationSizes.Size> sizes, long fileBytes) {
+    }
+
+    private void migrate(MigrationVersion target) {
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .locations("classpath:db/migration/common", "classpath:db/migration/" + vendor)
+                .target(target)
+                .load()
+                .migrate();
+    }
+
+    private Measurement measure() throws SQLException, java.io.IOException {
+        Path file = directory.resolve("igym.mv.db");
+        if (vendor.equals("h2")) {
+            try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN COMPACT");
+            }
+        }
+        try (Connection connection = connect()) {
+            List<RelationSizes.Size> sizes = RelationSizes.measure(connection, TABLES);
+            return new Measurement(sizes, Files.exists(file) ? Files.size(file) : 0);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    private long countActive() throws SQLException {
+        try (Connection connection = connect();
+                Statement statement = connection.createStatement();
+                ResultSet result = statement.executeQuery("SELECT count(*) FROM exercise WHERE status = 1")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private void seed() throws SQLException {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement users = connection.prepareStatement(
+                    "INSERT INTO users (id, name, password, status) VALUES (?, ?, 'hashed', ?)");
+                    PreparedStatement gyms = connection.prepareStatement(
+                            "INSERT INTO gyms (id, user_id, name, status) VALUES (?, ?, ?, ?)");
+                    PreparedStatement workouts = connection.prepareStatement(
+                            "INSERT INTO workout (id, gym_id, name, status) VALUES (?, ?, ?, ?)");
+                    PreparedStatement exercises = connection.prepareStatement(
+                            "INSERT INTO exercise (id, workout_id, name, weight, num_reps, num_sets, note, status) "
+                                    + "VALUES (?, ?, ?, 60, 10, 3, 'Keep the back straight', ?)")) {
+                for (int u = 0; u < USERS; u++) {
+                    UUID userId = UuidV7.next();
+                    add(users, userId, "User " + u, status(u));
+                    for (int g = 0; g < GYMS; g++) {
+                        UUID gymId = UuidV7.next();
+                        add(gyms, gymId, userId, "Gym " + g, status(g));
+                        for (int w = 0; w < WORKOUTS; w++) {
+                            UUID workoutId = UuidV7.next();
+                            add(workouts, workoutId, gymId, "Workout " + w, status(w));
+                            for (int e = 0; e < EXERCISES; e++) {
+                                add(exercises, UuidV7.next(), workoutId, "Exercise " + e, status(e));
+                            }
+                        }
+                    }
+                    users.executeBatch();
+                    gyms.executeBatch();
+                    workouts.executeBatch();
+                    exercises.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    private static String status(int i) {
+        return i % 5 == 4 ? "inactive" : "active";
+    }
+
+    private static void add(PreparedStatement insert, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            insert.setObject(i + 1, values[i]);
+        }
+        insert.addBatch();
+    }
+}
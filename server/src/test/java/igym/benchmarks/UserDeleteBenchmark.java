@@ -0,0 +1,173 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import igym.config.ShardRouter;
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.entities.enums.Status;
+import igym.repositories.WorkoutRepository;
+import igym.security.ApiKeyRegistry;
+import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.OwnershipIndex;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import igym.services.ActiveUsernameFilter;
+import igym.services.GymService;
+import igym.services.RefreshTokenService;
+import igym.services.SessionService;
+import igym.services.UserService;
+import igym.services.WorkoutService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures the soft deletion of a user owning 10 gyms, 1,000 workouts and
+ * 10,000 exercises against the embedded database.
+ *
+ * <p>
+ * The baseline replays what {@code UserService.deleteUser} used to do: walk
+ * the gyms, load every workout with its exercises and flip each entity, so
+ * that the flush writes one row at a time. The other run uses the current
+ * service, which issues one bulk update per table. Run with
+ * {@code mvn test -Pbenchmark -Dtest=UserDeleteBenchmark}.
+ * </p>
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ UserService.class, GymService.class, WorkoutService.class, ShardRouter.class })
+class UserDeleteBenchmark {
+
+    private static final int GYMS = 10;
+    private static final int WORKOUTS = 100;
+    private static final int EXERCISES = 10;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private WorkoutRepository workoutRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private SecurityEpochCache securityEpochCache;
+    @MockitoBean
+    private LoginGuard loginGuard;
+    @MockitoBean
+    private TokenRevocationRegistry revocationRegistry;
+    @MockitoBean
+    private ActiveUsernameFilter activeUsernameFilter;
+    @MockitoBean
+    private ApiKeyRegistry apiKeyRegistry;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private SessionService sessionService;
+
+    @Test
+    @DisplayName("Soft delete of a user with 10k exercises, before and after the bulk updates")
+    void userDeleteCost() {
+        UUID baselineUser = seed("Baseline");
+        UUID bulkUser = seed("Bulk");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        long start = System.nanoTime();
+        deleteEntityByEntity(baselineUser);
+        entityManager.flush();
+        double baseline = (System.nanoTime() - start) / 1e6;
+        long baselineStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        start = System.nanoTime();
+        userService.deleteUser(bulkUser);
+        entityManager.flush();
+        double bulk = (System.nanoTime() - start) / 1e6;
+        long bulkStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        System.out.printf("%nSoft delete of a user with %d exercises%n", GYMS * WORKOUTS * EXERCISES);
+        System.out.printf("  before (entity by entity) : %8.1f ms, %6d statements%n", baseline, baselineStatements);
+        System.out.printf("  bulk update per table     : %8.1f ms, %6d statements%n", bulk, bulkStatements);
+
+        assertEquals(2L * GYMS * WORKOUTS * EXERCISES, entityManager
+                .createQuery("SELECT count(e) FROM Exercise e WHERE e.status = :status", Long.class)
+                .setParameter("status", Status.inactive)
+                .getSingleResult());
+    }
+
+    private void deleteEntityByEntity(UUID userId) {
+        User user = entityManager.find(User.class, userId);
+        user.setStatus(Status.inactive);
+        for (Gym gym : user.getGyms()) {
+            if (gym.getStatus() != Status.active) {
+                continue;
+            }
+            for (Workout workout : gym.getWorkouts()) {
+                if (workout.getStatus() != Status.active) {
+                    continue;
+                }
+                Workout loaded = workoutRepository.findByIdAndStatus(workout.getId(), Status.active).orElseThrow();
+                loaded.setStatus(Status.inactive);
+                loaded.getExerciseList().forEach(exercise -> exercise.setStatus(Status.inactive));
+            }
+            gym.setStatus(Status.inactive);
+        }
+    }
+
+    private UUID seed(String name) {
+        User user = new User(name);
+        user.setPassword("password");
+        entityManager.persist(user);
+        for (int g = 0; g < GYMS; g++) {
+            Gym gym = new Gym(name + " Gym " + g);
+            gym.setUser(user);
+            entityManager.persist(gym);
+            for (int w = 0; w < WORKOUTS; w++) {
+                Workout workout = new Workout();
+                workout.setName("Workout " + w);
+                workout.setGym(gym);
+                List<Exercise> exercises = new ArrayList<>();
+                for (int e = 0; e < EXERCISES; e++) {
+                    Exercise exercise = new Exercise();
+                    exercise.setName("Exercise " + e);
+                    exercise.setNumReps(10);
+                    exercise.setNumSets(3);
+                    exercise.setWorkout(workout);
+                    exercises.add(exercise);
+                }
+                workout.setExerciseList(exercises);
+                entityManager.persist(workout);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            user = entityManager.getReference(User.class, user.getId());
+        }
+        return user.getId();
+    }
+}
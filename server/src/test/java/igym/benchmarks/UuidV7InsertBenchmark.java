@@ -0,0 +1,107 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import igym.utils.UuidV7;
+
+/**
+ * Measures insert throughput and on-disk size of the {@code exercise} table
+ * with random (v4) and time-ordered (v7) primary keys.
+ *
+ * <p>
+ * Each run fills a fresh file-backed H2 database with exercise rows in JDBC
+ * batches of 1,000, ten exercises per workout, and reports the overall rate,
+ * the rate over the last tenth of the rows (where random keys hurt most) and
+ * the database file size after a checkpoint. The default is 1M rows; at 10M
+ * the random-key file grows past 3 GB and H2's store gives up before the run
+ * ends. Run with
+ * {@code mvn test -Pbenchmark -Dtest=UuidV7InsertBenchmark -Dbenchmark.rows=1000000}.
+ * </p>
+ */
+class UuidV7InsertBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int BATCH = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private record Result(double rowsPerSecond, double tailRowsPerSecond, long bytes) {
+    }
+
+    @Test
+    @DisplayName("Exercise insert throughput and size, random versus time-ordered keys")
+    void uuidInsertCost() throws Exception {
+        Result random = run("v4", UUID::randomUUID);
+        Result ordered = run("v7", UuidV7::next);
+
+        System.out.printf("%nInsert of %,d exercise rows%n", ROWS);
+        print("before (random v4 keys)    ", random);
+        print("time-ordered v7 keys       ", ordered);
+
+        assertTrue(ordered.bytes() > 0 && random.bytes() > 0);
+    }
+
+    private void print(String label, Result result) {
+        System.out.printf("  %s: %,10.0f rows/s, last 10%% %,10.0f rows/s, %,8.1f MB%n", label,
+                result.rowsPerSecond(), result.tailRowsPerSecond(), result.bytes() / 1024.0 / 1024.0);
+    }
+
+    private Result run(String name, Supplier<UUID> ids) throws SQLException, java.io.IOException {
+        String url = "jdbc:h2:file:" + directory.resolve(name);
+        long start;
+        long tailStart = 0;
+        long end;
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table exercise (id uuid not null primary key, workout_id uuid not null, "
+                        + "name varchar(50) not null, num_reps integer not null, num_sets integer not null)");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("insert into exercise values (?, ?, ?, ?, ?)")) {
+                UUID workoutId = ids.get();
+                start = System.nanoTime();
+                for (int i = 0; i < ROWS; i++) {
+                    if (i == ROWS - ROWS / 10) {
+                        tailStart = System.nanoTime();
+                    }
+                    if (i % 10 == 0) {
+                        workoutId = ids.get();
+                    }
+                    insert.setObject(1, ids.get());
+                    insert.setObject(2, workoutId);
+                    insert.setString(3, "Exercise " + i % 10);
+                    insert.setInt(4, 10);
+                    insert.setInt(5, 3);
+                    insert.addBatch();
+                    if ((i + 1) % BATCH == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+                end = System.nanoTime();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CHECKPOINT SYNC");
+            }
+        }
+        long bytes = Files.size(directory.resolve(name + ".mv.db"));
+        return new Result(ROWS / ((end - start) / 1e9), (ROWS / 10) / ((end - tailStart) / 1e9), bytes);
+    }
+}
@@ -0,0 +1,135 @@
+package igym.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.security.OwnershipIndex;
+import igym.services.WorkoutService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures {@link WorkoutService#createWorkout} for workouts of 10 exercises,
+ * with JDBC batching off and on.
+ *
+ * <p>
+ * The baseline sets the session batch size to 1, which is what the service
+ * ran with before batching was configured: one INSERT round trip per
+ * exercise. The other run uses the configured batch size. Both run on plain
+ * H2 and on H2 in PostgreSQL mode, the local stand-in for the production
+ * database; the pgjdbc multi-row rewrite ({@code reWriteBatchedInserts}) only
+ * applies on a real PostgreSQL server. Run with
+ * {@code mvn test -Pbenchmark -Dtest=WorkoutInsertBenchmark*}.
+ * </p>
+ */
+class WorkoutInsertBenchmark {
+
+    private static final int WORKOUTS = 500;
+    private static final int EXERCISES = 10;
+
+    @Nested
+    @DataJpaTest(properties = { "spring.jpa.show-sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true" })
+    @Import(WorkoutService.class)
+    class H2 extends Run {
+    }
+
+    @Nested
+    @DataJpaTest(properties = { "spring.jpa.show-sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true",
+            "spring.datasource.url=jdbc:h2:mem:pgmode;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE" })
+    @AutoConfigureTestDatabase(replace = Replace.NONE)
+    @Import(WorkoutService.class)
+    class PostgresMode extends Run {
+    }
+
+    @Transactional
+    abstract static class Run {
+
+        @Autowired
+        private WorkoutService workoutService;
+        @Autowired
+        private EntityManager entityManager;
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        @MockitoBean
+        private OwnershipIndex ownershipIndex;
+
+        @Test
+        @DisplayName("Workout insert cost, one INSERT per exercise versus one batch")
+        void workoutInsertCost() {
+            User user = new User("Bench Clown");
+            user.setPassword("password");
+            entityManager.persist(user);
+            Gym gym = new Gym("Bench Gym");
+            gym.setUser(user);
+            entityManager.persist(gym);
+            entityManager.flush();
+            entityManager.clear();
+
+            Session session = entityManager.unwrap(Session.class);
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+            insert(gym, 1);
+            session.setJdbcBatchSize(1);
+            statistics.clear();
+            double unbatched = insert(gym, WORKOUTS);
+            long unbatchedStatements = statistics.getPrepareStatementCount();
+
+            session.setJdbcBatchSize(null);
+            statistics.clear();
+            double batched = insert(gym, WORKOUTS);
+            long batchedStatements = statistics.getPrepareStatementCount();
+
+            System.out.printf("%n%s: %d workouts of %d exercises%n", getClass().getSimpleName(), WORKOUTS, EXERCISES);
+            System.out.printf("  before (batch size 1) : %8.3f ms per workout, %6d statements%n",
+                    unbatched, unbatchedStatements);
+            System.out.printf("  batched               : %8.3f ms per workout, %6d statements%n",
+                    batched, batchedStatements);
+
+            assertEquals(WORKOUTS * 3L, batchedStatements, "gym lookup, workout insert and one exercise batch");
+        }
+
+        private double insert(Gym gym, int workouts) {
+            long start = System.nanoTime();
+            for (int i = 0; i < workouts; i++) {
+                Workout workout = new Workout();
+                workout.setName("Workout " + i);
+                List<Exercise> exercises = new ArrayList<>();
+                for (int e = 0; e < EXERCISES; e++) {
+                    Exercise exercise = new Exercise();
+                    exercise.setName("Exercise " + e);
+                    exercise.setNumReps(10);
+                    exercise.setNumSets(3);
+                    exercises.add(exercise);
+                }
+                workout.setExerciseList(exercises);
+                workoutService.createWorkout(workout, gym.getId());
+                entityManager.flush();
+                entityManager.clear();
+            }
+            return (System.nanoTime() - start) / 1e6 / workouts;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package igym.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.exceptions.UserNotFoundException;
+import igym.security.ApiKeyRegistry;
+import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.OwnershipIndex;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import igym.services.ActiveUsernameFilter;
+import igym.services.GymService;
+import igym.services.RefreshTokenService;
+import igym.services.SessionService;
+import igym.services.UserService;
+import igym.services.WorkoutService;
+
+/**
+ * Runs the services on two in-memory H2 databases standing in for the primary
+ * and a replica. Nothing replicates between them, so whether a row is found
+ * tells which database served the read. Each test plays one HTTP request
+ * through the {@link ConsistencyTokenFilter}.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "datasource.replicas.max-lag-ms=2000",
+        "second-level-cache.queries.ttl-ms=60000" })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(TransactionManagerCustomizationAutoConfiguration.class)
+@Import({ ReplicaDataSourceConfig.class, SecondLevelCacheConfig.class, UserService.class, GymService.class,
+        WorkoutService.class, ShardRouter.class })
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GymService gymService;
+
+    @Autowired
+    private ConsistencyTokenFilter consistencyTokenFilter;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private SecurityEpochCache securityEpochCache;
+    @MockitoBean
+    private LoginGuard loginGuard;
+    @MockitoBean
+    private TokenRevocationRegistry revocationRegistry;
+    @MockitoBean
+    private ActiveUsernameFilter activeUsernameFilter;
+    @MockitoBean
+    private ApiKeyRegistry apiKeyRegistry;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private SessionService sessionService;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load().migrate();
+        when(passwordHashingService.encode(any())).thenReturn("hashed");
+        owner = userService.createUser(newUser("Owner " + UUID.randomUUID().toString().substring(0, 8)));
+    }
+
+    private User newUser(String name) {
+        User user = new User(name);
+        user.setPassword("password");
+        return user;
+    }
+
+    private MockHttpServletResponse request(String token, Runnable work) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (token != null) {
+            request.addHeader(ConsistencyTokenFilter.HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        consistencyTokenFilter.doFilter(request, response, (req, res) -> work.run());
+        return response;
+    }
+
+    private void replicate(User user) {
+        replica.update("insert into users (id, name, password, status, version) values (?, ?, ?, 1, 0)",
+                user.getId(), user.getName(), user.getPassword());
+    }
+
+    @Test
+    @DisplayName("Should serve read-only service calls from the replica")
+    void readOnlyOnReplicaTest() throws Exception {
+        request(null, () -> assertThrows(UserNotFoundException.class, () -> userService.findById(owner.getId())));
+
+        replicate(owner);
+
+        request(null, () -> assertEquals(owner.getName(), userService.findById(owner.getId()).getName()));
+    }
+
+    @Test
+    @DisplayName("Should run writes and the reads inside them on the primary and hand out a token")
+    void writeOnPrimaryTest() throws Exception {
+        MockHttpServletResponse response = request(null,
+                () -> gymService.createGym(new Gym("Home Gym"), owner.getId()));
+
+        String token = response.getHeader(ConsistencyTokenFilter.HEADER);
+        assertNotNull(token);
+        assertTrue(Math.abs(System.currentTimeMillis() - Long.parseLong(token)) < 2000);
+    }
+
+    @Test
+    @DisplayName("Should read from the primary for the rest of a request that has written")
+    void readAfterWriteInRequestTest() throws Exception {
+        request(null, () -> {
+            gymService.createGym(new Gym("Home Gym"), owner.getId());
+            assertEquals(1, gymService.findGymsByUserId(owner.getId()).size());
+        });
+    }
+
+    @Test
+    @DisplayName("Should pin the reads of a request carrying a recent token to the primary")
+    void recentTokenPinsPrimaryTest() throws Exception {
+        String token = request(null, () -> gymService.createGym(new Gym("Home Gym"), owner.getId()))
+                .getHeader(ConsistencyTokenFilter.HEADER);
+
+        MockHttpServletResponse response = request(token,
+                () -> assertEquals(1, gymService.findGymsByUserId(owner.getId()).size()));
+
+        assertNull(response.getHeader(ConsistencyTokenFilter.HEADER));
+    }
+
+    @Test
+    @DisplayName("Should read from the replica with a token older than the lag, from the future or malformed")
+    void expiredTokenReadsReplicaTest() throws Exception {
+        long now = System.currentTimeMillis();
+
+        for (String token : new String[] { Long.toString(now - 10_000), Long.toString(now + 60_000), "latest" }) {
+            request(token, () -> assertThrows(UserNotFoundException.class,
+                    () -> gymService.findGymsByUserId(owner.getId())));
+        }
+    }
+
+    @Test
+    @DisplayName("Should not cache what a replica reads, nor serve the cache to a pinned request")
+    void replicaReadsNotCachedTest() throws Exception {
+        replicate(owner);
+        String token = request(null, () -> gymService.createGym(new Gym("Home Gym"), owner.getId()))
+                .getHeader(ConsistencyTokenFilter.HEADER);
+
+        request(null, () -> assertEquals(0, gymService.findGymsByUserId(owner.getId()).size()));
+
+        request(token, () -> assertEquals(1, gymService.findGymsByUserId(owner.getId()).size()));
+    }
+}
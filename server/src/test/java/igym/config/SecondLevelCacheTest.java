@@ -0,0 +1,129 @@
+package igym.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.repositories.GymRepository;
+import igym.repositories.UserRepository;
+import igym.security.OwnershipIndex;
+import igym.services.GymService;
+import igym.services.WorkoutService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Runs the gym service with the query cache on, each call in its own
+ * transaction as in a request, and counts the statements it takes.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+        "second-level-cache.queries.ttl-ms=60000" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ SecondLevelCacheConfig.class, GymService.class, WorkoutService.class, ShardRouter.class })
+class SecondLevelCacheTest {
+
+    @Autowired
+    private GymService gymService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GymRepository gymRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterBinder secondLevelCacheMetrics;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("Maria Clown");
+        user.setPassword("password");
+        owner = userRepository.save(user);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gymRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Should not cache users or gyms, whose versions are checked by If-Match")
+    void entitiesNotCachedTest() {
+        UUID id = gymService.createGym(new Gym("Home Gym"), owner.getId()).getId();
+        gymService.findById(id);
+
+        statistics.clear();
+        gymService.findById(id);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+    }
+
+    @Test
+    @DisplayName("Should list the gyms of a user from the cache until a gym is written")
+    void queryCacheTest() {
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+        gymService.findGymsByUserId(owner.getId());
+
+        statistics.clear();
+        assertEquals(1, gymService.findGymsByUserId(owner.getId()).size());
+        assertEquals(1, statistics.getPrepareStatementCount(), "only the check that the user exists");
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        gymService.createGym(new Gym("Garage Gym"), owner.getId());
+        assertEquals(2, gymService.findGymsByUserId(owner.getId()).size());
+
+        gymService.deleteGymsByUserId(owner.getId(), Instant.now());
+        assertEquals(0, gymService.findGymsByUserId(owner.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Should publish the hits and misses of each region")
+    void metricsTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        secondLevelCacheMetrics.bindTo(registry);
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+        double hits = gets(registry, "hit");
+        double misses = gets(registry, "miss");
+
+        gymService.findGymsByUserId(owner.getId());
+        gymService.findGymsByUserId(owner.getId());
+
+        assertTrue(gets(registry, "hit") > hits);
+        assertTrue(gets(registry, "miss") > misses);
+    }
+
+    private static double gets(MeterRegistry registry, String result) {
+        return registry.get("cache.gets").tag("cache", SecondLevelCacheConfig.QUERY_RESULTS).tag("result", result)
+                .functionCounter().count();
+    }
+}
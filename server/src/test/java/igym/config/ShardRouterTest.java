@@ -0,0 +1,78 @@
+package igym.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import igym.security.AuthenticatedUser;
+import igym.utils.UuidV7;
+
+class ShardRouterTest {
+
+    private final ShardRouter router = new ShardRouter(3, () -> null);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        router.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should spread users evenly over the shards")
+    void shardOfTest() {
+        int[] users = new int[router.count()];
+        for (int i = 0; i < 30_000; i++) {
+            users[router.shardOf(UuidV7.next())]++;
+        }
+
+        for (int count : users) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+
+    @Test
+    @DisplayName("Should run on the pinned shard, then the shard of the authenticated user, then shard 0")
+    void currentShardTest() {
+        UUID userId = UuidV7.next();
+        int userShard = router.shardOf(userId);
+        int other = (userShard + 1) % router.count();
+
+        assertEquals(ShardRouter.GLOBAL_SHARD, router.currentShard());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new AuthenticatedUser(userId, "Maria"), null, List.of()));
+        assertEquals(userShard, router.currentShard());
+
+        assertEquals(other, router.call(other, () -> {
+            assertEquals(userShard, router.forUser(userId, router::currentShard));
+            return router.currentShard();
+        }));
+        assertEquals(userShard, router.currentShard());
+    }
+
+    @Test
+    @DisplayName("Should reject a shard that does not exist")
+    void callUnknownShardTest() {
+        assertThrows(IllegalArgumentException.class, () -> router.call(3, () -> null));
+    }
+
+    @Test
+    @DisplayName("Should read back the shard a token was tagged with, and shard 0 from other tokens")
+    void tagTest() {
+        UUID userId = UuidV7.next();
+
+        assertEquals(router.shardOf(userId), router.shardOfToken(router.tag("abc-_DEF", userId)));
+        assertEquals(0, router.shardOfToken("abc-_DEF"));
+        assertEquals(0, router.shardOfToken("abc.7"));
+        assertEquals(0, router.shardOfToken("abc.x"));
+        assertEquals("abc", ShardRouter.single().tag("abc", userId));
+    }
+}
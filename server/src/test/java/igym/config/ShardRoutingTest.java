@@ -0,0 +1,212 @@
+package igym.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.dtos.UserDTO;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.exceptions.DuplicateUserException;
+import igym.security.ApiKeyRegistry;
+import igym.security.AuthenticatedUser;
+import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.OwnershipIndex;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import igym.services.ActiveUsernameFilter;
+import igym.services.GymService;
+import igym.services.RefreshTokenService;
+import igym.services.SessionService;
+import igym.services.UserService;
+import igym.services.WorkoutService;
+
+/**
+ * Runs the services on three in-memory H2 databases standing in for three
+ * shards, all migrated by Flyway at startup. Each database is also read
+ * directly to tell which shard a row was written to.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=" + ShardRoutingTest.SHARD_0,
+        "datasource.shards.urls=" + ShardRoutingTest.SHARD_1 + "," + ShardRoutingTest.SHARD_2 })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ShardDataSourceConfig.class, ShardRouter.class, UserService.class, GymService.class,
+        WorkoutService.class })
+class ShardRoutingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GymService gymService;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private SecurityEpochCache securityEpochCache;
+    @MockitoBean
+    private LoginGuard loginGuard;
+    @MockitoBean
+    private TokenRevocationRegistry revocationRegistry;
+    @MockitoBean
+    private ActiveUsernameFilter activeUsernameFilter;
+    @MockitoBean
+    private ApiKeyRegistry apiKeyRegistry;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private SessionService sessionService;
+
+    private final List<JdbcTemplate> databases = List.of(SHARD_0, SHARD_1, SHARD_2).stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+    private final List<User> created = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(passwordHashingService.encode(any())).thenReturn("hashed");
+        when(passwordHashingService.matches(any(), any())).thenReturn(true);
+        when(activeUsernameFilter.mightExist(any())).thenReturn(true);
+        for (int i = 0; i < 12; i++) {
+            created.add(userService.createUser(newUser("Sharded " + UUID.randomUUID().toString().substring(0, 8))));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        for (JdbcTemplate database : databases) {
+            database.update("delete from gyms");
+            database.update("delete from users");
+        }
+    }
+
+    private User newUser(String name) {
+        User user = new User(name);
+        user.setPassword("password");
+        return user;
+    }
+
+    private void authenticateAs(User user) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(user.getId(), user.getName()), null, List.of()));
+    }
+
+    private int shardHolding(String table, UUID id) {
+        int found = -1;
+        for (int shard = 0; shard < databases.size(); shard++) {
+            Integer rows = databases.get(shard).queryForObject("select count(*) from " + table + " where id = ?",
+                    Integer.class, id);
+            if (rows > 0) {
+                assertEquals(-1, found, "Row " + id + " is on more than one shard");
+                found = shard;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    @DisplayName("Should store each user on the shard its id maps to, spreading users over the shards")
+    void createUserOnItsShardTest() {
+        Set<Integer> used = new HashSet<>();
+        for (User user : created) {
+            assertEquals(shards.shardOf(user.getId()), shardHolding("users", user.getId()));
+            used.add(shards.shardOf(user.getId()));
+        }
+
+        assertTrue(used.size() > 1);
+    }
+
+    @Test
+    @DisplayName("Should route the requests of an authenticated user to their shard")
+    void requestsOnUserShardTest() {
+        for (User user : created) {
+            authenticateAs(user);
+            Gym gym = gymService.createGym(new Gym("Home Gym"), user.getId());
+
+            assertEquals(shards.shardOf(user.getId()), shardHolding("gyms", gym.getId()));
+            assertEquals(1, gymService.findGymsByUserId(user.getId()).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should list the users of every shard")
+    void findAllFansOutTest() {
+        List<UUID> ids = userService.findAll().stream().map(UserDTO::id).toList();
+
+        assertEquals(created.size(), ids.size());
+        assertTrue(ids.containsAll(created.stream().map(User::getId).toList()));
+    }
+
+    @Test
+    @DisplayName("Should log in a user whatever shard they are on")
+    void authenticateOnAnyShardTest() {
+        for (User user : created) {
+            assertEquals(user.getName(), userService.authenticate(user.getName(), "password", null).name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a name already taken on another shard")
+    void duplicateNameAcrossShardsTest() {
+        String name = created.get(0).getName();
+
+        assertThrows(DuplicateUserException.class, () -> userService.createUser(newUser(name)));
+        assertEquals(1, userService.findAll().stream().filter(user -> user.name().equals(name)).count());
+    }
+
+    @Test
+    @DisplayName("Should reject a name taken on another shard even when the name filter misses it")
+    void duplicateNameFilterMissTest() {
+        when(activeUsernameFilter.mightExist(any())).thenReturn(false);
+        User holder = created.get(0);
+        User other = created.stream()
+                .filter(user -> shards.shardOf(user.getId()) != shards.shardOf(holder.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertThrows(DuplicateUserException.class, () -> userService.createUser(newUser(holder.getName())));
+        authenticateAs(other);
+        assertThrows(DuplicateUserException.class,
+                () -> userService.updateUser(other.getId(), holder.getName(), null));
+    }
+}
@@ -0,0 +1,134 @@
+package igym.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import igym.dtos.CreatedApiKeyDTO;
+import igym.entities.ApiKey;
+import igym.entities.User;
+import igym.exceptions.ApiKeyNotFoundException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.security.ApiKeyAuthenticationFilter;
+import igym.security.JwtAuthenticationFilter;
+import igym.security.OwnershipGuard;
+import igym.services.ApiKeyService;
+
+@AutoConfigureMockMvc(addFilters = false)
+@WebMvcTest(ApiKeyController.class)
+@ExtendWith(MockitoExtension.class)
+public class ApiKeyControllerTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @MockitoBean
+        private ApiKeyService apiKeyService;
+
+        @MockitoBean
+        private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+        @MockitoBean
+        private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+        @MockitoBean
+        private OwnershipGuard ownershipGuard;
+
+        private final UUID userId = UUID.randomUUID();
+
+        @Test
+        @DisplayName("Should create an API key and return it once")
+        public void createApiKeyTest() throws Exception {
+                UUID keyId = UUID.randomUUID();
+                when(apiKeyService.createApiKey(userId, "nightly import"))
+                                .thenReturn(new CreatedApiKeyDTO(keyId, "nightly import", "igym_secret", Instant.now()));
+
+                mockMvc.perform(post("/api/v1/users/" + userId + "/api-keys")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"nightly import\"}"))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.id").value(keyId.toString()))
+                                .andExpect(jsonPath("$.key").value("igym_secret"));
+        }
+
+        @Test
+        @DisplayName("Should reject an API key without a valid name")
+        public void createApiKeyInvalidNameTest() throws Exception {
+                mockMvc.perform(post("/api/v1/users/" + userId + "/api-keys")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"\"}"))
+                                .andExpect(status().isUnprocessableEntity());
+
+                verify(apiKeyService, never()).createApiKey(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should list API keys without the keys themselves")
+        public void getApiKeysTest() throws Exception {
+                ApiKey apiKey = new ApiKey("nightly import", "digest", "igym_abcdefg", new User("importer"));
+                when(apiKeyService.findApiKeysByUserId(userId)).thenReturn(List.of(apiKey));
+
+                mockMvc.perform(get("/api/v1/users/" + userId + "/api-keys"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].name").value("nightly import"))
+                                .andExpect(jsonPath("$[0].prefix").value("igym_abcdefg"))
+                                .andExpect(jsonPath("$[0].key").doesNotExist())
+                                .andExpect(jsonPath("$[0].keyDigest").doesNotExist());
+        }
+
+        @Test
+        @DisplayName("Should revoke an API key")
+        public void revokeApiKeyTest() throws Exception {
+                UUID keyId = UUID.randomUUID();
+
+                mockMvc.perform(delete("/api/v1/users/" + userId + "/api-keys/" + keyId))
+                                .andExpect(status().isNoContent());
+
+                verify(apiKeyService).revokeApiKey(userId, keyId);
+        }
+
+        @Test
+        @DisplayName("Should return 404 when revoking an unknown API key")
+        public void revokeUnknownApiKeyTest() throws Exception {
+                UUID keyId = UUID.randomUUID();
+                doThrow(new ApiKeyNotFoundException("API key with id " + keyId + " not found"))
+                                .when(apiKeyService).revokeApiKey(userId, keyId);
+
+                mockMvc.perform(delete("/api/v1/users/" + userId + "/api-keys/" + keyId))
+                                .andExpect(status().isNotFound())
+                                .andExpect(jsonPath("$.message").value("API key with id " + keyId + " not found"));
+        }
+
+        @Test
+        @DisplayName("Should return 403 when managing the API keys of another user")
+        public void otherUserApiKeysTest() throws Exception {
+                doThrow(new ResourceAccessDeniedException("Access denied")).when(ownershipGuard).checkUser(userId);
+
+                mockMvc.perform(get("/api/v1/users/" + userId + "/api-keys"))
+                                .andExpect(status().isForbidden());
+
+                verify(apiKeyService, never()).findApiKeysByUserId(any());
+        }
+}
@@ -0,0 +1,40 @@
+package igym.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ETagsTest {
+
+    @Test
+    @DisplayName("Should serve a version as a strong quoted tag")
+    void ofTest() {
+        assertEquals("\"12\"", ETags.of(12));
+    }
+
+    @Test
+    @DisplayName("Should read no precondition from a missing header or a wildcard")
+    void noPreconditionTest() {
+        assertNull(ETags.expectedVersion(null));
+        assertNull(ETags.expectedVersion(" "));
+        assertNull(ETags.expectedVersion("*"));
+    }
+
+    @Test
+    @DisplayName("Should read the version of a strong tag")
+    void versionTest() {
+        assertEquals(3L, ETags.expectedVersion("\"3\""));
+        assertEquals(3L, ETags.expectedVersion(" \"3\" "));
+    }
+
+    @Test
+    @DisplayName("Should read weak, listed and foreign tags as a version that never matches")
+    void foreignTagTest() {
+        assertEquals(-1L, ETags.expectedVersion("W/\"3\""));
+        assertEquals(-1L, ETags.expectedVersion("\"3\", \"4\""));
+        assertEquals(-1L, ETags.expectedVersion("\"abc\""));
+        assertEquals(-1L, ETags.expectedVersion("3"));
+    }
+}
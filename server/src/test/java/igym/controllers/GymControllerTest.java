@@ -1,31 +1,41 @@
 package igym.controllers;
 
+import igym.dtos.GymDTO;
 import igym.entities.Gym;
 import igym.entities.User;
 import igym.entities.enums.Status;
 import igym.exceptions.DuplicateGymException;
 import igym.exceptions.GymNotFoundException;
+import igym.exceptions.PreconditionFailedException;
 import igym.exceptions.UserNotFoundException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.security.ApiKeyAuthenticationFilter;
 import igym.security.JwtAuthenticationFilter;
+import igym.security.OwnershipGuard;
 import igym.services.GymService;
 import jakarta.validation.Validator;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
@@ -38,6 +48,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
@@ -57,6 +68,14 @@ public class GymControllerTest {
         @MockBean
         private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+        @SuppressWarnings("removal")
+        @MockBean
+        private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+        @SuppressWarnings("removal")
+        @MockBean
+        private OwnershipGuard ownershipGuard;
+
         @Autowired
         Validator validator;
 
@@ -97,24 +116,41 @@ public class GymControllerTest {
         }
 
         @Test
-        @DisplayName("should return 409 Conflict when gym name already exists for this user")
+        @DisplayName("should return 409 Conflict when the insert hits the unique index on active gym names")
         void testCreateGymWithDuplicateName() throws Exception {
                 when(gymService.createGym(any(Gym.class), any(UUID.class)))
-                                .thenThrow(new DuplicateGymException(
-                                                "A gym with the name 'Location 1' already exists for this user"));
+                                .thenThrow(constraintViolation("gyms_user_id_name_active_key"));
 
                 mockMvc.perform(post("/api/v1/gyms/{userId}", userId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(gym1.getName())))
                                 .andExpect(status().isConflict())
                                 .andExpect(jsonPath("$.message")
-                                                .value("A gym with the name 'Location 1' already exists for this user"))
+                                                .value("A gym with this name already exists for this user"))
                                 .andExpect(jsonPath("$.status").value(409))
                                 .andExpect(jsonPath("$.error").value("Conflict"));
 
                 verify(gymService, times(1)).createGym(any(Gym.class), any(UUID.class));
         }
 
+        @Test
+        @DisplayName("should return 500 Internal Server Error when the insert hits any other constraint")
+        void testCreateGymWithOtherViolation() throws Exception {
+                when(gymService.createGym(any(Gym.class), any(UUID.class)))
+                                .thenThrow(constraintViolation("gyms_user_id_fk"));
+
+                mockMvc.perform(post("/api/v1/gyms/{userId}", userId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(gym1.getName())))
+                                .andExpect(status().isInternalServerError());
+        }
+
+        private static DataIntegrityViolationException constraintViolation(String constraint) {
+                return new DataIntegrityViolationException("could not execute statement",
+                                new ConstraintViolationException("could not execute statement",
+                                                new SQLException("constraint violated"), constraint));
+        }
+
         @Test
         @DisplayName("should return 422 Unprocessable Entity when name is null")
         void testCreateGymWithNullName() throws Exception {
@@ -172,7 +208,7 @@ public class GymControllerTest {
         @Test
         @DisplayName("should return all the gyms from the service and status 200")
         void testFindAllGymsSuccess() throws Exception {
-                List<Gym> gyms = Arrays.asList(gym1, gym2);
+                List<GymDTO> gyms = Arrays.asList(new GymDTO(gym1), new GymDTO(gym2));
                 when(gymService.findAll()).thenReturn(gyms);
 
                 mockMvc.perform(get("/api/v1/gyms"))
@@ -229,35 +265,76 @@ public class GymControllerTest {
         @Test
         @DisplayName("should update a existing gym and return status 200")
         void testUpdateGymSuccess() throws Exception {
-                when(gymService.updateGym(gymId, gym1.getName())).thenReturn(gym1);
+                when(gymService.updateGym(gymId, gym1.getName(), null)).thenReturn(gym1);
                 mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(gym1.getName())))
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.id").value(gym1.getId().toString()))
-                                .andExpect(jsonPath("$.name").value(gym1.getName()));
-                verify(gymService, times(1)).updateGym(gymId, gym1.getName());
+                                .andExpect(jsonPath("$.name").value(gym1.getName()))
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+                verify(gymService, times(1)).updateGym(gymId, gym1.getName(), null);
+        }
+
+        @Test
+        @DisplayName("should pass the If-Match version to the update and return the new ETag")
+        void testUpdateGymIfMatch() throws Exception {
+                ReflectionTestUtils.setField(gym1, "version", 4L);
+                when(gymService.updateGym(gymId, gym1.getName(), 3L)).thenReturn(gym1);
+                mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(gym1.getName())))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                                .andExpect(jsonPath("$.version").value(4));
+        }
+
+        @Test
+        @DisplayName("should return 412 when the gym is no longer at the If-Match version")
+        void testUpdateGymStaleIfMatch() throws Exception {
+                doThrow(new PreconditionFailedException("Gym with id " + gymId + " has been modified"))
+                                .when(gymService).updateGym(gymId, gym1.getName(), 3L);
+                mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(gym1.getName())))
+                                .andExpect(status().isPreconditionFailed())
+                                .andExpect(jsonPath("$.message").value("Gym with id " + gymId + " has been modified"))
+                                .andExpect(jsonPath("$.error").value("Precondition Failed"));
+        }
+
+        @Test
+        @DisplayName("should return 412 when a concurrent update wins the race for the gym row")
+        void testUpdateGymConcurrentUpdate() throws Exception {
+                doThrow(new ObjectOptimisticLockingFailureException(Gym.class, gymId))
+                                .when(gymService).updateGym(gymId, gym1.getName(), null);
+                mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(gym1.getName())))
+                                .andExpect(status().isPreconditionFailed())
+                                .andExpect(jsonPath("$.message").value("The resource was modified by another request"));
         }
 
         @Test
         @DisplayName("should return 404 when trying to update a non existing gym")
         void testUpdateGymNotFound() throws Exception {
                 doThrow(new GymNotFoundException("Gym with id " + gymId + " not found."))
-                                .when(gymService).updateGym(gymId, gym1.getName());
+                                .when(gymService).updateGym(gymId, gym1.getName(), null);
                 mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(gym1.getName())))
                                 .andExpect(status().isNotFound())
                                 .andExpect(jsonPath("$.message").value("Gym with id " + gymId + " not found."))
                                 .andExpect(jsonPath("$.error").value("Not Found"));
-                verify(gymService, times(1)).updateGym(gymId, gym1.getName());
+                verify(gymService, times(1)).updateGym(gymId, gym1.getName(), null);
         }
 
         @Test
         @DisplayName("should return 409 when trying to update a gym with name already in use")
         void testUpdateGymNameAlreadyInUse() throws Exception {
                 doThrow(new DuplicateGymException("A gym with the name '" + gym1.getName() + "' already exists."))
-                                .when(gymService).updateGym(gymId, gym1.getName());
+                                .when(gymService).updateGym(gymId, gym1.getName(), null);
                 mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(gym1.getName())))
@@ -265,7 +342,7 @@ public class GymControllerTest {
                                 .andExpect(jsonPath("$.message")
                                                 .value("A gym with the name '" + gym1.getName() + "' already exists."))
                                 .andExpect(jsonPath("$.error").value("Conflict"));
-                verify(gymService, times(1)).updateGym(gymId, gym1.getName());
+                verify(gymService, times(1)).updateGym(gymId, gym1.getName(), null);
         }
 
         @Test
@@ -283,7 +360,7 @@ public class GymControllerTest {
                                                 "Name cannot be blank",
                                                 "Name must be between 3 and 50 characters")));
 
-                verify(gymService, never()).updateGym(any(), any());
+                verify(gymService, never()).updateGym(any(), any(), any());
         }
 
         @Test
@@ -291,7 +368,7 @@ public class GymControllerTest {
         void testUpdateGymInactive() throws Exception {
                 gym1.setStatus(Status.inactive);
                 doThrow(new GymNotFoundException("Gym with id " + gymId + " not found."))
-                                .when(gymService).updateGym(gymId, gym1.getName());
+                                .when(gymService).updateGym(gymId, gym1.getName(), null);
 
                 mockMvc.perform(patch("/api/v1/gyms/{gymId}", gymId)
                                 .contentType(MediaType.APPLICATION_JSON)
@@ -300,7 +377,7 @@ public class GymControllerTest {
                                 .andExpect(jsonPath("$.message").value("Gym with id " + gymId + " not found."))
                                 .andExpect(jsonPath("$.error").value("Not Found"));
 
-                verify(gymService, times(1)).updateGym(gymId, gym1.getName());
+                verify(gymService, times(1)).updateGym(gymId, gym1.getName(), null);
         }
 
         @Test
@@ -322,7 +399,7 @@ public class GymControllerTest {
         @Test
         @DisplayName("should return active gyms for a given user ID")
         void testGetGymsByUserIdSuccess() throws Exception {
-                List<Gym> gyms = List.of(gym1, gym2);
+                List<GymDTO> gyms = List.of(new GymDTO(gym1), new GymDTO(gym2));
 
                 when(gymService.findGymsByUserId(userId)).thenReturn(gyms);
 
@@ -360,4 +437,30 @@ public class GymControllerTest {
                 verify(gymService).findGymsByUserId(userId);
         }
 
-}
\ No newline at end of file
+        @Test
+        @DisplayName("should return 403 without updating when the gym belongs to another user")
+        void testUpdateGymOfAnotherUser() throws Exception {
+                doThrow(new ResourceAccessDeniedException("You do not have access to this gym"))
+                                .when(ownershipGuard).checkGym(gymId);
+
+                mockMvc.perform(patch("/api/v1/gyms/{id}", gymId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"Location 3\"}"))
+                                .andExpect(status().isForbidden())
+                                .andExpect(jsonPath("$.message").value("You do not have access to this gym"));
+
+                verifyNoInteractions(gymService);
+        }
+
+        @Test
+        @DisplayName("should return 403 when listing the gyms of another user")
+        void testGetGymsOfAnotherUser() throws Exception {
+                doThrow(new ResourceAccessDeniedException("You do not have access to this user"))
+                                .when(ownershipGuard).checkUser(userId);
+
+                mockMvc.perform(get("/api/v1/users/{userId}/gyms", userId))
+                                .andExpect(status().isForbidden());
+
+                verifyNoInteractions(gymService);
+        }
+}
@@ -8,16 +8,20 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -27,6 +31,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,15 +40,26 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 
 import igym.dtos.LoginRequestDTO;
 import igym.dtos.LoginResponseDTO;
+import igym.dtos.SessionDTO;
+import igym.dtos.UserDTO;
 import igym.entities.User;
 import igym.exceptions.UserNotFoundException;
+import igym.security.ApiKeyAuthenticationFilter;
 import igym.security.JwtAuthenticationFilter;
+import igym.security.LoginGuard;
+import igym.security.OwnershipGuard;
 import igym.exceptions.DuplicateUserException;
 import igym.exceptions.InvalidCredentialsException;
+import igym.exceptions.LoginThrottledException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.exceptions.PasswordHashingBusyException;
+import igym.services.SessionService;
 import igym.services.UserService;
 import jakarta.validation.Validator;
 import igym.dtos.UpdateUserNameDTO;
@@ -62,6 +78,18 @@ public class UserControllerTest {
         @MockitoBean
         private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+        @MockitoBean
+        private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+        @MockitoBean
+        private LoginGuard loginGuard;
+
+        @MockitoBean
+        private OwnershipGuard ownershipGuard;
+
+        @MockitoBean
+        private SessionService sessionService;
+
         @Autowired
         Validator validator;
 
@@ -79,9 +107,9 @@ public class UserControllerTest {
         @Test
         @DisplayName("Should return all saved users")
         public void findAllTest() throws Exception {
-                List<User> users = new ArrayList<>();
-                users.add(user1);
-                users.add(user2);
+                List<UserDTO> users = new ArrayList<>();
+                users.add(new UserDTO(user1));
+                users.add(new UserDTO(user2));
 
                 when(userService.findAll()).thenReturn(users);
 
@@ -94,7 +122,7 @@ public class UserControllerTest {
         @Test
         @DisplayName("Should return an empty list of users")
         public void findEmptyTest() throws Exception {
-                when(userService.findAll()).thenReturn(new ArrayList<User>());
+                when(userService.findAll()).thenReturn(new ArrayList<UserDTO>());
 
                 mockMvc.perform(get("/api/v1/users"))
                                 .andExpect(status().isOk())
@@ -231,16 +259,16 @@ public class UserControllerTest {
         @DisplayName("Should return status 409 when creating duplicate user")
         void createDuplicateUserTest() throws Exception {
                 when(userService.createUser(any(User.class))).thenThrow(
-                                new DuplicateUserException("An user with the name " + user1.getName()
-                                                + " already exists."));
+                                new DataIntegrityViolationException("could not execute statement",
+                                                new ConstraintViolationException("could not execute statement",
+                                                                new SQLException("constraint violated"),
+                                                                "users_name_active_key")));
 
                 mockMvc.perform(post("/api/v1/users")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(user1)))
                                 .andExpect(status().isConflict())
-                                .andExpect(jsonPath("$.message")
-                                                .value("An user with the name " + user1.getName()
-                                                                + " already exists."))
+                                .andExpect(jsonPath("$.message").value("A user with this name already exists"))
                                 .andExpect(jsonPath("$.error").value("Conflict"));
 
                 verify(userService, times(1)).createUser(any(User.class));
@@ -249,35 +277,49 @@ public class UserControllerTest {
         @Test
         @DisplayName("should update a existing user and return status 200")
         void testUpdateUserSuccess() throws Exception {
-                when(userService.updateUser(userId, user1.getName())).thenReturn(user1);
+                when(userService.updateUser(userId, user1.getName(), null)).thenReturn(user1);
                 mockMvc.perform(patch("/api/v1/users/{id}", userId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(user1)))
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.id").value(user1.getId()))
-                                .andExpect(jsonPath("$.name").value(user1.getName()));
-                verify(userService, times(1)).updateUser(userId, user1.getName());
+                                .andExpect(jsonPath("$.name").value(user1.getName()))
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+                verify(userService, times(1)).updateUser(userId, user1.getName(), null);
+        }
+
+        @Test
+        @DisplayName("should return 412 when the user is no longer at the If-Match version")
+        void testUpdateUserStaleIfMatch() throws Exception {
+                doThrow(new PreconditionFailedException("User with id " + userId + " has been modified"))
+                                .when(userService).updateUser(userId, user1.getName(), 1L);
+                mockMvc.perform(patch("/api/v1/users/{id}", userId)
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(user1)))
+                                .andExpect(status().isPreconditionFailed())
+                                .andExpect(jsonPath("$.message").value("User with id " + userId + " has been modified"));
         }
 
         @Test
         @DisplayName("should return 404 when trying to update a non existing user")
         void testUpdateUserNotFound() throws Exception {
                 doThrow(new UserNotFoundException("User with id " + userId + " not found."))
-                                .when(userService).updateUser(userId, user1.getName());
+                                .when(userService).updateUser(userId, user1.getName(), null);
                 mockMvc.perform(patch("/api/v1/users/{id}", userId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(user1)))
                                 .andExpect(status().isNotFound())
                                 .andExpect(jsonPath("$.message").value("User with id " + userId + " not found."))
                                 .andExpect(jsonPath("$.error").value("Not Found"));
-                verify(userService, times(1)).updateUser(userId, user1.getName());
+                verify(userService, times(1)).updateUser(userId, user1.getName(), null);
         }
 
         @Test
         @DisplayName("should return 409 when trying to update a user with name already in use")
         void testUpdateUserNameAlreadyInUse() throws Exception {
                 doThrow(new DuplicateUserException("A user with the name '" + user1.getName() + "' already exists."))
-                                .when(userService).updateUser(userId, user1.getName());
+                                .when(userService).updateUser(userId, user1.getName(), null);
                 mockMvc.perform(patch("/api/v1/users/{id}", userId)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(user1)))
@@ -286,7 +328,7 @@ public class UserControllerTest {
                                                 .value("A user with the name '" + user1.getName()
                                                                 + "' already exists."))
                                 .andExpect(jsonPath("$.error").value("Conflict"));
-                verify(userService, times(1)).updateUser(userId, user1.getName());
+                verify(userService, times(1)).updateUser(userId, user1.getName(), null);
         }
 
         @Test
@@ -303,25 +345,28 @@ public class UserControllerTest {
                                                 "Name cannot be blank",
                                                 "Name must be between 3 and 50 characters")));
 
-                verify(userService, never()).updateUser(any(), any());
+                verify(userService, never()).updateUser(any(), any(), any());
         }
 
         @Test
         @DisplayName("should return 200 when trying to login with valid credentials")
         void testLoginValidCredentials() throws Exception {
                 LoginRequestDTO request = new LoginRequestDTO("user", "password");
-                LoginResponseDTO response = new LoginResponseDTO("tokenExample", request.name());
+                LoginResponseDTO response = new LoginResponseDTO("tokenExample", request.name(), "refreshExample");
 
-                when(userService.authenticate(request.name(), request.password())).thenReturn(response);
+                when(userService.authenticate(request.name(), request.password(), null)).thenReturn(response);
 
                 mockMvc.perform(post("/api/v1/login")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(request)))
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.name").value(request.name()))
-                                .andExpect(jsonPath("$.token").value(response.token()));
+                                .andExpect(jsonPath("$.token").value(response.token()))
+                                .andExpect(jsonPath("$.refreshToken").value(response.refreshToken()));
                                 
-                verify(userService, times(1)).authenticate(request.name(), request.password());
+                verify(userService, times(1)).authenticate(request.name(), request.password(), null);
+                verify(loginGuard, times(1)).checkAttempt(request.name(), "127.0.0.1");
+                verify(loginGuard, times(1)).recordSuccess(request.name());
         }
 
         @Test
@@ -330,7 +375,7 @@ public class UserControllerTest {
                 LoginRequestDTO request = new LoginRequestDTO("user", "password");
                 
                 doThrow(new UserNotFoundException("User not found"))
-                                .when(userService).authenticate(request.name(),request.password());
+                                .when(userService).authenticate(request.name(),request.password(), null);
 
                 mockMvc.perform(post("/api/v1/login")
                                 .contentType(MediaType.APPLICATION_JSON)
@@ -339,7 +384,8 @@ public class UserControllerTest {
                                 .andExpect(jsonPath("$.message").value("User not found"))
                                 .andExpect(jsonPath("$.error").value("Not Found"));
                                 
-                verify(userService, times(1)).authenticate(request.name(), request.password());
+                verify(userService, times(1)).authenticate(request.name(), request.password(), null);
+                verify(loginGuard, times(1)).recordUnknownUser(request.name());
         }
 
         @Test
@@ -348,7 +394,7 @@ public class UserControllerTest {
                 LoginRequestDTO request = new LoginRequestDTO("user", "password");
 
                 doThrow(new InvalidCredentialsException("Invalid credentials provided"))
-                                .when(userService).authenticate(request.name(),request.password());
+                                .when(userService).authenticate(request.name(),request.password(), null);
 
                 mockMvc.perform(post("/api/v1/login")
                                 .contentType(MediaType.APPLICATION_JSON)
@@ -357,6 +403,175 @@ public class UserControllerTest {
                                 .andExpect(jsonPath("$.message").value("Invalid credentials provided"))
                                 .andExpect(jsonPath("$.error").value("Unauthorized"));
                                 
-                verify(userService, times(1)).authenticate(request.name(), request.password());
+                verify(userService, times(1)).authenticate(request.name(), request.password(), null);
+                verify(loginGuard, times(1)).recordFailure(request.name());
+        }
+
+        @Test
+        @DisplayName("should return 503 with Retry-After when the password-hashing executor is saturated")
+        void testLoginHashingBusy() throws Exception {
+                LoginRequestDTO request = new LoginRequestDTO("user", "password");
+
+                doThrow(new PasswordHashingBusyException("Too many concurrent authentication requests, try again later", 2))
+                                .when(userService).authenticate(request.name(), request.password(), null);
+
+                mockMvc.perform(post("/api/v1/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                                .andExpect(status().isServiceUnavailable())
+                                .andExpect(header().string("Retry-After", "2"))
+                                .andExpect(jsonPath("$.error").value("Service Unavailable"));
+        }
+
+        @Test
+        @DisplayName("should return 429 with Retry-After without authenticating when the login guard throttles")
+        void testLoginThrottled() throws Exception {
+                LoginRequestDTO request = new LoginRequestDTO("user", "password");
+
+                doThrow(new LoginThrottledException("Too many login attempts, try again later", 4))
+                                .when(loginGuard).checkAttempt(any(), any());
+
+                mockMvc.perform(post("/api/v1/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                                .andExpect(status().isTooManyRequests())
+                                .andExpect(header().string("Retry-After", "4"))
+                                .andExpect(jsonPath("$.error").value("Too Many Requests"));
+
+                verify(userService, never()).authenticate(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("should return the open sessions of the user")
+        void testGetSessions() throws Exception {
+                UUID sessionId = UUID.randomUUID();
+                when(sessionService.findSessionsByUserId(userId)).thenReturn(List.of(
+                                new SessionDTO(sessionId, "Firefox", Instant.now(), Instant.now())));
+
+                mockMvc.perform(get("/api/v1/users/" + userId + "/sessions"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].id").value(sessionId.toString()))
+                                .andExpect(jsonPath("$[0].device").value("Firefox"));
+
+                verify(ownershipGuard, times(1)).checkUser(userId);
+        }
+
+        @Test
+        @DisplayName("should return 403 when listing the sessions of another user")
+        void testGetSessionsOfAnotherUser() throws Exception {
+                doThrow(new ResourceAccessDeniedException("You do not have access to this user"))
+                                .when(ownershipGuard).checkUser(userId);
+
+                mockMvc.perform(get("/api/v1/users/" + userId + "/sessions"))
+                                .andExpect(status().isForbidden());
+
+                verify(sessionService, never()).findSessionsByUserId(any());
+        }
+
+        @Test
+        @DisplayName("should pass the user agent of the client on login")
+        void testLoginUserAgent() throws Exception {
+                LoginRequestDTO request = new LoginRequestDTO("user", "password");
+
+                mockMvc.perform(post("/api/v1/login")
+                                .header("User-Agent", "Firefox")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                                .andExpect(status().isOk());
+
+                verify(userService, times(1)).authenticate("user", "password", "Firefox");
+        }
+
+        @Test
+        @DisplayName("should return 204 and revoke the bearer token on logout")
+        void testLogout() throws Exception {
+                mockMvc.perform(post("/api/v1/logout")
+                                .header("Authorization", "Bearer tokenExample"))
+                                .andExpect(status().isNoContent());
+
+                verify(userService, times(1)).logout("tokenExample", null);
+        }
+
+        @Test
+        @DisplayName("should return 204 and revoke the refresh token sent on logout")
+        void testLogoutWithRefreshToken() throws Exception {
+                mockMvc.perform(post("/api/v1/logout")
+                                .header("Authorization", "Bearer tokenExample")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"refreshExample\"}"))
+                                .andExpect(status().isNoContent());
+
+                verify(userService, times(1)).logout("tokenExample", "refreshExample");
+        }
+
+        @Test
+        @DisplayName("should return 200 with new tokens on refresh")
+        void testRefresh() throws Exception {
+                when(userService.refresh("refreshExample"))
+                                .thenReturn(new LoginResponseDTO("tokenExample", "user", "nextRefresh"));
+
+                mockMvc.perform(post("/api/v1/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"refreshExample\"}"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.token").value("tokenExample"))
+                                .andExpect(jsonPath("$.refreshToken").value("nextRefresh"));
+        }
+
+        @Test
+        @DisplayName("should return 401 on refresh with a rejected refresh token")
+        void testRefreshRejected() throws Exception {
+                when(userService.refresh("reused"))
+                                .thenThrow(new InvalidCredentialsException("Invalid refresh token"));
+
+                mockMvc.perform(post("/api/v1/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"reused\"}"))
+                                .andExpect(status().isUnauthorized())
+                                .andExpect(jsonPath("$.message").value("Invalid refresh token"));
+        }
+
+        @Test
+        @DisplayName("should return 422 on refresh without a refresh token")
+        void testRefreshBlank() throws Exception {
+                mockMvc.perform(post("/api/v1/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"\"}"))
+                                .andExpect(status().isUnprocessableEntity());
+
+                verify(userService, never()).refresh(any());
+        }
+
+        @Test
+        @DisplayName("should return 401 on logout without a bearer token")
+        void testLogoutWithoutBearerToken() throws Exception {
+                mockMvc.perform(post("/api/v1/logout")
+                                .header("Authorization", "Basic abc"))
+                                .andExpect(status().isUnauthorized());
+
+                verify(userService, never()).logout(any(), any());
+        }
+
+        @Test
+        @DisplayName("should return 403 without deleting when the id is not the authenticated user")
+        void testDeleteAnotherUser() throws Exception {
+                doThrow(new ResourceAccessDeniedException("You do not have access to this user"))
+                                .when(ownershipGuard).checkUser(userId);
+
+                mockMvc.perform(delete("/api/v1/users/{id}", userId))
+                                .andExpect(status().isForbidden());
+
+                verify(userService, never()).deleteUser(any());
+        }
+
+        @Test
+        @DisplayName("should return the availability of a username")
+        void testCheckAvailability() throws Exception {
+                when(userService.isNameAvailable("newcomer")).thenReturn(true);
+
+                mockMvc.perform(get("/api/v1/users/availability").param("name", "newcomer"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.name").value("newcomer"))
+                                .andExpect(jsonPath("$.available").value(true));
         }
 }
@@ -2,12 +2,17 @@ package igym.controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import igym.dtos.WorkoutDTO;
 import igym.entities.Exercise;
 import igym.entities.Gym;
 import igym.entities.Workout;
 import igym.exceptions.ExerciseNotFoundException;
 import igym.exceptions.WorkoutNotFoundException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.security.ApiKeyAuthenticationFilter;
 import igym.security.JwtAuthenticationFilter;
+import igym.security.OwnershipGuard;
 import igym.services.WorkoutService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -21,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +60,14 @@ public class WorkoutControllerTest {
         @MockBean
         private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+        @SuppressWarnings("removal")
+        @MockBean
+        private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+        @SuppressWarnings("removal")
+        @MockBean
+        private OwnershipGuard ownershipGuard;
+
         private final ObjectMapper objectMapper = new ObjectMapper();
 
         Workout workout;
@@ -229,7 +243,8 @@ public class WorkoutControllerTest {
                 workout2.setGym(gym);
                 ex2.setWorkout(workout2);
 
-                when(workoutService.getWorkoutsByGymId(gymId)).thenReturn(List.of(workout, workout2));
+                when(workoutService.getWorkoutsByGymId(gymId))
+                                .thenReturn(List.of(new WorkoutDTO(workout), new WorkoutDTO(workout2)));
 
                 mockMvc.perform(get("/api/v1/gyms/{gymId}/workouts", gymId)
                                 .contentType(MediaType.APPLICATION_JSON))
@@ -299,7 +314,7 @@ public class WorkoutControllerTest {
         void testUpdateWorkout() throws Exception {
                 UUID workoutId = UUID.randomUUID();
 
-                when(workoutService.updateWorkout(eq(workoutId), any(Workout.class))).thenReturn(workout);
+                when(workoutService.updateWorkout(eq(workoutId), any(Workout.class), isNull())).thenReturn(workout);
 
                 mockMvc.perform(patch("/api/v1/workouts/{id}", workoutId)
                                 .contentType(MediaType.APPLICATION_JSON)
@@ -308,7 +323,78 @@ public class WorkoutControllerTest {
                                 .andExpect(jsonPath("$.name").value(workout.getName()))
                                 .andExpect(jsonPath("$.exerciseList[0].name").value("Squat"));
 
-                verify(workoutService, times(1)).updateWorkout(eq(workoutId), any(Workout.class));
+                verify(workoutService, times(1)).updateWorkout(eq(workoutId), any(Workout.class), isNull());
+        }
+
+        @Test
+        @DisplayName("should pass the If-Match version to the update and return the new ETag")
+        void testUpdateWorkoutIfMatch() throws Exception {
+                UUID workoutId = UUID.randomUUID();
+                ReflectionTestUtils.setField(workout, "version", 8L);
+
+                when(workoutService.updateWorkout(eq(workoutId), any(Workout.class), eq(7L))).thenReturn(workout);
+
+                mockMvc.perform(patch("/api/v1/workouts/{id}", workoutId)
+                                .header(HttpHeaders.IF_MATCH, "\"7\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(workout)))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"8\""))
+                                .andExpect(jsonPath("$.version").value(8));
         }
 
+        @Test
+        @DisplayName("should return 412 when the If-Match header is not an ETag of this API")
+        void testUpdateWorkoutForeignIfMatch() throws Exception {
+                UUID workoutId = UUID.randomUUID();
+
+                when(workoutService.updateWorkout(eq(workoutId), any(Workout.class), eq(-1L)))
+                                .thenThrow(new PreconditionFailedException("Workout with id " + workoutId
+                                                + " has been modified"));
+
+                mockMvc.perform(patch("/api/v1/workouts/{id}", workoutId)
+                                .header(HttpHeaders.IF_MATCH, "W/\"7\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(workout)))
+                                .andExpect(status().isPreconditionFailed());
+        }
+
+        @Test
+        @DisplayName("should return 403 without deleting when the workout belongs to another user")
+        void testDeleteWorkoutOfAnotherUser() throws Exception {
+                UUID workoutId = UUID.randomUUID();
+                doThrow(new ResourceAccessDeniedException("You do not have access to this workout"))
+                                .when(ownershipGuard).checkWorkout(workoutId);
+
+                mockMvc.perform(delete("/api/v1/workouts/{id}", workoutId))
+                                .andExpect(status().isForbidden())
+                                .andExpect(jsonPath("$.error").value("Forbidden"));
+
+                verifyNoInteractions(workoutService);
+        }
+
+        @Test
+        @DisplayName("should return 403 when listing the workouts of a gym of another user")
+        void testGetWorkoutsOfAnotherUsersGym() throws Exception {
+                doThrow(new ResourceAccessDeniedException("You do not have access to this gym"))
+                                .when(ownershipGuard).checkGym(gymId);
+
+                mockMvc.perform(get("/api/v1/gyms/{gymId}/workouts", gymId))
+                                .andExpect(status().isForbidden());
+
+                verifyNoInteractions(workoutService);
+        }
+
+        @Test
+        @DisplayName("should return 403 when deleting an exercise of another user")
+        void testDeleteExerciseOfAnotherUser() throws Exception {
+                UUID exerciseId = UUID.randomUUID();
+                doThrow(new ResourceAccessDeniedException("You do not have access to this exercise"))
+                                .when(ownershipGuard).checkExercise(exerciseId);
+
+                mockMvc.perform(delete("/api/v1/exercises/{id}", exerciseId))
+                                .andExpect(status().isForbidden());
+
+                verifyNoInteractions(workoutService);
+        }
 }
@@ -55,6 +55,20 @@ class ExerciseTest {
         assertFalse(violations.isEmpty(), "Expected violation for name: " + invalidName);
     }
 
+    @Test
+    @DisplayName("Test note longer than its column")
+    void testTooLongNote() {
+        Exercise ex = new Exercise();
+        ex.setName("Bench Press");
+        ex.setWeight(60);
+        ex.setNumReps(10);
+        ex.setNumSets(4);
+        ex.setNote("a".repeat(256));
+
+        Set<ConstraintViolation<Exercise>> violations = validator.validate(ex);
+        assertEquals(1, violations.size(), "Expected one violation for a 256 character note");
+    }
+
     @ParameterizedTest
     @ValueSource(doubles = { -10, -0.1 })
     @DisplayName("Test invalid exercise weights")
@@ -0,0 +1,37 @@
+package igym.entities.enums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class StatusConverterTest {
+
+    private final StatusConverter converter = new StatusConverter();
+
+    @ParameterizedTest
+    @EnumSource(Status.class)
+    @DisplayName("Should read back every status from its stored code")
+    void roundTripTest(Status status) {
+        assertEquals(status, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(status)));
+    }
+
+    @Test
+    @DisplayName("Should store active as 1 and inactive as 0, as the migrated rows are")
+    void codesTest() {
+        assertEquals((short) 1, converter.convertToDatabaseColumn(Status.active));
+        assertEquals((short) 0, converter.convertToDatabaseColumn(Status.inactive));
+    }
+
+    @Test
+    @DisplayName("Should keep nulls and reject unknown codes")
+    void nullAndUnknownTest() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute((short) 7));
+    }
+}
@@ -0,0 +1,144 @@
+package igym.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import igym.dtos.ExerciseDTO;
+import igym.dtos.GymDTO;
+import igym.dtos.UserDTO;
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.entities.enums.Status;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures the statements each read use case issues, so that a change to the
+ * fetch plans of the entities shows up as a failing count.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanTest {
+
+    @Autowired
+    private GymRepository gymRepository;
+
+    @Autowired
+    private WorkoutRepository workoutRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Workout workout;
+    private Exercise exercise;
+
+    @BeforeEach
+    void setUp() {
+        for (int u = 0; u < 3; u++) {
+            User user = new User("Owner " + u);
+            user.setPassword("password");
+            entityManager.persist(user);
+            for (int g = 0; g < 2; g++) {
+                Gym gym = new Gym("Gym " + u + "-" + g);
+                gym.setUser(user);
+                entityManager.persist(gym);
+
+                workout = new Workout();
+                workout.setName("Workout " + u + "-" + g);
+                workout.setGym(gym);
+                exercise = new Exercise();
+                exercise.setName("Squat");
+                exercise.setNumReps(10);
+                exercise.setNumSets(3);
+                exercise.setWorkout(workout);
+                workout.setExerciseList(List.of(exercise));
+                entityManager.persist(workout);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should list gyms with one statement and without loading any entity")
+    void gymListTest() {
+        List<GymDTO> gyms = gymRepository.findDTOsByStatus(Status.active);
+
+        assertEquals(6, gyms.size());
+        assertTrue(gyms.stream().allMatch(gym -> gym.user_id() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should list users with one statement and without loading any entity")
+    void userListTest() {
+        List<UserDTO> users = userRepository.findDTOsByStatus(Status.active);
+
+        assertEquals(3, users.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should load a workout with its exercises and their notes in one statement and without its gym")
+    void workoutWithExercisesTest() {
+        Workout loaded = workoutRepository.findByIdAndStatus(workout.getId(), Status.active).orElseThrow();
+
+        assertTrue(Hibernate.isInitialized(loaded.getExerciseList()));
+        assertEquals(1, loaded.getExerciseList().size());
+        assertTrue(Hibernate.isPropertyInitialized(loaded.getExerciseList().get(0), "note"));
+        assertFalse(Hibernate.isInitialized(loaded.getGym()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should load an exercise with one statement, its note on first access and never its workout")
+    void exerciseTest() {
+        Exercise loaded = exerciseRepository.findByIdAndStatus(exercise.getId(), Status.active).orElseThrow();
+
+        assertFalse(Hibernate.isPropertyInitialized(loaded, "note"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        ExerciseDTO dto = new ExerciseDTO(loaded);
+
+        assertEquals(workout.getId(), dto.workout_id());
+        assertFalse(Hibernate.isInitialized(loaded.getWorkout()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should look up a user on login with one statement and without their gyms")
+    void loginTest() {
+        User user = userRepository.findByNameAndStatus("Owner 1", Status.active).orElseThrow();
+
+        assertFalse(Hibernate.isInitialized(user.getGyms()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,153 @@
+package igym.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.entities.enums.Status;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Checks with {@code EXPLAIN} that the hot path queries are served by the
+ * indexes created by the Flyway migrations.
+ *
+ * <p>
+ * The SQL mirrors what Hibernate issues for the repository methods and is
+ * valid on both H2 and PostgreSQL. The H2 run always happens and checks that
+ * no query scans its table; H2 also indexes every foreign key and may pick
+ * that index instead, so it cannot tell which index wins. The PostgreSQL run,
+ * which checks that each query uses its partial index by name, happens when
+ * {@code IGYM_TEST_POSTGRES_URL} (plus {@code IGYM_TEST_POSTGRES_USERNAME} and
+ * {@code IGYM_TEST_POSTGRES_PASSWORD}) points at an empty database. Sequential
+ * scans are disabled there, since the planner would rightly prefer them on
+ * tables this small.
+ * </p>
+ */
+class IndexUsageTest {
+
+    static Stream<Arguments> hotPaths() {
+        return Stream.of(
+                Arguments.of("gyms_user_id_name_active_key",
+                        "SELECT g.id FROM gyms g WHERE g.user_id = '%1$s' AND g.status = 1"),
+                Arguments.of("gyms_user_id_name_active_key",
+                        "SELECT g.id FROM gyms g WHERE g.name = 'Gym 1' AND g.user_id = '%1$s' AND g.status = 1"),
+                Arguments.of("users_name_active_key",
+                        "SELECT u.id FROM users u WHERE u.name = '%4$s' AND u.status = 1"),
+                Arguments.of("workout_gym_id_active_idx",
+                        "SELECT w.id FROM workout w WHERE w.gym_id = '%2$s' AND w.status = 1"),
+                Arguments.of("exercise_workout_id_active_idx",
+                        "SELECT e.id FROM exercise e WHERE e.workout_id IN ('%3$s') AND e.status = 1"));
+    }
+
+    @Nested
+    @DataJpaTest
+    class OnH2 extends Explain {
+
+        @Override
+        void assertServedByIndex(String index, String plan) {
+            assertFalse(plan.contains("tableScan"), () -> "expected an index lookup in plan:\n" + plan);
+        }
+    }
+
+    @Nested
+    @DataJpaTest(properties = {
+            "spring.datasource.url=${IGYM_TEST_POSTGRES_URL}",
+            "spring.datasource.username=${IGYM_TEST_POSTGRES_USERNAME:postgres}",
+            "spring.datasource.password=${IGYM_TEST_POSTGRES_PASSWORD:}" })
+    @AutoConfigureTestDatabase(replace = Replace.NONE)
+    @EnabledIfEnvironmentVariable(named = "IGYM_TEST_POSTGRES_URL", matches = ".+")
+    class OnPostgres extends Explain {
+
+        @BeforeEach
+        void disableSequentialScans() {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        }
+
+        @Override
+        void assertServedByIndex(String index, String plan) {
+            assertTrue(plan.contains(index), () -> "expected " + index + " in plan:\n" + plan);
+        }
+    }
+
+    @Transactional
+    abstract static class Explain {
+
+        @Autowired
+        protected JdbcTemplate jdbcTemplate;
+        @Autowired
+        private EntityManager entityManager;
+
+        private String userName;
+        private UUID userId;
+        private UUID gymId;
+        private UUID workoutId;
+
+        @BeforeEach
+        void seed() {
+            String run = UUID.randomUUID().toString().substring(0, 8);
+            for (int u = 0; u < 20; u++) {
+                User user = new User("Owner " + u + " " + run);
+                user.setPassword("password");
+                entityManager.persist(user);
+                for (int g = 0; g < 6; g++) {
+                    Gym gym = new Gym("Gym " + g);
+                    gym.setUser(user);
+                    gym.setStatus(g < 3 ? Status.active : Status.inactive);
+                    entityManager.persist(gym);
+
+                    Workout workout = new Workout();
+                    workout.setName("Workout " + g);
+                    workout.setGym(gym);
+                    Exercise exercise = new Exercise();
+                    exercise.setName("Squat");
+                    exercise.setNumReps(10);
+                    exercise.setNumSets(3);
+                    exercise.setWorkout(workout);
+                    workout.setExerciseList(List.of(exercise));
+                    entityManager.persist(workout);
+
+                    userName = user.getName();
+                    userId = user.getId();
+                    gymId = gym.getId();
+                    workoutId = workout.getId();
+                }
+            }
+            entityManager.flush();
+            jdbcTemplate.execute("ANALYZE");
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("igym.repositories.IndexUsageTest#hotPaths")
+        @DisplayName("Should serve the hot path query from its index")
+        void indexUsageTest(String index, String query) {
+            String sql = "EXPLAIN " + query.formatted(userId, gymId, workoutId, userName);
+
+            String plan = String.join("\n", jdbcTemplate.queryForList(sql, String.class));
+
+            assertServedByIndex(index, plan);
+        }
+
+        abstract void assertServedByIndex(String index, String plan);
+    }
+}
@@ -0,0 +1,71 @@
+package igym.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Migrates a database that was created by {@code ddl-auto=update} before the
+ * schema was managed by Flyway, as {@code spring.flyway.baseline-on-migrate}
+ * does at startup: it is baselined at version 1 and only receives the later
+ * migrations. Duplicate active names, which the schema used to allow, are
+ * renamed apart before the unique indexes are created.
+ */
+class MigrationBaselineTest {
+
+    private static final String URL = "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1";
+
+    @Test
+    @DisplayName("Should bring a baselined database to the current schema")
+    void baselineTest() throws IOException {
+        JdbcTemplate database = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        for (String statement : baselineScript().split(";")) {
+            if (!statement.isBlank()) {
+                database.execute(statement);
+            }
+        }
+        UUID first = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID second = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        for (UUID id : new UUID[] { second, first }) {
+            database.update("insert into users (id, name, password, status) values (?, 'Maria Clown', 'hashed', 'active')",
+                    id);
+        }
+        for (UUID id : new UUID[] { second, first }) {
+            database.update("insert into gyms (id, user_id, name, status) values (?, ?, 'Home Gym', 'active')", id,
+                    first);
+        }
+
+        Flyway.configure()
+                .dataSource(URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .load()
+                .migrate();
+
+        for (String table : new String[] { "api_keys", "refresh_tokens", "revoked_tokens", "user_sessions" }) {
+            assertEquals(0, database.queryForObject("select count(*) from " + table, Integer.class));
+        }
+        assertEquals(List.of(1, 1), database.queryForList("select status from users", Integer.class));
+        assertEquals(List.of("Maria Clown", "Maria Clown-00000000"),
+                database.queryForList("select name from users order by id", String.class));
+        assertEquals(List.of("Home Gym", "Home Gym-00000000"),
+                database.queryForList("select name from gyms order by id", String.class));
+    }
+
+    private static String baselineScript() throws IOException {
+        try (InputStream script = MigrationBaselineTest.class
+                .getResourceAsStream("/db/migration/common/V1__baseline.sql")) {
+            return new String(script.readAllBytes(), StandardCharsets.UTF_8).replaceAll("(?m)^--.*$", "");
+        }
+    }
+}
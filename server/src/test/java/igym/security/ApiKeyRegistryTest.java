@@ -0,0 +1,180 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.config.ShardRouter;
+import igym.entities.ApiKey;
+import igym.entities.User;
+import igym.entities.enums.Status;
+import igym.exceptions.ApiKeyThrottledException;
+import igym.repositories.ApiKeyRepository;
+import igym.utils.Hashing;
+
+@ExtendWith(MockitoExtension.class)
+class ApiKeyRegistryTest {
+
+    private static final String KEY = "igym_secret";
+    private static final String IP = "203.0.113.7";
+
+    @Mock
+    private ApiKeyRepository repository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private ApiKeyRegistry registry;
+    private User user;
+    private ApiKey apiKey;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ApiKeyRegistry(repository, ShardRouter.single(), new StripedTokenBuckets(16, 2, 60),
+                new StripedTokenBuckets(16, 3, 60), 2, 60_000L, 2, 10_000L, now::get);
+        user = new User("importer");
+        ReflectionTestUtils.setField(user, "id", UUID.randomUUID());
+        apiKey = new ApiKey("nightly import", Hashing.sha256Hex(KEY), KEY.substring(0, 5), user);
+        ReflectionTestUtils.setField(apiKey, "id", UUID.randomUUID());
+    }
+
+    @Test
+    @DisplayName("Should resolve a key once and answer later requests from memory")
+    void cachedKeyTest() {
+        when(repository.findByDigestWithUser(Hashing.sha256Hex(KEY), Status.active))
+                .thenReturn(Optional.of(apiKey));
+
+        ApiKeyRegistry.Entry first = registry.authenticate(KEY, IP);
+        ApiKeyRegistry.Entry second = registry.authenticate(KEY, IP);
+
+        assertNotNull(first);
+        assertEquals(apiKey.getId(), second.keyId());
+        assertEquals(user.getId(), second.user().userId());
+        assertEquals("importer", second.user().username());
+        verify(repository, times(1)).findByDigestWithUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should cache unknown keys apart, until their own TTL")
+    void unknownKeyTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.empty());
+
+        assertNull(registry.authenticate("igym_unknown", IP));
+        assertNull(registry.authenticate("igym_unknown", IP));
+        verify(repository, times(1)).findByDigestWithUser(any(), any());
+        assertEquals(0, registry.size());
+        assertEquals(1, registry.unknownSize());
+
+        now.addAndGet(10_001L);
+        assertNull(registry.authenticate("igym_unknown", IP));
+        verify(repository, times(2)).findByDigestWithUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should throttle the unknown keys of an address before looking them up")
+    void unknownKeyThrottleTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.empty());
+        for (int i = 0; i < 3; i++) {
+            assertNull(registry.authenticate("igym_" + i, IP));
+        }
+
+        ApiKeyThrottledException thrown = assertThrows(ApiKeyThrottledException.class,
+                () -> registry.authenticate("igym_3", IP));
+
+        assertEquals(1, thrown.getRetryAfterSeconds());
+        verify(repository, times(3)).findByDigestWithUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not let unknown keys evict valid ones")
+    void unknownKeysKeepValidTest() {
+        when(repository.findByDigestWithUser(eq(Hashing.sha256Hex(KEY)), any())).thenReturn(Optional.of(apiKey));
+        when(repository.findByDigestWithUser(not(eq(Hashing.sha256Hex(KEY))), any())).thenReturn(Optional.empty());
+        registry.authenticate(KEY, IP);
+
+        for (int i = 0; i < 10; i++) {
+            registry.authenticate("igym_" + i, "198.51.100." + i);
+        }
+
+        assertNotNull(registry.authenticate(KEY, IP));
+        verify(repository, times(1)).findByDigestWithUser(eq(Hashing.sha256Hex(KEY)), any());
+        assertTrue(registry.unknownSize() <= 2);
+    }
+
+    @Test
+    @DisplayName("Should reload an entry once it is older than the TTL")
+    void expiryTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.of(apiKey)).thenReturn(Optional.empty());
+
+        assertNotNull(registry.authenticate(KEY, IP));
+        now.addAndGet(60_001L);
+
+        assertNull(registry.authenticate(KEY, IP));
+        verify(repository, times(2)).findByDigestWithUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reload a key after it is forgotten")
+    void forgetTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.of(apiKey)).thenReturn(Optional.empty());
+        registry.authenticate(KEY, IP);
+
+        registry.forget(Hashing.sha256Hex(KEY));
+
+        assertNull(registry.authenticate(KEY, IP));
+    }
+
+    @Test
+    @DisplayName("Should forget every key of a user")
+    void forgetUserTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.of(apiKey));
+        registry.authenticate(KEY, IP);
+
+        registry.forgetUser(user.getId());
+
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    @DisplayName("Should keep the cache within its maximum size")
+    void boundedTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.of(apiKey));
+
+        for (int i = 0; i < 10; i++) {
+            registry.authenticate("igym_" + i, "198.51.100." + i);
+        }
+
+        assertTrue(registry.size() <= 2);
+    }
+
+    @Test
+    @DisplayName("Should enforce the quota of a key")
+    void quotaTest() {
+        when(repository.findByDigestWithUser(any(), any())).thenReturn(Optional.of(apiKey));
+        ApiKeyRegistry.Entry entry = registry.authenticate(KEY, IP);
+
+        assertEquals(0L, registry.tryAcquire(entry));
+        assertEquals(0L, registry.tryAcquire(entry));
+        assertTrue(registry.tryAcquire(entry) > 0);
+        verify(repository, never()).save(any());
+    }
+}
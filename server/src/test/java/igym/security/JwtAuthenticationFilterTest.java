@@ -9,6 +9,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
@@ -16,10 +17,15 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.core.context.SecurityContextHolder;
+import igym.config.ShardRouter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,6 +40,14 @@ class JwtAuthenticationFilterTest {
     @Mock
     private UserDetailsService userDetailsService;
     @Mock
+    private SecurityEpochCache securityEpochCache;
+    @Mock
+    private TokenRevocationRegistry revocationRegistry;
+    @Mock
+    private SessionActivityTracker activityTracker;
+    @Spy
+    private ShardRouter shards = ShardRouter.single();
+    @Mock
     private HttpServletRequest request;
     @Mock
     private HttpServletResponse response;
@@ -55,7 +69,8 @@ class JwtAuthenticationFilterTest {
 
     @BeforeEach
     void setUp() {
-        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService, securityEpochCache,
+                revocationRegistry, activityTracker, shards, false);
         SecurityContextHolder.clearContext();
     }
 
@@ -63,22 +78,39 @@ class JwtAuthenticationFilterTest {
     @DisplayName("Should authenticate user when valid token is passed")
     void doFilterInternalSuccess() throws ServletException, IOException {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
-        when(jwtUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(tokenClaims());
         when(userDetailsService.loadUserByUsername(testUserId.toString())).thenReturn(testUserDetails);
-        when(jwtUtil.validateToken(validToken)).thenReturn(true);
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         verify(filterChain).doFilter(request, response);
+        verify(jwtUtil, times(1)).extractAllClaims(validToken);
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
         assertEquals(testUserId.toString(), SecurityContextHolder.getContext().getAuthentication().getName());
+        verify(shards).forUser(eq(testUserId), any());
+    }
+
+    @Test
+    @DisplayName("Should record activity for the session named by the token")
+    void doFilterInternalTouchesSession() throws ServletException, IOException {
+        UUID sessionId = UUID.randomUUID();
+        Claims claims = tokenClaims();
+        claims.put("sid", sessionId.toString());
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(claims);
+        when(userDetailsService.loadUserByUsername(testUserId.toString())).thenReturn(testUserDetails);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(activityTracker, times(1)).touch(sessionId, testUserId);
+        verify(filterChain).doFilter(request, response);
     }
 
     @Test
     @DisplayName("Should not authenticate user when Malformed token is passed")
     void doFilterInternalInvalidToken() throws ServletException, IOException {
         when(request.getHeader("Authorization")).thenReturn("Bearer invalid.token");
-        when(jwtUtil.getUserIdFromToken(anyString())).thenThrow(new MalformedJwtException("Invalid token format"));
+        when(jwtUtil.extractAllClaims(anyString())).thenThrow(new MalformedJwtException("Invalid token format"));
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
@@ -113,13 +145,12 @@ class JwtAuthenticationFilterTest {
     @DisplayName("Should not authenticate user when expired token is passed")
     void doFilterInternalExpiredToken() throws ServletException, IOException {
         when(request.getHeader("Authorization")).thenReturn("Bearer expired.token");
-        when(jwtUtil.getUserIdFromToken(any(String.class))).thenReturn(testUserId);
-        when(userDetailsService.loadUserByUsername(testUserId.toString())).thenReturn(testUserDetails);
-        when(jwtUtil.validateToken(validToken)).thenReturn(false);
+        when(jwtUtil.extractAllClaims(any(String.class))).thenThrow(new ExpiredJwtException(null, null, "Token expired"));
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
         assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
 
@@ -127,7 +158,7 @@ class JwtAuthenticationFilterTest {
     @DisplayName("Should not authenticate user when invalid user is passed in token")
     void doFilterInternalInvalidUser() throws ServletException, IOException {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
-        when(jwtUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(tokenClaims());
         when(userDetailsService.loadUserByUsername(testUserId.toString())).thenThrow(new UsernameNotFoundException("User not found"));
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -135,4 +166,67 @@ class JwtAuthenticationFilterTest {
         verify(filterChain).doFilter(request, response);
         assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should authenticate from token claims without loading the user in stateless mode")
+    void doFilterInternalStatelessSuccess() throws ServletException, IOException {
+        JwtAuthenticationFilter statelessFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService,
+                securityEpochCache, revocationRegistry, activityTracker, shards, true);
+        Claims claims = tokenClaims();
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(claims);
+        when(securityEpochCache.isCurrent(testUserId, claims.getIssuedAt())).thenReturn(true);
+
+        statelessFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication()
+                .getPrincipal();
+        assertEquals(testUserId, principal.userId());
+        assertEquals("testuser", principal.username());
+        assertEquals(testUserId.toString(), SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    @DisplayName("Should not authenticate when the token predates the user security epoch in stateless mode")
+    void doFilterInternalStatelessStaleEpoch() throws ServletException, IOException {
+        JwtAuthenticationFilter statelessFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService,
+                securityEpochCache, revocationRegistry, activityTracker, shards, true);
+        Claims claims = tokenClaims();
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(claims);
+        when(securityEpochCache.isCurrent(testUserId, claims.getIssuedAt())).thenReturn(false);
+
+        statelessFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    @DisplayName("Should not authenticate when the token has been revoked")
+    void doFilterInternalRevokedToken() throws ServletException, IOException {
+        JwtAuthenticationFilter statelessFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService,
+                securityEpochCache, revocationRegistry, activityTracker, shards, true);
+        Claims claims = tokenClaims();
+        claims.setId("revoked-token-id");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+        when(jwtUtil.extractAllClaims(validToken)).thenReturn(claims);
+        when(revocationRegistry.isRevoked("revoked-token-id")).thenReturn(true);
+
+        statelessFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(securityEpochCache);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private Claims tokenClaims() {
+        Claims claims = Jwts.claims().setSubject(testUserId.toString());
+        claims.put("username", "testuser");
+        claims.setIssuedAt(new Date());
+        return claims;
+    }
+}
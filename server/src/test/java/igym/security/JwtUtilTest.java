@@ -4,7 +4,6 @@ import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.UUID;
 
@@ -13,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class JwtUtilTest {
 
     private JwtUtil jwtUtil;
+    private VerifiedClaimsCache claimsCache;
     private final String testSecret = "testSecretKey1234567890123456789012345678901234567890";
     private final long testExpiration = 3600L;
     private final UUID testUserId = UUID.randomUUID();
@@ -20,23 +20,40 @@ class JwtUtilTest {
 
     @BeforeEach
     void setUp() {
-        jwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", testSecret);
-        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationInSec", testExpiration);
+        claimsCache = new VerifiedClaimsCache(100);
+        jwtUtil = new JwtUtil(testSecret, testExpiration, claimsCache);
     }
 
     @Test
     @DisplayName("Should generate a token successfully")
     void generateTokenTest() {
-        String token = jwtUtil.generateToken(testUserId, testUsername);
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
         assertNotNull(token);
         assertTrue(jwtUtil.validateToken(token));
     }
 
+    @Test
+    @DisplayName("Should give every token its own id")
+    void generateTokenIdTest() {
+        String first = jwtUtil.extractAllClaims(jwtUtil.generateToken(testUserId, testUsername, null)).getId();
+        String second = jwtUtil.extractAllClaims(jwtUtil.generateToken(testUserId, testUsername, null)).getId();
+        assertNotNull(first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Should carry the session id in the sid claim")
+    void generateTokenSessionTest() {
+        UUID sessionId = UUID.randomUUID();
+        Claims claims = jwtUtil.extractAllClaims(jwtUtil.generateToken(testUserId, testUsername, sessionId));
+        assertEquals(sessionId.toString(), claims.get("sid", String.class));
+        assertNull(jwtUtil.extractAllClaims(jwtUtil.generateToken(testUserId, testUsername, null)).get("sid"));
+    }
+
     @Test
     @DisplayName("Should return true when validating a valid token")
     void validateTokenTest() {
-        String token = jwtUtil.generateToken(testUserId, testUsername);
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
         boolean isValid = jwtUtil.validateToken(token);
         assertTrue(isValid);
     }
@@ -52,7 +69,7 @@ class JwtUtilTest {
     @Test
     @DisplayName("Should return the correct user name from the token")
     void getUsernameFromTokenTest() {
-        String token = jwtUtil.generateToken(testUserId, testUsername);
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
         String username = jwtUtil.getUsernameFromToken(token);
         assertEquals(testUsername, username);
     }
@@ -60,7 +77,7 @@ class JwtUtilTest {
     @Test
     @DisplayName("Should return the correct id from the token")
     void getUserIdFromTokenTest() {
-        String token = jwtUtil.generateToken(testUserId, testUsername);
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
         UUID userId = jwtUtil.getUserIdFromToken(token);
         assertEquals(testUserId, userId);
     }
@@ -68,7 +85,7 @@ class JwtUtilTest {
     @Test
     @DisplayName("Should return the correct claims from the token")
     void extractAllClaimsTest() {
-        String token = jwtUtil.generateToken(testUserId, testUsername);
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
         Claims claims = jwtUtil.extractAllClaims(token);
 
         assertNotNull(claims);
@@ -77,4 +94,36 @@ class JwtUtilTest {
         assertNotNull(claims.getIssuedAt());
         assertNotNull(claims.getExpiration());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should serve repeated tokens from the claims cache")
+    void extractAllClaimsCachedTest() {
+        String token = jwtUtil.generateToken(testUserId, testUsername, null);
+        Claims first = jwtUtil.extractAllClaims(token);
+        Claims second = jwtUtil.extractAllClaims(token);
+
+        assertSame(first, second);
+        assertEquals(1, claimsCache.size());
+    }
+
+    @Test
+    @DisplayName("Should not cache tokens signed with another key")
+    void extractAllClaimsForeignSignatureTest() {
+        JwtUtil otherIssuer = new JwtUtil("anotherSecretKey123456789012345678901234567890123456", testExpiration,
+                new VerifiedClaimsCache(100));
+        String foreignToken = otherIssuer.generateToken(testUserId, testUsername, null);
+
+        assertFalse(jwtUtil.validateToken(foreignToken));
+        assertEquals(0, claimsCache.size());
+    }
+
+    @Test
+    @DisplayName("Should reject expired tokens")
+    void expiredTokenTest() {
+        JwtUtil expiredIssuer = new JwtUtil(testSecret, -1L, claimsCache);
+        String expiredToken = expiredIssuer.generateToken(testUserId, testUsername, null);
+
+        assertFalse(jwtUtil.validateToken(expiredToken));
+        assertEquals(0, claimsCache.size());
+    }
+}
@@ -0,0 +1,130 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import igym.exceptions.LoginThrottledException;
+import igym.exceptions.UserNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginGuardTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private LoginGuard guard(int ipBurst, int userBurst, int maxEntries) {
+        return new LoginGuard(meterRegistry, new StripedTokenBuckets(64, ipBurst, 60),
+                new StripedTokenBuckets(64, userBurst, 60), 60_000, 3, 1_000, 60_000, maxEntries, now::get);
+    }
+
+    private double attempts(String outcome) {
+        return meterRegistry.get("igym.login.attempts").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    @DisplayName("Should throttle a client IP once its bucket is empty, whatever the username")
+    void ipThrottleTest() {
+        LoginGuard guard = guard(2, 100, 100);
+
+        guard.checkAttempt("alice", "10.0.0.1");
+        guard.checkAttempt("bob", "10.0.0.1");
+        LoginThrottledException ex = assertThrows(LoginThrottledException.class,
+                () -> guard.checkAttempt("carol", "10.0.0.1"));
+
+        assertEquals(1, ex.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> guard.checkAttempt("carol", "10.0.0.2"));
+        assertEquals(3, attempts("allowed"));
+        assertEquals(1, attempts("throttled"));
+    }
+
+    @Test
+    @DisplayName("Should throttle a username once its bucket is empty, whatever the IP")
+    void usernameThrottleTest() {
+        LoginGuard guard = guard(100, 2, 100);
+
+        guard.checkAttempt("alice", "10.0.0.1");
+        guard.checkAttempt("alice", "10.0.0.2");
+
+        assertThrows(LoginThrottledException.class, () -> guard.checkAttempt("alice", "10.0.0.3"));
+        now.addAndGet(1_000);
+        assertDoesNotThrow(() -> guard.checkAttempt("alice", "10.0.0.3"));
+    }
+
+    @Test
+    @DisplayName("Should reject a recently unknown username until it expires or is created")
+    void unknownUserTest() {
+        LoginGuard guard = guard(100, 100, 100);
+
+        guard.recordUnknownUser("ghost");
+        assertThrows(UserNotFoundException.class, () -> guard.checkAttempt("ghost", "10.0.0.1"));
+
+        now.addAndGet(60_000);
+        assertDoesNotThrow(() -> guard.checkAttempt("ghost", "10.0.0.1"));
+
+        guard.recordUnknownUser("ghost");
+        guard.forgetUnknownUser("ghost");
+        assertDoesNotThrow(() -> guard.checkAttempt("ghost", "10.0.0.1"));
+        assertEquals(2, attempts("failed"));
+        assertEquals(1, attempts("throttled"));
+    }
+
+    @Test
+    @DisplayName("Should block a username for exponentially longer after consecutive failures")
+    void backoffTest() {
+        LoginGuard guard = guard(100, 100, 100);
+
+        guard.recordFailure("alice");
+        guard.recordFailure("alice");
+        assertDoesNotThrow(() -> guard.checkAttempt("alice", "10.0.0.1"));
+
+        guard.recordFailure("alice");
+        assertEquals(1, assertThrows(LoginThrottledException.class,
+                () -> guard.checkAttempt("alice", "10.0.0.1")).getRetryAfterSeconds());
+
+        guard.recordFailure("alice");
+        assertEquals(2, assertThrows(LoginThrottledException.class,
+                () -> guard.checkAttempt("alice", "10.0.0.1")).getRetryAfterSeconds());
+
+        guard.recordSuccess("alice");
+        assertDoesNotThrow(() -> guard.checkAttempt("alice", "10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Should start counting failures again after a quiet period")
+    void backoffResetTest() {
+        LoginGuard guard = guard(100, 100, 100);
+
+        guard.recordFailure("alice");
+        guard.recordFailure("alice");
+        now.addAndGet(60_001);
+        guard.recordFailure("alice");
+
+        assertDoesNotThrow(() -> guard.checkAttempt("alice", "10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Should keep the failure and unknown-user tables bounded")
+    void boundedEntriesTest() {
+        LoginGuard guard = guard(1_000, 1_000, 10);
+
+        for (int i = 0; i < 100; i++) {
+            guard.recordFailure("user" + i);
+            guard.recordUnknownUser("ghost" + i);
+        }
+
+        assertThrows(UserNotFoundException.class, () -> guard.checkAttempt("ghost99", "10.0.0.1"));
+        assertDoesNotThrow(() -> guard.checkAttempt("ghost0", "10.0.0.1"));
+    }
+}
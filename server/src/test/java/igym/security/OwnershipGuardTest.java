@@ -0,0 +1,96 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import igym.exceptions.ExerciseNotFoundException;
+import igym.exceptions.GymNotFoundException;
+import igym.exceptions.ResourceAccessDeniedException;
+import igym.exceptions.WorkoutNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+class OwnershipGuardTest {
+
+    @Mock
+    private OwnershipIndex ownershipIndex;
+
+    @InjectMocks
+    private OwnershipGuard ownershipGuard;
+
+    private final UUID currentUserId = UUID.randomUUID();
+    private final UUID otherUserId = UUID.randomUUID();
+    private final UUID resourceId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        AuthenticatedUser principal = new AuthenticatedUser(currentUserId, "owner");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should allow access to the resources of the current user")
+    void ownerTest() {
+        when(ownershipIndex.ownerOfGym(resourceId)).thenReturn(currentUserId);
+        when(ownershipIndex.ownerOfWorkout(resourceId)).thenReturn(currentUserId);
+        when(ownershipIndex.ownerOfExercise(resourceId)).thenReturn(currentUserId);
+
+        assertDoesNotThrow(() -> ownershipGuard.checkUser(currentUserId));
+        assertDoesNotThrow(() -> ownershipGuard.checkGym(resourceId));
+        assertDoesNotThrow(() -> ownershipGuard.checkWorkout(resourceId));
+        assertDoesNotThrow(() -> ownershipGuard.checkExercise(resourceId));
+    }
+
+    @Test
+    @DisplayName("Should deny access to the resources of another user")
+    void otherUserTest() {
+        when(ownershipIndex.ownerOfGym(resourceId)).thenReturn(otherUserId);
+        when(ownershipIndex.ownerOfWorkout(resourceId)).thenReturn(otherUserId);
+        when(ownershipIndex.ownerOfExercise(resourceId)).thenReturn(otherUserId);
+
+        assertThrows(ResourceAccessDeniedException.class, () -> ownershipGuard.checkUser(otherUserId));
+        assertThrows(ResourceAccessDeniedException.class, () -> ownershipGuard.checkGym(resourceId));
+        assertThrows(ResourceAccessDeniedException.class, () -> ownershipGuard.checkWorkout(resourceId));
+        assertThrows(ResourceAccessDeniedException.class, () -> ownershipGuard.checkExercise(resourceId));
+    }
+
+    @Test
+    @DisplayName("Should report resources whose owner cannot be resolved as not found")
+    void unknownResourceTest() {
+        when(ownershipIndex.ownerOfGym(resourceId)).thenReturn(null);
+        when(ownershipIndex.ownerOfWorkout(resourceId)).thenReturn(null);
+        when(ownershipIndex.ownerOfExercise(resourceId)).thenReturn(null);
+
+        assertThrows(GymNotFoundException.class, () -> ownershipGuard.checkGym(resourceId));
+        assertThrows(WorkoutNotFoundException.class, () -> ownershipGuard.checkWorkout(resourceId));
+        assertThrows(ExerciseNotFoundException.class, () -> ownershipGuard.checkExercise(resourceId));
+    }
+
+    @Test
+    @DisplayName("Should deny access without an authenticated user")
+    void unauthenticatedTest() {
+        SecurityContextHolder.clearContext();
+
+        assertThrows(ResourceAccessDeniedException.class, () -> ownershipGuard.checkUser(currentUserId));
+    }
+}
@@ -0,0 +1,138 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import igym.repositories.ExerciseRepository;
+import igym.repositories.GymRepository;
+import igym.repositories.WorkoutRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OwnershipIndexTest {
+
+    @Mock
+    private GymRepository gymRepository;
+    @Mock
+    private WorkoutRepository workoutRepository;
+    @Mock
+    private ExerciseRepository exerciseRepository;
+
+    private OwnershipIndex index;
+    private final UUID userId = UUID.randomUUID();
+    private final UUID gymId = UUID.randomUUID();
+    private final UUID workoutId = UUID.randomUUID();
+    private final UUID exerciseId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        index = new OwnershipIndex(gymRepository, workoutRepository, exerciseRepository, 100);
+    }
+
+    @Test
+    @DisplayName("Should load owners lazily and answer later lookups from memory")
+    void lazyLoadTest() {
+        when(exerciseRepository.findWorkoutIdById(exerciseId)).thenReturn(Optional.of(workoutId));
+        when(workoutRepository.findGymIdById(workoutId)).thenReturn(Optional.of(gymId));
+        when(gymRepository.findOwnerIdById(gymId)).thenReturn(Optional.of(userId));
+
+        assertEquals(userId, index.ownerOfExercise(exerciseId));
+        assertEquals(userId, index.ownerOfExercise(exerciseId));
+        assertEquals(userId, index.ownerOfWorkout(workoutId));
+        assertEquals(userId, index.ownerOfGym(gymId));
+
+        verify(exerciseRepository, times(1)).findWorkoutIdById(exerciseId);
+        verify(workoutRepository, times(1)).findGymIdById(workoutId);
+        verify(gymRepository, times(1)).findOwnerIdById(gymId);
+    }
+
+    @Test
+    @DisplayName("Should resolve registered resources without querying")
+    void registeredTest() {
+        index.registerGym(gymId, userId);
+        index.registerWorkout(workoutId, gymId);
+        index.registerExercise(exerciseId, workoutId);
+
+        assertEquals(userId, index.ownerOfExercise(exerciseId));
+        verify(gymRepository, never()).findOwnerIdById(gymId);
+    }
+
+    @Test
+    @DisplayName("Should return null for unknown resources without caching the miss")
+    void unknownTest() {
+        when(gymRepository.findOwnerIdById(gymId)).thenReturn(Optional.empty());
+        when(workoutRepository.findGymIdById(workoutId)).thenReturn(Optional.empty());
+        when(exerciseRepository.findWorkoutIdById(exerciseId)).thenReturn(Optional.empty());
+
+        assertNull(index.ownerOfGym(gymId));
+        assertNull(index.ownerOfGym(gymId));
+        assertNull(index.ownerOfWorkout(workoutId));
+        assertNull(index.ownerOfExercise(exerciseId));
+        verify(gymRepository, times(2)).findOwnerIdById(gymId);
+    }
+
+    @Test
+    @DisplayName("Should query again after a resource is forgotten")
+    void forgetTest() {
+        index.registerGym(gymId, userId);
+        index.registerWorkout(workoutId, gymId);
+        index.registerExercise(exerciseId, workoutId);
+        index.forgetGym(gymId);
+        index.forgetWorkout(workoutId);
+        index.forgetExercise(exerciseId);
+        when(gymRepository.findOwnerIdById(gymId)).thenReturn(Optional.empty());
+
+        assertNull(index.ownerOfGym(gymId));
+        verify(gymRepository, times(1)).findOwnerIdById(gymId);
+    }
+
+    @Test
+    @DisplayName("Should forget the workouts and exercises of a forgotten gym or user")
+    void forgetCascadeTest() {
+        UUID otherGym = UUID.randomUUID();
+        index.registerGym(gymId, userId);
+        index.registerGym(otherGym, UUID.randomUUID());
+        index.registerWorkout(workoutId, gymId);
+        index.registerExercise(exerciseId, workoutId);
+        index.forgetUser(userId);
+        when(exerciseRepository.findWorkoutIdById(exerciseId)).thenReturn(Optional.empty());
+        when(workoutRepository.findGymIdById(workoutId)).thenReturn(Optional.empty());
+
+        assertNull(index.ownerOfExercise(exerciseId));
+        assertNull(index.ownerOfWorkout(workoutId));
+        index.ownerOfGym(otherGym);
+        verify(gymRepository, never()).findOwnerIdById(otherGym);
+
+        index.registerWorkout(workoutId, gymId);
+        index.registerExercise(exerciseId, workoutId);
+        index.forgetGym(gymId);
+
+        assertNull(index.ownerOfExercise(exerciseId));
+        verify(exerciseRepository, times(2)).findWorkoutIdById(exerciseId);
+    }
+
+    @Test
+    @DisplayName("Should stay within its maximum size")
+    void boundedTest() {
+        OwnershipIndex small = new OwnershipIndex(gymRepository, workoutRepository, exerciseRepository, 2);
+        UUID lastGym = UUID.randomUUID();
+        small.registerGym(UUID.randomUUID(), userId);
+        small.registerGym(UUID.randomUUID(), userId);
+        small.registerGym(lastGym, userId);
+
+        assertEquals(userId, small.ownerOfGym(lastGym));
+    }
+}
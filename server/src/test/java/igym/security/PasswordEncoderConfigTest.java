@@ -0,0 +1,43 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PasswordEncoderConfigTest {
+
+    @Test
+    @DisplayName("Should use the configured strength when calibration is disabled")
+    void fixedStrengthTest() {
+        PasswordEncoderConfig config = new PasswordEncoderConfig();
+        ReflectionTestUtils.setField(config, "strength", 5);
+
+        PasswordEncoder encoder = config.passwordEncoder();
+
+        assertTrue(encoder.encode("ValidPassword").startsWith("$2a$05$"));
+    }
+
+    @Test
+    @DisplayName("Should calibrate the strength within the configured bounds")
+    void calibrationBoundsTest() {
+        assertEquals(4, PasswordEncoderConfig.calibrate(0, 4, 6));
+        assertEquals(6, PasswordEncoderConfig.calibrate(60_000, 4, 6));
+    }
+
+    @Test
+    @DisplayName("Should calibrate the encoder when a target latency is configured")
+    void calibratedEncoderTest() {
+        PasswordEncoderConfig config = new PasswordEncoderConfig();
+        ReflectionTestUtils.setField(config, "targetMs", 60_000L);
+        ReflectionTestUtils.setField(config, "minStrength", 4);
+        ReflectionTestUtils.setField(config, "maxStrength", 5);
+
+        PasswordEncoder encoder = config.passwordEncoder();
+
+        assertTrue(encoder.encode("ValidPassword").startsWith("$2a$05$"));
+    }
+}
@@ -0,0 +1,104 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.exceptions.PasswordHashingBusyException;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should encode and verify passwords on the hashing executor")
+    void encodeAndMatchTest() {
+        service = new PasswordHashingService(new BCryptPasswordEncoder(4), 2, 4, 5000, 1);
+
+        String hash = service.encode("ValidPassword");
+
+        assertTrue(service.matches("ValidPassword", hash));
+        assertFalse(service.matches("WrongPassword", hash));
+    }
+
+    @Test
+    @DisplayName("Should ask for a rehash only when the stored cost is below the current one")
+    void needsRehashTest() {
+        service = new PasswordHashingService(new BCryptPasswordEncoder(5), 1, 1, 5000, 1);
+
+        assertFalse(service.needsRehash(new BCryptPasswordEncoder(5).encode("ValidPassword")));
+        assertTrue(service.needsRehash(new BCryptPasswordEncoder(4).encode("ValidPassword")));
+        assertFalse(service.needsRehash(new BCryptPasswordEncoder(6).encode("ValidPassword")));
+        assertTrue(service.needsRehash("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    @DisplayName("Should reject work right away when the queue is full")
+    void saturatedExecutorTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode("cost-probe")).thenReturn("$2a$10$probe");
+        when(slowEncoder.matches(anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        service = new PasswordHashingService(slowEncoder, 1, 1, 5000, 7);
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> service.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> service.matches("b", "hash"));
+        waitForQueuedTask();
+
+        PasswordHashingBusyException ex = assertThrows(PasswordHashingBusyException.class,
+                () -> service.matches("c", "hash"));
+        assertEquals(7, ex.getRetryAfterSeconds());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should give up waiting after the timeout")
+    void timeoutTest() {
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode("cost-probe")).thenReturn("$2a$10$probe");
+        when(slowEncoder.encode("ValidPassword")).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return "hash";
+        });
+        service = new PasswordHashingService(slowEncoder, 1, 1, 50, 1);
+
+        assertThrows(PasswordHashingBusyException.class, () -> service.encode("ValidPassword"));
+    }
+
+    private void waitForQueuedTask() throws InterruptedException {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor");
+        for (int i = 0; i < 500 && executor.getQueue().isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -10,17 +10,27 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.context.TestPropertySource;
+import igym.config.ShardRouter;
 import igym.controllers.UserController;
 import igym.entities.User;
+import igym.exceptions.ApiKeyThrottledException;
+import igym.services.SessionService;
 import igym.services.UserService;
 
+import java.util.List;
+import java.util.UUID;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
-@Import({SecurityConfig.class, JwtAuthenticationFilter.class, JwtUtil.class})
+@Import({SecurityConfig.class, JwtAuthenticationFilter.class, ApiKeyAuthenticationFilter.class, JwtUtil.class,
+        VerifiedClaimsCache.class, ShardRouter.class})
 @TestPropertySource(properties = {
     "jwt.secret=testSecretKey1234567890123456789012345678901234567890",
     "jwt.expiration=3600"
@@ -38,6 +48,37 @@ class SecurityConfigTest {
     @MockBean
     private UserDetailsService userDetailsService;
 
+    @SuppressWarnings("removal")
+    @MockBean
+    private SecurityEpochCache securityEpochCache;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private LoginGuard loginGuard;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private TokenRevocationRegistry revocationRegistry;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private OwnershipGuard ownershipGuard;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private ApiKeyRegistry apiKeyRegistry;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private SessionActivityTracker sessionActivityTracker;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private SessionService sessionService;
+
+    private final ApiKeyRegistry.Entry apiKey = new ApiKeyRegistry.Entry(UUID.randomUUID(),
+            new AuthenticatedUser(UUID.randomUUID(), "importer"), 0L);
+
     @Test
     @DisplayName("Should allow login endpoint request without token")
     void loginEndpointTest() throws Exception {
@@ -47,6 +88,22 @@ class SecurityConfigTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Should allow refresh endpoint request without token")
+    void refreshEndpointTest() throws Exception {
+        mockMvc.perform(post("/api/v1/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"refresh\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should allow username availability request without token")
+    void availabilityEndpointTest() throws Exception {
+        mockMvc.perform(get("/api/v1/users/availability").param("name", "test"))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Should allow register endpoint request without token")
     void registerEndpointTest() throws Exception {
@@ -76,4 +133,76 @@ class SecurityConfigTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.error").exists());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should authenticate a request with a valid API key")
+    void apiKeyAuthenticatesTest() throws Exception {
+        when(apiKeyRegistry.authenticate(eq("igym_valid"), any())).thenReturn(apiKey);
+        when(userService.findAll()).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/users").header(ApiKeyRegistry.HEADER, "igym_valid"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should return unauthorized for an unknown API key")
+    void unknownApiKeyTest() throws Exception {
+        mockMvc.perform(get("/api/v1/users").header(ApiKeyRegistry.HEADER, "igym_unknown"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Should return too many requests when the API key is over its quota")
+    void apiKeyOverQuotaTest() throws Exception {
+        when(apiKeyRegistry.authenticate(eq("igym_valid"), any())).thenReturn(apiKey);
+        when(apiKeyRegistry.tryAcquire(apiKey)).thenReturn(1500L);
+
+        mockMvc.perform(get("/api/v1/users").header(ApiKeyRegistry.HEADER, "igym_valid"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").exists());
+        verify(userService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should return too many requests when an address sends too many unknown API keys")
+    void unknownApiKeysThrottledTest() throws Exception {
+        when(apiKeyRegistry.authenticate(eq("igym_unknown"), any()))
+                .thenThrow(new ApiKeyThrottledException("Too Many Requests: too many unknown API keys", 3));
+
+        mockMvc.perform(get("/api/v1/users").header(ApiKeyRegistry.HEADER, "igym_unknown"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.error").exists());
+        verify(userService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should forbid managing API keys with an API key")
+    void apiKeyCannotManageKeysTest() throws Exception {
+        when(apiKeyRegistry.authenticate(eq("igym_valid"), any())).thenReturn(apiKey);
+
+        mockMvc.perform(post("/api/v1/users/" + apiKey.user().userId() + "/api-keys")
+                .header(ApiKeyRegistry.HEADER, "igym_valid")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"another key\"}"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @DisplayName("Should forbid renaming or deactivating a user with an API key")
+    void apiKeyCannotChangeUserTest() throws Exception {
+        when(apiKeyRegistry.authenticate(eq("igym_valid"), any())).thenReturn(apiKey);
+        String user = "/api/v1/users/" + apiKey.user().userId();
+
+        mockMvc.perform(patch(user)
+                .header(ApiKeyRegistry.HEADER, "igym_valid")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete(user).header(ApiKeyRegistry.HEADER, "igym_valid"))
+                .andExpect(status().isForbidden());
+        verify(userService, never()).deleteUser(any());
+    }
+}
@@ -0,0 +1,90 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SecurityEpochCacheTest {
+
+    private SecurityEpochCache cache;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        cache = new SecurityEpochCache(2, 300);
+    }
+
+    @Test
+    @DisplayName("Should accept tokens of users without a recorded change")
+    void acceptsUnknownUserTest() {
+        assertTrue(cache.isCurrent(userId, Date.from(Instant.now().minusSeconds(120))));
+    }
+
+    @Test
+    @DisplayName("Should reject tokens without issue date")
+    void rejectsTokenWithoutIssueDateTest() {
+        assertFalse(cache.isCurrent(userId, null));
+    }
+
+    @Test
+    @DisplayName("Should reject tokens issued before an advance")
+    void advanceTest() {
+        cache.advance(userId);
+
+        assertFalse(cache.isCurrent(userId, Date.from(Instant.now().minusSeconds(5))));
+        assertTrue(cache.isCurrent(userId, Date.from(Instant.now().plusSeconds(1))));
+    }
+
+    @Test
+    @DisplayName("Should reject every token after a revoke, even when advanced later")
+    void revokeTest() {
+        cache.revoke(userId);
+        cache.advance(userId);
+
+        assertFalse(cache.isCurrent(userId, Date.from(Instant.now().plusSeconds(60))));
+    }
+
+    @Test
+    @DisplayName("Should drop an entry once every token it could reject has expired")
+    void expiryTest() {
+        SecurityEpochCache shortLived = new SecurityEpochCache(2, -1);
+        shortLived.revoke(userId);
+
+        assertTrue(shortLived.isCurrent(userId, new Date()));
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(shortLived, "epochs")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep the number of entries within the maximum size")
+    void evictionTest() {
+        cache.advance(UUID.randomUUID());
+        cache.advance(UUID.randomUUID());
+        cache.revoke(userId);
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(cache, "epochs")).size() <= 2);
+    }
+
+    @Test
+    @DisplayName("Should never evict a live revocation, however full the cache")
+    void revocationSurvivesEvictionTest() {
+        cache.revoke(userId);
+        for (int i = 0; i < 10; i++) {
+            cache.advance(UUID.randomUUID());
+        }
+        UUID otherRevoked = UUID.randomUUID();
+        cache.revoke(otherRevoked);
+        cache.revoke(UUID.randomUUID());
+
+        assertFalse(cache.isCurrent(userId, new Date()));
+        assertFalse(cache.isCurrent(otherRevoked, new Date()));
+    }
+}
@@ -0,0 +1,82 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import igym.config.ShardRouter;
+
+@ExtendWith(MockitoExtension.class)
+class SessionActivityTrackerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SessionActivityTracker tracker;
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID user = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SessionActivityTracker(jdbcTemplate, ShardRouter.single());
+    }
+
+    @Test
+    @DisplayName("Should write every touched session with one batched update per flush")
+    @SuppressWarnings("unchecked")
+    void flushTest() {
+        for (int i = 0; i < 100; i++) {
+            tracker.touch(first, user);
+            tracker.touch(second, user);
+        }
+
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(SessionActivityTracker.UPDATE_SQL), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertNull(tracker.pendingLastSeen(first));
+        assertNull(tracker.pendingLastSeen(second));
+    }
+
+    @Test
+    @DisplayName("Should not touch the database when no session was seen")
+    void flushNothingTest() {
+        tracker.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), anyList());
+    }
+
+    @Test
+    @DisplayName("Should keep the pending times when a flush fails")
+    void flushFailureTest() {
+        tracker.touch(first, user);
+        when(jdbcTemplate.batchUpdate(eq(SessionActivityTracker.UPDATE_SQL), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        tracker.flush();
+
+        assertNotNull(tracker.pendingLastSeen(first));
+    }
+}
@@ -0,0 +1,69 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StripedTokenBucketsTest {
+
+    @Test
+    @DisplayName("Should allow a full burst and then report the wait until the next token")
+    void burstThenWaitTest() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(16, 3, 60);
+
+        assertEquals(0, buckets.tryAcquire("key", 0));
+        assertEquals(0, buckets.tryAcquire("key", 0));
+        assertEquals(0, buckets.tryAcquire("key", 0));
+        assertEquals(1_000, buckets.tryAcquire("key", 0));
+        assertEquals(400, buckets.tryAcquire("key", 600));
+        assertEquals(0, buckets.tryAcquire("key", 1_000));
+    }
+
+    @Test
+    @DisplayName("Should keep separate buckets for keys on different stripes")
+    void separateKeysTest() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1024, 1, 60, 1, 2);
+
+        assertEquals(0, buckets.tryAcquire("a", 0));
+        assertTrue(buckets.tryAcquire("a", 0) > 0);
+        assertEquals(0, buckets.tryAcquire("b", 0));
+        assertEquals(0, buckets.tryAcquire(null, 0));
+    }
+
+    @Test
+    @DisplayName("Should not let keys with equal hash codes share a bucket")
+    void hashCodeCollisionTest() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1024, 1, 60, 1, 2);
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(0, buckets.tryAcquire("Aa", 0));
+        assertEquals(0, buckets.tryAcquire("BB", 0));
+    }
+
+    @Test
+    @DisplayName("Should never hand out more tokens than the burst under concurrent access")
+    void concurrentAcquireTest() throws InterruptedException {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1, 100, 1);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 1_000; i++) {
+            executor.execute(() -> {
+                if (buckets.tryAcquire("key", 0) == 0) {
+                    granted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, granted.get());
+    }
+}
@@ -0,0 +1,77 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import igym.config.ShardRouter;
+import igym.entities.RevokedToken;
+import igym.repositories.RevokedTokenRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationRegistryTest {
+
+    @Mock
+    private RevokedTokenRepository repository;
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry(repository, ShardRouter.single(), 100, 0.01);
+    }
+
+    @Test
+    @DisplayName("Should persist a revocation and reject the token right away")
+    void revokeTest() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        registry.revoke("token-id", expiresAt);
+
+        assertTrue(registry.isRevoked("token-id"));
+        assertFalse(registry.isRevoked("other-token-id"));
+        verify(repository, times(1)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    @DisplayName("Should load persisted revocations at startup")
+    void loadTest() {
+        when(repository.findByExpiresAtAfter(any()))
+                .thenReturn(List.of(new RevokedToken("persisted-id", Instant.now().plusSeconds(60))));
+
+        registry.load();
+
+        assertTrue(registry.isRevoked("persisted-id"));
+    }
+
+    @Test
+    @DisplayName("Should purge expired revocations and keep local ones not yet read back")
+    void refreshTest() {
+        registry.revoke("expired-id", Instant.now().minusSeconds(1));
+        registry.revoke("local-id", Instant.now().plusSeconds(60));
+        when(repository.deleteExpired(any())).thenReturn(1);
+        when(repository.findByExpiresAtAfter(any()))
+                .thenReturn(List.of(new RevokedToken("remote-id", Instant.now().plusSeconds(60))));
+
+        registry.refresh();
+
+        assertFalse(registry.isRevoked("expired-id"));
+        assertTrue(registry.isRevoked("local-id"));
+        assertTrue(registry.isRevoked("remote-id"));
+        assertEquals(2, registry.size());
+    }
+}
@@ -0,0 +1,77 @@
+package igym.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+class VerifiedClaimsCacheTest {
+
+    private Claims claimsExpiringIn(long millis) {
+        return Jwts.claims().setSubject("subject").setExpiration(new Date(System.currentTimeMillis() + millis));
+    }
+
+    @Test
+    @DisplayName("Should return cached claims for the same token")
+    void getCachedClaimsTest() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+        Claims claims = claimsExpiringIn(60_000);
+
+        cache.put("a.b.c", claims);
+
+        assertSame(claims, cache.get("a.b.c"));
+        assertNull(cache.get("a.b.d"));
+    }
+
+    @Test
+    @DisplayName("Should drop claims once the token has expired")
+    void expiredClaimsTest() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+
+        cache.put("a.b.c", claimsExpiringIn(-1_000));
+
+        assertNull(cache.get("a.b.c"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should never hold more entries than its maximum size")
+    void boundedSizeTest() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(2);
+        cache.put("expired.token.0", claimsExpiringIn(-1_000));
+        cache.put("token.1", claimsExpiringIn(60_000));
+        cache.put("token.2", claimsExpiringIn(60_000));
+        cache.put("token.3", claimsExpiringIn(60_000));
+
+        assertEquals(2, cache.size());
+        assertSame(cache.get("token.3"), cache.get("token.3"));
+    }
+
+    @Test
+    @DisplayName("Should not cache anything when the maximum size is zero")
+    void disabledCacheTest() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(0);
+
+        cache.put("a.b.c", claimsExpiringIn(60_000));
+
+        assertNull(cache.get("a.b.c"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should not cache claims without expiration")
+    void noExpirationTest() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+
+        cache.put("a.b.c", Jwts.claims().setSubject("subject"));
+
+        assertNull(cache.get("a.b.c"));
+    }
+}
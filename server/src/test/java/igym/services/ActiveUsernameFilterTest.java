@@ -0,0 +1,128 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import igym.config.ShardRouter;
+import igym.entities.enums.Status;
+import igym.repositories.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveUsernameFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ActiveUsernameFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ActiveUsernameFilter(userRepository, ShardRouter.single(), 1_000, 0.01);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should report every name as possibly present until loaded")
+    void notLoadedTest() {
+        assertTrue(filter.mightExist("anyone"));
+    }
+
+    @Test
+    @DisplayName("Should load active names and rule out the others")
+    void loadTest() {
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of("alice", "bob"));
+
+        filter.load();
+
+        assertTrue(filter.mightExist("alice"));
+        assertTrue(filter.mightExist("bob"));
+        assertFalse(filter.mightExist("carol"));
+    }
+
+    @Test
+    @DisplayName("Should pick up the names written by other instances when refreshed")
+    void refreshTest() {
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of("alice"))
+                .thenReturn(List.of("bob"));
+        filter.load();
+        filter.add("carol");
+
+        filter.refresh();
+
+        assertFalse(filter.mightExist("alice"));
+        assertTrue(filter.mightExist("bob"));
+        assertTrue(filter.mightExist("carol"));
+    }
+
+    @Test
+    @DisplayName("Should follow creations and removals")
+    void addRemoveTest() {
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of());
+        filter.load();
+
+        filter.add("carol");
+        assertTrue(filter.mightExist("carol"));
+
+        filter.remove("carol");
+        assertFalse(filter.mightExist("carol"));
+    }
+
+    @Test
+    @DisplayName("Should apply a removal inside a transaction only after commit")
+    void removeAfterCommitTest() {
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of());
+        filter.load();
+        filter.add("carol");
+        TransactionSynchronizationManager.initSynchronization();
+
+        filter.remove("carol");
+        assertTrue(filter.mightExist("carol"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertFalse(filter.mightExist("carol"));
+    }
+
+    @Test
+    @DisplayName("Should only remove the names it added since the last rebuild")
+    void removeUncountedTest() {
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of("alice"));
+        filter.load();
+
+        filter.remove("alice");
+        filter.remove("bob");
+
+        assertTrue(filter.mightExist("alice"));
+    }
+
+    @Test
+    @DisplayName("Should carry a name added before the load only while it is active")
+    void removeBeforeLoadTest() {
+        filter.add("alice");
+        filter.add("bob");
+        filter.remove("alice");
+        when(userRepository.findNamesByStatus(Status.active)).thenReturn(List.of());
+        filter.load();
+
+        assertFalse(filter.mightExist("alice"));
+        assertTrue(filter.mightExist("bob"));
+    }
+}
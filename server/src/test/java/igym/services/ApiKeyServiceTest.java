@@ -0,0 +1,130 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.dtos.CreatedApiKeyDTO;
+import igym.entities.ApiKey;
+import igym.entities.User;
+import igym.entities.enums.Status;
+import igym.exceptions.ApiKeyNotFoundException;
+import igym.exceptions.UserNotFoundException;
+import igym.repositories.ApiKeyRepository;
+import igym.repositories.UserRepository;
+import igym.security.ApiKeyRegistry;
+import igym.utils.Hashing;
+
+@ExtendWith(MockitoExtension.class)
+class ApiKeyServiceTest {
+
+    @Mock
+    private ApiKeyRepository apiKeyRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ApiKeyRegistry apiKeyRegistry;
+    @InjectMocks
+    private ApiKeyService apiKeyService;
+
+    private final UUID userId = UUID.randomUUID();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("importer");
+        ReflectionTestUtils.setField(user, "id", userId);
+    }
+
+    @Test
+    @DisplayName("Should create a key and persist only its digest")
+    void createApiKeyTest() {
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(apiKeyRepository.save(any(ApiKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CreatedApiKeyDTO created = apiKeyService.createApiKey(userId, "nightly import");
+
+        ArgumentCaptor<ApiKey> saved = ArgumentCaptor.forClass(ApiKey.class);
+        verify(apiKeyRepository).save(saved.capture());
+        assertTrue(created.key().startsWith(ApiKeyService.KEY_PREFIX));
+        assertEquals(Hashing.sha256Hex(created.key()), saved.getValue().getKeyDigest());
+        assertEquals(created.key().substring(0, 12), saved.getValue().getPrefix());
+        assertEquals("nightly import", created.name());
+        assertEquals(user, saved.getValue().getUser());
+    }
+
+    @Test
+    @DisplayName("Should create different keys every time")
+    void uniqueKeysTest() {
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(apiKeyRepository.save(any(ApiKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String first = apiKeyService.createApiKey(userId, "first").key();
+        String second = apiKeyService.createApiKey(userId, "second").key();
+
+        assertTrue(!first.equals(second));
+    }
+
+    @Test
+    @DisplayName("Should not create a key for an inactive user")
+    void createApiKeyInactiveUserTest() {
+        user.setStatus(Status.inactive);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+
+        assertThrows(UserNotFoundException.class, () -> apiKeyService.createApiKey(userId, "nightly import"));
+        verify(apiKeyRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should list the active keys of a user")
+    void findApiKeysTest() {
+        ApiKey apiKey = new ApiKey("nightly import", "digest", "igym_abcdefg", user);
+        when(apiKeyRepository.findByUserIdAndStatus(userId, Status.active)).thenReturn(List.of(apiKey));
+
+        assertEquals(List.of(apiKey), apiKeyService.findApiKeysByUserId(userId));
+    }
+
+    @Test
+    @DisplayName("Should revoke a key and drop it from the registry")
+    void revokeApiKeyTest() {
+        UUID keyId = UUID.randomUUID();
+        ApiKey apiKey = new ApiKey("nightly import", "digest", "igym_abcdefg", user);
+        when(apiKeyRepository.findByIdAndUserIdAndStatus(keyId, userId, Status.active))
+                .thenReturn(Optional.of(apiKey));
+
+        apiKeyService.revokeApiKey(userId, keyId);
+
+        assertEquals(Status.inactive, apiKey.getStatus());
+        verify(apiKeyRepository).save(apiKey);
+        verify(apiKeyRegistry).forget("digest");
+    }
+
+    @Test
+    @DisplayName("Should throw when revoking a key the user does not have")
+    void revokeUnknownApiKeyTest() {
+        UUID keyId = UUID.randomUUID();
+        when(apiKeyRepository.findByIdAndUserIdAndStatus(keyId, userId, Status.active))
+                .thenReturn(Optional.empty());
+
+        assertThrows(ApiKeyNotFoundException.class, () -> apiKeyService.revokeApiKey(userId, keyId));
+        verify(apiKeyRegistry, never()).forget(any());
+    }
+}
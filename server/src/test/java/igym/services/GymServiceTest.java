@@ -1,24 +1,30 @@
 package igym.services;
 
-import igym.entities.Exercise;
+import igym.config.ShardRouter;
+import igym.dtos.GymDTO;
 import igym.entities.Gym;
 import igym.entities.User;
-import igym.entities.Workout;
 import igym.entities.enums.Status;
-import igym.exceptions.DuplicateGymException;
 import igym.exceptions.GymNotFoundException;
+import igym.exceptions.PreconditionFailedException;
 import igym.exceptions.UserNotFoundException;
 import igym.repositories.GymRepository;
 import igym.repositories.UserRepository;
+import igym.security.OwnershipIndex;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -41,6 +47,12 @@ public class GymServiceTest {
     @Mock
     private WorkoutService workoutService;
 
+    @Mock
+    private OwnershipIndex ownershipIndex;
+
+    @Spy
+    private ShardRouter shards = ShardRouter.single();
+
     @InjectMocks
     private GymService gymService;
 
@@ -51,32 +63,29 @@ public class GymServiceTest {
         UUID userId = UUID.randomUUID();
 
         when(userRepository.findById(any(UUID.class))).thenReturn(Optional.of(new User("Mocked User")));
-        when(gymRepository.save(any(Gym.class))).thenReturn(gym);
+        when(gymRepository.saveAndFlush(any(Gym.class))).thenReturn(gym);
 
         Gym result = gymService.createGym(gym, userId);
 
         assertThat(result).isNotNull();
         assertThat(result.getName()).isEqualTo(gym.getName());
-        verify(gymRepository, times(1)).save(any(Gym.class));
+        verify(gymRepository, times(1)).saveAndFlush(any(Gym.class));
+        verify(ownershipIndex, times(1)).registerGym(gym.getId(), userId);
     }
 
     @Test
-    @DisplayName("should throw DuplicateGymException when attempting to create a gym with an existing name and status active")
+    @DisplayName("should let the unique index violation through when creating a gym with an existing active name")
     void testAlreadyCreatedGymName() {
         Gym gym = new Gym("CrossFit Gym");
         gym.setStatus(Status.active);
         UUID userId = UUID.randomUUID();
 
         when(userRepository.findById(any(UUID.class))).thenReturn(Optional.of(new User("Mocked User")));
-        when(gymRepository.existsByNameAndUserIdAndStatus(gym.getName(), userId, Status.active)).thenReturn(true);
+        when(gymRepository.saveAndFlush(gym)).thenThrow(new DataIntegrityViolationException("gyms_user_id_name_active_key"));
 
-        DuplicateGymException exception = assertThrows(
-                DuplicateGymException.class,
-                () -> gymService.createGym(gym, userId));
+        assertThrows(DataIntegrityViolationException.class, () -> gymService.createGym(gym, userId));
 
-        assertEquals("A gym with the name 'CrossFit Gym' already exists for this user", exception.getMessage());
-        verify(gymRepository, times(1)).existsByNameAndUserIdAndStatus(gym.getName(), userId, Status.active);
-        verify(gymRepository, never()).save(any(Gym.class));
+        verify(ownershipIndex, never()).registerGym(any(), any());
     }
 
     @Test
@@ -88,12 +97,11 @@ public class GymServiceTest {
         gym.setUser(mockedUser);
         String name = "Updated Gym";
         when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(gymRepository.existsByNameAndUserIdAndStatus(name, mockedUser.getId(), Status.active)).thenReturn(false);
-        when(gymRepository.save(any(Gym.class))).thenReturn(gym);
-        Gym result = gymService.updateGym(gymId, name);
+        when(gymRepository.saveAndFlush(any(Gym.class))).thenReturn(gym);
+        Gym result = gymService.updateGym(gymId, name, null);
         assertThat(result).isNotNull();
         assertThat(result.getName()).isEqualTo(name);
-        verify(gymRepository, times(1)).save(any(Gym.class));
+        verify(gymRepository, times(1)).saveAndFlush(any(Gym.class));
     }
 
     @Test
@@ -104,38 +112,69 @@ public class GymServiceTest {
         when(gymRepository.findById(gymId)).thenReturn(Optional.empty());
         GymNotFoundException exception = assertThrows(
                 GymNotFoundException.class,
-                () -> gymService.updateGym(gymId, name));
+                () -> gymService.updateGym(gymId, name, null));
         assertEquals("Gym with id " + gymId + " not found", exception.getMessage());
-        verify(gymRepository, never()).save(any(Gym.class));
+        verify(gymRepository, never()).saveAndFlush(any(Gym.class));
     }
 
     @Test
-    @DisplayName("Should throw DuplicateGymException when attempting to update a gym to a name that is already in use for a active gym")
+    @DisplayName("Should let the unique index violation through when renaming a gym to a name already in use by an active gym")
     void testUpdateGymExistingName() {
         UUID gymId = UUID.randomUUID();
         Gym gym = new Gym("CrossFit Gym");
-        String name = "CrossFit Gym";
+        String name = "Other Gym";
         User mockedUser = new User("MockedUser");
         gym.setUser(mockedUser);
         when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(gymRepository.existsByNameAndUserIdAndStatus(name, mockedUser.getId(), Status.active)).thenReturn(true);
-        DuplicateGymException exception = assertThrows(
-                DuplicateGymException.class,
-                () -> gymService.updateGym(gymId, name));
-        assertEquals("A gym with the name '" + gym.getName() + "' already exists for this user",
-                exception.getMessage());
-        verify(gymRepository, times(1)).existsByNameAndUserIdAndStatus(name, mockedUser.getId(), Status.active);
-        verify(gymRepository, never()).save(any(Gym.class));
+        when(gymRepository.saveAndFlush(gym)).thenThrow(new DataIntegrityViolationException("gyms_user_id_name_active_key"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> gymService.updateGym(gymId, name, null));
+    }
+
+    @Test
+    @DisplayName("Should throw PreconditionFailedException when the gym is no longer at the expected version")
+    void testUpdateGymStaleVersion() {
+        UUID gymId = UUID.randomUUID();
+        Gym gym = new Gym("CrossFit Gym");
+        gym.setUser(new User("MockedUser"));
+        ReflectionTestUtils.setField(gym, "version", 4L);
+        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
+
+        PreconditionFailedException exception = assertThrows(PreconditionFailedException.class,
+                () -> gymService.updateGym(gymId, "Other Gym", 3L));
+
+        assertEquals("Gym with id " + gymId + " has been modified", exception.getMessage());
+        assertEquals("CrossFit Gym", gym.getName());
+        verify(gymRepository, never()).saveAndFlush(any(Gym.class));
+    }
+
+    @Test
+    @DisplayName("Should update the gym when it is still at the expected version")
+    void testUpdateGymCurrentVersion() {
+        UUID gymId = UUID.randomUUID();
+        Gym gym = new Gym("CrossFit Gym");
+        gym.setUser(new User("MockedUser"));
+        ReflectionTestUtils.setField(gym, "version", 4L);
+        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
+        when(gymRepository.saveAndFlush(gym)).thenReturn(gym);
+
+        Gym result = gymService.updateGym(gymId, "Other Gym", 4L);
+
+        assertEquals("Other Gym", result.getName());
     }
 
     @Test
     @DisplayName("should return all active gyms from the repository")
     void testFindAllGyms() {
-        List<Gym> gyms = List.of(new Gym("Gym A"), new Gym("Gym B"), new Gym("Gym C"));
+        UUID ownerId = UUID.randomUUID();
+        List<GymDTO> gyms = List.of(
+                new GymDTO(UUID.randomUUID(), "Gym A", Status.active, Instant.now(), 0, ownerId),
+                new GymDTO(UUID.randomUUID(), "Gym B", Status.active, Instant.now(), 0, ownerId),
+                new GymDTO(UUID.randomUUID(), "Gym C", Status.active, Instant.now(), 0, ownerId));
 
-        when(gymRepository.findByStatus(Status.active)).thenReturn(gyms);
+        when(gymRepository.findDTOsByStatus(Status.active)).thenReturn(gyms);
 
-        List<Gym> result = gymService.findAll();
+        List<GymDTO> result = gymService.findAll();
 
         assertThat(result).hasSize(3);
         assertThat(result).containsExactlyInAnyOrderElementsOf(gyms);
@@ -148,9 +187,9 @@ public class GymServiceTest {
         ReflectionTestUtils.setField(gym, "id", UUID.randomUUID());
         gym.setStatus(Status.inactive);
 
-        when(gymRepository.findByStatus(Status.active)).thenReturn(List.of());
+        when(gymRepository.findDTOsByStatus(Status.active)).thenReturn(List.of());
 
-        List<Gym> result = gymService.findAll();
+        List<GymDTO> result = gymService.findAll();
 
         assertThat(result).isEmpty();
     }
@@ -159,100 +198,41 @@ public class GymServiceTest {
     @DisplayName("should delete a gym and inactivate workouts and their exercises")
     void testDeleteGymAndInactivateWorkouts() {
         UUID gymId = UUID.randomUUID();
-        Gym gym = new Gym("CrossFit Gym");
-        ReflectionTestUtils.setField(gym, "id", gymId);
-        gym.setStatus(Status.active);
-
-        Exercise exercise = new Exercise();
-        exercise.setName("Exercise 1");
-        ReflectionTestUtils.setField(exercise, "id", UUID.randomUUID());
-        exercise.setStatus(Status.active);
-
-        Workout workout = new Workout();
-        workout.setName("Workout 1");
-        ReflectionTestUtils.setField(workout, "id", UUID.randomUUID());
-        workout.setStatus(Status.active);
-        workout.setExerciseList(List.of(exercise));
-        Workout workoutInactive = new Workout();
-        workoutInactive.setStatus(Status.inactive);
-        gym.setWorkouts(List.of(workout, workoutInactive));
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-
-        doAnswer(invocation -> {
-            workout.setStatus(Status.inactive);
-            workout.getExerciseList().forEach(e -> e.setStatus(Status.inactive));
-            return null;
-        }).when(workoutService).deleteWorkout(workout.getId());
+        when(gymRepository.inactivate(eq(gymId), any(Instant.class))).thenReturn(1);
 
         gymService.deleteGym(gymId);
 
-        assertEquals(Status.inactive, gym.getStatus());
-        assertEquals(Status.inactive, workout.getStatus());
-        assertEquals(Status.inactive, exercise.getStatus());
-
-        verify(gymRepository).findById(gymId);
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        verify(gymRepository).inactivate(eq(gymId), now.capture());
+        verify(workoutService).deleteWorkoutsByGymId(gymId, now.getValue());
+        verify(ownershipIndex).forgetGym(gymId);
+        verify(gymRepository, never()).findById(any());
     }
 
     @Test
-    @DisplayName("should delete a gym when its workout list is empty")
-    void testDeleteGymEmptyWorkouts() {
-        UUID gymId = UUID.randomUUID();
-        Gym gym = new Gym("CrossFit Gym");
-        ReflectionTestUtils.setField(gym, "id", gymId);
-        gym.setStatus(Status.active);
-        gym.setWorkouts(List.of());
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-
-        gymService.deleteGym(gymId);
-
-        assertEquals(Status.inactive, gym.getStatus());
-
-        verify(gymRepository).findById(gymId);
-    }
-
-    @Test
-    @DisplayName("should delete a gym when its workout list is null")
-    void testDeleteGymNullWorkouts() {
-        UUID gymId = UUID.randomUUID();
-        Gym gym = new Gym("CrossFit Gym");
-        ReflectionTestUtils.setField(gym, "id", gymId);
-        gym.setStatus(Status.active);
-        gym.setWorkouts(null);
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-
-        gymService.deleteGym(gymId);
-
-        assertEquals(Status.inactive, gym.getStatus());
-
-        verify(gymRepository).findById(gymId);
-    }
-
-    @Test
-    @DisplayName("should throw GymNotFoundException when attempting to delete a gym that does not exist")
+    @DisplayName("should throw GymNotFoundException when attempting to delete a gym that does not exist or is inactive")
     void testDeleteGymNotFound() {
         UUID gymId = UUID.randomUUID();
-        when(gymRepository.findById(gymId)).thenReturn(Optional.empty());
+        when(gymRepository.inactivate(eq(gymId), any(Instant.class))).thenReturn(0);
         assertThrows(GymNotFoundException.class, () -> {
             gymService.deleteGym(gymId);
         });
-        verify(gymRepository, times(1)).findById(gymId);
+        verify(workoutService, never()).deleteWorkoutsByGymId(any(), any());
+        verify(ownershipIndex, never()).forgetGym(any());
     }
 
     @Test
-    @DisplayName("should throw GymNotFoundException when attempting to delete a inactive gym")
-    void testDeleteInactiveGym() {
-        UUID gymId = UUID.randomUUID();
-        Gym gym = new Gym("CrossFit Gym");
-        ReflectionTestUtils.setField(gym, "id", gymId);
-        gym.setStatus(Status.inactive);
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        assertThrows(GymNotFoundException.class, () -> {
-            gymService.deleteGym(gymId);
-        });
-        verify(gymRepository, times(1)).findById(gymId);
+    @DisplayName("should inactivate the workouts of a user before their gyms")
+    void testDeleteGymsByUserId() {
+        UUID userId = UUID.randomUUID();
+        Instant now = Instant.now();
+
+        gymService.deleteGymsByUserId(userId, now);
+
+        InOrder inOrder = inOrder(workoutService, gymRepository);
+        inOrder.verify(workoutService).deleteWorkoutsByUserId(userId, now);
+        inOrder.verify(gymRepository).inactivateByUserId(userId, now);
+        verify(ownershipIndex).forgetUser(userId);
     }
 
     @Test
@@ -296,37 +276,33 @@ public class GymServiceTest {
     @DisplayName("should return gyms when user exists and gyms are active")
     void testFindGymsByUserId() {
         UUID userId = UUID.randomUUID();
-        User user = new User("Test User");
-        Gym gym1 = new Gym("Gym 1");
-        Gym gym2 = new Gym("Gym 2");
-        Gym gym3 = new Gym("Gym 3");
-        gym3.setStatus(Status.inactive);
-        List<Gym> gyms = List.of(gym1, gym2);
+        List<GymDTO> gyms = List.of(
+                new GymDTO(UUID.randomUUID(), "Gym 1", Status.active, Instant.now(), 0, userId),
+                new GymDTO(UUID.randomUUID(), "Gym 2", Status.active, Instant.now(), 0, userId));
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(gymRepository.findByUserIdAndStatus(userId, Status.active)).thenReturn(gyms);
+        when(userRepository.existsByIdAndStatus(userId, Status.active)).thenReturn(true);
+        when(gymRepository.findDTOsByUserIdAndStatus(userId, Status.active)).thenReturn(gyms);
 
-        List<Gym> result = gymService.findGymsByUserId(userId);
+        List<GymDTO> result = gymService.findGymsByUserId(userId);
 
         assertThat(result).hasSize(2).containsExactlyElementsOf(gyms);
-        verify(userRepository).findById(userId);
-        verify(gymRepository).findByUserIdAndStatus(userId, Status.active);
+        verify(userRepository).existsByIdAndStatus(userId, Status.active);
+        verify(gymRepository).findDTOsByUserIdAndStatus(userId, Status.active);
     }
 
     @Test
     @DisplayName("should return empty list of gyms when user exists but has no active gyms")
     void testFindEmptyGymsByUserId() {
         UUID userId = UUID.randomUUID();
-        User user = new User("Test User");
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(gymRepository.findByUserIdAndStatus(userId, Status.active)).thenReturn(List.of());
+        when(userRepository.existsByIdAndStatus(userId, Status.active)).thenReturn(true);
+        when(gymRepository.findDTOsByUserIdAndStatus(userId, Status.active)).thenReturn(List.of());
 
-        List<Gym> result = gymService.findGymsByUserId(userId);
+        List<GymDTO> result = gymService.findGymsByUserId(userId);
 
         assertThat(result).isEmpty();
-        verify(userRepository).findById(userId);
-        verify(gymRepository).findByUserIdAndStatus(userId, Status.active);
+        verify(userRepository).existsByIdAndStatus(userId, Status.active);
+        verify(gymRepository).findDTOsByUserIdAndStatus(userId, Status.active);
     }
 
     @Test
@@ -334,13 +310,13 @@ public class GymServiceTest {
     void testFindGymsByUserId_userNotFound() {
         UUID userId = UUID.randomUUID();
 
-        when(userRepository.findById(userId))
-                .thenThrow(new UserNotFoundException("User with id " + userId + " not found"));
+        when(userRepository.existsByIdAndStatus(userId, Status.active)).thenReturn(false);
 
-        assertThrows(UserNotFoundException.class, () -> gymService.findGymsByUserId(userId));
+        UserNotFoundException exception = assertThrows(UserNotFoundException.class,
+                () -> gymService.findGymsByUserId(userId));
 
-        verify(userRepository).findById(userId);
-        verify(gymRepository, never()).findByUserIdAndStatus(any(), any());
+        assertEquals("User with id " + userId + " not found", exception.getMessage());
+        verify(gymRepository, never()).findDTOsByUserIdAndStatus(any(), any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.config.ShardRouter;
+import igym.entities.RefreshToken;
+import igym.entities.User;
+import igym.entities.enums.Status;
+import igym.exceptions.InvalidCredentialsException;
+import igym.repositories.RefreshTokenRepository;
+import igym.utils.Hashing;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository repository;
+    @Mock
+    private SessionService sessionService;
+
+    private RefreshTokenService service;
+    private User user;
+    private final UUID familyId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenService(repository, sessionService, ShardRouter.single(), 3600);
+        user = new User("Maria Clown");
+        ReflectionTestUtils.setField(user, "id", UUID.randomUUID());
+    }
+
+    private RefreshToken stored(String token, Instant expiresAt) {
+        RefreshToken refreshToken = new RefreshToken(Hashing.sha256Hex(token), familyId, user, expiresAt);
+        when(repository.findByDigestForUpdate(Hashing.sha256Hex(token))).thenReturn(Optional.of(refreshToken));
+        return refreshToken;
+    }
+
+    @Test
+    @DisplayName("Should issue a token in the family of the session and store only its digest")
+    void issueTest() {
+        String token = service.issue(user, familyId);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository).save(saved.capture());
+        assertEquals(Hashing.sha256Hex(token), saved.getValue().getTokenDigest());
+        assertEquals(familyId, saved.getValue().getFamilyId());
+        assertEquals(user, saved.getValue().getUser());
+        assertTrue(saved.getValue().getExpiresAt().isAfter(Instant.now().plusSeconds(3500)));
+    }
+
+    @Test
+    @DisplayName("Should rotate a token into a successor of the same family")
+    void rotateTest() {
+        RefreshToken current = stored("refresh", Instant.now().plusSeconds(60));
+
+        RefreshTokenService.Rotation rotation = service.rotate("refresh");
+
+        assertEquals(user, rotation.user());
+        assertEquals(familyId, rotation.sessionId());
+        assertNotEquals("refresh", rotation.refreshToken());
+        assertNotNull(current.getRotatedAt());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository, times(2)).save(saved.capture());
+        RefreshToken successor = saved.getAllValues().get(1);
+        assertEquals(familyId, successor.getFamilyId());
+        assertEquals(Hashing.sha256Hex(rotation.refreshToken()), successor.getTokenDigest());
+    }
+
+    @Test
+    @DisplayName("Should revoke the whole family when a rotated token is reused")
+    void reuseTest() {
+        RefreshToken current = stored("refresh", Instant.now().plusSeconds(60));
+        current.setRotatedAt(Instant.now().minusSeconds(10));
+
+        assertThrows(InvalidCredentialsException.class, () -> service.rotate("refresh"));
+
+        verify(repository).revokeFamily(eq(familyId), any());
+        verify(sessionService).end(familyId);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown token")
+    void unknownTokenTest() {
+        when(repository.findByDigestForUpdate(any())).thenReturn(Optional.empty());
+
+        assertThrows(InvalidCredentialsException.class, () -> service.rotate("unknown"));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should reject an expired token")
+    void expiredTokenTest() {
+        stored("refresh", Instant.now().minusSeconds(1));
+
+        assertThrows(InvalidCredentialsException.class, () -> service.rotate("refresh"));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should reject the token of an inactive user and revoke its family")
+    void inactiveUserTest() {
+        user.setStatus(Status.inactive);
+        stored("refresh", Instant.now().plusSeconds(60));
+
+        assertThrows(InvalidCredentialsException.class, () -> service.rotate("refresh"));
+        verify(repository).revokeFamily(eq(familyId), any());
+        verify(sessionService).end(familyId);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should revoke the family of a token on logout and ignore unknown tokens")
+    void revokeTest() {
+        stored("refresh", Instant.now().plusSeconds(60));
+        when(repository.findByDigestForUpdate(Hashing.sha256Hex("unknown"))).thenReturn(Optional.empty());
+
+        service.revoke("refresh");
+        service.revoke("unknown");
+
+        verify(repository).revokeFamily(eq(familyId), any());
+        verify(sessionService).end(familyId);
+    }
+
+    @Test
+    @DisplayName("Should revoke the tokens of a session and end it")
+    void revokeSessionTest() {
+        service.revokeSession(familyId);
+
+        verify(repository).revokeFamily(eq(familyId), any());
+        verify(sessionService).end(familyId);
+    }
+
+    @Test
+    @DisplayName("Should revoke every token of a user and end their sessions")
+    void revokeAllTest() {
+        service.revokeAll(user.getId());
+
+        verify(repository).revokeByUserId(eq(user.getId()), any());
+        verify(sessionService).endAll(user.getId());
+    }
+
+    @Test
+    @DisplayName("Should delete expired tokens")
+    void purgeExpiredTest() {
+        service.purgeExpired();
+
+        verify(repository).deleteExpired(any());
+    }
+}
@@ -0,0 +1,100 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.dtos.SessionDTO;
+import igym.entities.User;
+import igym.entities.UserSession;
+import igym.repositories.UserSessionRepository;
+import igym.security.SessionActivityTracker;
+
+@ExtendWith(MockitoExtension.class)
+class SessionServiceTest {
+
+    @Mock
+    private UserSessionRepository repository;
+    @Mock
+    private SessionActivityTracker activityTracker;
+
+    private SessionService sessionService;
+    private User user;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        sessionService = new SessionService(repository, activityTracker, 3600);
+        user = new User("Maria Clown");
+        ReflectionTestUtils.setField(user, "id", userId);
+    }
+
+    private UserSession session(String device) {
+        UserSession session = new UserSession(user, device);
+        ReflectionTestUtils.setField(session, "id", UUID.randomUUID());
+        return session;
+    }
+
+    @Test
+    @DisplayName("Should open a session and cut a long device name")
+    void openTest() {
+        when(repository.save(any(UserSession.class))).thenAnswer(invocation -> {
+            UserSession saved = invocation.getArgument(0);
+            ReflectionTestUtils.setField(saved, "id", UUID.randomUUID());
+            return saved;
+        });
+
+        UUID sessionId = sessionService.open(user, "x".repeat(300));
+
+        ArgumentCaptor<UserSession> saved = ArgumentCaptor.forClass(UserSession.class);
+        verify(repository).save(saved.capture());
+        assertEquals(sessionId, saved.getValue().getId());
+        assertEquals(255, saved.getValue().getDevice().length());
+        assertEquals(user, saved.getValue().getUser());
+    }
+
+    @Test
+    @DisplayName("Should report the pending last-seen time when it is newer than the stored one")
+    void findSessionsByUserIdTest() {
+        UserSession active = session("Firefox");
+        UserSession idle = session("curl");
+        Instant pending = Instant.now().plusSeconds(5);
+        when(repository.findOpenByUserId(eq(userId), any())).thenReturn(List.of(active, idle));
+        when(activityTracker.pendingLastSeen(active.getId())).thenReturn(pending);
+        when(activityTracker.pendingLastSeen(idle.getId())).thenReturn(null);
+
+        List<SessionDTO> sessions = sessionService.findSessionsByUserId(userId);
+
+        assertEquals(2, sessions.size());
+        assertEquals(pending, sessions.get(0).last_seen_at());
+        assertEquals(idle.getLastSeenAt(), sessions.get(1).last_seen_at());
+        assertEquals("curl", sessions.get(1).device());
+    }
+
+    @Test
+    @DisplayName("Should end a single session and every session of a user")
+    void endTest() {
+        UUID sessionId = UUID.randomUUID();
+
+        sessionService.end(sessionId);
+        sessionService.endAll(userId);
+
+        verify(repository).end(eq(sessionId), any());
+        verify(repository).endByUserId(eq(userId), any());
+    }
+}
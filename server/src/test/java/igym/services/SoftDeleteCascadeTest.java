@@ -0,0 +1,194 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import igym.config.ShardRouter;
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.entities.enums.Status;
+import igym.security.ApiKeyRegistry;
+import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.OwnershipIndex;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Runs the cascading soft deletes against an embedded database, checking that
+ * they reach exactly the rows under the deleted resource and that they take a
+ * fixed number of statements whatever the size of the tree.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ UserService.class, GymService.class, WorkoutService.class, ShardRouter.class })
+class SoftDeleteCascadeTest {
+
+    private static final int GYMS = 3;
+    private static final int WORKOUTS = 4;
+    private static final int EXERCISES = 5;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GymService gymService;
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private SecurityEpochCache securityEpochCache;
+    @MockitoBean
+    private LoginGuard loginGuard;
+    @MockitoBean
+    private TokenRevocationRegistry revocationRegistry;
+    @MockitoBean
+    private ActiveUsernameFilter activeUsernameFilter;
+    @MockitoBean
+    private ApiKeyRegistry apiKeyRegistry;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private SessionService sessionService;
+
+    private Statistics statistics;
+    private User owner;
+    private List<Gym> gyms;
+
+    @BeforeEach
+    void setUp() {
+        owner = seed("Maria Clown");
+        gyms = new ArrayList<>(owner.getGyms());
+        seed("John Clown");
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private User seed(String name) {
+        User user = new User(name);
+        user.setPassword("password");
+        user.setGyms(new ArrayList<>());
+        entityManager.persist(user);
+        for (int g = 0; g < GYMS; g++) {
+            Gym gym = new Gym(name + " Gym " + g);
+            gym.setUser(user);
+            entityManager.persist(gym);
+            user.getGyms().add(gym);
+            for (int w = 0; w < WORKOUTS; w++) {
+                Workout workout = new Workout();
+                workout.setName("Workout " + w);
+                workout.setGym(gym);
+                List<Exercise> exercises = new ArrayList<>();
+                for (int e = 0; e < EXERCISES; e++) {
+                    Exercise exercise = new Exercise();
+                    exercise.setName("Exercise " + e);
+                    exercise.setNumReps(10);
+                    exercise.setNumSets(3);
+                    exercise.setWorkout(workout);
+                    exercises.add(exercise);
+                }
+                workout.setExerciseList(exercises);
+                entityManager.persist(workout);
+            }
+        }
+        return user;
+    }
+
+    private long count(String entity, Status status) {
+        return entityManager.createQuery("SELECT count(x) FROM " + entity + " x WHERE x.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+
+    @Test
+    @DisplayName("Should inactivate a user's gyms, workouts and exercises with one statement per table")
+    void deleteUserTest() {
+        userService.deleteUser(owner.getId());
+        entityManager.flush();
+
+        assertEquals(5, statistics.getPrepareStatementCount(),
+                "user lookup, three bulk updates and the user update");
+        entityManager.clear();
+        assertEquals(GYMS, count("Gym", Status.inactive));
+        assertEquals(GYMS, count("Gym", Status.active));
+        assertEquals(GYMS * WORKOUTS, count("Workout", Status.inactive));
+        assertEquals(GYMS * WORKOUTS * EXERCISES, count("Exercise", Status.active));
+        assertEquals(Status.inactive, entityManager.find(User.class, owner.getId()).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should inactivate only the workouts and exercises of the deleted gym")
+    void deleteGymTest() {
+        gymService.deleteGym(gyms.get(0).getId());
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(1, count("Gym", Status.inactive));
+        assertEquals(WORKOUTS, count("Workout", Status.inactive));
+        assertEquals(WORKOUTS * EXERCISES, count("Exercise", Status.inactive));
+    }
+
+    @Test
+    @DisplayName("Should inactivate a workout and its exercises without loading them")
+    void deleteWorkoutTest() {
+        UUID workoutId = entityManager
+                .createQuery("SELECT w.id FROM Workout w WHERE w.gym.id = :gymId", UUID.class)
+                .setParameter("gymId", gyms.get(1).getId())
+                .setMaxResults(1)
+                .getSingleResult();
+        statistics.clear();
+
+        workoutService.deleteWorkout(workoutId);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, count("Workout", Status.inactive));
+        assertEquals(EXERCISES, count("Exercise", Status.inactive));
+    }
+
+    @Test
+    @DisplayName("Should reject a rename that read the gym before it was deleted")
+    void staleRenameAfterDeleteTest() {
+        Gym gym = gyms.get(2);
+        long version = gymService.findById(gym.getId()).getVersion();
+
+        gymService.deleteGym(gym.getId());
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> gymService.updateGym(gym.getId(), "Renamed Gym", version));
+    }
+}
@@ -0,0 +1,167 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import igym.config.ShardRouter;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.exceptions.GlobalExceptionHandler;
+import igym.security.ApiKeyRegistry;
+import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.OwnershipIndex;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Runs gym and user writes against the unique indexes on active names,
+ * checking that duplicates are rejected by the database without a lookup
+ * beforehand, that soft-deleted rows free their name, and that the violation
+ * reaches clients as a 409 Conflict.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ UserService.class, GymService.class, WorkoutService.class, ShardRouter.class })
+class UniqueActiveNameTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GymService gymService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private SecurityEpochCache securityEpochCache;
+    @MockitoBean
+    private LoginGuard loginGuard;
+    @MockitoBean
+    private TokenRevocationRegistry revocationRegistry;
+    @MockitoBean
+    private ActiveUsernameFilter activeUsernameFilter;
+    @MockitoBean
+    private ApiKeyRegistry apiKeyRegistry;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private SessionService sessionService;
+
+    private final GlobalExceptionHandler exceptionHandler = new GlobalExceptionHandler();
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordHashingService.encode(any())).thenReturn("hashed");
+        owner = userService.createUser(newUser("Maria Clown"));
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private User newUser(String name) {
+        User user = new User(name);
+        user.setPassword("password");
+        return user;
+    }
+
+    @Test
+    @DisplayName("Should create a gym with one owner lookup and one insert")
+    void createGymStatementCountTest() {
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    @DisplayName("Should answer a second active gym with the same name for the same user with 409 Conflict")
+    void createDuplicateGymTest() {
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> gymService.createGym(new Gym("Home Gym"), owner.getId()));
+
+        assertConflict("A gym with this name already exists for this user", exception);
+    }
+
+    @Test
+    @DisplayName("Should answer a rename to the name of another active gym of the user with 409 Conflict")
+    void updateDuplicateGymTest() {
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+        Gym other = gymService.createGym(new Gym("Work Gym"), owner.getId());
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> gymService.updateGym(other.getId(), "Home Gym", null));
+
+        assertConflict("A gym with this name already exists for this user", exception);
+    }
+
+    @Test
+    @DisplayName("Should accept a gym name used by a deleted gym or by another user")
+    void reuseGymNameTest() {
+        Gym deleted = gymService.createGym(new Gym("Home Gym"), owner.getId());
+        gymService.deleteGym(deleted.getId());
+        User other = userService.createUser(newUser("John Clown"));
+
+        gymService.createGym(new Gym("Home Gym"), owner.getId());
+        gymService.createGym(new Gym("Home Gym"), other.getId());
+    }
+
+    @Test
+    @DisplayName("Should answer a second active user with the same name with 409 Conflict")
+    void createDuplicateUserTest() {
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> userService.createUser(newUser("Maria Clown")));
+
+        assertConflict("A user with this name already exists", exception);
+    }
+
+    @Test
+    @DisplayName("Should accept a user name freed by a deleted user")
+    void reuseUserNameTest() {
+        userService.deleteUser(owner.getId());
+        entityManager.flush();
+
+        userService.createUser(newUser("Maria Clown"));
+    }
+
+    private void assertConflict(String message, DataIntegrityViolationException exception) {
+        ResponseEntity<Object> response = exceptionHandler.handleDataIntegrityViolationException(exception);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(message, ((Map<?, ?>) response.getBody()).get("message"));
+    }
+}
@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.time.Instant;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,21 +17,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import igym.config.ShardRouter;
 import igym.dtos.LoginResponseDTO;
-import igym.entities.Exercise;
-import igym.entities.Gym;
+import igym.dtos.UserDTO;
 import igym.entities.User;
-import igym.entities.Workout;
 import igym.entities.enums.Status;
 import igym.exceptions.UserNotFoundException;
-import igym.exceptions.DuplicateUserException;
 import igym.exceptions.InvalidCredentialsException;
 import igym.exceptions.InvalidPasswordException;
+import igym.exceptions.PreconditionFailedException;
+import igym.exceptions.PasswordHashingBusyException;
 import igym.repositories.UserRepository;
+import igym.security.ApiKeyRegistry;
 import igym.security.JwtUtil;
+import igym.security.LoginGuard;
+import igym.security.PasswordHashingService;
+import igym.security.SecurityEpochCache;
+import igym.security.TokenRevocationRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
@@ -39,9 +50,25 @@ class UserServiceTest {
     @Mock
     private GymService gymService;
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     @Mock
     private JwtUtil jwtUtil;
+    @Mock
+    private SecurityEpochCache securityEpochCache;
+    @Mock
+    private LoginGuard loginGuard;
+    @Mock
+    private TokenRevocationRegistry revocationRegistry;
+    @Mock
+    private ActiveUsernameFilter activeUsernameFilter;
+    @Mock
+    private ApiKeyRegistry apiKeyRegistry;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private SessionService sessionService;
+    @Spy
+    private ShardRouter shards = ShardRouter.single();
     @InjectMocks
     private UserService userService;
 
@@ -56,15 +83,16 @@ class UserServiceTest {
         user1.setPassword("ValidPassword");
         user2 = new User("John Textor");
         user2.setPassword("ValidPassword");
+        lenient().when(activeUsernameFilter.mightExist(any())).thenReturn(true);
     }
 
     @Test
     @DisplayName("Should return the list of saved users")
     void findAllTest() {
-        List<User> users = List.of(user1, user2);
-        when(userRepository.findByStatus(Status.active)).thenReturn(users);
+        List<UserDTO> users = List.of(new UserDTO(user1), new UserDTO(user2));
+        when(userRepository.findDTOsByStatus(Status.active)).thenReturn(users);
 
-        List<User> listUsers = userService.findAll();
+        List<UserDTO> listUsers = userService.findAll();
         assertThat(listUsers).hasSize(2);
         assertThat(listUsers).containsExactlyInAnyOrderElementsOf(users);
     }
@@ -72,8 +100,8 @@ class UserServiceTest {
     @Test
     @DisplayName("Should return an empty list if no user was saved")
     void emptyListTest() {
-        when(userRepository.findByStatus(Status.active)).thenReturn(List.of());
-        List<User> list = userService.findAll();
+        when(userRepository.findDTOsByStatus(Status.active)).thenReturn(List.of());
+        List<UserDTO> list = userService.findAll();
         assertTrue(list.isEmpty());
     }
 
@@ -89,9 +117,9 @@ class UserServiceTest {
         user1.setStatus(Status.active);
 
         when(userRepository.findByNameAndStatus(name, Status.active)).thenReturn(Optional.of(user1));
-        when(passwordEncoder.matches(rawPassword, encodedPassword)).thenReturn(true);
+        when(passwordHashingService.matches(rawPassword, encodedPassword)).thenReturn(true);
 
-        LoginResponseDTO result = userService.authenticate(name, rawPassword);
+        LoginResponseDTO result = userService.authenticate(name, rawPassword, null);
 
         assertNotNull(result);
         assertEquals(user1.getName(), result.name());
@@ -104,7 +132,7 @@ class UserServiceTest {
         String password = "irrelevant";
         when(userRepository.findByNameAndStatus(name, Status.active)).thenReturn(Optional.empty());
 
-        assertThrows(UserNotFoundException.class, () -> userService.authenticate(name, password));
+        assertThrows(UserNotFoundException.class, () -> userService.authenticate(name, password, null));
     }
 
     @Test
@@ -119,61 +147,24 @@ class UserServiceTest {
         user1.setStatus(Status.active);
 
         when(userRepository.findByNameAndStatus(name, Status.active)).thenReturn(Optional.of(user1));
-        when(passwordEncoder.matches(rawPassword, encodedPassword)).thenReturn(false);
+        when(passwordHashingService.matches(rawPassword, encodedPassword)).thenReturn(false);
 
-        assertThrows(InvalidCredentialsException.class, () -> userService.authenticate(name, rawPassword));
+        assertThrows(InvalidCredentialsException.class, () -> userService.authenticate(name, rawPassword, null));
     }
 
     @Test
     @DisplayName("Should inactivate user and all its gyms")
     void deleteUserTest() {
-        Gym gym = new Gym("Mocked Gym");
-        Gym gymInactive = new Gym("Mocked Inactive Gym");
-        gymInactive.setStatus(Status.inactive);
-        Exercise exercise = new Exercise();
-        exercise.setName("Mocked Exercise");
-        Workout workout = new Workout();
-        workout.setName("Mocked Workout");
-        workout.setExerciseList(List.of(exercise));
-        gym.setWorkouts(List.of(workout));
-        user1.setGyms(List.of(gym, gymInactive));
-        when(userRepository.findById(user1.getId())).thenReturn(Optional.of(user1));
-
-        doAnswer(invocation -> {
-            gym.setStatus(Status.inactive);
-            gym.getWorkouts().forEach(w -> {
-                w.setStatus(Status.inactive);
-                w.getExerciseList().forEach(e -> e.setStatus(Status.inactive));
-            });
-            return null;
-        }).when(gymService).deleteGym(gym.getId());
-
-        userService.deleteUser(user1.getId());
-        assertEquals(Status.inactive, user1.getStatus());
-        assertEquals(Status.inactive, gym.getStatus());
-        assertEquals(Status.inactive, gymInactive.getStatus());
-        assertEquals(Status.inactive, workout.getStatus());
-        assertEquals(Status.inactive, exercise.getStatus());
-    }
-
-    @Test
-    @DisplayName("Should inactivate user when list of gyms is empty")
-    void deleteUserEmptyGyms() {
-        user1.setGyms(List.of());
-        when(userRepository.findById(user1.getId())).thenReturn(Optional.of(user1));
-
-        userService.deleteUser(user1.getId());
-        assertEquals(Status.inactive, user1.getStatus());
-    }
-
-    @Test
-    @DisplayName("Should inactivate user when list of gyms is null")
-    void deleteUserNullGyms() {
-        user1.setGyms(null);
         when(userRepository.findById(user1.getId())).thenReturn(Optional.of(user1));
 
         userService.deleteUser(user1.getId());
         assertEquals(Status.inactive, user1.getStatus());
+        verify(gymService, times(1)).deleteGymsByUserId(eq(user1.getId()), any(Instant.class));
+        verify(userRepository, times(1)).save(user1);
+        verify(securityEpochCache, times(1)).revoke(user1.getId());
+        verify(activeUsernameFilter, times(1)).remove(user1.getName());
+        verify(apiKeyRegistry, times(1)).forgetUser(user1.getId());
+        verify(refreshTokenService, times(1)).revokeAll(user1.getId());
     }
 
     @Test
@@ -182,6 +173,8 @@ class UserServiceTest {
         when(userRepository.findById(user1.getId())).thenReturn(Optional.empty());
         assertThrowsExactly(UserNotFoundException.class, () -> userService.deleteUser(user1.getId()));
         verify(userRepository, never()).save(user1);
+        verify(gymService, never()).deleteGymsByUserId(any(), any());
+        verify(securityEpochCache, never()).revoke(any());
     }
 
     @Test
@@ -200,14 +193,19 @@ class UserServiceTest {
         User savedUser = userService.createUser(user1);
         assertEquals(user1, savedUser);
         verify(userRepository, times(1)).save(user1);
+        verify(userRepository, times(1)).flush();
+        verify(loginGuard, times(1)).forgetUnknownUser(user1.getName());
+        verify(activeUsernameFilter, times(1)).add(user1.getName());
     }
 
     @Test
-    @DisplayName("Should return an error when trying to create a duplicate user with status active")
+    @DisplayName("Should let the unique index violation through when creating a duplicate user with status active")
     void createDuplicateUserTest() {
-        when(userRepository.existsByNameAndStatus(user1.getName(), Status.active)).thenReturn(true);
-        assertThrows(DuplicateUserException.class, () -> userService.createUser(user1));
-        verify(userRepository, never()).save(user1);
+        when(userRepository.save(user1)).thenReturn(user1);
+        doThrow(new DataIntegrityViolationException("users_name_active_key")).when(userRepository).flush();
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(user1));
+        verify(activeUsernameFilter, never()).add(any());
+        verify(loginGuard, never()).forgetUnknownUser(any());
     }
 
     @Test
@@ -231,12 +229,15 @@ class UserServiceTest {
     void testUpdateUser() {
         String name = user2.getName();
         when(userRepository.findById(userId)).thenReturn(Optional.of(user1));
-        when(userRepository.existsByNameAndStatus(name, Status.active)).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(user1);
-        User result = userService.updateUser(userId, name);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user1);
+        User result = userService.updateUser(userId, name, null);
         assertThat(result).isNotNull();
         assertThat(result.getName()).isEqualTo(name);
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(securityEpochCache, times(1)).advance(userId);
+        verify(loginGuard, times(1)).forgetUnknownUser(name);
+        verify(activeUsernameFilter, times(1)).add(name);
+        verify(activeUsernameFilter, times(1)).remove("Maria Clown");
     }
 
     @Test
@@ -246,7 +247,7 @@ class UserServiceTest {
         when(userRepository.findById(userId)).thenReturn(Optional.empty());
         UserNotFoundException exception = assertThrows(
                 UserNotFoundException.class,
-                () -> userService.updateUser(userId, name));
+                () -> userService.updateUser(userId, name, null));
         assertEquals("User with id " + userId + " not found", exception.getMessage());
         verify(userRepository, never()).save(user1);
     }
@@ -259,24 +260,34 @@ class UserServiceTest {
         when(userRepository.findById(userId)).thenReturn(Optional.of(user1));
         UserNotFoundException exception = assertThrows(
                 UserNotFoundException.class,
-                () -> userService.updateUser(userId, name));
+                () -> userService.updateUser(userId, name, null));
         assertEquals("User with id " + userId + " not found", exception.getMessage());
         verify(userRepository, never()).save(user1);
     }
 
     @Test
-    @DisplayName("Should throw DuplicateUserException when attempting to update a user to a name that is already in use and if the updated name is the same as the existing one user active")
+    @DisplayName("Should let the unique index violation through and keep the name filter when renaming a user to a name already in use")
     void testUpdateUserExistingName() {
         String name = user2.getName();
         when(userRepository.findById(userId)).thenReturn(Optional.of(user1));
-        when(userRepository.existsByNameAndStatus(name, Status.active)).thenReturn(true);
-        DuplicateUserException exception = assertThrows(
-                DuplicateUserException.class,
-                () -> userService.updateUser(userId, name));
-        assertEquals("A user with the name '" + name + "' already exists.",
-                exception.getMessage());
-        verify(userRepository, times(1)).existsByNameAndStatus(name, Status.active);
-        verify(userRepository, never()).save(user1);
+        when(userRepository.saveAndFlush(user1)).thenThrow(new DataIntegrityViolationException("users_name_active_key"));
+        assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(userId, name, null));
+        verify(activeUsernameFilter, never()).remove(any());
+        verify(securityEpochCache, never()).advance(any());
+    }
+
+    @Test
+    @DisplayName("Should throw PreconditionFailedException when the user is no longer at the expected version")
+    void testUpdateUserStaleVersion() {
+        ReflectionTestUtils.setField(user1, "version", 2L);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user1));
+
+        PreconditionFailedException exception = assertThrows(PreconditionFailedException.class,
+                () -> userService.updateUser(userId, user2.getName(), 1L));
+
+        assertEquals("User with id " + userId + " has been modified", exception.getMessage());
+        verify(userRepository, never()).saveAndFlush(any());
+        verify(securityEpochCache, never()).advance(any());
     }
 
     @Test
@@ -313,7 +324,7 @@ class UserServiceTest {
         String userName = user1.getName();
         String userPassword = "password";
         when(userRepository.findByNameAndStatus(userName, Status.active)).thenThrow(new UserNotFoundException("User not found"));
-        assertThrows(UserNotFoundException.class, () -> userService.authenticate(userName, userPassword));
+        assertThrows(UserNotFoundException.class, () -> userService.authenticate(userName, userPassword, null));
         verify(userRepository, times(1)).findByNameAndStatus(userName, Status.active);
     }
 
@@ -324,10 +335,10 @@ class UserServiceTest {
         user1.setPassword("encodedPassword");
         String rawPassowrd = "rawPassowrd";
         when(userRepository.findByNameAndStatus(userName, Status.active)).thenReturn(Optional.of(user1));
-        when(passwordEncoder.matches(rawPassowrd, user1.getPassword())).thenReturn(false);
-        assertThrows(InvalidCredentialsException.class, () -> userService.authenticate(userName, rawPassowrd));
+        when(passwordHashingService.matches(rawPassowrd, user1.getPassword())).thenReturn(false);
+        assertThrows(InvalidCredentialsException.class, () -> userService.authenticate(userName, rawPassowrd, null));
         verify(userRepository, times(1)).findByNameAndStatus(userName, Status.active);
-        verify(passwordEncoder, times(1)).matches(rawPassowrd, user1.getPassword());
+        verify(passwordHashingService, times(1)).matches(rawPassowrd, user1.getPassword());
     }
 
     @Test
@@ -337,17 +348,171 @@ class UserServiceTest {
         user1.setPassword("encodedPassword");
         String rawPassowrd = "rawPassowrd";
         String token = "tokenExample";
-        LoginResponseDTO testResponse = new LoginResponseDTO(token, user1.getName());
+        LoginResponseDTO testResponse = new LoginResponseDTO(token, user1.getName(), "refreshExample");
 
         when(userRepository.findByNameAndStatus(userName, Status.active)).thenReturn(Optional.of(user1));
-        when(passwordEncoder.matches(rawPassowrd, user1.getPassword())).thenReturn(true);
-        when(jwtUtil.generateToken(user1.getId(), user1.getName())).thenReturn(token);
+        when(passwordHashingService.matches(rawPassowrd, user1.getPassword())).thenReturn(true);
+        UUID sessionId = UUID.randomUUID();
+        when(sessionService.open(user1, "Firefox")).thenReturn(sessionId);
+        when(jwtUtil.generateToken(user1.getId(), user1.getName(), sessionId)).thenReturn(token);
+        when(refreshTokenService.issue(user1, sessionId)).thenReturn("refreshExample");
 
-        LoginResponseDTO actualResponse = userService.authenticate(userName, rawPassowrd);
+        LoginResponseDTO actualResponse = userService.authenticate(userName, rawPassowrd, "Firefox");
         assertEquals(testResponse, actualResponse);
 
         verify(userRepository, times(1)).findByNameAndStatus(userName, Status.active);
-        verify(passwordEncoder, times(1)).matches(rawPassowrd, user1.getPassword());
-        verify(jwtUtil, times(1)).generateToken(user1.getId(), user1.getName());
+        verify(passwordHashingService, times(1)).matches(rawPassowrd, user1.getPassword());
+        verify(jwtUtil, times(1)).generateToken(user1.getId(), user1.getName(), sessionId);
+    }
+
+    @Test
+    @DisplayName("Should rehash and save the password when the stored hash uses a lower cost")
+    void testAuthenticationRehash() {
+        user1.setPassword("$2a$08$oldCostHash");
+        when(userRepository.findByNameAndStatus(user1.getName(), Status.active)).thenReturn(Optional.of(user1));
+        when(passwordHashingService.matches("rawPassword", "$2a$08$oldCostHash")).thenReturn(true);
+        when(passwordHashingService.needsRehash("$2a$08$oldCostHash")).thenReturn(true);
+        when(passwordHashingService.encode("rawPassword")).thenReturn("$2a$12$newCostHash");
+
+        userService.authenticate(user1.getName(), "rawPassword", null);
+
+        assertEquals("$2a$12$newCostHash", user1.getPassword());
+        verify(userRepository, times(1)).save(user1);
+    }
+
+    @Test
+    @DisplayName("Should not save the user when the stored hash uses the current cost")
+    void testAuthenticationNoRehash() {
+        user1.setPassword("$2a$12$currentCostHash");
+        when(userRepository.findByNameAndStatus(user1.getName(), Status.active)).thenReturn(Optional.of(user1));
+        when(passwordHashingService.matches("rawPassword", "$2a$12$currentCostHash")).thenReturn(true);
+        when(passwordHashingService.needsRehash("$2a$12$currentCostHash")).thenReturn(false);
+
+        userService.authenticate(user1.getName(), "rawPassword", null);
+
+        verify(passwordHashingService, never()).encode(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should still log in when the rehash is rejected by a saturated executor")
+    void testAuthenticationRehashBusy() {
+        user1.setPassword("$2a$08$oldCostHash");
+        when(userRepository.findByNameAndStatus(user1.getName(), Status.active)).thenReturn(Optional.of(user1));
+        when(passwordHashingService.matches("rawPassword", "$2a$08$oldCostHash")).thenReturn(true);
+        when(passwordHashingService.needsRehash("$2a$08$oldCostHash")).thenReturn(true);
+        when(passwordHashingService.encode("rawPassword")).thenThrow(new PasswordHashingBusyException("busy", 1));
+
+        LoginResponseDTO response = userService.authenticate(user1.getName(), "rawPassword", null);
+
+        assertEquals(user1.getName(), response.name());
+        assertEquals("$2a$08$oldCostHash", user1.getPassword());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should revoke the token until it expires on logout")
+    void testLogout() {
+        Date expiration = new Date((System.currentTimeMillis() / 1000 + 60) * 1000);
+        Claims claims = Jwts.claims().setSubject(userId.toString()).setId("token-id").setExpiration(expiration);
+        when(jwtUtil.extractAllClaims("token")).thenReturn(claims);
+
+        userService.logout("token", "refresh");
+
+        verify(revocationRegistry, times(1)).revoke("token-id", expiration.toInstant());
+        verify(refreshTokenService, times(1)).revoke("refresh");
+        verify(securityEpochCache, never()).advance(any());
+    }
+
+    @Test
+    @DisplayName("Should end the session named by the token on logout")
+    void testLogoutWithSession() {
+        UUID sessionId = UUID.randomUUID();
+        Claims claims = Jwts.claims().setSubject(userId.toString()).setId("token-id").setExpiration(new Date());
+        claims.put("sid", sessionId.toString());
+        when(jwtUtil.extractAllClaims("token")).thenReturn(claims);
+
+        userService.logout("token", "refresh");
+
+        verify(refreshTokenService, times(1)).revokeSession(sessionId);
+        verify(refreshTokenService, never()).revoke(any());
+    }
+
+    @Test
+    @DisplayName("Should revoke every token of the user on logout with a token without id")
+    void testLogoutWithoutTokenId() {
+        Claims claims = Jwts.claims().setSubject(userId.toString()).setExpiration(new Date());
+        when(jwtUtil.extractAllClaims("token")).thenReturn(claims);
+
+        userService.logout("token", null);
+
+        verify(securityEpochCache, times(1)).advance(userId);
+        verify(revocationRegistry, never()).revoke(any(), any());
+        verify(refreshTokenService, never()).revoke(any());
+    }
+
+    @Test
+    @DisplayName("Should issue a new access token and the rotated refresh token on refresh")
+    void testRefresh() {
+        UUID sessionId = UUID.randomUUID();
+        when(refreshTokenService.rotate("refresh"))
+                .thenReturn(new RefreshTokenService.Rotation(user1, "next", sessionId));
+        when(jwtUtil.generateToken(user1.getId(), user1.getName(), sessionId)).thenReturn("token");
+
+        LoginResponseDTO response = userService.refresh("refresh");
+
+        assertEquals(new LoginResponseDTO("token", user1.getName(), "next"), response);
+        verifyNoInteractions(userRepository, passwordHashingService);
+    }
+
+    @Test
+    @DisplayName("Should not issue an access token when the refresh token is rejected")
+    void testRefreshRejected() {
+        when(refreshTokenService.rotate("refresh")).thenThrow(new InvalidCredentialsException("Invalid refresh token"));
+
+        assertThrows(InvalidCredentialsException.class, () -> userService.refresh("refresh"));
+        verify(jwtUtil, never()).generateToken(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should create a user without querying for duplicates")
+    void createUserWithoutDuplicateQueryTest() {
+        when(userRepository.save(user1)).thenReturn(user1);
+
+        userService.createUser(user1);
+
+        verify(userRepository, never()).existsByNameAndStatus(any(), any());
+        verify(activeUsernameFilter, never()).mightExist(any());
+    }
+
+    @Test
+    @DisplayName("Should look the name up without asking the name filter, as it may be stale")
+    void testAuthenticationAbsentName() {
+        when(userRepository.findByNameAndStatus("ghost", Status.active)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.authenticate("ghost", "password", null));
+
+        verify(userRepository).findByNameAndStatus("ghost", Status.active);
+        verify(activeUsernameFilter, never()).mightExist(any());
+        verifyNoInteractions(passwordHashingService);
+    }
+
+    @Test
+    @DisplayName("Should report a name as available when the name filter rules it out")
+    void testNameAvailableFromFilter() {
+        when(activeUsernameFilter.mightExist("fresh")).thenReturn(false);
+
+        assertTrue(userService.isNameAvailable("fresh"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Should confirm availability against the database when the name filter may contain it")
+    void testNameAvailabilityFromDatabase() {
+        when(userRepository.existsByNameAndStatus("taken", Status.active)).thenReturn(true);
+        when(userRepository.existsByNameAndStatus("free", Status.active)).thenReturn(false);
+
+        assertFalse(userService.isNameAvailable("taken"));
+        assertTrue(userService.isNameAvailable("free"));
     }
 }
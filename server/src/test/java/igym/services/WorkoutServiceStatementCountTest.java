@@ -0,0 +1,207 @@
+package igym.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import igym.dtos.ExerciseDTO;
+import igym.dtos.WorkoutDTO;
+import igym.entities.Exercise;
+import igym.entities.Gym;
+import igym.entities.User;
+import igym.entities.Workout;
+import igym.entities.enums.Status;
+import igym.security.OwnershipIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Guards {@link WorkoutService#getWorkoutsByGymId} against N+1 queries and
+ * the workout writes against one INSERT per exercise, by counting the
+ * statements they prepare against an embedded database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(WorkoutService.class)
+class WorkoutServiceStatementCountTest {
+
+    private static final int WORKOUTS = 50;
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private OwnershipIndex ownershipIndex;
+
+    private Gym gym;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("Maria Clown");
+        user.setPassword("password");
+        entityManager.persist(user);
+
+        gym = new Gym("Clown Gym");
+        gym.setUser(user);
+        entityManager.persist(gym);
+
+        for (int i = 0; i < WORKOUTS; i++) {
+            Workout workout = new Workout();
+            workout.setName("Workout " + i);
+            workout.setGym(gym);
+            workout.setExerciseList(List.of(
+                    exercise(workout, "Squat", Status.active),
+                    exercise(workout, "Bench press", Status.active),
+                    exercise(workout, "Deadlift", Status.inactive)));
+            entityManager.persist(workout);
+        }
+
+        Workout inactive = new Workout();
+        inactive.setName("Old workout");
+        inactive.setGym(gym);
+        inactive.setStatus(Status.inactive);
+        inactive.setExerciseList(List.of(exercise(inactive, "Lunge", Status.active)));
+        entityManager.persist(inactive);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Exercise exercise(Workout workout, String name, Status status) {
+        Exercise exercise = new Exercise();
+        exercise.setName(name);
+        exercise.setNumReps(10);
+        exercise.setNumSets(3);
+        exercise.setStatus(status);
+        exercise.setWorkout(workout);
+        return exercise;
+    }
+
+    @Test
+    @DisplayName("Should load the workouts of a gym with a fixed number of statements and no entity")
+    void getWorkoutsByGymIdStatementCountTest() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<WorkoutDTO> workouts = workoutService.getWorkoutsByGymId(gym.getId());
+
+        assertEquals(3, statistics.getPrepareStatementCount(),
+                "gym check, workouts and exercises should take one statement each");
+        assertEquals(0, statistics.getEntityLoadCount(), "the listing should not load any entity");
+        assertEquals(WORKOUTS, workouts.size());
+
+        List<ExerciseDTO> exercises = new ArrayList<>();
+        workouts.forEach(workout -> exercises.addAll(workout.exerciseList()));
+        assertEquals(WORKOUTS * 2, exercises.size());
+        assertTrue(exercises.stream().allMatch(exercise -> exercise.status() == Status.active));
+    }
+
+    @Test
+    @DisplayName("Should insert the exercises of a new workout as one JDBC batch")
+    void createWorkoutStatementCountTest() {
+        Workout workout = new Workout();
+        workout.setName("Full body");
+        List<Exercise> exercises = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            exercises.add(exercise(null, "Exercise " + i, Status.active));
+        }
+        workout.setExerciseList(exercises);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Workout saved = workoutService.createWorkout(workout, gym.getId());
+        entityManager.flush();
+
+        assertEquals(3, statistics.getPrepareStatementCount(),
+                "gym lookup, workout insert and one batched exercise insert");
+        assertTrue(saved.getExerciseList().stream().allMatch(exercise -> exercise.getId().version() == 7));
+        assertEquals(7, saved.getId().version());
+    }
+
+    @Test
+    @DisplayName("Should write a one-field edit of a workout as one exercise UPDATE plus the workout version, without new rows")
+    void updateWorkoutStatementCountTest() {
+        Workout stored = storedWorkout();
+        Workout updated = copyOf(stored);
+        updated.getExerciseList().get(0).setNumReps(12);
+        long rows = exerciseRows();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Workout result = workoutService.updateWorkout(stored.getId(), updated, stored.getVersion());
+        entityManager.flush();
+
+        assertEquals(3, statistics.getPrepareStatementCount(),
+                "workout with exercises, one exercise update and the workout version update");
+        assertEquals(2, statistics.getEntityUpdateCount());
+        assertEquals(rows, exerciseRows());
+        assertEquals(stored.getVersion() + 1, result.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should write nothing and keep the version when an update changes nothing")
+    void unchangedUpdateStatementCountTest() {
+        Workout stored = storedWorkout();
+        Workout updated = copyOf(stored);
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Workout result = workoutService.updateWorkout(stored.getId(), updated, stored.getVersion());
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "workout with exercises");
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(stored.getVersion(), result.getVersion());
+    }
+
+    private Workout storedWorkout() {
+        return entityManager
+                .createQuery("SELECT w FROM Workout w WHERE w.status = :status", Workout.class)
+                .setParameter("status", Status.active)
+                .setMaxResults(1)
+                .getSingleResult();
+    }
+
+    private Workout copyOf(Workout stored) {
+        List<Exercise> incoming = new ArrayList<>();
+        stored.getExerciseList().stream()
+                .filter(exercise -> exercise.getStatus() == Status.active)
+                .forEach(exercise -> {
+                    Exercise copy = exercise(null, exercise.getName(), Status.active);
+                    ReflectionTestUtils.setField(copy, "id", exercise.getId());
+                    copy.setWeight(exercise.getWeight());
+                    copy.setNumReps(exercise.getNumReps());
+                    copy.setNumSets(exercise.getNumSets());
+                    copy.setNote(exercise.getNote());
+                    incoming.add(copy);
+                });
+        Workout updated = new Workout();
+        updated.setName(stored.getName());
+        updated.setExerciseList(incoming);
+        return updated;
+    }
+
+    private long exerciseRows() {
+        return entityManager.createQuery("SELECT count(e) FROM Exercise e", Long.class).getSingleResult();
+    }
+}
@@ -1,24 +1,30 @@
 package igym.services;
 
+import igym.dtos.ExerciseDTO;
+import igym.dtos.WorkoutDTO;
 import igym.entities.Exercise;
 import igym.entities.Gym;
 import igym.entities.Workout;
 import igym.entities.enums.Status;
 import igym.exceptions.ExerciseNotFoundException;
 import igym.exceptions.GymNotFoundException;
+import igym.exceptions.PreconditionFailedException;
 import igym.exceptions.WorkoutNotFoundException;
 import igym.repositories.ExerciseRepository;
 import igym.repositories.GymRepository;
 import igym.repositories.WorkoutRepository;
+import igym.security.OwnershipIndex;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +32,7 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -42,6 +49,9 @@ class WorkoutServiceTest {
     @Mock
     private GymRepository gymRepository;
 
+    @Mock
+    private OwnershipIndex ownershipIndex;
+
     @InjectMocks
     private WorkoutService workoutService;
 
@@ -110,159 +120,102 @@ class WorkoutServiceTest {
         verify(workoutRepository, never()).save(any());
     }
 
+    private WorkoutDTO workoutRow(String name, UUID gymId) {
+        return new WorkoutDTO(UUID.randomUUID(), name, Status.active, Instant.now(), 0, gymId);
+    }
+
+    private ExerciseDTO exerciseRow(String name, UUID workoutId) {
+        return new ExerciseDTO(UUID.randomUUID(), name, 0, 10, 3, null, Status.active, workoutId, Instant.now());
+    }
+
     @Test
     @DisplayName("Should return multiple workouts by gym ID")
     void testGetMultipleWorkoutsByGymId() {
-        Gym gym = new Gym("My Gym");
         UUID gymId = UUID.randomUUID();
+        WorkoutDTO workout1 = workoutRow("Upper Body", gymId);
+        WorkoutDTO workout2 = workoutRow("Leg Day", gymId);
+        ExerciseDTO ex1 = exerciseRow("Pushup", workout1.id());
+        ExerciseDTO ex2 = exerciseRow("Squat", workout2.id());
+        List<UUID> workoutIds = List.of(workout1.id(), workout2.id());
 
-        Exercise ex1 = new Exercise();
-        ex1.setName("Pushup");
-        ex1.setWeight(0);
-        ex1.setNumReps(15);
-        ex1.setNumSets(3);
-
-        Exercise ex2 = new Exercise();
-        ex2.setName("Squat");
-        ex2.setWeight(40);
-        ex2.setNumReps(10);
-        ex2.setNumSets(4);
-
-        Workout workout1 = new Workout();
-        workout1.setName("Upper Body");
-        workout1.setExerciseList(List.of(ex1));
-        workout1.setGym(gym);
-
-        Workout workout2 = new Workout();
-        workout2.setName("Leg Day");
-        workout2.setExerciseList(List.of(ex2));
-        workout2.setGym(gym);
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(workoutRepository.findByGymAndStatus(gym, Status.active)).thenReturn(List.of(workout1, workout2));
+        when(gymRepository.existsByIdAndStatus(gymId, Status.active)).thenReturn(true);
+        when(workoutRepository.findDTOsByGymIdAndStatus(gymId, Status.active)).thenReturn(List.of(workout1, workout2));
+        when(exerciseRepository.findDTOsByWorkoutIdInAndStatus(workoutIds, Status.active))
+                .thenReturn(List.of(ex2, ex1));
 
-        List<Workout> workouts = workoutService.getWorkoutsByGymId(gymId);
+        List<WorkoutDTO> workouts = workoutService.getWorkoutsByGymId(gymId);
 
         assertEquals(2, workouts.size());
-        assertEquals("Upper Body", workouts.get(0).getName());
-        assertEquals("Leg Day", workouts.get(1).getName());
-
-        verify(gymRepository, times(1)).findById(gymId);
-        verify(workoutRepository, times(1)).findByGymAndStatus(gym, Status.active);
+        assertEquals("Upper Body", workouts.get(0).name());
+        assertEquals(List.of(ex1), workouts.get(0).exerciseList());
+        assertEquals("Leg Day", workouts.get(1).name());
+        assertEquals(List.of(ex2), workouts.get(1).exerciseList());
+
+        verify(workoutRepository, times(1)).findDTOsByGymIdAndStatus(gymId, Status.active);
+        verify(exerciseRepository, times(1)).findDTOsByWorkoutIdInAndStatus(workoutIds, Status.active);
+        verify(gymRepository, never()).findById(any());
     }
 
     @Test
     @DisplayName("Should return empty list of workouts when the workouts are inactive")
     void testGetWorkoutsByGymIdInactive() {
-        Gym gym = new Gym("My Gym");
         UUID gymId = UUID.randomUUID();
 
-        Exercise ex1 = new Exercise();
-        ex1.setName("Pushup");
-        ex1.setWeight(0);
-        ex1.setNumReps(15);
-        ex1.setNumSets(3);
-        ex1.setStatus(Status.inactive);
-
-        Workout workout1 = new Workout();
-        workout1.setName("Upper Body");
-        workout1.setExerciseList(List.of(ex1));
-        workout1.setGym(gym);
-        workout1.setStatus(Status.inactive);
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(workoutRepository.findByGymAndStatus(gym, Status.active)).thenReturn(List.of());
+        when(gymRepository.existsByIdAndStatus(gymId, Status.active)).thenReturn(true);
+        when(workoutRepository.findDTOsByGymIdAndStatus(gymId, Status.active)).thenReturn(List.of());
 
-        List<Workout> workouts = workoutService.getWorkoutsByGymId(gymId);
+        List<WorkoutDTO> workouts = workoutService.getWorkoutsByGymId(gymId);
 
         assertEquals(0, workouts.size());
-        verify(gymRepository, times(1)).findById(gymId);
-        verify(workoutRepository, times(1)).findByGymAndStatus(gym, Status.active);
+        verify(workoutRepository, times(1)).findDTOsByGymIdAndStatus(gymId, Status.active);
+        verify(exerciseRepository, never()).findDTOsByWorkoutIdInAndStatus(any(), any());
     }
 
     @Test
     @DisplayName("Should return not return inactive exercises when workout is active in getWorkoutsByGymId")
     void testGetWorkoutsByGymIdInactiveExercises() {
-        Gym gym = new Gym("My Gym");
         UUID gymId = UUID.randomUUID();
+        WorkoutDTO workout1 = workoutRow("Upper Body", gymId);
 
-        Exercise ex1 = new Exercise();
-        ex1.setName("Pushup");
-        ex1.setWeight(0);
-        ex1.setNumReps(15);
-        ex1.setNumSets(3);
-        ex1.setStatus(Status.inactive);
-
-        Workout workout1 = new Workout();
-        workout1.setName("Upper Body");
-        workout1.setExerciseList(List.of(ex1));
-        workout1.setGym(gym);
-        workout1.setStatus(Status.active);
-
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(workoutRepository.findByGymAndStatus(gym, Status.active)).thenReturn(List.of(workout1));
+        when(gymRepository.existsByIdAndStatus(gymId, Status.active)).thenReturn(true);
+        when(workoutRepository.findDTOsByGymIdAndStatus(gymId, Status.active)).thenReturn(List.of(workout1));
+        when(exerciseRepository.findDTOsByWorkoutIdInAndStatus(List.of(workout1.id()), Status.active))
+                .thenReturn(List.of());
 
-        List<Workout> workouts = workoutService.getWorkoutsByGymId(gymId);
+        List<WorkoutDTO> workouts = workoutService.getWorkoutsByGymId(gymId);
 
         assertEquals(1, workouts.size());
-        assertEquals("Upper Body", workouts.get(0).getName());
-        assertEquals(0, workouts.get(0).getExerciseList().size());
-
-        verify(gymRepository, times(1)).findById(gymId);
-        verify(workoutRepository, times(1)).findByGymAndStatus(gym, Status.active);
+        assertEquals("Upper Body", workouts.get(0).name());
+        assertEquals(0, workouts.get(0).exerciseList().size());
     }
 
     @Test
     @DisplayName("Should throw GymNotFoundException when gym ID does not exist in getWorkoutsByGymId")
     void testGetWorkoutsByGymIdGymNotFound() {
         UUID gymId = UUID.randomUUID();
-        Gym gym = new Gym("My Gym");
 
-        when(gymRepository.findById(gymId)).thenReturn(Optional.of(gym));
-        when(gymRepository.findById(gymId)).thenReturn(Optional.empty());
+        when(gymRepository.existsByIdAndStatus(gymId, Status.active)).thenReturn(false);
 
         GymNotFoundException exception = assertThrows(
                 GymNotFoundException.class,
                 () -> workoutService.getWorkoutsByGymId(gymId));
 
         assertEquals("Gym with id " + gymId + " not found", exception.getMessage());
-        verify(gymRepository, times(1)).findById(gymId);
-        verify(workoutRepository, never()).findByGymAndStatus(gym, Status.active);
+        verify(workoutRepository, never()).findDTOsByGymIdAndStatus(any(), any());
 
     }
 
+    @Test
     @DisplayName("Test soft delete of existing workout")
     void testDeleteWorkoutByIdSuccess() {
         UUID workoutId = UUID.randomUUID();
-
-        Exercise ex1 = new Exercise();
-        ex1.setName("Squat");
-        ex1.setWeight(60);
-        ex1.setNumReps(10);
-        ex1.setNumSets(4);
-
-        Exercise ex2 = new Exercise();
-        ex2.setName("Plank");
-        ex2.setWeight(60);
-        ex2.setNumReps(10);
-        ex2.setNumSets(4);
-
-        Workout workout = new Workout();
-        workout.setName("Leg Day");
-        workout.setExerciseList(List.of(ex1, ex2));
-        workout.setStatus(Status.active);
-        ex1.setStatus(Status.active);
-        ex2.setStatus(Status.inactive);
-        ex1.setWorkout(workout);
-
-        when(workoutRepository.findById(workoutId)).thenReturn(java.util.Optional.of(workout));
+        when(workoutRepository.inactivate(eq(workoutId), any(Instant.class))).thenReturn(1);
 
         workoutService.deleteWorkout(workoutId);
 
-        assertEquals(Status.inactive, workout.getStatus());
-        assertEquals(Status.inactive, ex1.getStatus());
-        assertEquals(Status.inactive, ex2.getStatus());
-        verify(workoutRepository).save(workout);
+        verify(exerciseRepository).inactivateByWorkoutId(eq(workoutId), any(Instant.class));
+        verify(ownershipIndex).forgetWorkout(workoutId);
+        verify(workoutRepository, never()).findByIdAndStatus(any(), any());
     }
 
     @Test
@@ -270,31 +223,40 @@ class WorkoutServiceTest {
     void testDeleteWorkoutNotFound() {
         UUID workoutId = UUID.randomUUID();
 
-        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.empty());
+        when(workoutRepository.inactivate(eq(workoutId), any(Instant.class))).thenReturn(0);
 
         WorkoutNotFoundException exception = assertThrows(WorkoutNotFoundException.class,
                 () -> workoutService.deleteWorkout(workoutId));
 
         assertEquals("Workout with id " + workoutId + " not found", exception.getMessage());
-        verify(workoutRepository, never()).save(any());
+        verify(exerciseRepository, never()).inactivateByWorkoutId(any(), any());
+        verify(ownershipIndex, never()).forgetWorkout(any());
     }
 
     @Test
-    @DisplayName("Should delete workout with no exercises")
-    void testDeleteWorkoutWithNoExercises() {
-        UUID workoutId = UUID.randomUUID();
+    @DisplayName("Should inactivate the exercises of a gym before its workouts")
+    void testDeleteWorkoutsByGymId() {
+        UUID gymId = UUID.randomUUID();
+        Instant now = Instant.now();
 
-        Workout workout = new Workout();
-        workout.setName("Cardio Day");
-        workout.setStatus(Status.active);
-        workout.setExerciseList(null);
+        workoutService.deleteWorkoutsByGymId(gymId, now);
 
-        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.of(workout));
+        InOrder inOrder = inOrder(exerciseRepository, workoutRepository);
+        inOrder.verify(exerciseRepository).inactivateByGymId(gymId, now);
+        inOrder.verify(workoutRepository).inactivateByGymId(gymId, now);
+    }
 
-        workoutService.deleteWorkout(workoutId);
+    @Test
+    @DisplayName("Should inactivate the exercises of a user before their workouts")
+    void testDeleteWorkoutsByUserId() {
+        UUID userId = UUID.randomUUID();
+        Instant now = Instant.now();
+
+        workoutService.deleteWorkoutsByUserId(userId, now);
 
-        assertEquals(Status.inactive, workout.getStatus());
-        verify(workoutRepository).save(workout);
+        InOrder inOrder = inOrder(exerciseRepository, workoutRepository);
+        inOrder.verify(exerciseRepository).inactivateByUserId(userId, now);
+        inOrder.verify(workoutRepository).inactivateByUserId(userId, now);
     }
 
     @Test
@@ -309,12 +271,38 @@ class WorkoutServiceTest {
         ex1.setNumSets(4);
         ex1.setStatus(Status.active);
         ReflectionTestUtils.setField(ex1, "id", exerciseId);
+        Workout workout = new Workout();
+        ex1.setWorkout(workout);
 
         when(exerciseRepository.findByIdAndStatus(exerciseId, Status.active)).thenReturn(java.util.Optional.of(ex1));
 
         workoutService.deleteExercise(exerciseId);
 
         assertEquals(Status.inactive, ex1.getStatus());
+        assertNotNull(workout.getUpdated_at(), "the workout is touched so its version moves");
+    }
+
+    private Exercise storedExercise(Workout workout, String name, int reps) {
+        Exercise exercise = new Exercise();
+        ReflectionTestUtils.setField(exercise, "id", UUID.randomUUID());
+        exercise.setName(name);
+        exercise.setWeight(60);
+        exercise.setNumReps(reps);
+        exercise.setNumSets(4);
+        exercise.setWorkout(workout);
+        return exercise;
+    }
+
+    private Exercise incomingExercise(UUID id, String name, int reps) {
+        Exercise exercise = new Exercise();
+        if (id != null) {
+            ReflectionTestUtils.setField(exercise, "id", id);
+        }
+        exercise.setName(name);
+        exercise.setWeight(60);
+        exercise.setNumReps(reps);
+        exercise.setNumSets(4);
+        return exercise;
     }
 
     @Test
@@ -322,31 +310,83 @@ class WorkoutServiceTest {
     void testUpdateWorkout() {
         UUID workoutId = UUID.randomUUID();
         Workout existingWorkout = new Workout();
-        Exercise ex1 = new Exercise();
+        ReflectionTestUtils.setField(existingWorkout, "id", workoutId);
         existingWorkout.setName("Leg Day");
-        existingWorkout.setExerciseList(new ArrayList<>(List.of(ex1)));
-        existingWorkout.setStatus(Status.active);
+        Exercise squat = storedExercise(existingWorkout, "Squat", 10);
+        Exercise lunge = storedExercise(existingWorkout, "Lunge", 12);
+        existingWorkout.setExerciseList(new ArrayList<>(List.of(squat, lunge)));
+
+        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(Optional.of(existingWorkout));
+        when(exerciseRepository.save(any(Exercise.class))).thenAnswer(invocation -> {
+            Exercise saved = invocation.getArgument(0);
+            ReflectionTestUtils.setField(saved, "id", UUID.randomUUID());
+            return saved;
+        });
+
+        Exercise deadlift = incomingExercise(null, "Deadlift", 8);
+        Workout updatedWorkout = new Workout();
+        updatedWorkout.setName("Full Body Day");
+        updatedWorkout.setExerciseList(List.of(incomingExercise(squat.getId(), "Squat", 8), deadlift));
+
+        Workout result = workoutService.updateWorkout(workoutId, updatedWorkout, null);
+
+        assertEquals("Full Body Day", result.getName());
+        assertEquals(3, result.getExerciseList().size());
+        assertEquals(8, squat.getNumReps());
+        assertEquals(Status.active, squat.getStatus());
+        assertEquals(Status.inactive, lunge.getStatus());
+        assertEquals(existingWorkout, deadlift.getWorkout());
+        verify(exerciseRepository, times(1)).save(deadlift);
+        verify(ownershipIndex).registerExercise(deadlift.getId(), workoutId);
+        verify(ownershipIndex).forgetExercise(lunge.getId());
+        verify(workoutRepository, never()).save(any());
+    }
 
-        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.of(existingWorkout));
-        when(workoutRepository.save(any(Workout.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    @Test
+    @DisplayName("Should reject an exercise id that is not an active exercise of the workout")
+    void testUpdateWorkoutWithForeignExercise() {
+        UUID workoutId = UUID.randomUUID();
+        UUID foreignId = UUID.randomUUID();
+        Workout existingWorkout = new Workout();
+        existingWorkout.setName("Leg Day");
+        Exercise squat = storedExercise(existingWorkout, "Squat", 10);
+        existingWorkout.setExerciseList(new ArrayList<>(List.of(squat)));
 
-        Exercise ex2 = new Exercise();
-        ex2.setName("Deadlift");
-        ex2.setWeight(80);
-        ex2.setNumReps(8);
-        ex2.setNumSets(3);
+        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(Optional.of(existingWorkout));
 
         Workout updatedWorkout = new Workout();
-        updatedWorkout.setName("Full Body Day");
-        updatedWorkout.setExerciseList(new ArrayList<>(List.of(ex2)));
+        updatedWorkout.setName("Leg Day");
+        updatedWorkout.setExerciseList(List.of(incomingExercise(foreignId, "Squat", 8)));
 
-        workoutService.updateWorkout(workoutId, updatedWorkout);
+        ExerciseNotFoundException exception = assertThrows(ExerciseNotFoundException.class,
+                () -> workoutService.updateWorkout(workoutId, updatedWorkout, null));
 
-        assertEquals("Full Body Day", existingWorkout.getName());
-        assertEquals(1, existingWorkout.getExerciseList().size());
-        assertEquals("Deadlift", existingWorkout.getExerciseList().get(0).getName());
-        assertEquals(Status.active, existingWorkout.getStatus());
+        assertEquals("Exercise with id " + foreignId + " not found", exception.getMessage());
+        verify(exerciseRepository, never()).save(any());
+    }
 
+    @Test
+    @DisplayName("Should throw PreconditionFailedException when the workout is no longer at the expected version")
+    void testUpdateWorkoutStaleVersion() {
+        UUID workoutId = UUID.randomUUID();
+        Workout existingWorkout = new Workout();
+        existingWorkout.setName("Leg Day");
+        Exercise squat = storedExercise(existingWorkout, "Squat", 10);
+        existingWorkout.setExerciseList(new ArrayList<>(List.of(squat)));
+        ReflectionTestUtils.setField(existingWorkout, "version", 7L);
+
+        when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(Optional.of(existingWorkout));
+
+        Workout updatedWorkout = new Workout();
+        updatedWorkout.setName("Leg Day Updated");
+        updatedWorkout.setExerciseList(List.of(incomingExercise(squat.getId(), "Squat", 8)));
+
+        PreconditionFailedException exception = assertThrows(PreconditionFailedException.class,
+                () -> workoutService.updateWorkout(workoutId, updatedWorkout, 6L));
+
+        assertEquals("Workout with id " + workoutId + " has been modified", exception.getMessage());
+        assertEquals("Leg Day", existingWorkout.getName());
+        assertEquals(10, squat.getNumReps());
     }
 
     @Test
@@ -357,7 +397,7 @@ class WorkoutServiceTest {
         when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.empty());
 
         WorkoutNotFoundException exception = assertThrows(WorkoutNotFoundException.class,
-                () -> workoutService.updateWorkout(workoutId, new Workout()));
+                () -> workoutService.updateWorkout(workoutId, new Workout(), null));
 
         assertEquals("Workout with id " + workoutId + " not found", exception.getMessage());
         verify(workoutRepository, never()).save(any());
@@ -370,22 +410,21 @@ class WorkoutServiceTest {
 
         Workout existingWorkout = new Workout();
         existingWorkout.setName("Leg Day");
-        existingWorkout.setExerciseList(new ArrayList<>());
+        Exercise squat = storedExercise(existingWorkout, "Squat", 10);
+        existingWorkout.setExerciseList(new ArrayList<>(List.of(squat)));
         existingWorkout.setStatus(Status.active);
 
         when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.of(existingWorkout));
-        when(workoutRepository.save(any(Workout.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Workout updatedWorkout = new Workout();
         updatedWorkout.setName("Leg Day Updated");
         updatedWorkout.setExerciseList(null);
 
-        workoutService.updateWorkout(workoutId, updatedWorkout);
+        workoutService.updateWorkout(workoutId, updatedWorkout, null);
 
         assertEquals("Leg Day Updated", existingWorkout.getName());
-        assertEquals(0, existingWorkout.getExerciseList().size());
+        assertEquals(Status.inactive, squat.getStatus());
         assertEquals(Status.active, existingWorkout.getStatus());
-        verify(workoutRepository).save(existingWorkout);
     }
 
 
@@ -437,33 +476,28 @@ class WorkoutServiceTest {
     @DisplayName("Test update workout and its exercises trying to set the status to inactive should return a workout and it's exercises with status active")
     void testUpdateWorkoutAndItsExercisesTryingToSetStatusToInactive() {
         UUID workoutId = UUID.randomUUID();
-        Exercise ex1 = new Exercise();
         Workout existingWorkout = new Workout();
         existingWorkout.setName("Leg Day");
-        existingWorkout.setExerciseList(new ArrayList<>(List.of(ex1)));
+        Exercise squat = storedExercise(existingWorkout, "Squat", 10);
+        existingWorkout.setExerciseList(new ArrayList<>(List.of(squat)));
         existingWorkout.setStatus(Status.active);
 
         when(workoutRepository.findByIdAndStatus(workoutId, Status.active)).thenReturn(java.util.Optional.of(existingWorkout));
-        when(workoutRepository.save(any(Workout.class))).thenAnswer(invocation -> invocation.getArgument(0));
-
-        Exercise ex2 = new Exercise();
-        ex2.setName("Deadlift");
-        ex2.setWeight(80);
-        ex2.setNumReps(8);
-        ex2.setNumSets(3);
+        when(exerciseRepository.save(any(Exercise.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Workout updatedWorkout = new Workout();
         updatedWorkout.setName("Full Body Day");
-        updatedWorkout.setExerciseList(new ArrayList<>(List.of(ex2)));
+        updatedWorkout.setExerciseList(new ArrayList<>(List.of(
+                incomingExercise(squat.getId(), "Squat", 10), incomingExercise(null, "Deadlift", 8))));
         updatedWorkout.setStatus(Status.inactive);
         updatedWorkout.getExerciseList().forEach(ex -> ex.setStatus(Status.inactive));
 
-        workoutService.updateWorkout(workoutId, updatedWorkout);
+        workoutService.updateWorkout(workoutId, updatedWorkout, null);
 
         assertEquals("Full Body Day", existingWorkout.getName());
-        assertEquals(1, existingWorkout.getExerciseList().size());
-        assertEquals("Deadlift", existingWorkout.getExerciseList().get(0).getName());
+        assertEquals(2, existingWorkout.getExerciseList().size());
+        assertEquals("Deadlift", existingWorkout.getExerciseList().get(1).getName());
         assertEquals(Status.active, existingWorkout.getStatus());
-        assertEquals(Status.active, existingWorkout.getExerciseList().get(0).getStatus());
+        existingWorkout.getExerciseList().forEach(ex -> assertEquals(Status.active, ex.getStatus()));
     }
 }
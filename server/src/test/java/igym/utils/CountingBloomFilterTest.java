@@ -0,0 +1,70 @@
+package igym.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CountingBloomFilterTest {
+
+    @Test
+    @DisplayName("Should report added strings and forget removed ones")
+    void addRemoveTest() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+
+        filter.add("alice");
+        filter.add("bob");
+        assertTrue(filter.mightContain("alice"));
+        assertTrue(filter.mightContain("bob"));
+
+        filter.remove("alice");
+        assertFalse(filter.mightContain("alice"));
+        assertTrue(filter.mightContain("bob"));
+    }
+
+    @Test
+    @DisplayName("Should keep a string that was added twice until it is removed twice")
+    void duplicateTest() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+
+        filter.add("alice");
+        filter.add("alice");
+        filter.remove("alice");
+        assertTrue(filter.mightContain("alice"));
+
+        filter.remove("alice");
+        assertFalse(filter.mightContain("alice"));
+    }
+
+    @Test
+    @DisplayName("Should never turn a present string absent when counters saturate")
+    void saturationTest() {
+        CountingBloomFilter filter = new CountingBloomFilter(1, 0.5);
+        for (int i = 0; i < 300; i++) {
+            filter.add("alice");
+        }
+        for (int i = 0; i < 300; i++) {
+            filter.remove("alice");
+        }
+        filter.remove("never-added");
+
+        assertTrue(filter.mightContain("alice"));
+    }
+
+    @Test
+    @DisplayName("Should keep every added string after many other removals")
+    void noFalseNegativesTest() {
+        CountingBloomFilter filter = new CountingBloomFilter(2_000, 0.01);
+        for (int i = 0; i < 2_000; i++) {
+            filter.add("user" + i);
+        }
+        for (int i = 0; i < 2_000; i += 2) {
+            filter.remove("user" + i);
+        }
+
+        for (int i = 1; i < 2_000; i += 2) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+}
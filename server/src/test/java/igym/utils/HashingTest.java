@@ -0,0 +1,42 @@
+package igym.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HashingTest {
+
+    @Test
+    @DisplayName("Should compute a hex SHA-256 digest")
+    void sha256HexTest() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", Hashing.sha256Hex("abc"));
+        assertEquals(32, Hashing.sha256("abc").length);
+    }
+
+    @Test
+    @DisplayName("Should generate distinct URL-safe random tokens")
+    void randomTokenTest() {
+        String first = Hashing.randomToken(32);
+        String second = Hashing.randomToken(32);
+
+        assertEquals(43, first.length());
+        assertTrue(first.matches("[A-Za-z0-9_-]+"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Should match the SipHash-2-4 reference vectors")
+    void sipHashTest() {
+        long k0 = 0x0706050403020100L;
+        long k1 = 0x0f0e0d0c0b0a0908L;
+
+        assertEquals(0x726fdb47dd0e0e31L, Hashing.sipHash(k0, k1, ""));
+        assertEquals(0x93f5f5799a932462L, Hashing.sipHash(k0, k1, "\u0100\u0302\u0504\u0706"));
+        assertEquals(0xf723ca908e7af2eeL,
+                Hashing.sipHash(k0, k1, "\u0100\u0302\u0504\u0706\u0908\u0b0a\u0d0c"));
+        assertNotEquals(Hashing.sipHash(k0, k1, "key"), Hashing.sipHash(k1, k0, "key"));
+    }
+}
@@ -0,0 +1,81 @@
+package igym.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UuidV7Test {
+
+    @Test
+    @DisplayName("Should create version 7 UUIDs carrying the current time")
+    void layoutTest() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(UuidV7.timestamp(uuid) >= before && UuidV7.timestamp(uuid) <= after);
+    }
+
+    @Test
+    @DisplayName("Should keep increasing within a millisecond and when the clock steps back")
+    void monotonicTest() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        UuidV7 generator = new UuidV7(clock::get);
+        UUID previous = generator.generate();
+
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-1_000);
+            } else if (i % 1_000 == 0) {
+                clock.incrementAndGet();
+            }
+            UUID current = generator.generate();
+            assertTrue(current.compareTo(previous) > 0, "UUIDs should be strictly increasing");
+            assertEquals(7, current.version());
+            previous = current;
+        }
+    }
+
+    @Test
+    @DisplayName("Should create unique, per-thread increasing UUIDs under concurrency")
+    void concurrentTest() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        ConcurrentHashMap<UUID, Boolean> seen = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    UUID previous = UuidV7.next();
+                    boolean increasing = seen.putIfAbsent(previous, true) == null;
+                    for (int i = 1; i < perThread; i++) {
+                        UUID current = UuidV7.next();
+                        increasing &= current.compareTo(previous) > 0 && seen.putIfAbsent(current, true) == null;
+                        previous = current;
+                    }
+                    return increasing;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(threads * perThread, seen.size());
+    }
+}